@@ -0,0 +1,358 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>
+ * A base class for Bloom filters of ULIDs.
+ * </p>
+ * <p>
+ * The 80-bit randomness of ULIDs is already uniformly distributed, so the
+ * filters take their probe positions directly from the randomness instead of
+ * hashing the text or the bytes of ULIDs. No object is allocated per
+ * insertion or per query.
+ * </p>
+ * <p>
+ * ULIDs of a monotonic run differ only by small increments of their
+ * randomness. Probe positions taken from the raw bits would be shifted copies
+ * of each other and would collide far more often than random positions, so
+ * the randomness is multiplied by odd constants first. The multiplication is
+ * a bijection and takes a few cycles.
+ * </p>
+ * <p>
+ * Instances of the implementation classes are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public abstract class AbstractUlidBloomFilter
+{
+  /**
+   * Reads a filter serialized by {@link #toByteArray()}.
+   *
+   * @param bytes A byte array that contains a serialized filter.
+   * @param offset An offset of {@code bytes} where the content starts from.
+   * @return The filter. Its type is the same as the type of the serialized
+   * filter.
+   * @throws NullPointerException If {@code bytes} is {@code null}.
+   * @throws IllegalArgumentException If {@code offset} is out of range or the
+   * content is not a valid serialized filter.
+   */
+  public static AbstractUlidBloomFilter from(byte[] bytes, int offset)
+  {
+    Objects.requireNonNull(bytes, "'bytes' cannot be null");
+    if(offset < 0 || bytes.length - offset < HEADER_SIZE)
+    {
+      throw new IllegalArgumentException(
+        "'bytes' does not have enough bytes");
+    }
+
+    final ByteBuffer buffer = ByteBuffer
+      .wrap(bytes, offset, bytes.length - offset);
+    if(MAGIC != buffer.getInt())
+    {
+      throw new IllegalArgumentException("'bytes' is not a serialized filter");
+    }
+
+    final int type = buffer.get();
+    final int hashCount = buffer.get();
+    final int log2BitCount = buffer.get();
+    buffer.get();
+
+    if(log2BitCount < MIN_LOG2_BIT_COUNT || log2BitCount > MAX_LOG2_BIT_COUNT)
+    {
+      throw new IllegalArgumentException("The bit count is out of range");
+    }
+    if(hashCount < 1)
+    {
+      throw new IllegalArgumentException("The hash count is out of range");
+    }
+
+    if(buffer.remaining() < (1L << (log2BitCount - 3)))
+    {
+      throw new IllegalArgumentException(
+        "'bytes' does not have enough bytes");
+    }
+    final long[] words = new long[1 << (log2BitCount - 6)];
+    buffer.asLongBuffer().get(words);
+
+    final AbstractUlidBloomFilter result;
+
+    switch(type)
+    {
+    case UlidBloomFilter.TYPE:
+      result = new UlidBloomFilter(words, hashCount);
+      break;
+    case BlockedUlidBloomFilter.TYPE:
+      result = new BlockedUlidBloomFilter(words, hashCount);
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown filter type " + type);
+    }
+
+    return result;
+  }
+
+  /**
+   * Constructs an instance of {@link AbstractUlidBloomFilter} with an array of
+   * words.
+   *
+   * @param words The bits of the filter. The length must be a power of two.
+   * @param hashCount The number of probes per ULID.
+   */
+  AbstractUlidBloomFilter(long[] words, int hashCount)
+  {
+    this.words = words;
+    this.hashCount = hashCount;
+    log2BitCount = Long.numberOfTrailingZeros(words.length) + 6;
+  }
+
+  /**
+   * Gets the number of bits of the filter.
+   *
+   * @return The number of bits.
+   */
+  public long getBitCount()
+  {
+    return (long)words.length << 6;
+  }
+
+  /**
+   * Gets the number of probes per ULID.
+   *
+   * @return The number of probes.
+   */
+  public int getHashCount()
+  {
+    return hashCount;
+  }
+
+  /**
+   * Adds an ULID to the filter.
+   *
+   * @param ulid An ULID.
+   * @return {@code true} if any bit of the filter has been changed,
+   * {@code false} otherwise.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public boolean put(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return put(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Adds an ULID to the filter.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} if any bit of the filter has been changed,
+   * {@code false} otherwise.
+   */
+  public abstract boolean put(long mostSigBits, long leastSigBits);
+
+  /**
+   * Checks if the filter might contain an ULID.
+   *
+   * @param ulid An ULID.
+   * @return {@code false} if the filter definitely does not contain the ULID,
+   * {@code true} otherwise.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public boolean mightContain(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return mightContain(
+      ulid.getMostSignificantBits(),
+      ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Checks if the filter might contain an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code false} if the filter definitely does not contain the ULID,
+   * {@code true} otherwise.
+   */
+  public abstract boolean mightContain(long mostSigBits, long leastSigBits);
+
+  /**
+   * Adds every ULID of another filter to this filter.
+   *
+   * @param other A filter of the same type, the same number of bits and the
+   * same number of probes.
+   * @throws NullPointerException If {@code other} is {@code null}.
+   * @throws IllegalArgumentException If {@code other} is not compatible with
+   * this filter.
+   */
+  public void merge(AbstractUlidBloomFilter other)
+  {
+    Objects.requireNonNull(other, "'other' cannot be null");
+    if(
+      getClass() != other.getClass()
+        || words.length != other.words.length
+        || hashCount != other.hashCount
+    )
+    {
+      throw new IllegalArgumentException(
+        "'other' is not compatible with the filter");
+    }
+
+    for(int i = 0; i < words.length; ++i)
+    {
+      words[i] |= other.words[i];
+    }
+  }
+
+  /**
+   * Removes every ULID from the filter.
+   */
+  public void clear()
+  {
+    for(int i = 0; i < words.length; ++i)
+    {
+      words[i] = 0L;
+    }
+  }
+
+  /**
+   * Estimates the probability that {@link #mightContain(long, long)} returns
+   * {@code true} for an ULID that has not been added, based on the ratio of
+   * set bits.
+   *
+   * @return The estimated false positive probability.
+   */
+  public double estimateFalsePositiveProbability()
+  {
+    long setBitCount = 0L;
+    for(final long word : words)
+    {
+      setBitCount += Long.bitCount(word);
+    }
+
+    return Math.pow((double)setBitCount / getBitCount(), hashCount);
+  }
+
+  /**
+   * Serializes the filter. The result can be read by
+   * {@link #from(byte[], int)}.
+   *
+   * @return A byte array that represents the filter.
+   */
+  public byte[] toByteArray()
+  {
+    final ByteBuffer buffer = ByteBuffer
+      .allocate(HEADER_SIZE + words.length * 8);
+
+    buffer.putInt(MAGIC);
+    buffer.put((byte)getType());
+    buffer.put((byte)hashCount);
+    buffer.put((byte)log2BitCount);
+    buffer.put((byte)0);
+    buffer.asLongBuffer().put(words);
+
+    return buffer.array();
+  }
+
+  /**
+   * The minimum number of bits in base 2 logarithm.
+   */
+  static final int MIN_LOG2_BIT_COUNT = 9;
+
+  /**
+   * The maximum number of bits in base 2 logarithm. The serialized form of
+   * the largest filter, 1 GiB of words and the header, still fits in a byte
+   * array.
+   */
+  static final int MAX_LOG2_BIT_COUNT = 33;
+
+  /**
+   * Computes the number of bits for specified parameters, rounded up to a
+   * power of two.
+   */
+  static int computeLog2BitCount(long expectedInsertions, double fpp)
+  {
+    if(expectedInsertions <= 0L)
+    {
+      throw new IllegalArgumentException(
+        "'expectedInsertions' must be positive");
+    }
+    if(!(fpp > 0.0 && fpp < 1.0))
+    {
+      throw new IllegalArgumentException(
+        "'falsePositiveProbability' must be in (0, 1)");
+    }
+
+    final double bits = -expectedInsertions * Math.log(fpp)
+      / (Math.log(2.0) * Math.log(2.0));
+    int log2 = MIN_LOG2_BIT_COUNT;
+    while(log2 < MAX_LOG2_BIT_COUNT && (double)(1L << log2) < bits)
+    {
+      ++log2;
+    }
+
+    return log2;
+  }
+
+  /**
+   * Computes the optimal number of probes for specified parameters.
+   */
+  static int computeHashCount(long expectedInsertions, int log2BitCount)
+  {
+    final long hashCount = Math.round(
+      (double)(1L << log2BitCount) / expectedInsertions * Math.log(2.0));
+
+    return (int)Math.max(1L, Math.min(MAX_HASH_COUNT, hashCount));
+  }
+
+  /**
+   * Gets the type code that is written to the serialized form.
+   */
+  abstract int getType();
+
+  /**
+   * Scrambles the least significant 64 bits of an ULID. The high bits of the
+   * result are the best mixed.
+   */
+  static long firstProbeValue(long leastSigBits)
+  {
+    return leastSigBits * 0x9E3779B97F4A7C15L;
+  }
+
+  /**
+   * Scrambles the whole randomness of an ULID with a constant that differs
+   * from the one of {@link #firstProbeValue(long)}. The high bits of the
+   * result are the best mixed.
+   */
+  static long secondProbeValue(long mostSigBits, long leastSigBits)
+  {
+    return (leastSigBits
+      ^ ((mostSigBits & Ulid.RANDOMNESS_MAX_VALUE_MS_BITS) << 48))
+      * 0xC2B2AE3D27D4EB4FL;
+  }
+
+  /**
+   * The bits of the filter.
+   */
+  final long[] words;
+
+  /**
+   * The number of probes per ULID.
+   */
+  final int hashCount;
+
+  /**
+   * The number of bits in base 2 logarithm.
+   */
+  final int log2BitCount;
+
+  private static final int MAGIC = 0x55424C46;
+
+  private static final int HEADER_SIZE = 8;
+
+  private static final int MAX_HASH_COUNT = 30;
+}
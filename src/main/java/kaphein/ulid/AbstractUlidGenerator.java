@@ -1,6 +1,11 @@
 package kaphein.ulid;
 
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Random;
 
@@ -28,6 +33,7 @@ public abstract class AbstractUlidGenerator implements UlidGenerator
       ? DEFAULT_EPOCH_MILLI_SUPPLIER
       : epochMilliSupplier);
     this.rng = (null == rng ? DEFAULT_RNG : rng);
+    randomnessOverridden = overridesGenerateRandomness(getClass());
   }
 
   /**
@@ -50,6 +56,271 @@ public abstract class AbstractUlidGenerator implements UlidGenerator
     return rng;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This implementation calls {@link #generate(int)}.
+   * </p>
+   */
+  @Override
+  public Ulid next()
+  {
+    final List<Ulid> ulids = generate(1);
+
+    return (ulids.isEmpty() ? null : ulids.get(0));
+  }
+
+  /**
+   * <p>
+   * Generates an ULID, waiting for the next timestamp if needed.
+   * </p>
+   * <p>
+   * This implementation calls {@link #generateExact(int)}.
+   * </p>
+   *
+   * @return An ULID.
+   * @throws InterruptedException If the generator tries to call
+   * {@link Thread#sleep} to wait for the next timestamp and the method call is
+   * failed because of an interrupt.
+   */
+  public Ulid nextExact()
+    throws InterruptedException
+  {
+    return generateExact(1).get(0);
+  }
+
+  /**
+   * <p>
+   * Generates ULIDs into an array.
+   * </p>
+   * <p>
+   * The ULIDs are the same as {@link #generate(int)} would return, but no
+   * intermediate collection is created.
+   * </p>
+   *
+   * @param ulids An array to store ULIDs.
+   * @param offset The index of the first ULID to store.
+   * @param length The desired number of generated ULIDs.
+   * @return The number of generated ULIDs, which may be less than
+   * {@code length} depending on implementation.
+   * @throws NullPointerException If {@code ulids} is {@code null}.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is
+   * out of range.
+   */
+  public int generateInto(Ulid[] ulids, int offset, int length)
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+    ArrayUtils.checkRange(ulids.length, offset, length);
+
+    return generateInto(UlidSink.of(ulids, offset), length);
+  }
+
+  /**
+   * <p>
+   * Generates ULIDs into an array of pairs of the most significant 64 bits
+   * and the least significant 64 bits.
+   * </p>
+   * <p>
+   * The ULIDs are the same as {@link #generate(int)} would return, but no
+   * {@link Ulid} object is created by the generators of this library.
+   * </p>
+   *
+   * @param hiLo An array to store {@code [mostSigBits0, leastSigBits0,
+   * mostSigBits1, leastSigBits1, ...]}.
+   * @param offset The index to store the most significant 64 bits of the
+   * first ULID.
+   * @param count The desired number of generated ULIDs.
+   * @return The number of generated ULIDs, which may be less than
+   * {@code count} depending on implementation.
+   * @throws NullPointerException If {@code hiLo} is {@code null}.
+   * @throws IllegalArgumentException If {@code count} is negative.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code count} is
+   * out of range.
+   */
+  public int generateInto(long[] hiLo, int offset, int count)
+  {
+    Objects.requireNonNull(hiLo, "'hiLo' cannot be null");
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+    ArrayUtils.checkRange(hiLo.length, offset, count << 1);
+
+    return generateInto(UlidSink.of(hiLo, offset), count);
+  }
+
+  /**
+   * <p>
+   * Generates ULIDs into the remaining space of a buffer as pairs of the most
+   * significant 64 bits and the least significant 64 bits. As many ULIDs as
+   * fit are requested and the position is moved past the last ULID.
+   * </p>
+   *
+   * @param dst A buffer to write to.
+   * @return The number of generated ULIDs, which may be less than the
+   * requested number depending on implementation.
+   * @throws NullPointerException If {@code dst} is {@code null}.
+   * @throws java.nio.ReadOnlyBufferException If {@code dst} is read-only.
+   */
+  public int generateInto(LongBuffer dst)
+  {
+    Objects.requireNonNull(dst, "'dst' cannot be null");
+    if(dst.isReadOnly())
+    {
+      throw new ReadOnlyBufferException();
+    }
+
+    return generateInto(UlidSink.of(dst), dst.remaining() >> 1);
+  }
+
+  /**
+   * <p>
+   * Generates ULIDs into the remaining space of a buffer as
+   * {@value Ulid#BYTES}-byte records. As many ULIDs as fit are requested and
+   * the position is moved past the last ULID. In the default big-endian byte
+   * order, each record is the same as {@link Ulid#toByteArray()}.
+   * </p>
+   *
+   * @param dst A buffer to write to.
+   * @return The number of generated ULIDs, which may be less than the
+   * requested number depending on implementation.
+   * @throws NullPointerException If {@code dst} is {@code null}.
+   * @throws java.nio.ReadOnlyBufferException If {@code dst} is read-only.
+   */
+  public int generateInto(ByteBuffer dst)
+  {
+    Objects.requireNonNull(dst, "'dst' cannot be null");
+    if(dst.isReadOnly())
+    {
+      throw new ReadOnlyBufferException();
+    }
+
+    return generateInto(UlidSink.of(dst), dst.remaining() / Ulid.BYTES);
+  }
+
+  /**
+   * <p>
+   * Generates ULIDs and passes them to a consumer as soon as they are
+   * generated.
+   * </p>
+   * <p>
+   * The ULIDs are generated in small chunks, so the consumer receives the
+   * first ULID before the rest are generated, and no more chunks are generated
+   * once the consumer has asked to stop.
+   * </p>
+   * <p>
+   * Each chunk is a separate request to the generator. The ULIDs have the
+   * same properties as those returned by {@link #generate(int)}, e.g. the
+   * ULIDs of a monotonic generator are monotonic across chunks as well, but
+   * they are not identical to what a single call of {@link #generate(int)}
+   * would return. Other threads may obtain ULIDs between two chunks and the
+   * timestamp may advance.
+   * </p>
+   *
+   * @param count The desired number of generated ULIDs.
+   * @param consumer A consumer that receives the ULIDs.
+   * @return The number of ULIDs passed to {@code consumer}, which may be less
+   * than {@code count} if the consumer has stopped or depending on
+   * implementation.
+   * @throws NullPointerException If {@code consumer} is {@code null}.
+   * @throws IllegalArgumentException If {@code count} is negative.
+   */
+  public int generate(int count, UlidConsumer consumer)
+  {
+    Objects.requireNonNull(consumer, "'consumer' cannot be null");
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    final long[] chunk = new long[Math.min(count, CONSUMER_CHUNK_SIZE) << 1];
+    int result = 0;
+    boolean consuming = true;
+
+    while(consuming && result < count)
+    {
+      final int requested = Math.min(count - result, CONSUMER_CHUNK_SIZE);
+      final int generated = generateInto(UlidSink.of(chunk, 0), requested);
+      consuming = generated == requested;
+
+      for(int i = 0; i < generated; ++i)
+      {
+        ++result;
+        if(!consumer.accept(chunk[i << 1], chunk[(i << 1) + 1]))
+        {
+          consuming = false;
+          break;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns an iterator that generates ULIDs on demand.
+   * </p>
+   * <p>
+   * Each ULID is generated by {@link #next()} when it is requested, so an
+   * iterator holds no generated ULIDs and can be abandoned at any time. The
+   * iteration ends after {@code count} ULIDs or as soon as {@link #next()}
+   * cannot generate an ULID.
+   * </p>
+   *
+   * @param count The maximum number of generated ULIDs.
+   * @return An iterator that does not support {@link Iterator#remove()}.
+   * @throws IllegalArgumentException If {@code count} is negative.
+   */
+  public Iterator<Ulid> iterator(int count)
+  {
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    final int c = count;
+
+    return new Iterator<Ulid>()
+    {
+      @Override
+      public boolean hasNext()
+      {
+        if(null == nextUlid && remaining > 0)
+        {
+          nextUlid = AbstractUlidGenerator.this.next();
+          remaining = (null == nextUlid ? 0 : remaining - 1);
+        }
+
+        return null != nextUlid;
+      }
+
+      @Override
+      public Ulid next()
+      {
+        if(!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+
+        final Ulid result = nextUlid;
+        nextUlid = null;
+
+        return result;
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+
+      private int remaining = c;
+
+      private Ulid nextUlid = null;
+    };
+  }
+
   /**
    * <p>
    * Generates the exact number of ULIDs exact number of times.
@@ -180,6 +451,67 @@ public abstract class AbstractUlidGenerator implements UlidGenerator
     return 0L != (msBits & (~Ulid.RANDOMNESS_MAX_VALUE_MS_BITS));
   }
 
+  /**
+   * Generates ULIDs into a sink in the same way as {@link #generate(int)}.
+   * Subclasses override this method to pass ULIDs to the sink without
+   * creating intermediate collections.
+   *
+   * @param sink A sink that accepts at least {@code count} ULIDs.
+   * @param count A non-negative number of ULIDs to generate.
+   * @return The number of generated ULIDs.
+   */
+  int generateInto(UlidSink sink, int count)
+  {
+    final List<Ulid> ulids = generate(count);
+    for(final Ulid ulid : ulids)
+    {
+      sink.add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+    }
+
+    return ulids.size();
+  }
+
+  /**
+   * Checks if {@link #generateRandomness()} is overridden by a subclass.
+   * Generators call the random generator directly on their fast paths only
+   * if it is not overridden.
+   *
+   * @return {@code true} if {@link #generateRandomness()} is overridden.
+   */
+  final boolean isRandomnessOverridden()
+  {
+    return randomnessOverridden;
+  }
+
+  /**
+   * Stores a 80-bit randomness generated in the same way as
+   * {@link #generateRandomness()} into an existing array. No array is
+   * allocated unless {@link #generateRandomness()} is overridden.
+   *
+   * @param randomnessOut An array to store the most significant 16 bits and
+   * the least significant 64 bits.
+   */
+  final void fillRandomness(long[] randomnessOut)
+  {
+    if(randomnessOverridden)
+    {
+      final long[] randomness = generateRandomness();
+      randomnessOut[0] = randomness[0];
+      randomnessOut[1] = randomness[1];
+    }
+    else
+    {
+      randomnessOut[0] = rng.nextLong() & Ulid.RANDOMNESS_MAX_VALUE_MS_BITS;
+      randomnessOut[1] = rng.nextLong();
+    }
+  }
+
+  /**
+   * The maximum number of ULIDs that {@link #generate(int, UlidConsumer)}
+   * generates at once.
+   */
+  static final int CONSUMER_CHUNK_SIZE = 256;
+
   private static final EpochMilliSupplier DEFAULT_EPOCH_MILLI_SUPPLIER = new EpochMilliSupplier()
   {
     @Override
@@ -192,7 +524,38 @@ public abstract class AbstractUlidGenerator implements UlidGenerator
   private static final Random DEFAULT_RNG = RandomUtils
     .getSecureRandomInstanceIfPossible();
 
+  private static boolean overridesGenerateRandomness(Class<?> clazz)
+  {
+    boolean result = false;
+
+    for(
+      Class<?> c = clazz;
+      !result && AbstractUlidGenerator.class != c;
+      c = c.getSuperclass()
+    )
+    {
+      try
+      {
+        c.getDeclaredMethod("generateRandomness");
+        result = true;
+      }
+      catch(final NoSuchMethodException nsme)
+      {
+        // Ignore the exception.
+      }
+      catch(final SecurityException se)
+      {
+        // Assumes an override to stay on the safe side.
+        result = true;
+      }
+    }
+
+    return result;
+  }
+
   private final EpochMilliSupplier epochMilliSupplier;
 
   private final Random rng;
+
+  private final boolean randomnessOverridden;
 }
@@ -0,0 +1,34 @@
+package kaphein.ulid;
+
+/**
+ * Helpers for arrays and array-like ranges.
+ *
+ * @author Hydrawisk793
+ */
+final class ArrayUtils
+{
+  /**
+   * Checks if a range fits in an array.
+   *
+   * @param arrayLength The length of the array.
+   * @param offset The index of the first element of the range.
+   * @param length The number of elements in the range.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is
+   * negative or the range exceeds the array.
+   */
+  public static void checkRange(int arrayLength, int offset, int length)
+  {
+    if(offset < 0 || length < 0 || offset > arrayLength - length)
+    {
+      throw new IndexOutOfBoundsException(
+        "The range [" + offset + ", " + offset + " + " + length
+          + ") is out of bounds");
+    }
+  }
+
+  private ArrayUtils()
+  {
+    throw new AssertionError(
+      "Class " + getClass().getName() + " cannot be instantiated");
+  }
+}
@@ -0,0 +1,131 @@
+package kaphein.ulid;
+
+/**
+ * <p>
+ * A blocked Bloom filter of ULIDs.
+ * </p>
+ * <p>
+ * Every probe of an ULID falls in the same 512-bit block, which is the size
+ * of a cache line on most processors, so a query touches at most one cache
+ * line. The block is selected by a scrambled copy of the least significant 64
+ * bits and the positions in the block are derived from a scrambled copy of
+ * the whole randomness. In exchange, the false positive probability is slightly
+ * higher than the one of {@link UlidBloomFilter} with the same number of bits.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class BlockedUlidBloomFilter extends AbstractUlidBloomFilter
+{
+  /**
+   * Constructs an instance of {@link BlockedUlidBloomFilter}.
+   * <p>
+   * The number of bits is rounded up to a power of two.
+   * </p>
+   *
+   * @param expectedInsertions The expected number of ULIDs to be added.
+   * @param falsePositiveProbability The desired false positive probability.
+   * @throws IllegalArgumentException If {@code expectedInsertions} is not
+   * positive or {@code falsePositiveProbability} is not in (0, 1).
+   */
+  public BlockedUlidBloomFilter(
+    long expectedInsertions,
+    double falsePositiveProbability
+  )
+  {
+    this(
+      computeLog2BitCount(expectedInsertions, falsePositiveProbability),
+      expectedInsertions);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean put(long mostSigBits, long leastSigBits)
+  {
+    final int base = blockBase(leastSigBits);
+    final long probe = secondProbeValue(mostSigBits, leastSigBits);
+    final int step = (int)(probe >>> (64 - 2 * BLOCK_LOG2_BIT_COUNT)) | 1;
+    boolean changed = false;
+
+    int position = (int)(probe >>> (64 - BLOCK_LOG2_BIT_COUNT));
+    for(int i = 0; i < hashCount; ++i)
+    {
+      final int index = base + ((position & BLOCK_BIT_MASK) >>> 6);
+      final long bit = 1L << position;
+      if(0L == (words[index] & bit))
+      {
+        words[index] |= bit;
+        changed = true;
+      }
+
+      position += step;
+    }
+
+    return changed;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean mightContain(long mostSigBits, long leastSigBits)
+  {
+    final int base = blockBase(leastSigBits);
+    final long probe = secondProbeValue(mostSigBits, leastSigBits);
+    final int step = (int)(probe >>> (64 - 2 * BLOCK_LOG2_BIT_COUNT)) | 1;
+    boolean result = true;
+
+    int position = (int)(probe >>> (64 - BLOCK_LOG2_BIT_COUNT));
+    for(int i = 0; result && i < hashCount; ++i)
+    {
+      result = 0L != (words[base + ((position & BLOCK_BIT_MASK) >>> 6)]
+        & (1L << position));
+
+      position += step;
+    }
+
+    return result;
+  }
+
+  /**
+   * The type code of the serialized form.
+   */
+  static final int TYPE = 1;
+
+  BlockedUlidBloomFilter(long[] words, int hashCount)
+  {
+    super(words, hashCount);
+  }
+
+  @Override
+  int getType()
+  {
+    return TYPE;
+  }
+
+  private static final int BLOCK_LOG2_BIT_COUNT = 9;
+
+  private static final int BLOCK_BIT_MASK = (1 << BLOCK_LOG2_BIT_COUNT) - 1;
+
+  private static final int BLOCK_WORD_COUNT = 1 << (BLOCK_LOG2_BIT_COUNT - 6);
+
+  private BlockedUlidBloomFilter(int log2BitCount, long expectedInsertions)
+  {
+    this(
+      new long[1 << (log2BitCount - 6)],
+      computeHashCount(expectedInsertions, log2BitCount));
+  }
+
+  private int blockBase(long leastSigBits)
+  {
+    final int blockMask = (words.length / BLOCK_WORD_COUNT) - 1;
+
+    return ((int)(firstProbeValue(leastSigBits) >>> 32) & blockMask)
+      * BLOCK_WORD_COUNT;
+  }
+}
@@ -0,0 +1,491 @@
+package kaphein.ulid;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>
+ * A thread-safe ordered map whose keys are ULIDs.
+ * </p>
+ * <p>
+ * The map is a {@link UlidTreeMap} guarded by a read-write lock, which suits
+ * read-mostly workloads. Lookups share the read lock and modifications take
+ * the write lock.
+ * </p>
+ * <p>
+ * Range queries and iteration return snapshots copied under the read lock
+ * instead of live views. Because the copied keys are in ascending order, the
+ * snapshots are built by the append fast path of {@link UlidTreeMap}.
+ * </p>
+ *
+ * @param <V> The type of values.
+ * @author Hydrawisk793
+ */
+public class ConcurrentUlidTreeMap<V> extends AbstractMap<Ulid, V>
+{
+  /**
+   * Constructs an empty instance of {@link ConcurrentUlidTreeMap}.
+   */
+  public ConcurrentUlidTreeMap()
+  {
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    readLock = lock.readLock();
+    writeLock = lock.writeLock();
+    map = new UlidTreeMap<>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size()
+  {
+    readLock.lock();
+    try
+    {
+      return map.size();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public boolean containsKey(Object key)
+  {
+    readLock.lock();
+    try
+    {
+      return map.containsKey(key);
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Checks if the map contains specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @return {@code true} if the map contains the key, {@code false} otherwise.
+   */
+  public boolean containsKey(long mostSigBits, long leastSigBits)
+  {
+    readLock.lock();
+    try
+    {
+      return map.containsKey(mostSigBits, leastSigBits);
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean containsValue(Object value)
+  {
+    readLock.lock();
+    try
+    {
+      return map.containsValue(value);
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public V get(Object key)
+  {
+    readLock.lock();
+    try
+    {
+      return map.get(key);
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the value mapped to specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @return The value mapped to the key or {@code null} if the map does not
+   * contain the key.
+   */
+  public V get(long mostSigBits, long leastSigBits)
+  {
+    readLock.lock();
+    try
+    {
+      return map.get(mostSigBits, leastSigBits);
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public V put(Ulid key, V value)
+  {
+    Objects.requireNonNull(key, "'key' cannot be null");
+
+    writeLock.lock();
+    try
+    {
+      return map.put(key, value);
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Maps specified value to specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @param value A value to be mapped.
+   * @return The value previously mapped to the key or {@code null} if there
+   * was no mapping for the key.
+   */
+  public V put(long mostSigBits, long leastSigBits, V value)
+  {
+    writeLock.lock();
+    try
+    {
+      return map.put(mostSigBits, leastSigBits, value);
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public V remove(Object key)
+  {
+    Objects.requireNonNull(key, "'key' cannot be null");
+
+    writeLock.lock();
+    try
+    {
+      return map.remove(key);
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    writeLock.lock();
+    try
+    {
+      map.clear();
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Removes all entries whose keys have timestamps less than
+   * {@code toTimestamp}.
+   *
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   */
+  public void removeHeadByTime(long toTimestamp)
+  {
+    writeLock.lock();
+    try
+    {
+      map.headByTime(toTimestamp).clear();
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the smallest key in the map.
+   *
+   * @return The smallest key.
+   * @throws NoSuchElementException If the map is empty.
+   */
+  public Ulid firstKey()
+  {
+    readLock.lock();
+    try
+    {
+      return map.firstKey();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the greatest key in the map.
+   *
+   * @return The greatest key.
+   * @throws NoSuchElementException If the map is empty.
+   */
+  public Ulid lastKey()
+  {
+    readLock.lock();
+    try
+    {
+      return map.lastKey();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Gets a snapshot of the entries whose keys range from {@code fromKey},
+   * inclusive, to {@code toKey}, exclusive.
+   *
+   * @param fromKey The lower bound of keys, inclusive.
+   * @param toKey The upper bound of keys, exclusive.
+   * @return A snapshot of the entries in the range.
+   * @throws NullPointerException If {@code fromKey} or {@code toKey} is
+   * {@code null}.
+   * @throws IllegalArgumentException If {@code fromKey} is greater than
+   * {@code toKey}.
+   */
+  public UlidTreeMap<V> subMap(Ulid fromKey, Ulid toKey)
+  {
+    readLock.lock();
+    try
+    {
+      return new UlidTreeMap<>(map.subMap(fromKey, toKey));
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Gets a snapshot of the entries whose keys have timestamps that range from
+   * {@code fromTimestamp}, inclusive, to {@code toTimestamp}, exclusive.
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   * @return A snapshot of the entries in the range.
+   * @throws IllegalArgumentException If {@code fromTimestamp} is greater than
+   * {@code toTimestamp}.
+   */
+  public UlidTreeMap<V> subMapByTime(long fromTimestamp, long toTimestamp)
+  {
+    readLock.lock();
+    try
+    {
+      return new UlidTreeMap<>(map.subMapByTime(fromTimestamp, toTimestamp));
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Gets a snapshot of the entries whose keys have timestamps less than
+   * {@code toTimestamp}.
+   *
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   * @return A snapshot of the entries in the range.
+   */
+  public UlidTreeMap<V> headByTime(long toTimestamp)
+  {
+    readLock.lock();
+    try
+    {
+      return new UlidTreeMap<>(map.headByTime(toTimestamp));
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Gets a snapshot of the entries whose keys have timestamps greater than or
+   * equal to {@code fromTimestamp}.
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @return A snapshot of the entries in the range.
+   */
+  public UlidTreeMap<V> tailByTime(long fromTimestamp)
+  {
+    readLock.lock();
+    try
+    {
+      return new UlidTreeMap<>(map.tailByTime(fromTimestamp));
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The returned set is an unmodifiable snapshot of the entries in ascending
+   * order of keys. Each call copies the whole map, and so does each iteration
+   * of {@link #keySet()} and {@link #values()}, which are built on this
+   * method. Take a snapshot once and iterate it instead of calling these
+   * methods in a loop.
+   * </p>
+   */
+  @Override
+  public Set<Map.Entry<Ulid, V>> entrySet()
+  {
+    readLock.lock();
+    try
+    {
+      return Collections.unmodifiableMap(new UlidTreeMap<>(map)).entrySet();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object o)
+  {
+    final boolean result;
+
+    if(this == o)
+    {
+      result = true;
+    }
+    else if(o instanceof ConcurrentUlidTreeMap)
+    {
+      // Copies the other map first so that the two locks are never held
+      // together.
+      final Map<Ulid, ?> other = new UlidTreeMap<Object>(
+        (ConcurrentUlidTreeMap<?>)o);
+      readLock.lock();
+      try
+      {
+        result = map.equals(other);
+      }
+      finally
+      {
+        readLock.unlock();
+      }
+    }
+    else
+    {
+      readLock.lock();
+      try
+      {
+        result = map.equals(o);
+      }
+      finally
+      {
+        readLock.unlock();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    readLock.lock();
+    try
+    {
+      return map.hashCode();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    readLock.lock();
+    try
+    {
+      return map.toString();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  private final Lock readLock;
+
+  private final Lock writeLock;
+
+  private final UlidTreeMap<V> map;
+}
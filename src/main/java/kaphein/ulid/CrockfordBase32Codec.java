@@ -1,5 +1,6 @@
 package kaphein.ulid;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 /**
@@ -201,8 +202,66 @@ class CrockfordBase32Codec
     return decodedValue;
   }
 
+  /**
+   * Decodes a character without creating a string. Lower case letters are
+   * decoded as their upper case counterparts.
+   *
+   * @param ch A character.
+   * @return The 5-bit value of the character, or {@code -1} if the character
+   * is not a valid character.
+   */
+  static int decodeChar(int ch)
+  {
+    final int upperCased = ('a' <= ch && ch <= 'z' ? ch - ('a' - 'A') : ch);
+
+    return (
+      upperCased >= 0 && upperCased < DECODING_INDICIES.length
+      ? DECODING_INDICIES[upperCased]
+      : -1);
+  }
+
+  /**
+   * Encodes a 5-bit value to an ASCII character.
+   *
+   * @param value A value in range [0, 31].
+   * @return The ASCII character of the value.
+   */
+  static byte encodeChar(int value)
+  {
+    return ENCODING_BYTES[value];
+  }
+
+  /**
+   * Encodes an ULID to {@value Ulid#ENCODED_LENGTH} ASCII characters without
+   * creating a string.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @param dst An array to store the characters.
+   * @param offset The offset of the first character in the array.
+   */
+  static void encodeUlid(
+    long mostSigBits,
+    long leastSigBits,
+    byte[] dst,
+    int offset
+  )
+  {
+    long hi = mostSigBits;
+    long lo = leastSigBits;
+    for(int i = offset + Ulid.ENCODED_LENGTH; --i >= offset;)
+    {
+      dst[i] = ENCODING_BYTES[(int)lo & 0x1F];
+      lo = (lo >>> 5) | (hi << 59);
+      hi >>>= 5;
+    }
+  }
+
   private static final String ENCODING_CHARS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
 
+  private static final byte[] ENCODING_BYTES = ENCODING_CHARS.getBytes(
+    StandardCharsets.US_ASCII);
+
   private static final int ENCODED_LONG_MAX_LENGTH = 13;
 
   private static final int[] DECODING_INDICIES = {
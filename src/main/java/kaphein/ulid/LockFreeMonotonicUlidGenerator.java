@@ -0,0 +1,315 @@
+package kaphein.ulid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * <p>
+ * A monotonic ULID generator that does not block.
+ * </p>
+ * <p>
+ * It generates the same sequences as {@link MonotonicUlidGenerator}, but the
+ * last timestamp and randomness are kept in an immutable snapshot that is
+ * replaced by compare-and-set. A call reserves all the randomness it needs
+ * with a single successful compare-and-set and generates its ULIDs outside
+ * of any critical section, so many threads that request few ULIDs at a time
+ * do not hand a lock over to each other. The reference to the snapshot is
+ * padded to occupy a cache line of its own.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe if supplied
+ * {@link EpochMilliSupplier} and {@link Random} are thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class LockFreeMonotonicUlidGenerator extends AbstractUlidGenerator
+{
+  /**
+   * Constructs an instance of {@link LockFreeMonotonicUlidGenerator}.
+   */
+  public LockFreeMonotonicUlidGenerator()
+  {
+    this(null, null);
+  }
+
+  /**
+   * Constructs an instance of {@link LockFreeMonotonicUlidGenerator}.
+   *
+   * @param epochMilliSupplier A epoch milli supplier. If {@code null}, the
+   * default one that uses {@link System#currentTimeMillis()} is selected.
+   * @param rng A random generator. If {@code null}, the default random
+   * generator is selected.
+   */
+  public LockFreeMonotonicUlidGenerator(
+    EpochMilliSupplier epochMilliSupplier,
+    Random rng
+  )
+  {
+    super(epochMilliSupplier, rng);
+
+    cell = new PaddedStateCell();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generate(int count)
+  {
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+            throws InterruptedException
+          {
+            return generateImpl(c, null, false);
+          }
+        },
+        Collections.<Ulid>emptyList());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generate(int count, long timestamp)
+  {
+    final int c = count;
+    final long t = timestamp;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+            throws InterruptedException
+          {
+            return generateImpl(c, t, false);
+          }
+        },
+        Collections.<Ulid>emptyList());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generateExact(int count)
+    throws InterruptedException
+  {
+    return generateImpl(count, null, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generateExact(int count, long timestamp)
+    throws InterruptedException
+  {
+    return generateImpl(count, timestamp, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  int generateInto(UlidSink sink, int count)
+  {
+    final UlidSink s = sink;
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<Integer>()
+        {
+          @Override
+          public Integer call()
+            throws InterruptedException
+          {
+            return generateAndAdd(s, c, null, false);
+          }
+        },
+        0);
+  }
+
+  private static final AtomicReferenceFieldUpdater<StateCell, State>
+    STATE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+      StateCell.class,
+      State.class,
+      "state");
+
+  private List<Ulid> generateImpl(
+    int count,
+    Long timestamp,
+    boolean waitForNextTimestampWhenOverflow
+  )
+    throws InterruptedException
+  {
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    if(null != timestamp && timestamp < Ulid.TIMESTAMP_MIN_VALUE)
+    {
+      throw new IllegalArgumentException(
+        "'timestamp' cannot be lower than " + Ulid.TIMESTAMP_MIN_VALUE);
+    }
+
+    final List<Ulid> ulids = new ArrayList<>(count);
+
+    if(count > 0)
+    {
+      generateAndAdd(
+        UlidSink.of(ulids),
+        count,
+        timestamp,
+        waitForNextTimestampWhenOverflow);
+    }
+
+    return Collections.unmodifiableList(ulids);
+  }
+
+  private int generateAndAdd(
+    UlidSink sink,
+    int count,
+    Long timestamp,
+    boolean waitForNextTimestampWhenOverflow
+  )
+    throws InterruptedException
+  {
+    final int requestedCount = count;
+    final EpochMilliSupplier epochMilliSupplier = getEpochMilliSupplier();
+    long now = (null == timestamp ? epochMilliSupplier.get() : timestamp);
+    final long[] randomness = new long[2];
+    final long[] maxRandomness = new long[2];
+    boolean canGenerate = true;
+
+    while(canGenerate && count > 0)
+    {
+      final State last = cell.state;
+      long timestampToUse = now;
+      boolean reserving = true;
+
+      if(null == last || now > last.timestamp)
+      {
+        final long[] newRandomness = generateRandomness();
+        randomness[0] = newRandomness[0];
+        randomness[1] = newRandomness[1];
+      }
+      else if(
+        Ulid.RANDOMNESS_MAX_VALUE_MS_BITS == last.randomnessMsv
+          && Ulid.RANDOMNESS_MAX_VALUE_LS_BITS == last.randomnessLsv
+      )
+      {
+        reserving = false;
+        if(waitForNextTimestampWhenOverflow)
+        {
+          Thread.sleep(1);
+          now = epochMilliSupplier.get();
+        }
+        else
+        {
+          // Cannot generate ULIDs anymore with the current timestamp.
+          canGenerate = false;
+        }
+      }
+      else
+      {
+        timestampToUse = last.timestamp;
+        randomness[0] = last.randomnessMsv;
+        randomness[1] = last.randomnessLsv;
+      }
+
+      if(reserving)
+      {
+        maxRandomness[0] = randomness[0];
+        maxRandomness[1] = randomness[1];
+        if(addRandomness(maxRandomness, count))
+        {
+          maxRandomness[0] = Ulid.RANDOMNESS_MAX_VALUE_MS_BITS;
+          maxRandomness[1] = Ulid.RANDOMNESS_MAX_VALUE_LS_BITS;
+        }
+
+        final State next = new State(
+          timestampToUse,
+          maxRandomness[0],
+          maxRandomness[1]);
+        if(STATE_UPDATER.compareAndSet(cell, last, next))
+        {
+          final long hiPrefix
+            = (timestampToUse & Ulid.TIMESTAMP_MAX_VALUE) << 16;
+          boolean shouldGenerate = true;
+          while(shouldGenerate && count > 0)
+          {
+            sink.add(hiPrefix | randomness[0], randomness[1]);
+
+            if(--count > 0)
+            {
+              if(incrementRandomness(randomness))
+              {
+                shouldGenerate = false;
+              }
+            }
+          }
+        }
+      }
+    }
+
+    return requestedCount - count;
+  }
+
+  /**
+   * An immutable snapshot of the last timestamp and the randomness that
+   * follows the last reserved one.
+   */
+  private static final class State
+  {
+    State(long timestamp, long randomnessMsv, long randomnessLsv)
+    {
+      this.timestamp = timestamp;
+      this.randomnessMsv = randomnessMsv;
+      this.randomnessLsv = randomnessLsv;
+    }
+
+    final long timestamp;
+
+    final long randomnessMsv;
+
+    final long randomnessLsv;
+  }
+
+  /**
+   * Padding before {@link StateCell#state}. The fields are spread over a
+   * class hierarchy because the virtual machine may reorder the fields of a
+   * single class.
+   */
+  @SuppressWarnings("unused")
+  private abstract static class LeftPadding
+  {
+    long p1, p2, p3, p4, p5, p6, p7;
+  }
+
+  private static class StateCell extends LeftPadding
+  {
+    volatile State state;
+  }
+
+  @SuppressWarnings("unused")
+  private static final class PaddedStateCell extends StateCell
+  {
+    long p9, p10, p11, p12, p13, p14, p15;
+  }
+
+  private final PaddedStateCell cell;
+}
@@ -2,8 +2,8 @@ package kaphein.ulid;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -13,6 +13,14 @@ import java.util.concurrent.locks.ReentrantLock;
  * A monotonic ULID generator.
  * </p>
  * <p>
+ * When the randomness of the current timestamp has been used up, the
+ * generator follows its {@link UlidOverflowPolicy}. With
+ * {@link UlidOverflowPolicy#BORROW_NEXT_MILLISECOND}, the timestamp may run
+ * ahead of the epoch milli supplier by up to the maximum drift. The supplied
+ * time then catches up by itself, since a timestamp that is not later than
+ * the last one keeps using the last one and its randomness.
+ * </p>
+ * <p>
  * Instances of this class are thread-safe if supplied
  * {@link EpochMilliSupplier} and {@link Random} are thread-safe.
  * </p>
@@ -41,13 +49,102 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
     EpochMilliSupplier epochMilliSupplier,
     Random rng
   )
+  {
+    this(
+      epochMilliSupplier,
+      rng,
+      UlidOverflowPolicy.WAIT_FOR_NEXT_MILLISECOND,
+      0L);
+  }
+
+  /**
+   * Constructs an instance of {@link MonotonicUlidGenerator} with an
+   * overflow policy.
+   *
+   * @param epochMilliSupplier A epoch milli supplier. If {@code null}, the
+   * default one that uses {@link System#currentTimeMillis()} is selected.
+   * @param rng A random generator. If {@code null}, the default random
+   * generator is selected.
+   * @param overflowPolicy A behavior when the randomness of the current
+   * timestamp has been used up.
+   * @param maxDriftMillis The maximum number of milliseconds by which
+   * timestamps can be ahead of the epoch milli supplier when
+   * {@code overflowPolicy} is
+   * {@link UlidOverflowPolicy#BORROW_NEXT_MILLISECOND}.
+   * @throws NullPointerException If {@code overflowPolicy} is {@code null}.
+   * @throws IllegalArgumentException If {@code maxDriftMillis} is negative.
+   */
+  public MonotonicUlidGenerator(
+    EpochMilliSupplier epochMilliSupplier,
+    Random rng,
+    UlidOverflowPolicy overflowPolicy,
+    long maxDriftMillis
+  )
   {
     super(epochMilliSupplier, rng);
 
+    this.overflowPolicy = Objects.requireNonNull(
+      overflowPolicy,
+      "'overflowPolicy' cannot be null");
+
+    if(maxDriftMillis < 0L)
+    {
+      throw new IllegalArgumentException(
+        "'maxDriftMillis' cannot be negative");
+    }
+    this.maxDriftMillis = maxDriftMillis;
+
     thisLock = new ReentrantLock();
+    nextRandomness = new long[2];
     lastTimestamp = 0L;
     lastRandomnessMsv = 0L;
     lastRandomnessLsv = 0L;
+    borrowedMillisCount = 0L;
+  }
+
+  /**
+   * Gets the behavior when the randomness of the current timestamp has been
+   * used up.
+   *
+   * @return The overflow policy.
+   */
+  public UlidOverflowPolicy getOverflowPolicy()
+  {
+    return overflowPolicy;
+  }
+
+  /**
+   * Gets the maximum number of milliseconds by which timestamps can be ahead
+   * of the epoch milli supplier.
+   *
+   * @return The maximum drift in milliseconds.
+   */
+  public long getMaxDriftMillis()
+  {
+    return maxDriftMillis;
+  }
+
+  /**
+   * Gets the total number of milliseconds borrowed ahead of the epoch milli
+   * supplier.
+   *
+   * @return The number of borrowed milliseconds.
+   */
+  public long getBorrowedMillisCount()
+  {
+    return borrowedMillisCount;
+  }
+
+  /**
+   * Gets the number of milliseconds by which the last timestamp is ahead of
+   * the current value of the epoch milli supplier.
+   *
+   * @return The current drift in milliseconds, or {@code 0} if the last
+   * timestamp is not ahead.
+   */
+  public long getDriftMillis()
+  {
+    return Math.max(0L, lastTimestamp - getEpochMilliSupplier().get());
   }
 
   /**
@@ -114,14 +211,159 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
     return generateImpl(count, timestamp, true);
   }
 
-  private static List<Ulid> createUlidList(int count)
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid next()
   {
-    return new LinkedList<>();
+    return nextOrNull(getEpochMilliSupplier().get());
   }
 
-  private static List<Ulid> toImmutableArrayList(List<Ulid> ulids)
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid nextExact()
+    throws InterruptedException
   {
-    return Collections.unmodifiableList(new ArrayList<>(ulids));
+    final EpochMilliSupplier epochMilliSupplier = getEpochMilliSupplier();
+
+    Ulid result = nextOrNull(epochMilliSupplier.get());
+    while(null == result)
+    {
+      Thread.sleep(1);
+      result = nextOrNull(epochMilliSupplier.get());
+    }
+
+    return result;
+  }
+
+  /**
+   * <p>
+   * Generates consecutive ULIDs as a constant-size list.
+   * </p>
+   * <p>
+   * The ULIDs are reserved at once, and they are the same as
+   * {@link #generate(int)} would return. If the randomness of the current
+   * timestamp is used up before {@code count} ULIDs, the batch contains
+   * fewer ULIDs and may be empty.
+   * </p>
+   *
+   * @param count The desired number of generated ULIDs.
+   * @return A batch of generated ULIDs.
+   * @throws IllegalArgumentException If {@code count} is negative.
+   */
+  public UlidBatch generateRange(int count)
+  {
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    final UlidBatch result;
+
+    if(0 == count)
+    {
+      // Returns without reading the clock or touching the state.
+      result = new UlidBatch(0L, 0L, 0);
+    }
+    else
+    {
+      final long now = getEpochMilliSupplier().get();
+      long firstMostSigBits = 0L;
+      long firstLeastSigBits = 0L;
+      int size = 0;
+
+      thisLock.lock();
+      try
+      {
+        if(!lastRandomnessInitialized)
+        {
+          final long[] initialRandomness = generateRandomness();
+          lastRandomnessMsv = initialRandomness[0];
+          lastRandomnessLsv = initialRandomness[1];
+
+          lastRandomnessInitialized = true;
+        }
+
+        final long[] randomness = {lastRandomnessMsv, lastRandomnessLsv};
+        if(now > lastTimestamp)
+        {
+          final long[] newRandomness = generateRandomness();
+          randomness[0] = newRandomness[0];
+          randomness[1] = newRandomness[1];
+          lastTimestamp = now;
+        }
+        else if(
+          Ulid.RANDOMNESS_MAX_VALUE_MS_BITS == randomness[0]
+            && Ulid.RANDOMNESS_MAX_VALUE_LS_BITS == randomness[1]
+            && canBorrowMillisecond(now)
+        )
+        {
+          final long[] newRandomness = generateRandomness();
+          randomness[0] = newRandomness[0];
+          randomness[1] = newRandomness[1];
+          lastTimestamp += 1L;
+          ++borrowedMillisCount;
+        }
+
+        if(
+          Ulid.RANDOMNESS_MAX_VALUE_MS_BITS != randomness[0]
+            || Ulid.RANDOMNESS_MAX_VALUE_LS_BITS != randomness[1]
+        )
+        {
+          firstMostSigBits = ((lastTimestamp & Ulid.TIMESTAMP_MAX_VALUE) << 16)
+            | randomness[0];
+          firstLeastSigBits = randomness[1];
+          size = count;
+
+          if(addRandomness(randomness, count))
+          {
+            // Since count is less than 2^64, the randomness can overflow only
+            // when its most significant bits are the maximum value, and the
+            // ULIDs up to the maximum randomness are -firstLeastSigBits.
+            size = (int)-firstLeastSigBits;
+            randomness[0] = Ulid.RANDOMNESS_MAX_VALUE_MS_BITS;
+            randomness[1] = Ulid.RANDOMNESS_MAX_VALUE_LS_BITS;
+          }
+        }
+
+        lastRandomnessMsv = randomness[0];
+        lastRandomnessLsv = randomness[1];
+      }
+      finally
+      {
+        thisLock.unlock();
+      }
+
+      result = new UlidBatch(firstMostSigBits, firstLeastSigBits, size);
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  int generateInto(UlidSink sink, int count)
+  {
+    final UlidSink s = sink;
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<Integer>()
+        {
+          @Override
+          public Integer call()
+            throws InterruptedException
+          {
+            return generateAndAdd(s, c, null, false);
+          }
+        },
+        0);
   }
 
   private List<Ulid> generateImpl(
@@ -142,24 +384,29 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
         "'timestamp' cannot be lower than " + Ulid.TIMESTAMP_MIN_VALUE);
     }
 
-    final List<Ulid> ulids = createUlidList(count);
+    final List<Ulid> ulids = new ArrayList<>(count);
 
     if(count > 0)
     {
-      generateAndAdd(ulids, count, timestamp, waitForNextTimestampWhenOverflow);
+      generateAndAdd(
+        UlidSink.of(ulids),
+        count,
+        timestamp,
+        waitForNextTimestampWhenOverflow);
     }
 
-    return toImmutableArrayList(ulids);
+    return Collections.unmodifiableList(ulids);
   }
 
-  private void generateAndAdd(
-    List<Ulid> ulids,
+  private int generateAndAdd(
+    UlidSink sink,
     int count,
     Long timestamp,
     boolean waitForNextTimestampWhenOverflow
   )
     throws InterruptedException
   {
+    final int requestedCount = count;
     final EpochMilliSupplier epochMilliSupplier = getEpochMilliSupplier();
     long now = (null == timestamp ? epochMilliSupplier.get() : timestamp);
     long timestampToUse;
@@ -210,7 +457,20 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
               && Ulid.RANDOMNESS_MAX_VALUE_LS_BITS == maxRandomness[1]
           )
           {
-            if(waitForNextTimestampWhenOverflow)
+            if(canBorrowMillisecond(now))
+            {
+              timestampToUse = lastTimestamp + 1L;
+              ++borrowedMillisCount;
+
+              final long[] newRandomness = generateRandomness();
+              randomness[0] = newRandomness[0];
+              randomness[1] = newRandomness[1];
+              maxRandomness[0] = newRandomness[0];
+              maxRandomness[1] = newRandomness[1];
+
+              initializingRandomness = false;
+            }
+            else if(waitForNextTimestampWhenOverflow)
             {
               Thread.sleep(1);
               now = epochMilliSupplier.get();
@@ -247,7 +507,9 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
 
       while(shouldGenerate && count > 0)
       {
-        ulids.add(Ulid.from(timestampToUse, randomness));
+        sink.add(
+          ((timestampToUse & Ulid.TIMESTAMP_MAX_VALUE) << 16) | randomness[0],
+          randomness[1]);
 
         if(--count > 0)
         {
@@ -258,10 +520,118 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
         }
       }
     }
+
+    return requestedCount - count;
   }
 
+  /**
+   * Generates an ULID in the same way as
+   * {@link #generateAndAdd(UlidSink, int, Long, boolean)} does for a single
+   * ULID, without creating any object other than the ULID.
+   *
+   * @return An ULID, or {@code null} if the randomness of the current
+   * timestamp has been used up.
+   */
+  private Ulid nextOrNull(long now)
+  {
+    Ulid result = null;
+
+    thisLock.lock();
+    try
+    {
+      if(!lastRandomnessInitialized)
+      {
+        fillRandomness(nextRandomness);
+        lastRandomnessMsv = nextRandomness[0];
+        lastRandomnessLsv = nextRandomness[1];
+
+        lastRandomnessInitialized = true;
+      }
+
+      long msv = lastRandomnessMsv;
+      long lsv = lastRandomnessLsv;
+      boolean canGenerate = true;
+      if(now > lastTimestamp)
+      {
+        lastTimestamp = now;
+        fillRandomness(nextRandomness);
+        msv = nextRandomness[0];
+        lsv = nextRandomness[1];
+      }
+      else if(
+        Ulid.RANDOMNESS_MAX_VALUE_MS_BITS == msv
+          && Ulid.RANDOMNESS_MAX_VALUE_LS_BITS == lsv
+      )
+      {
+        if(canBorrowMillisecond(now))
+        {
+          lastTimestamp += 1L;
+          ++borrowedMillisCount;
+          fillRandomness(nextRandomness);
+          msv = nextRandomness[0];
+          lsv = nextRandomness[1];
+        }
+        else
+        {
+          // Cannot generate ULIDs anymore with the current timestamp.
+          canGenerate = false;
+        }
+      }
+
+      if(canGenerate)
+      {
+        result = new Ulid(
+          ((lastTimestamp & Ulid.TIMESTAMP_MAX_VALUE) << 16) | msv,
+          lsv);
+
+        if(Ulid.RANDOMNESS_MAX_VALUE_LS_BITS != lsv)
+        {
+          lastRandomnessMsv = msv;
+          lastRandomnessLsv = lsv + 1L;
+        }
+        else if(Ulid.RANDOMNESS_MAX_VALUE_MS_BITS != msv)
+        {
+          lastRandomnessMsv = msv + 1L;
+          lastRandomnessLsv = 0L;
+        }
+        else
+        {
+          lastRandomnessMsv = Ulid.RANDOMNESS_MAX_VALUE_MS_BITS;
+          lastRandomnessLsv = Ulid.RANDOMNESS_MAX_VALUE_LS_BITS;
+        }
+      }
+    }
+    finally
+    {
+      thisLock.unlock();
+    }
+
+    return result;
+  }
+
+  /**
+   * Determines whether the timestamp can be advanced to the next millisecond
+   * of the last timestamp. The caller must hold {@link #thisLock}.
+   *
+   * @param now The supplied time.
+   * @return {@code true} if the next millisecond is within the maximum drift
+   * and the overflow policy allows borrowing.
+   */
+  private boolean canBorrowMillisecond(long now)
+  {
+    return UlidOverflowPolicy.BORROW_NEXT_MILLISECOND == overflowPolicy
+      && lastTimestamp < Ulid.TIMESTAMP_MAX_VALUE
+      && lastTimestamp + 1L - now <= maxDriftMillis;
+  }
+
+  private final UlidOverflowPolicy overflowPolicy;
+
+  private final long maxDriftMillis;
+
   private final Lock thisLock;
 
+  private final long[] nextRandomness;
+
   private volatile long lastTimestamp;
 
   private volatile long lastRandomnessMsv;
@@ -269,4 +639,6 @@ public class MonotonicUlidGenerator extends AbstractUlidGenerator
   private volatile long lastRandomnessLsv;
 
   private volatile boolean lastRandomnessInitialized;
+
+  private volatile long borrowedMillisCount;
 }
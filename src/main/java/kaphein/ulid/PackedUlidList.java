@@ -0,0 +1,98 @@
+package kaphein.ulid;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * An unmodifiable list of ULIDs stored as a primitive {@code long} array of
+ * pairs of the most significant 64 bits and the least significant 64 bits.
+ * </p>
+ * <p>
+ * A {@link Ulid} object is created only when {@link #get(int)} is called.
+ * {@link #getMostSignificantBits(int)} and
+ * {@link #getLeastSignificantBits(int)} read the bits without creating any
+ * object.
+ * </p>
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public final class PackedUlidList extends AbstractList<Ulid>
+  implements RandomAccess
+{
+  /**
+   * Gets the most significant 64 bits of the ULID at specified index.
+   *
+   * @param index An index.
+   * @return The most significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of bounds.
+   */
+  public long getMostSignificantBits(int index)
+  {
+    checkIndex(index);
+
+    return hiLo[index << 1];
+  }
+
+  /**
+   * Gets the least significant 64 bits of the ULID at specified index.
+   *
+   * @param index An index.
+   * @return The least significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of bounds.
+   */
+  public long getLeastSignificantBits(int index)
+  {
+    checkIndex(index);
+
+    return hiLo[(index << 1) + 1];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid get(int index)
+  {
+    checkIndex(index);
+
+    return new Ulid(hiLo[index << 1], hiLo[(index << 1) + 1]);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Constructs a list of ULIDs.
+   *
+   * @param hiLo An array of pairs of the most significant 64 bits and the
+   * least significant 64 bits, which must not be modified afterwards.
+   * @param size The number of ULIDs in {@code hiLo}.
+   */
+  PackedUlidList(long[] hiLo, int size)
+  {
+    this.hiLo = hiLo;
+    this.size = size;
+  }
+
+  private void checkIndex(int index)
+  {
+    if(index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException("'index' is out of bounds");
+    }
+  }
+
+  private final long[] hiLo;
+
+  private final int size;
+}
@@ -0,0 +1,800 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A ULID generator that issues ULIDs pre-generated by a background thread.
+ * </p>
+ * <p>
+ * A daemon thread fills a ring buffer with ULIDs from the wrapped generator
+ * whenever the number of buffered ULIDs drops to the low-water mark, so that
+ * stalls of the wrapped generator, such as reseeding of a
+ * {@link java.security.SecureRandom} or waiting for the next millisecond
+ * after the randomness has overflowed, happen in the background. Consumers
+ * claim buffered ULIDs with a compare-and-set and never block while the
+ * buffer has ULIDs. When the buffer is drained, ULIDs are generated
+ * synchronously by the wrapped generator.
+ * </p>
+ * <p>
+ * ULIDs are issued in the order the wrapped generator has generated them, so
+ * ULIDs issued by an instance that wraps a {@link MonotonicUlidGenerator} or
+ * a {@link LockFreeMonotonicUlidGenerator} are strictly increasing. Since the
+ * background thread also generates ULIDs, wrapping a generator whose order
+ * depends on the calling thread, such as
+ * {@link ThreadLocalMonotonicUlidGenerator}, does not preserve the order.
+ * Buffered ULIDs carry the timestamp of their generation, not the time they
+ * are issued. The background thread replaces buffered ULIDs once they reach
+ * half the maximum age, so that consumers find fresh ULIDs even after an idle
+ * period. A buffered ULID that has still been waiting longer than the maximum
+ * age is discarded instead of being issued, so the timestamp of an issued
+ * ULID is at most the maximum age behind the time it is issued.
+ * </p>
+ * <p>
+ * The background thread sleeps until a refill is requested or buffered ULIDs
+ * have to be replaced, and is stopped by {@link #close()}. Since the thread
+ * keeps the instance reachable, instances must be closed when they are no
+ * longer used. The instance can still be used after closing, but all ULIDs
+ * are generated synchronously once the buffer is drained.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe if the wrapped generator is
+ * thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class PrefetchingUlidGenerator implements UlidGenerator, Closeable
+{
+  /**
+   * The default capacity of the buffer.
+   */
+  public static final int DEFAULT_CAPACITY = 1 << 10;
+
+  /**
+   * The maximum capacity of the buffer.
+   */
+  public static final int MAX_CAPACITY = 1 << 24;
+
+  /**
+   * The default maximum age of buffered ULIDs in milliseconds.
+   */
+  public static final long DEFAULT_MAX_AGE_MILLIS = 1000L;
+
+  /**
+   * Constructs an instance of {@link PrefetchingUlidGenerator} with the
+   * default capacity, a low-water mark of a quarter of it and the default
+   * maximum age.
+   *
+   * @param generator A generator to wrap.
+   * @throws NullPointerException If {@code generator} is {@code null}.
+   */
+  public PrefetchingUlidGenerator(UlidGenerator generator)
+  {
+    this(generator, DEFAULT_CAPACITY, DEFAULT_CAPACITY >>> 2);
+  }
+
+  /**
+   * Constructs an instance of {@link PrefetchingUlidGenerator} with the
+   * default maximum age and starts the background thread.
+   *
+   * @param generator A generator to wrap.
+   * @param capacity The maximum number of buffered ULIDs, which is rounded up
+   * to a power of two.
+   * @param lowWaterMark The number of buffered ULIDs at or below which the
+   * buffer is refilled.
+   * @throws NullPointerException If {@code generator} is {@code null}.
+   * @throws IllegalArgumentException If {@code capacity} is not in range
+   * [1, {@value #MAX_CAPACITY}] or {@code lowWaterMark} is not in range
+   * [0, {@code capacity}).
+   */
+  public PrefetchingUlidGenerator(
+    UlidGenerator generator,
+    int capacity,
+    int lowWaterMark
+  )
+  {
+    this(generator, capacity, lowWaterMark, DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  /**
+   * Constructs an instance of {@link PrefetchingUlidGenerator} and starts the
+   * background thread.
+   *
+   * @param generator A generator to wrap.
+   * @param capacity The maximum number of buffered ULIDs, which is rounded up
+   * to a power of two.
+   * @param lowWaterMark The number of buffered ULIDs at or below which the
+   * buffer is refilled.
+   * @param maxAgeMillis The maximum time in milliseconds that a ULID can stay
+   * in the buffer. Older ULIDs are discarded instead of being issued.
+   * {@link Long#MAX_VALUE} disables the limit.
+   * @throws NullPointerException If {@code generator} is {@code null}.
+   * @throws IllegalArgumentException If {@code capacity} is not in range
+   * [1, {@value #MAX_CAPACITY}], {@code lowWaterMark} is not in range
+   * [0, {@code capacity}) or {@code maxAgeMillis} is not positive.
+   */
+  public PrefetchingUlidGenerator(
+    UlidGenerator generator,
+    int capacity,
+    int lowWaterMark,
+    long maxAgeMillis
+  )
+  {
+    this.generator = Objects.requireNonNull(
+      generator,
+      "'generator' cannot be null");
+
+    if(capacity < 1 || capacity > MAX_CAPACITY)
+    {
+      throw new IllegalArgumentException(
+        "'capacity' must be in range [1, " + MAX_CAPACITY + "]");
+    }
+
+    if(lowWaterMark < 0 || lowWaterMark >= capacity)
+    {
+      throw new IllegalArgumentException(
+        "'lowWaterMark' must be in range [0, 'capacity')");
+    }
+
+    if(maxAgeMillis < 1L)
+    {
+      throw new IllegalArgumentException("'maxAgeMillis' must be positive");
+    }
+
+    final int roundedCapacity = Integer.highestOneBit(
+      (capacity << 1) - 1);
+    this.lowWaterMark = lowWaterMark;
+    this.maxAgeMillis = maxAgeMillis;
+    maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    refreshAgeNanos = maxAgeNanos >>> 1;
+    mask = roundedCapacity - 1;
+    ring = new long[roundedCapacity << 1];
+    bufferedAtNanos = new long[roundedCapacity];
+    head = new AtomicLong(0L);
+    tail = 0L;
+    producerLock = new ReentrantLock();
+    refillRequested = new AtomicBoolean(false);
+    closed = false;
+    hitCount = new AtomicLong(0L);
+    missCount = new AtomicLong(0L);
+    expiredCount = new AtomicLong(0L);
+
+    producer = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        produce();
+      }
+    }, "ulid-prefetcher");
+    producer.setDaemon(true);
+    producer.start();
+  }
+
+  /**
+   * Gets the wrapped generator.
+   *
+   * @return The wrapped generator.
+   */
+  public UlidGenerator getGenerator()
+  {
+    return generator;
+  }
+
+  /**
+   * Gets the maximum number of buffered ULIDs.
+   *
+   * @return The capacity of the buffer.
+   */
+  public int getCapacity()
+  {
+    return mask + 1;
+  }
+
+  /**
+   * Gets the number of buffered ULIDs at or below which the buffer is
+   * refilled.
+   *
+   * @return The low-water mark.
+   */
+  public int getLowWaterMark()
+  {
+    return lowWaterMark;
+  }
+
+  /**
+   * Gets the maximum time in milliseconds that a ULID can stay in the buffer.
+   *
+   * @return The maximum age of buffered ULIDs.
+   */
+  public long getMaxAgeMillis()
+  {
+    return maxAgeMillis;
+  }
+
+  /**
+   * Gets the number of ULIDs currently buffered.
+   *
+   * @return The number of buffered ULIDs.
+   */
+  public int getBufferedCount()
+  {
+    return (int)Math.max(0L, tail - head.get());
+  }
+
+  /**
+   * Gets the number of ULIDs issued from the buffer.
+   *
+   * @return The number of ULIDs issued from the buffer.
+   */
+  public long getHitCount()
+  {
+    return hitCount.get();
+  }
+
+  /**
+   * Gets the number of ULIDs generated synchronously because the buffer was
+   * drained.
+   *
+   * @return The number of synchronously generated ULIDs.
+   */
+  public long getMissCount()
+  {
+    return missCount.get();
+  }
+
+  /**
+   * Gets the number of buffered ULIDs discarded because of their age, either
+   * by the background thread replacing them or by consumers finding them
+   * expired.
+   *
+   * @return The number of expired ULIDs.
+   */
+  public long getExpiredCount()
+  {
+    return expiredCount.get();
+  }
+
+  /**
+   * Gets the ratio of the ULIDs issued from the buffer to all issued ULIDs.
+   *
+   * @return The hit rate in range [0, 1], or {@code 0} if no ULID has been
+   * issued.
+   */
+  public double getHitRate()
+  {
+    final long hits = hitCount.get();
+    final long total = hits + missCount.get();
+
+    return 0L == total ? 0.0 : (double)hits / total;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The result is a {@link PackedUlidList}.
+   * </p>
+   */
+  @Override
+  public List<Ulid> generate(int count)
+  {
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    final long[] hiLo = new long[count << 1];
+    int size = claim(hiLo, 0, count);
+
+    if(size < count)
+    {
+      producerLock.lock();
+      try
+      {
+        size += claim(hiLo, size, count - size);
+        if(size < count)
+        {
+          final int generatedSize = copy(
+            generator.generate(count - size),
+            hiLo,
+            size);
+          missCount.addAndGet(generatedSize);
+          size += generatedSize;
+        }
+      }
+      finally
+      {
+        producerLock.unlock();
+      }
+    }
+
+    return new PackedUlidList(hiLo, size);
+  }
+
+  /**
+   * <p>
+   * Generates ULIDs with an initial timestamp.
+   * </p>
+   * <p>
+   * The ULIDs are always generated synchronously. Buffered ULIDs are
+   * discarded since they may be greater than the generated ULIDs.
+   * </p>
+   *
+   * @param count The desired number of generated ULIDs.
+   * @param timestamp The initial timestamp.
+   * @return A list of generated ULIDs.
+   */
+  @Override
+  public List<Ulid> generate(int count, long timestamp)
+  {
+    final List<Ulid> result;
+
+    producerLock.lock();
+    try
+    {
+      head.set(tail);
+      result = generator.generate(count, timestamp);
+      missCount.addAndGet(result.size());
+    }
+    finally
+    {
+      producerLock.unlock();
+    }
+    requestRefill();
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid next()
+  {
+    Ulid result = claimOne();
+
+    if(null == result)
+    {
+      producerLock.lock();
+      try
+      {
+        result = claimOne();
+        if(null == result)
+        {
+          result = generator.next();
+          if(null != result)
+          {
+            missCount.incrementAndGet();
+          }
+        }
+      }
+      finally
+      {
+        producerLock.unlock();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Takes an ULID, waiting for the next timestamp if the buffer is drained
+   * and the wrapped generator cannot generate an ULID at the moment.
+   *
+   * @return An ULID.
+   * @throws InterruptedException If the current thread is interrupted while
+   * waiting.
+   */
+  public Ulid take()
+    throws InterruptedException
+  {
+    Ulid result = next();
+
+    while(null == result)
+    {
+      Thread.sleep(1);
+      result = next();
+    }
+
+    return result;
+  }
+
+  /**
+   * Stops the background thread. Buffered ULIDs are still issued.
+   */
+  @Override
+  public void close()
+  {
+    closed = true;
+    producer.interrupt();
+  }
+
+  /**
+   * The maximum number of ULIDs that the background thread generates while
+   * holding {@link #producerLock}.
+   */
+  private static final int FILL_CHUNK_SIZE = 64;
+
+  private static int copy(List<Ulid> ulids, long[] hiLo, int offset)
+  {
+    final int count = ulids.size();
+
+    if(ulids instanceof PackedUlidList)
+    {
+      final PackedUlidList packed = (PackedUlidList)ulids;
+      for(int i = 0; i < count; ++i)
+      {
+        hiLo[(offset + i) << 1] = packed.getMostSignificantBits(i);
+        hiLo[((offset + i) << 1) + 1] = packed.getLeastSignificantBits(i);
+      }
+    }
+    else
+    {
+      for(int i = 0; i < count; ++i)
+      {
+        final Ulid ulid = ulids.get(i);
+        hiLo[(offset + i) << 1] = ulid.getMostSignificantBits();
+        hiLo[((offset + i) << 1) + 1] = ulid.getLeastSignificantBits();
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Claims a buffered ULID. Expired ULIDs are discarded.
+   *
+   * @return A buffered ULID, or {@code null} if the buffer has no ULID that
+   * has not expired.
+   */
+  private Ulid claimOne()
+  {
+    Ulid result = null;
+
+    boolean claiming = true;
+    while(claiming)
+    {
+      final long index = head.get();
+      if(index >= tail)
+      {
+        claiming = false;
+      }
+      else if(isExpired(index))
+      {
+        discardExpired(index);
+      }
+      else
+      {
+        final int slot = (int)(index & mask) << 1;
+        final long mostSigBits = ring[slot];
+        final long leastSigBits = ring[slot + 1];
+        if(head.compareAndSet(index, index + 1L))
+        {
+          result = new Ulid(mostSigBits, leastSigBits);
+          claiming = false;
+        }
+      }
+    }
+
+    if(null != result)
+    {
+      hitCount.incrementAndGet();
+      requestRefillIfNeeded(tail - head.get());
+    }
+
+    return result;
+  }
+
+  /**
+   * Claims up to {@code count} buffered ULIDs. Expired ULIDs are discarded.
+   *
+   * @return The number of claimed ULIDs.
+   */
+  private int claim(long[] hiLo, int offset, int count)
+  {
+    int result = 0;
+
+    boolean claiming = true;
+    while(claiming)
+    {
+      final long index = head.get();
+      final int available = (int)Math.min(count, tail - index);
+      if(available <= 0)
+      {
+        claiming = false;
+      }
+      else if(isExpired(index))
+      {
+        discardExpired(index);
+      }
+      else
+      {
+        for(int i = 0; i < available; ++i)
+        {
+          final int slot = (int)((index + i) & mask) << 1;
+          hiLo[(offset + i) << 1] = ring[slot];
+          hiLo[((offset + i) << 1) + 1] = ring[slot + 1];
+        }
+        if(head.compareAndSet(index, index + available))
+        {
+          result = available;
+          claiming = false;
+        }
+      }
+    }
+
+    if(result > 0)
+    {
+      hitCount.addAndGet(result);
+    }
+    requestRefillIfNeeded(tail - head.get());
+
+    return result;
+  }
+
+  /**
+   * Checks if the buffered ULID at {@code index} has been in the buffer
+   * longer than the maximum age. The result is only meaningful if the ULID
+   * has not been claimed.
+   */
+  private boolean isExpired(long index)
+  {
+    return System.nanoTime() - bufferedAtNanos[(int)(index & mask)]
+      > maxAgeNanos;
+  }
+
+  /**
+   * Discards the expired ULIDs starting at {@code index}, which is the head.
+   */
+  private void discardExpired(long index)
+  {
+    // ULIDs are buffered in order, so the ones after an unexpired ULID have
+    // not expired either. Either all ULIDs or only the first is discarded to
+    // avoid searching for the boundary.
+    final long end = tail;
+    final long newHead = (isExpired(end - 1L) ? end : index + 1L);
+    if(head.compareAndSet(index, newHead))
+    {
+      expiredCount.addAndGet(newHead - index);
+      requestRefillIfNeeded(end - newHead);
+    }
+  }
+
+  private void requestRefillIfNeeded(long bufferedCount)
+  {
+    if(bufferedCount <= lowWaterMark && !refillRequested.get())
+    {
+      requestRefill();
+    }
+  }
+
+  private void requestRefill()
+  {
+    if(refillRequested.compareAndSet(false, true))
+    {
+      LockSupport.unpark(producer);
+    }
+  }
+
+  private void produce()
+  {
+    boolean refilling = false;
+
+    while(!closed)
+    {
+      // Wake-ups without a request while the buffer is above the low-water
+      // mark, including spurious ones, do not refill the buffer.
+      refilling |= refillRequested.getAndSet(false);
+      refilling |= discardAging();
+      refilling |= tail - head.get() <= lowWaterMark;
+
+      if(refilling)
+      {
+        int generatedCount = 1;
+        while(!closed && generatedCount > 0 && tail - head.get() <= mask)
+        {
+          generatedCount = fill();
+        }
+
+        // Retries if the randomness of the current timestamp has been used
+        // up.
+        refilling = 0 == generatedCount;
+      }
+
+      if(closed)
+      {
+        // Stops.
+      }
+      else if(refilling)
+      {
+        try
+        {
+          Thread.sleep(1);
+        }
+        catch(final InterruptedException ie)
+        {
+          closed = true;
+        }
+      }
+      else
+      {
+        awaitRefillRequest();
+      }
+    }
+  }
+
+  /**
+   * Discards buffered ULIDs that have been in the buffer longer than half the
+   * maximum age, so that they are replaced before consumers find them
+   * expired. Only the background thread calls this method.
+   *
+   * @return {@code true} if any ULID has been discarded.
+   */
+  private boolean discardAging()
+  {
+    boolean result = false;
+
+    final long now = System.nanoTime();
+    final long end = tail;
+    boolean discarding = true;
+    while(discarding)
+    {
+      final long index = head.get();
+      long newHead = index;
+      while(
+        newHead < end
+          && now - bufferedAtNanos[(int)(newHead & mask)] > refreshAgeNanos
+      )
+      {
+        ++newHead;
+      }
+
+      if(newHead == index)
+      {
+        discarding = false;
+      }
+      else if(head.compareAndSet(index, newHead))
+      {
+        expiredCount.addAndGet(newHead - index);
+        result = true;
+        discarding = false;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parks the background thread until a refill is requested or the oldest
+   * buffered ULID has to be replaced.
+   */
+  private void awaitRefillRequest()
+  {
+    final long index = head.get();
+
+    if(Long.MAX_VALUE == maxAgeMillis || index >= tail)
+    {
+      LockSupport.park(this);
+    }
+    else
+    {
+      final long waitNanos = refreshAgeNanos
+        - (System.nanoTime() - bufferedAtNanos[(int)(index & mask)]);
+      if(waitNanos > 0L)
+      {
+        LockSupport.parkNanos(this, waitNanos);
+      }
+    }
+  }
+
+  /**
+   * Generates a chunk of ULIDs into the free slots of the buffer.
+   *
+   * @return The number of generated ULIDs.
+   */
+  private int fill()
+  {
+    int result = 0;
+
+    producerLock.lock();
+    try
+    {
+      final long index = tail;
+      final int slot = (int)(index & mask);
+      final int count = (int)Math.min(
+        Math.min(mask + 1L - (index - head.get()), mask + 1L - slot),
+        FILL_CHUNK_SIZE);
+
+      if(count > 0)
+      {
+        final long now = System.nanoTime();
+        if(generator instanceof AbstractUlidGenerator)
+        {
+          result = ((AbstractUlidGenerator)generator).generateInto(
+            UlidSink.of(ring, slot << 1),
+            count);
+        }
+        else
+        {
+          result = copy(generator.generate(count), ring, slot);
+        }
+        for(int i = 0; i < result; ++i)
+        {
+          bufferedAtNanos[slot + i] = now;
+        }
+        tail = index + result;
+      }
+    }
+    finally
+    {
+      producerLock.unlock();
+    }
+
+    return result;
+  }
+
+  private final UlidGenerator generator;
+
+  private final int lowWaterMark;
+
+  private final long maxAgeMillis;
+
+  private final long maxAgeNanos;
+
+  /**
+   * The age at which the background thread replaces buffered ULIDs.
+   */
+  private final long refreshAgeNanos;
+
+  private final int mask;
+
+  /**
+   * Pairs of the most significant 64 bits and the least significant 64 bits
+   * of buffered ULIDs.
+   */
+  private final long[] ring;
+
+  /**
+   * The values of {@link System#nanoTime()} when the ULIDs in the slots of
+   * {@link #ring} were buffered.
+   */
+  private final long[] bufferedAtNanos;
+
+  /**
+   * The sequence number of the next ULID to be issued.
+   */
+  private final AtomicLong head;
+
+  /**
+   * The sequence number of the next ULID to be buffered. Only the background
+   * thread writes it, while holding {@link #producerLock}.
+   */
+  private volatile long tail;
+
+  /**
+   * Serializes the generation of the background thread and synchronous
+   * generation so that ULIDs are issued in the order of generation.
+   */
+  private final Lock producerLock;
+
+  private final AtomicBoolean refillRequested;
+
+  private volatile boolean closed;
+
+  private final AtomicLong hitCount;
+
+  private final AtomicLong missCount;
+
+  private final AtomicLong expiredCount;
+
+  private final Thread producer;
+}
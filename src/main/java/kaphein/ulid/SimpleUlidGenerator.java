@@ -1,8 +1,7 @@
 package kaphein.ulid;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
@@ -46,6 +45,9 @@ public class SimpleUlidGenerator extends AbstractUlidGenerator
 
   /**
    * {@inheritDoc}
+   * <p>
+   * The result is a {@link PackedUlidList}.
+   * </p>
    */
   @Override
   public List<Ulid> generate(int count)
@@ -55,18 +57,14 @@ public class SimpleUlidGenerator extends AbstractUlidGenerator
       throw new IllegalArgumentException("'count' cannot be negative");
     }
 
-    final Set<Ulid> ulids = new LinkedHashSet<>();
-
-    if(count > 0)
-    {
-      generateAndAdd(ulids, count, getEpochMilliSupplier().get());
-    }
-
-    return Collections.unmodifiableList(new ArrayList<>(ulids));
+    return generateImpl(count, getEpochMilliSupplier().get(), false);
   }
 
   /**
    * {@inheritDoc}
+   * <p>
+   * The result is a {@link PackedUlidList}.
+   * </p>
    */
   @Override
   public List<Ulid> generate(int count, long timestamp)
@@ -82,16 +80,15 @@ public class SimpleUlidGenerator extends AbstractUlidGenerator
         "'timestamp' cannot be lower than " + Ulid.TIMESTAMP_MIN_VALUE);
     }
 
-    final Set<Ulid> ulids = new LinkedHashSet<>();
-
-    if(count > 0)
-    {
-      generateAndAdd(ulids, count, timestamp);
-    }
-
-    return Collections.unmodifiableList(new ArrayList<>(ulids));
+    return generateImpl(count, timestamp, false);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The result is a {@link PackedUlidList}.
+   * </p>
+   */
   @Override
   public List<Ulid> generateExact(int count)
     throws InterruptedException
@@ -101,16 +98,15 @@ public class SimpleUlidGenerator extends AbstractUlidGenerator
       throw new IllegalArgumentException("'count' cannot be negative");
     }
 
-    final Set<Ulid> ulids = new LinkedHashSet<>();
-
-    if(count > 0)
-    {
-      generateAndAddExactTimes(ulids, count, getEpochMilliSupplier().get());
-    }
-
-    return Collections.unmodifiableList(new ArrayList<>(ulids));
+    return generateImpl(count, getEpochMilliSupplier().get(), true);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The result is a {@link PackedUlidList}.
+   * </p>
+   */
   @Override
   public List<Ulid> generateExact(int count, long timestamp)
     throws InterruptedException
@@ -126,42 +122,140 @@ public class SimpleUlidGenerator extends AbstractUlidGenerator
         "'timestamp' cannot be lower than " + Ulid.TIMESTAMP_MIN_VALUE);
     }
 
-    final Set<Ulid> ulids = new LinkedHashSet<>();
+    return generateImpl(count, timestamp, true);
+  }
 
-    if(count > 0)
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid next()
+  {
+    final long hiPrefix = (getEpochMilliSupplier().get()
+      & Ulid.TIMESTAMP_MAX_VALUE) << 16;
+    final Ulid result;
+
+    if(isRandomnessOverridden())
+    {
+      final long[] randomness = generateRandomness();
+      result = new Ulid(hiPrefix | randomness[0], randomness[1]);
+    }
+    else
     {
-      generateAndAddExactTimes(ulids, count, timestamp);
+      final Random rng = getRandomGenerator();
+      result = new Ulid(
+        hiPrefix | (rng.nextLong() & Ulid.RANDOMNESS_MAX_VALUE_MS_BITS),
+        rng.nextLong());
     }
 
-    return Collections.unmodifiableList(new ArrayList<>(ulids));
+    return result;
   }
 
-  private void generateAndAdd(
-    Set<Ulid> ulids,
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid nextExact()
+  {
+    return next();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Unlike {@link #generate(int)}, the generated ULIDs are not checked for
+   * duplicates since the probability of a collision of 80-bit randomnesses is
+   * negligible.
+   * </p>
+   */
+  @Override
+  int generateInto(UlidSink sink, int count)
+  {
+    generateAndAdd(sink, count, getEpochMilliSupplier().get());
+
+    return count;
+  }
+
+  /**
+   * Removes duplicated ULIDs from an array of pairs of the most significant
+   * 64 bits and the least significant 64 bits, keeping the first occurrences
+   * in order.
+   *
+   * @param hiLo An array of pairs.
+   * @param count The number of ULIDs in {@code hiLo}.
+   * @return The number of remaining ULIDs.
+   */
+  static int removeDuplicates(long[] hiLo, int count)
+  {
+    int result = count;
+
+    // Duplicated ULIDs must have the same least significant bits, which
+    // almost never happens, so sorting them is enough to rule out duplicates.
+    final long[] sortedLeastSigBits = new long[count];
+    for(int i = 0; i < count; ++i)
+    {
+      sortedLeastSigBits[i] = hiLo[(i << 1) + 1];
+    }
+    Arrays.sort(sortedLeastSigBits);
+
+    boolean mayHaveDuplicates = false;
+    for(int i = 1; !mayHaveDuplicates && i < count; ++i)
+    {
+      mayHaveDuplicates = sortedLeastSigBits[i - 1] == sortedLeastSigBits[i];
+    }
+
+    if(mayHaveDuplicates)
+    {
+      final Set<Ulid> ulids = new HashSet<>();
+      result = 0;
+      for(int i = 0; i < count; ++i)
+      {
+        final long mostSigBits = hiLo[i << 1];
+        final long leastSigBits = hiLo[(i << 1) + 1];
+        if(ulids.add(new Ulid(mostSigBits, leastSigBits)))
+        {
+          hiLo[result << 1] = mostSigBits;
+          hiLo[(result << 1) + 1] = leastSigBits;
+          ++result;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private PackedUlidList generateImpl(
     int count,
-    long timestamp
+    long timestamp,
+    boolean generateExactTimes
   )
   {
+    final long[] hiLo = new long[count << 1];
+    int size = 0;
+
     do
     {
-      ulids.add(Ulid.from(timestamp, generateRandomness()));
+      generateAndAdd(UlidSink.of(hiLo, size << 1), count - size, timestamp);
+      size = removeDuplicates(hiLo, count);
     }
-    while(--count > 0);
+    while(generateExactTimes && size < count);
+
+    return new PackedUlidList(hiLo, size);
   }
 
-  private void generateAndAddExactTimes(
-    Set<Ulid> ulids,
+  private void generateAndAdd(
+    UlidSink sink,
     int count,
     long timestamp
   )
   {
-    do
+    final long hiPrefix = (timestamp & Ulid.TIMESTAMP_MAX_VALUE) << 16;
+    final long[] randomness = new long[2];
+
+    for(int i = 0; i < count; ++i)
     {
-      if(ulids.add(Ulid.from(timestamp, generateRandomness())))
-      {
-        --count;
-      }
+      fillRandomness(randomness);
+      sink.add(hiPrefix | randomness[0], randomness[1]);
     }
-    while(count > 0);
   }
 }
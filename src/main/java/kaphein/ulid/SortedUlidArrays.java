@@ -0,0 +1,744 @@
+package kaphein.ulid;
+
+import java.util.Objects;
+
+/**
+ * <p>
+ * Set operations over sorted ULID arrays.
+ * </p>
+ * <p>
+ * A sorted ULID array is a pair of {@code long} arrays that hold the most
+ * significant 64 bits and the least significant 64 bits of ULIDs respectively,
+ * in strictly ascending order of ULIDs. The results are undefined if the
+ * inputs are not sorted or contain duplicates.
+ * </p>
+ * <p>
+ * If one input is much smaller than the other, the operations search the
+ * larger input with exponential search (galloping) instead of scanning it, so
+ * intersecting 10 IDs with 10 million IDs takes a few hundred comparisons.
+ * Results are written into a caller-supplied {@link UlidBuffer}, which is
+ * cleared first and can be reused across calls. The output buffer must not
+ * be one of the inputs. The {@code *Count} variants only count the results.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public final class SortedUlidArrays
+{
+  /**
+   * Computes the intersection of two sorted ULID arrays.
+   *
+   * @param aMostSigBits The most significant 64 bits of the first input.
+   * @param aLeastSigBits The least significant 64 bits of the first input.
+   * @param aLength The number of ULIDs in the first input.
+   * @param bMostSigBits The most significant 64 bits of the second input.
+   * @param bLeastSigBits The least significant 64 bits of the second input.
+   * @param bLength The number of ULIDs in the second input.
+   * @param out A buffer that receives the result.
+   * @return The number of ULIDs in the result.
+   * @throws NullPointerException If any of the arrays or {@code out} is
+   * {@code null}.
+   * @throws IllegalArgumentException If a length is negative or greater than
+   * the length of its arrays.
+   */
+  public static int intersect(
+    long[] aMostSigBits,
+    long[] aLeastSigBits,
+    int aLength,
+    long[] bMostSigBits,
+    long[] bLeastSigBits,
+    int bLength,
+    UlidBuffer out
+  )
+  {
+    Objects.requireNonNull(out, "'out' cannot be null");
+
+    return intersectImpl(
+      aMostSigBits, aLeastSigBits, aLength,
+      bMostSigBits, bLeastSigBits, bLength,
+      out);
+  }
+
+  /**
+   * Computes the intersection of two sorted ULID buffers.
+   *
+   * @param a The first input.
+   * @param b The second input.
+   * @param out A buffer that receives the result.
+   * @return The number of ULIDs in the result.
+   * @throws NullPointerException If any of the buffers is {@code null}.
+   */
+  public static int intersect(UlidBuffer a, UlidBuffer b, UlidBuffer out)
+  {
+    return intersect(
+      a.getMostSignificantBitsArray(), a.getLeastSignificantBitsArray(),
+      a.size(),
+      b.getMostSignificantBitsArray(), b.getLeastSignificantBitsArray(),
+      b.size(),
+      out);
+  }
+
+  /**
+   * Counts the ULIDs in the intersection of two sorted ULID arrays.
+   *
+   * @param aMostSigBits The most significant 64 bits of the first input.
+   * @param aLeastSigBits The least significant 64 bits of the first input.
+   * @param aLength The number of ULIDs in the first input.
+   * @param bMostSigBits The most significant 64 bits of the second input.
+   * @param bLeastSigBits The least significant 64 bits of the second input.
+   * @param bLength The number of ULIDs in the second input.
+   * @return The number of ULIDs in the intersection.
+   * @throws NullPointerException If any of the arrays is {@code null}.
+   * @throws IllegalArgumentException If a length is negative or greater than
+   * the length of its arrays.
+   */
+  public static int intersectCount(
+    long[] aMostSigBits,
+    long[] aLeastSigBits,
+    int aLength,
+    long[] bMostSigBits,
+    long[] bLeastSigBits,
+    int bLength
+  )
+  {
+    return intersectImpl(
+      aMostSigBits, aLeastSigBits, aLength,
+      bMostSigBits, bLeastSigBits, bLength,
+      null);
+  }
+
+  /**
+   * Counts the ULIDs in the intersection of two sorted ULID buffers.
+   *
+   * @param a The first input.
+   * @param b The second input.
+   * @return The number of ULIDs in the intersection.
+   * @throws NullPointerException If any of the buffers is {@code null}.
+   */
+  public static int intersectCount(UlidBuffer a, UlidBuffer b)
+  {
+    return intersectCount(
+      a.getMostSignificantBitsArray(), a.getLeastSignificantBitsArray(),
+      a.size(),
+      b.getMostSignificantBitsArray(), b.getLeastSignificantBitsArray(),
+      b.size());
+  }
+
+  /**
+   * Computes the union of two sorted ULID arrays.
+   *
+   * @param aMostSigBits The most significant 64 bits of the first input.
+   * @param aLeastSigBits The least significant 64 bits of the first input.
+   * @param aLength The number of ULIDs in the first input.
+   * @param bMostSigBits The most significant 64 bits of the second input.
+   * @param bLeastSigBits The least significant 64 bits of the second input.
+   * @param bLength The number of ULIDs in the second input.
+   * @param out A buffer that receives the result.
+   * @return The number of ULIDs in the result.
+   * @throws NullPointerException If any of the arrays or {@code out} is
+   * {@code null}.
+   * @throws IllegalArgumentException If a length is negative or greater than
+   * the length of its arrays.
+   */
+  public static int union(
+    long[] aMostSigBits,
+    long[] aLeastSigBits,
+    int aLength,
+    long[] bMostSigBits,
+    long[] bLeastSigBits,
+    int bLength,
+    UlidBuffer out
+  )
+  {
+    Objects.requireNonNull(out, "'out' cannot be null");
+
+    return unionImpl(
+      aMostSigBits, aLeastSigBits, aLength,
+      bMostSigBits, bLeastSigBits, bLength,
+      out);
+  }
+
+  /**
+   * Computes the union of two sorted ULID buffers.
+   *
+   * @param a The first input.
+   * @param b The second input.
+   * @param out A buffer that receives the result.
+   * @return The number of ULIDs in the result.
+   * @throws NullPointerException If any of the buffers is {@code null}.
+   */
+  public static int union(UlidBuffer a, UlidBuffer b, UlidBuffer out)
+  {
+    return union(
+      a.getMostSignificantBitsArray(), a.getLeastSignificantBitsArray(),
+      a.size(),
+      b.getMostSignificantBitsArray(), b.getLeastSignificantBitsArray(),
+      b.size(),
+      out);
+  }
+
+  /**
+   * Counts the ULIDs in the union of two sorted ULID arrays.
+   *
+   * @param aMostSigBits The most significant 64 bits of the first input.
+   * @param aLeastSigBits The least significant 64 bits of the first input.
+   * @param aLength The number of ULIDs in the first input.
+   * @param bMostSigBits The most significant 64 bits of the second input.
+   * @param bLeastSigBits The least significant 64 bits of the second input.
+   * @param bLength The number of ULIDs in the second input.
+   * @return The number of ULIDs in the union.
+   * @throws NullPointerException If any of the arrays is {@code null}.
+   * @throws IllegalArgumentException If a length is negative or greater than
+   * the length of its arrays.
+   */
+  public static long unionCount(
+    long[] aMostSigBits,
+    long[] aLeastSigBits,
+    int aLength,
+    long[] bMostSigBits,
+    long[] bLeastSigBits,
+    int bLength
+  )
+  {
+    return (long)aLength + bLength - intersectCount(
+      aMostSigBits, aLeastSigBits, aLength,
+      bMostSigBits, bLeastSigBits, bLength);
+  }
+
+  /**
+   * Counts the ULIDs in the union of two sorted ULID buffers.
+   *
+   * @param a The first input.
+   * @param b The second input.
+   * @return The number of ULIDs in the union.
+   * @throws NullPointerException If any of the buffers is {@code null}.
+   */
+  public static long unionCount(UlidBuffer a, UlidBuffer b)
+  {
+    return unionCount(
+      a.getMostSignificantBitsArray(), a.getLeastSignificantBitsArray(),
+      a.size(),
+      b.getMostSignificantBitsArray(), b.getLeastSignificantBitsArray(),
+      b.size());
+  }
+
+  /**
+   * Computes the difference of two sorted ULID arrays, that is, the ULIDs in
+   * the first input that are not in the second input.
+   *
+   * @param aMostSigBits The most significant 64 bits of the first input.
+   * @param aLeastSigBits The least significant 64 bits of the first input.
+   * @param aLength The number of ULIDs in the first input.
+   * @param bMostSigBits The most significant 64 bits of the second input.
+   * @param bLeastSigBits The least significant 64 bits of the second input.
+   * @param bLength The number of ULIDs in the second input.
+   * @param out A buffer that receives the result.
+   * @return The number of ULIDs in the result.
+   * @throws NullPointerException If any of the arrays or {@code out} is
+   * {@code null}.
+   * @throws IllegalArgumentException If a length is negative or greater than
+   * the length of its arrays.
+   */
+  public static int difference(
+    long[] aMostSigBits,
+    long[] aLeastSigBits,
+    int aLength,
+    long[] bMostSigBits,
+    long[] bLeastSigBits,
+    int bLength,
+    UlidBuffer out
+  )
+  {
+    Objects.requireNonNull(out, "'out' cannot be null");
+
+    return differenceImpl(
+      aMostSigBits, aLeastSigBits, aLength,
+      bMostSigBits, bLeastSigBits, bLength,
+      out);
+  }
+
+  /**
+   * Computes the difference of two sorted ULID buffers, that is, the ULIDs in
+   * {@code a} that are not in {@code b}.
+   *
+   * @param a The first input.
+   * @param b The second input.
+   * @param out A buffer that receives the result.
+   * @return The number of ULIDs in the result.
+   * @throws NullPointerException If any of the buffers is {@code null}.
+   */
+  public static int difference(UlidBuffer a, UlidBuffer b, UlidBuffer out)
+  {
+    return difference(
+      a.getMostSignificantBitsArray(), a.getLeastSignificantBitsArray(),
+      a.size(),
+      b.getMostSignificantBitsArray(), b.getLeastSignificantBitsArray(),
+      b.size(),
+      out);
+  }
+
+  /**
+   * Counts the ULIDs in the first input that are not in the second input.
+   *
+   * @param aMostSigBits The most significant 64 bits of the first input.
+   * @param aLeastSigBits The least significant 64 bits of the first input.
+   * @param aLength The number of ULIDs in the first input.
+   * @param bMostSigBits The most significant 64 bits of the second input.
+   * @param bLeastSigBits The least significant 64 bits of the second input.
+   * @param bLength The number of ULIDs in the second input.
+   * @return The number of ULIDs in the difference.
+   * @throws NullPointerException If any of the arrays is {@code null}.
+   * @throws IllegalArgumentException If a length is negative or greater than
+   * the length of its arrays.
+   */
+  public static int differenceCount(
+    long[] aMostSigBits,
+    long[] aLeastSigBits,
+    int aLength,
+    long[] bMostSigBits,
+    long[] bLeastSigBits,
+    int bLength
+  )
+  {
+    return aLength - intersectCount(
+      aMostSigBits, aLeastSigBits, aLength,
+      bMostSigBits, bLeastSigBits, bLength);
+  }
+
+  /**
+   * Counts the ULIDs in {@code a} that are not in {@code b}.
+   *
+   * @param a The first input.
+   * @param b The second input.
+   * @return The number of ULIDs in the difference.
+   * @throws NullPointerException If any of the buffers is {@code null}.
+   */
+  public static int differenceCount(UlidBuffer a, UlidBuffer b)
+  {
+    return differenceCount(
+      a.getMostSignificantBitsArray(), a.getLeastSignificantBitsArray(),
+      a.size(),
+      b.getMostSignificantBitsArray(), b.getLeastSignificantBitsArray(),
+      b.size());
+  }
+
+  /**
+   * Finds the first index in a range of a sorted ULID array whose ULID is
+   * greater than or equal to specified ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the input.
+   * @param leastSigBits The least significant 64 bits of the input.
+   * @param fromIndex The first index of the range, inclusive.
+   * @param toIndex The last index of the range, exclusive.
+   * @param keyMostSigBits The most significant 64 bits of the ULID to find.
+   * @param keyLeastSigBits The least significant 64 bits of the ULID to find.
+   * @return The found index or {@code toIndex} if every ULID in the range is
+   * less than the ULID to find.
+   * @throws NullPointerException If any of the arrays is {@code null}.
+   * @throws IllegalArgumentException If the range is out of bounds.
+   */
+  public static int lowerBound(
+    long[] mostSigBits,
+    long[] leastSigBits,
+    int fromIndex,
+    int toIndex,
+    long keyMostSigBits,
+    long keyLeastSigBits
+  )
+  {
+    throwIfInvalid(mostSigBits, leastSigBits, toIndex);
+    if(fromIndex < 0 || fromIndex > toIndex)
+    {
+      throw new IllegalArgumentException("'fromIndex' is out of range");
+    }
+
+    return gallop(
+      mostSigBits, leastSigBits,
+      fromIndex, toIndex,
+      keyMostSigBits, keyLeastSigBits);
+  }
+
+  /**
+   * If the larger input has at least this many times more ULIDs than the
+   * smaller one, the larger input is searched by galloping.
+   */
+  private static final int GALLOP_RATIO = 16;
+
+  private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+  private static void throwIfInvalid(
+    long[] mostSigBits,
+    long[] leastSigBits,
+    int length
+  )
+  {
+    Objects.requireNonNull(mostSigBits, "'mostSigBits' cannot be null");
+    Objects.requireNonNull(leastSigBits, "'leastSigBits' cannot be null");
+    if(
+      length < 0
+        || length > mostSigBits.length
+        || length > leastSigBits.length
+    )
+    {
+      throw new IllegalArgumentException("The length is out of range");
+    }
+  }
+
+  private static boolean shouldGallop(int smallLength, int largeLength)
+  {
+    return (long)smallLength * GALLOP_RATIO <= largeLength;
+  }
+
+  /**
+   * Finds the first index in {@code [from, to)} whose ULID is greater than or
+   * equal to the key by probing {@code from}, {@code from + 1},
+   * {@code from + 3}, {@code from + 7}, ... and then binary searching the last
+   * gap.
+   */
+  private static int gallop(
+    long[] his,
+    long[] los,
+    int from,
+    int to,
+    long hi,
+    long lo
+  )
+  {
+    int low = from;
+    int high = from;
+    int step = 1;
+
+    while(high < to && Uint128Utils.compare(his[high], los[high], hi, lo) < 0)
+    {
+      low = high + 1;
+      high = (step >= to - high ? to : high + step);
+      step <<= 1;
+    }
+
+    // Every index before 'low' is less than the key and 'high' is either 'to'
+    // or an index greater than or equal to the key.
+    while(low < high)
+    {
+      final int mid = (low + high) >>> 1;
+
+      if(Uint128Utils.compare(his[mid], los[mid], hi, lo) < 0)
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  private static boolean equalsAt(
+    long[] his,
+    long[] los,
+    int index,
+    int length,
+    long hi,
+    long lo
+  )
+  {
+    return index < length && his[index] == hi && los[index] == lo;
+  }
+
+  private static int intersectImpl(
+    long[] aHis,
+    long[] aLos,
+    int aLength,
+    long[] bHis,
+    long[] bLos,
+    int bLength,
+    UlidBuffer out
+  )
+  {
+    throwIfInvalid(aHis, aLos, aLength);
+    throwIfInvalid(bHis, bLos, bLength);
+
+    long[] outHis = null;
+    long[] outLos = null;
+    if(null != out)
+    {
+      out.clear();
+      out.ensureCapacity(Math.min(aLength, bLength));
+      outHis = out.getMostSignificantBitsArray();
+      outLos = out.getLeastSignificantBitsArray();
+    }
+
+    int count = 0;
+
+    if(shouldGallop(aLength, bLength) || shouldGallop(bLength, aLength))
+    {
+      final boolean aIsSmall = aLength <= bLength;
+      final long[] smallHis = (aIsSmall ? aHis : bHis);
+      final long[] smallLos = (aIsSmall ? aLos : bLos);
+      final int smallLength = (aIsSmall ? aLength : bLength);
+      final long[] largeHis = (aIsSmall ? bHis : aHis);
+      final long[] largeLos = (aIsSmall ? bLos : aLos);
+      final int largeLength = (aIsSmall ? bLength : aLength);
+
+      for(int i = 0, j = 0; i < smallLength && j < largeLength; ++i)
+      {
+        final long hi = smallHis[i];
+        final long lo = smallLos[i];
+
+        j = gallop(largeHis, largeLos, j, largeLength, hi, lo);
+        if(equalsAt(largeHis, largeLos, j, largeLength, hi, lo))
+        {
+          if(null != outHis)
+          {
+            outHis[count] = hi;
+            outLos[count] = lo;
+          }
+          ++count;
+          ++j;
+        }
+      }
+    }
+    else
+    {
+      for(int i = 0, j = 0; i < aLength && j < bLength;)
+      {
+        final int cmp = Uint128Utils.compare(
+          aHis[i], aLos[i],
+          bHis[j], bLos[j]);
+
+        if(cmp < 0)
+        {
+          ++i;
+        }
+        else if(cmp > 0)
+        {
+          ++j;
+        }
+        else
+        {
+          if(null != outHis)
+          {
+            outHis[count] = aHis[i];
+            outLos[count] = aLos[i];
+          }
+          ++count;
+          ++i;
+          ++j;
+        }
+      }
+    }
+
+    if(null != out)
+    {
+      out.setSize(count);
+    }
+
+    return count;
+  }
+
+  private static int unionImpl(
+    long[] aHis,
+    long[] aLos,
+    int aLength,
+    long[] bHis,
+    long[] bLos,
+    int bLength,
+    UlidBuffer out
+  )
+  {
+    throwIfInvalid(aHis, aLos, aLength);
+    throwIfInvalid(bHis, bLos, bLength);
+    if((long)aLength + bLength > MAX_ARRAY_LENGTH)
+    {
+      throw new IllegalArgumentException("The inputs are too large");
+    }
+
+    out.clear();
+    out.ensureCapacity(aLength + bLength);
+    final long[] outHis = out.getMostSignificantBitsArray();
+    final long[] outLos = out.getLeastSignificantBitsArray();
+
+    int count = 0;
+
+    if(shouldGallop(aLength, bLength) || shouldGallop(bLength, aLength))
+    {
+      final boolean aIsSmall = aLength <= bLength;
+      final long[] smallHis = (aIsSmall ? aHis : bHis);
+      final long[] smallLos = (aIsSmall ? aLos : bLos);
+      final int smallLength = (aIsSmall ? aLength : bLength);
+      final long[] largeHis = (aIsSmall ? bHis : aHis);
+      final long[] largeLos = (aIsSmall ? bLos : aLos);
+      final int largeLength = (aIsSmall ? bLength : aLength);
+
+      int j = 0;
+      for(int i = 0; i < smallLength; ++i)
+      {
+        final long hi = smallHis[i];
+        final long lo = smallLos[i];
+
+        final int next = gallop(largeHis, largeLos, j, largeLength, hi, lo);
+        System.arraycopy(largeHis, j, outHis, count, next - j);
+        System.arraycopy(largeLos, j, outLos, count, next - j);
+        count += next - j;
+
+        outHis[count] = hi;
+        outLos[count] = lo;
+        ++count;
+
+        j = (equalsAt(largeHis, largeLos, next, largeLength, hi, lo)
+          ? next + 1
+          : next);
+      }
+
+      System.arraycopy(largeHis, j, outHis, count, largeLength - j);
+      System.arraycopy(largeLos, j, outLos, count, largeLength - j);
+      count += largeLength - j;
+    }
+    else
+    {
+      int i = 0;
+      int j = 0;
+
+      while(i < aLength && j < bLength)
+      {
+        final int cmp = Uint128Utils.compare(
+          aHis[i], aLos[i],
+          bHis[j], bLos[j]);
+
+        if(cmp <= 0)
+        {
+          outHis[count] = aHis[i];
+          outLos[count] = aLos[i];
+          ++i;
+
+          if(0 == cmp)
+          {
+            ++j;
+          }
+        }
+        else
+        {
+          outHis[count] = bHis[j];
+          outLos[count] = bLos[j];
+          ++j;
+        }
+        ++count;
+      }
+
+      System.arraycopy(aHis, i, outHis, count, aLength - i);
+      System.arraycopy(aLos, i, outLos, count, aLength - i);
+      count += aLength - i;
+      System.arraycopy(bHis, j, outHis, count, bLength - j);
+      System.arraycopy(bLos, j, outLos, count, bLength - j);
+      count += bLength - j;
+    }
+
+    out.setSize(count);
+
+    return count;
+  }
+
+  private static int differenceImpl(
+    long[] aHis,
+    long[] aLos,
+    int aLength,
+    long[] bHis,
+    long[] bLos,
+    int bLength,
+    UlidBuffer out
+  )
+  {
+    throwIfInvalid(aHis, aLos, aLength);
+    throwIfInvalid(bHis, bLos, bLength);
+
+    out.clear();
+    out.ensureCapacity(aLength);
+    final long[] outHis = out.getMostSignificantBitsArray();
+    final long[] outLos = out.getLeastSignificantBitsArray();
+
+    int count = 0;
+
+    if(shouldGallop(bLength, aLength))
+    {
+      // Copy the runs of 'a' between the ULIDs of 'b'.
+      int i = 0;
+      for(int j = 0; j < bLength && i < aLength; ++j)
+      {
+        final long hi = bHis[j];
+        final long lo = bLos[j];
+
+        final int next = gallop(aHis, aLos, i, aLength, hi, lo);
+        System.arraycopy(aHis, i, outHis, count, next - i);
+        System.arraycopy(aLos, i, outLos, count, next - i);
+        count += next - i;
+
+        i = (equalsAt(aHis, aLos, next, aLength, hi, lo) ? next + 1 : next);
+      }
+
+      System.arraycopy(aHis, i, outHis, count, aLength - i);
+      System.arraycopy(aLos, i, outLos, count, aLength - i);
+      count += aLength - i;
+    }
+    else if(shouldGallop(aLength, bLength))
+    {
+      int j = 0;
+      for(int i = 0; i < aLength; ++i)
+      {
+        final long hi = aHis[i];
+        final long lo = aLos[i];
+
+        j = gallop(bHis, bLos, j, bLength, hi, lo);
+        if(!equalsAt(bHis, bLos, j, bLength, hi, lo))
+        {
+          outHis[count] = hi;
+          outLos[count] = lo;
+          ++count;
+        }
+      }
+    }
+    else
+    {
+      int i = 0;
+      int j = 0;
+
+      while(i < aLength && j < bLength)
+      {
+        final int cmp = Uint128Utils.compare(
+          aHis[i], aLos[i],
+          bHis[j], bLos[j]);
+
+        if(cmp < 0)
+        {
+          outHis[count] = aHis[i];
+          outLos[count] = aLos[i];
+          ++count;
+          ++i;
+        }
+        else if(cmp > 0)
+        {
+          ++j;
+        }
+        else
+        {
+          ++i;
+          ++j;
+        }
+      }
+
+      System.arraycopy(aHis, i, outHis, count, aLength - i);
+      System.arraycopy(aLos, i, outLos, count, aLength - i);
+      count += aLength - i;
+    }
+
+    out.setSize(count);
+
+    return count;
+  }
+
+  private SortedUlidArrays()
+  {
+    throw new AssertionError(
+      "Class " + getClass().getName() + " cannot be instantiated");
+  }
+}
@@ -0,0 +1,374 @@
+package kaphein.ulid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A ULID generator that spreads threads over independent monotonic stripes.
+ * </p>
+ * <p>
+ * The calling thread is hashed onto one of the stripes, and the stripe
+ * number is stored in the most significant bits of the randomness. The
+ * remaining bits of each stripe start from a random value every millisecond
+ * and are incremented by one for each ULID under a lock of the stripe, as
+ * in {@link MonotonicUlidGenerator}. Since the randomness spaces of stripes
+ * are disjoint, ULIDs from different stripes never collide, and threads only
+ * contend with the other threads of their stripes. Unlike
+ * {@link ThreadLocalMonotonicUlidGenerator}, there is no state per thread,
+ * so any number of short-lived threads can use an instance.
+ * </p>
+ * <p>
+ * ULIDs generated by a thread are strictly increasing, but ULIDs generated
+ * by threads of different stripes in the same millisecond are ordered by
+ * their stripes rather than by the time of generation.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe if supplied
+ * {@link EpochMilliSupplier} and {@link Random} are thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class StripedMonotonicUlidGenerator extends AbstractUlidGenerator
+{
+  /**
+   * The maximum number of stripes.
+   */
+  public static final int MAX_STRIPE_COUNT = 1 << 10;
+
+  /**
+   * Constructs an instance of {@link StripedMonotonicUlidGenerator} with as
+   * many stripes as the available processors, rounded up to a power of two.
+   */
+  public StripedMonotonicUlidGenerator()
+  {
+    this(null, null);
+  }
+
+  /**
+   * Constructs an instance of {@link StripedMonotonicUlidGenerator} with as
+   * many stripes as the available processors, rounded up to a power of two.
+   *
+   * @param epochMilliSupplier A epoch milli supplier. If {@code null}, the
+   * default one that uses {@link System#currentTimeMillis()} is selected.
+   * @param rng A random generator. If {@code null}, the default random
+   * generator is selected.
+   */
+  public StripedMonotonicUlidGenerator(
+    EpochMilliSupplier epochMilliSupplier,
+    Random rng
+  )
+  {
+    this(
+      epochMilliSupplier,
+      rng,
+      Math.min(
+        Runtime.getRuntime().availableProcessors(),
+        MAX_STRIPE_COUNT));
+  }
+
+  /**
+   * Constructs an instance of {@link StripedMonotonicUlidGenerator}.
+   *
+   * @param epochMilliSupplier A epoch milli supplier. If {@code null}, the
+   * default one that uses {@link System#currentTimeMillis()} is selected.
+   * @param rng A random generator. If {@code null}, the default random
+   * generator is selected.
+   * @param stripeCount The number of stripes, which is rounded up to a power
+   * of two.
+   * @throws IllegalArgumentException If {@code stripeCount} is not in range
+   * [1, {@value #MAX_STRIPE_COUNT}].
+   */
+  public StripedMonotonicUlidGenerator(
+    EpochMilliSupplier epochMilliSupplier,
+    Random rng,
+    int stripeCount
+  )
+  {
+    super(epochMilliSupplier, rng);
+
+    if(stripeCount < 1 || stripeCount > MAX_STRIPE_COUNT)
+    {
+      throw new IllegalArgumentException(
+        "'stripeCount' must be in range [1, " + MAX_STRIPE_COUNT + "]");
+    }
+
+    stripeBits = Integer.SIZE - Integer.numberOfLeadingZeros(stripeCount - 1);
+    counterMaxValueMsBits = Ulid.RANDOMNESS_MAX_VALUE_MS_BITS >>> stripeBits;
+    stripes = new Stripe[1 << stripeBits];
+    for(int i = 0; i < stripes.length; ++i)
+    {
+      stripes[i] = new Stripe(i);
+    }
+  }
+
+  /**
+   * Gets the number of stripes.
+   *
+   * @return The number of stripes.
+   */
+  public int getStripeCount()
+  {
+    return stripes.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generate(int count)
+  {
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+            throws InterruptedException
+          {
+            return generateImpl(c, null, false);
+          }
+        },
+        Collections.<Ulid>emptyList());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generate(int count, long timestamp)
+  {
+    final int c = count;
+    final long t = timestamp;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+            throws InterruptedException
+          {
+            return generateImpl(c, t, false);
+          }
+        },
+        Collections.<Ulid>emptyList());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generateExact(int count)
+    throws InterruptedException
+  {
+    return generateImpl(count, null, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Ulid> generateExact(int count, long timestamp)
+    throws InterruptedException
+  {
+    return generateImpl(count, timestamp, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  int generateInto(UlidSink sink, int count)
+  {
+    final UlidSink s = sink;
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<Integer>()
+        {
+          @Override
+          public Integer call()
+            throws InterruptedException
+          {
+            return generateAndAdd(s, c, null, false);
+          }
+        },
+        0);
+  }
+
+  /**
+   * The number of the bits of the most significant part of the randomness.
+   */
+  private static final int RANDOMNESS_MS_BITS_SIZE = 16;
+
+  private List<Ulid> generateImpl(
+    int count,
+    Long timestamp,
+    boolean waitForNextTimestampWhenOverflow
+  )
+    throws InterruptedException
+  {
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    if(null != timestamp && timestamp < Ulid.TIMESTAMP_MIN_VALUE)
+    {
+      throw new IllegalArgumentException(
+        "'timestamp' cannot be lower than " + Ulid.TIMESTAMP_MIN_VALUE);
+    }
+
+    final List<Ulid> ulids = new ArrayList<>(count);
+
+    if(count > 0)
+    {
+      generateAndAdd(
+        UlidSink.of(ulids),
+        count,
+        timestamp,
+        waitForNextTimestampWhenOverflow);
+    }
+
+    return Collections.unmodifiableList(ulids);
+  }
+
+  private int generateAndAdd(
+    UlidSink sink,
+    int count,
+    Long timestamp,
+    boolean waitForNextTimestampWhenOverflow
+  )
+    throws InterruptedException
+  {
+    final int requestedCount = count;
+    final Stripe stripe = stripes[getStripeIndexOfCurrentThread()];
+    final long stripeMsBits = (long)stripe.index
+      << (RANDOMNESS_MS_BITS_SIZE - stripeBits);
+    final EpochMilliSupplier epochMilliSupplier = getEpochMilliSupplier();
+    long now = (null == timestamp ? epochMilliSupplier.get() : timestamp);
+    final long[] randomness = new long[2];
+    boolean canGenerate = true;
+
+    while(canGenerate && count > 0)
+    {
+      long timestampToUse = 0L;
+      boolean shouldGenerate = false;
+
+      stripe.lock.lock();
+      try
+      {
+        if(!stripe.initialized || now > stripe.lastTimestamp)
+        {
+          final long[] newRandomness = generateRandomness();
+          stripe.lastTimestamp = now;
+          stripe.counterMsv = newRandomness[0] & counterMaxValueMsBits;
+          stripe.counterLsv = newRandomness[1];
+          stripe.exhausted = false;
+          stripe.initialized = true;
+        }
+
+        if(!stripe.exhausted)
+        {
+          timestampToUse = stripe.lastTimestamp;
+          randomness[0] = stripe.counterMsv;
+          randomness[1] = stripe.counterLsv;
+
+          final long[] next = {randomness[0], randomness[1]};
+          addRandomness(next, count);
+          stripe.exhausted = next[0] > counterMaxValueMsBits;
+          stripe.counterMsv = next[0];
+          stripe.counterLsv = next[1];
+          shouldGenerate = true;
+        }
+      }
+      finally
+      {
+        stripe.lock.unlock();
+      }
+
+      if(shouldGenerate)
+      {
+        final long hiPrefix = (timestampToUse << 16) | stripeMsBits;
+        while(shouldGenerate && count > 0)
+        {
+          sink.add(hiPrefix | randomness[0], randomness[1]);
+          --count;
+
+          incrementRandomness(randomness);
+          shouldGenerate = randomness[0] <= counterMaxValueMsBits;
+        }
+      }
+      else if(waitForNextTimestampWhenOverflow)
+      {
+        Thread.sleep(1);
+        now = epochMilliSupplier.get();
+      }
+      else
+      {
+        // Cannot generate ULIDs anymore with the current timestamp.
+        canGenerate = false;
+      }
+    }
+
+    return requestedCount - count;
+  }
+
+  private int getStripeIndexOfCurrentThread()
+  {
+    final long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+
+    return (int)(hash >>> (Long.SIZE - stripeBits)) & (stripes.length - 1);
+  }
+
+  /**
+   * The monotonic state of a stripe, guarded by {@link #lock}.
+   */
+  private static final class Stripe
+  {
+    Stripe(int index)
+    {
+      this.index = index;
+      lock = new ReentrantLock();
+      initialized = false;
+    }
+
+    final int index;
+
+    final Lock lock;
+
+    boolean initialized;
+
+    long lastTimestamp;
+
+    /**
+     * The most significant bits of the next counter value.
+     */
+    long counterMsv;
+
+    /**
+     * The least significant 64 bits of the next counter value.
+     */
+    long counterLsv;
+
+    /**
+     * Whether the counter of {@link #lastTimestamp} has been used up.
+     */
+    boolean exhausted;
+  }
+
+  private final int stripeBits;
+
+  private final long counterMaxValueMsBits;
+
+  private final Stripe[] stripes;
+}
@@ -0,0 +1,360 @@
+package kaphein.ulid;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * A ULID generator that is monotonic per thread.
+ * </p>
+ * <p>
+ * Each thread that uses an instance is assigned one of
+ * {@value #MAX_THREAD_COUNT} slots, and the slot number is stored in the
+ * most significant {@value #SLOT_BITS} bits of the randomness. The
+ * remaining {@value #COUNTER_BITS} bits start from a random value every
+ * millisecond and are incremented by one for each ULID, as in
+ * {@link MonotonicUlidGenerator}. Since the randomness spaces of slots are
+ * disjoint, ULIDs generated by different threads never collide, and a
+ * thread only touches its own state, so generation is free of contention.
+ * </p>
+ * <p>
+ * ULIDs generated by a thread are strictly increasing, but ULIDs generated
+ * by different threads in the same millisecond are ordered by their slots
+ * rather than by the time of generation.
+ * </p>
+ * <p>
+ * A slot of a terminated thread is reused by a new thread, which continues
+ * from the last timestamp and randomness of the slot so that uniqueness is
+ * still guaranteed. If {@value #MAX_THREAD_COUNT} live threads already own
+ * slots, an {@link IllegalStateException} is thrown.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe if supplied
+ * {@link EpochMilliSupplier} and {@link Random} are thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class ThreadLocalMonotonicUlidGenerator extends AbstractUlidGenerator
+{
+  /**
+   * The number of the most significant bits of the randomness that identify
+   * the thread slot.
+   */
+  public static final int SLOT_BITS = 10;
+
+  /**
+   * The number of the least significant bits of the randomness that are
+   * incremented for each ULID.
+   */
+  public static final int COUNTER_BITS = 80 - SLOT_BITS;
+
+  /**
+   * The maximum number of live threads that can use an instance at the same
+   * time.
+   */
+  public static final int MAX_THREAD_COUNT = 1 << SLOT_BITS;
+
+  /**
+   * Constructs an instance of {@link ThreadLocalMonotonicUlidGenerator}.
+   */
+  public ThreadLocalMonotonicUlidGenerator()
+  {
+    this(null, null);
+  }
+
+  /**
+   * Constructs an instance of {@link ThreadLocalMonotonicUlidGenerator}.
+   *
+   * @param epochMilliSupplier A epoch milli supplier. If {@code null}, the
+   * default one that uses {@link System#currentTimeMillis()} is selected.
+   * @param rng A random generator. If {@code null}, the default random
+   * generator is selected.
+   */
+  public ThreadLocalMonotonicUlidGenerator(
+    EpochMilliSupplier epochMilliSupplier,
+    Random rng
+  )
+  {
+    super(epochMilliSupplier, rng);
+
+    slots = new Slot[MAX_THREAD_COUNT];
+    currentSlot = new ThreadLocal<>();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException If the current thread cannot be assigned a
+   * slot.
+   */
+  @Override
+  public List<Ulid> generate(int count)
+  {
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+            throws InterruptedException
+          {
+            return generateImpl(c, null, false);
+          }
+        },
+        Collections.<Ulid>emptyList());
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException If the current thread cannot be assigned a
+   * slot.
+   */
+  @Override
+  public List<Ulid> generate(int count, long timestamp)
+  {
+    final int c = count;
+    final long t = timestamp;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+            throws InterruptedException
+          {
+            return generateImpl(c, t, false);
+          }
+        },
+        Collections.<Ulid>emptyList());
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException If the current thread cannot be assigned a
+   * slot.
+   */
+  @Override
+  public List<Ulid> generateExact(int count)
+    throws InterruptedException
+  {
+    return generateImpl(count, null, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException If the current thread cannot be assigned a
+   * slot.
+   */
+  @Override
+  public List<Ulid> generateExact(int count, long timestamp)
+    throws InterruptedException
+  {
+    return generateImpl(count, timestamp, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  int generateInto(UlidSink sink, int count)
+  {
+    final UlidSink s = sink;
+    final int c = count;
+
+    return ThreadUtils
+      .callAndReinterruptIfNeeded(
+        new InterruptableCallable<Integer>()
+        {
+          @Override
+          public Integer call()
+            throws InterruptedException
+          {
+            return generateAndAdd(s, c, null, false);
+          }
+        },
+        0);
+  }
+
+  /**
+   * The number of the bits of the counter in the most significant 16 bits of
+   * the randomness.
+   */
+  private static final int COUNTER_MS_BITS_SIZE = COUNTER_BITS - Long.SIZE;
+
+  private static final long COUNTER_MAX_VALUE_MS_BITS
+    = (1L << COUNTER_MS_BITS_SIZE) - 1L;
+
+  private List<Ulid> generateImpl(
+    int count,
+    Long timestamp,
+    boolean waitForNextTimestampWhenOverflow
+  )
+    throws InterruptedException
+  {
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+
+    if(null != timestamp && timestamp < Ulid.TIMESTAMP_MIN_VALUE)
+    {
+      throw new IllegalArgumentException(
+        "'timestamp' cannot be lower than " + Ulid.TIMESTAMP_MIN_VALUE);
+    }
+
+    final List<Ulid> ulids = new ArrayList<>(count);
+
+    if(count > 0)
+    {
+      generateAndAdd(
+        UlidSink.of(ulids),
+        count,
+        timestamp,
+        waitForNextTimestampWhenOverflow);
+    }
+
+    return Collections.unmodifiableList(ulids);
+  }
+
+  private int generateAndAdd(
+    UlidSink sink,
+    int count,
+    Long timestamp,
+    boolean waitForNextTimestampWhenOverflow
+  )
+    throws InterruptedException
+  {
+    final int requestedCount = count;
+    final Slot slot = getSlotOfCurrentThread();
+    final EpochMilliSupplier epochMilliSupplier = getEpochMilliSupplier();
+    long now = (null == timestamp ? epochMilliSupplier.get() : timestamp);
+    final long[] randomness = new long[2];
+
+    while(count > 0)
+    {
+      if(!slot.initialized || now > slot.lastTimestamp)
+      {
+        final long[] newRandomness = generateRandomness();
+        slot.lastTimestamp = now;
+        slot.counterMsv = newRandomness[0] & COUNTER_MAX_VALUE_MS_BITS;
+        slot.counterLsv = newRandomness[1];
+        slot.exhausted = false;
+        slot.initialized = true;
+      }
+      else if(slot.exhausted)
+      {
+        if(!waitForNextTimestampWhenOverflow)
+        {
+          // Cannot generate ULIDs anymore with the current timestamp.
+          break;
+        }
+
+        Thread.sleep(1);
+        now = epochMilliSupplier.get();
+        continue;
+      }
+
+      final long hiPrefix = (slot.lastTimestamp << 16)
+        | ((long)slot.index << COUNTER_MS_BITS_SIZE);
+      randomness[0] = slot.counterMsv;
+      randomness[1] = slot.counterLsv;
+      while(count > 0 && !slot.exhausted)
+      {
+        sink.add(hiPrefix | randomness[0], randomness[1]);
+        --count;
+
+        incrementRandomness(randomness);
+        slot.exhausted = randomness[0] > COUNTER_MAX_VALUE_MS_BITS;
+      }
+      slot.counterMsv = randomness[0];
+      slot.counterLsv = randomness[1];
+    }
+
+    return requestedCount - count;
+  }
+
+  private Slot getSlotOfCurrentThread()
+  {
+    Slot result = currentSlot.get();
+
+    if(null == result)
+    {
+      final Thread thread = Thread.currentThread();
+      synchronized(slots)
+      {
+        for(int i = 0; null == result && i < slots.length; ++i)
+        {
+          final Slot slot = slots[i];
+          if(null == slot)
+          {
+            result = new Slot(i);
+            slots[i] = result;
+          }
+          else
+          {
+            final Thread owner = slot.owner.get();
+            if(null == owner || !owner.isAlive())
+            {
+              result = slot;
+            }
+          }
+        }
+
+        if(null == result)
+        {
+          throw new IllegalStateException(
+            "More than " + MAX_THREAD_COUNT
+              + " threads cannot use the generator at the same time");
+        }
+        result.owner = new WeakReference<>(thread);
+      }
+      currentSlot.set(result);
+    }
+
+    return result;
+  }
+
+  /**
+   * The state of a slot. Only the owner thread accesses the state except
+   * while the slot is being assigned to another thread.
+   */
+  private static final class Slot
+  {
+    Slot(int index)
+    {
+      this.index = index;
+      initialized = false;
+    }
+
+    final int index;
+
+    WeakReference<Thread> owner;
+
+    boolean initialized;
+
+    long lastTimestamp;
+
+    long counterMsv;
+
+    long counterLsv;
+
+    /**
+     * Whether the counter of {@link #lastTimestamp} has been used up.
+     */
+    boolean exhausted;
+  }
+
+  private final Slot[] slots;
+
+  private final ThreadLocal<Slot> currentSlot;
+}
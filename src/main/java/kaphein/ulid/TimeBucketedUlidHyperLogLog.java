@@ -0,0 +1,243 @@
+package kaphein.ulid;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * A set of {@link UlidHyperLogLog} sketches, one per time bucket. ULIDs are
+ * assigned to buckets by their timestamps.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class TimeBucketedUlidHyperLogLog
+{
+  /**
+   * Constructs an instance of {@link TimeBucketedUlidHyperLogLog}.
+   *
+   * @param bucketWidth The width of each bucket in milliseconds. Buckets start
+   * at multiples of the width.
+   * @param precision The precision of each sketch.
+   * @param hashed {@code true} if ULIDs are hashed before being added.
+   * @throws IllegalArgumentException If {@code bucketWidth} is not positive or
+   * {@code precision} is out of range.
+   * @see UlidHyperLogLog#UlidHyperLogLog(int, boolean)
+   */
+  public TimeBucketedUlidHyperLogLog(
+    long bucketWidth,
+    int precision,
+    boolean hashed
+  )
+  {
+    if(bucketWidth <= 0L)
+    {
+      throw new IllegalArgumentException("'bucketWidth' must be positive");
+    }
+    if(
+      precision < UlidHyperLogLog.MIN_PRECISION
+        || precision > UlidHyperLogLog.MAX_PRECISION
+    )
+    {
+      throw new IllegalArgumentException(
+        "'precision' must be in range [" + UlidHyperLogLog.MIN_PRECISION
+          + ", " + UlidHyperLogLog.MAX_PRECISION + "]");
+    }
+
+    this.bucketWidth = bucketWidth;
+    this.precision = precision;
+    this.hashed = hashed;
+    buckets = new TreeMap<>();
+  }
+
+  /**
+   * Gets the width of each bucket.
+   *
+   * @return The width of each bucket in milliseconds.
+   */
+  public long getBucketWidth()
+  {
+    return bucketWidth;
+  }
+
+  /**
+   * Gets the start timestamps of the buckets that have at least one ULID.
+   *
+   * @return An unmodifiable view of the start timestamps in ascending order.
+   */
+  public SortedSet<Long> getBucketStartTimestamps()
+  {
+    return Collections.unmodifiableSortedSet(buckets.navigableKeySet());
+  }
+
+  /**
+   * Adds an ULID to the bucket of its timestamp.
+   *
+   * @param ulid An ULID.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public void add(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Adds an ULID to the bucket of its timestamp.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   */
+  public void add(long mostSigBits, long leastSigBits)
+  {
+    final long bucketStart = toBucketStart(mostSigBits >>> 16);
+    UlidHyperLogLog sketch = buckets.get(bucketStart);
+    if(null == sketch)
+    {
+      sketch = new UlidHyperLogLog(precision, hashed);
+      buckets.put(bucketStart, sketch);
+    }
+
+    sketch.add(mostSigBits, leastSigBits);
+  }
+
+  /**
+   * Estimates the number of distinct ULIDs in the bucket that contains
+   * {@code timestamp}.
+   *
+   * @param timestamp A timestamp in milliseconds.
+   * @return The estimated number of distinct ULIDs.
+   */
+  public long estimate(long timestamp)
+  {
+    final UlidHyperLogLog sketch = buckets.get(toBucketStart(timestamp));
+
+    return (null != sketch ? sketch.estimate() : 0L);
+  }
+
+  /**
+   * Estimates the number of distinct ULIDs in the buckets that overlap a time
+   * range. ULIDs are counted once even if they are in several shards merged
+   * into this instance.
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   * @return The estimated number of distinct ULIDs.
+   */
+  public long estimate(long fromTimestamp, long toTimestamp)
+  {
+    long result = 0L;
+
+    if(fromTimestamp < toTimestamp)
+    {
+      final NavigableMap<Long, UlidHyperLogLog> range = buckets.subMap(
+        toBucketStart(fromTimestamp), true,
+        toTimestamp - 1L, true);
+      if(!range.isEmpty())
+      {
+        final UlidHyperLogLog union = new UlidHyperLogLog(precision, hashed);
+        for(final UlidHyperLogLog sketch : range.values())
+        {
+          union.merge(sketch);
+        }
+
+        result = union.estimate();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Gets the sketch of the bucket that contains {@code timestamp}.
+   *
+   * @param timestamp A timestamp in milliseconds.
+   * @return The sketch, or {@code null} if the bucket has no ULID.
+   */
+  public UlidHyperLogLog getBucket(long timestamp)
+  {
+    return buckets.get(toBucketStart(timestamp));
+  }
+
+  /**
+   * Adds every bucket of another instance to this instance. Sketches of the
+   * same bucket are merged.
+   *
+   * @param other An instance with the same bucket width, the same precision
+   * and the same hashing mode.
+   * @throws NullPointerException If {@code other} is {@code null}.
+   * @throws IllegalArgumentException If {@code other} is not compatible with
+   * this instance.
+   */
+  public void merge(TimeBucketedUlidHyperLogLog other)
+  {
+    Objects.requireNonNull(other, "'other' cannot be null");
+    if(
+      bucketWidth != other.bucketWidth
+        || precision != other.precision
+        || hashed != other.hashed
+    )
+    {
+      throw new IllegalArgumentException(
+        "'other' is not compatible with the instance");
+    }
+
+    for(final Map.Entry<Long, UlidHyperLogLog> entry : other.buckets.entrySet())
+    {
+      final UlidHyperLogLog sketch = buckets.get(entry.getKey());
+      if(null == sketch)
+      {
+        buckets.put(entry.getKey(), entry.getValue().copy());
+      }
+      else
+      {
+        sketch.merge(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Removes every bucket that ends before or at {@code timestamp}.
+   *
+   * @param timestamp A timestamp in milliseconds.
+   * @return The number of removed buckets.
+   */
+  public int removeBucketsBefore(long timestamp)
+  {
+    final Map<Long, UlidHyperLogLog> head = buckets
+      .headMap(timestamp - bucketWidth, true);
+    final int result = head.size();
+    head.clear();
+
+    return result;
+  }
+
+  /**
+   * Removes every bucket.
+   */
+  public void clear()
+  {
+    buckets.clear();
+  }
+
+  private long toBucketStart(long timestamp)
+  {
+    return timestamp - (timestamp % bucketWidth);
+  }
+
+  private final long bucketWidth;
+
+  private final int precision;
+
+  private final boolean hashed;
+
+  private final TreeMap<Long, UlidHyperLogLog> buckets;
+}
@@ -0,0 +1,79 @@
+package kaphein.ulid;
+
+import java.math.BigInteger;
+
+/**
+ * Helpers for 128-bit unsigned integers represented as pairs of the most
+ * significant 64 bits and the least significant 64 bits.
+ *
+ * @author Hydrawisk793
+ */
+final class Uint128Utils
+{
+  /**
+   * Compares two 64-bit values as unsigned integers.
+   *
+   * @param l The left operand.
+   * @param r The right operand.
+   * @return A negative integer, zero, or a positive integer as {@code l} is
+   * less than, equal to, or greater than {@code r}.
+   */
+  public static int compareUnsigned(long l, long r)
+  {
+    return Long.compare(l + Long.MIN_VALUE, r + Long.MIN_VALUE);
+  }
+
+  /**
+   * Compares two 128-bit values as unsigned integers.
+   *
+   * @param lHi The most significant 64 bits of the left operand.
+   * @param lLo The least significant 64 bits of the left operand.
+   * @param rHi The most significant 64 bits of the right operand.
+   * @param rLo The least significant 64 bits of the right operand.
+   * @return A negative integer, zero, or a positive integer as the left operand
+   * is less than, equal to, or greater than the right operand.
+   */
+  public static int compare(long lHi, long lLo, long rHi, long rLo)
+  {
+    return (lHi != rHi
+      ? compareUnsigned(lHi, rHi)
+      : compareUnsigned(lLo, rLo));
+  }
+
+  /**
+   * Converts a 128-bit unsigned integer to a {@link BigInteger}.
+   *
+   * @param hi The most significant 64 bits.
+   * @param lo The least significant 64 bits.
+   * @return A non-negative {@link BigInteger}.
+   */
+  public static BigInteger toBigInteger(long hi, long lo)
+  {
+    final byte[] bytes = new byte[17];
+    for(int i = 0; i < 8; ++i)
+    {
+      bytes[8 - i] = (byte)(hi >>> (i << 3));
+      bytes[16 - i] = (byte)(lo >>> (i << 3));
+    }
+
+    return new BigInteger(bytes);
+  }
+
+  /**
+   * Gets the most significant 64 bits of the smallest ULID whose timestamp is
+   * {@code timestamp}.
+   *
+   * @param timestamp A timestamp in milliseconds.
+   * @return The most significant 64 bits.
+   */
+  public static long timestampToMostSigBits(long timestamp)
+  {
+    return (timestamp & Ulid.TIMESTAMP_MAX_VALUE) << 16;
+  }
+
+  private Uint128Utils()
+  {
+    throw new AssertionError(
+      "Class " + getClass().getName() + " cannot be instantiated");
+  }
+}
@@ -294,23 +294,11 @@ public class Ulid implements Serializable, Comparable<Ulid>
   {
     Objects.requireNonNull(other, "'other' cannot be null");
 
-    int result = 0;
-
-    final long mslvDiff = mostSigBits - other.mostSigBits;
-    if(0L != mslvDiff)
-    {
-      result = (mslvDiff < 0L ? -1 : 1);
-    }
-    else
-    {
-      final long lslvDiff = leastSigBits - other.leastSigBits;
-      if(0L != lslvDiff)
-      {
-        result = (lslvDiff < 0L ? -1 : 1);
-      }
-    }
-
-    return result;
+    // Both halves must be compared as unsigned values.
+    // Subtracting them overflows when the values are far apart.
+    return Uint128Utils.compare(
+      mostSigBits, leastSigBits,
+      other.mostSigBits, other.leastSigBits);
   }
 
   /**
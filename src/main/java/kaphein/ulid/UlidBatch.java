@@ -0,0 +1,132 @@
+package kaphein.ulid;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * An unmodifiable list of consecutive ULIDs that share a timestamp.
+ * </p>
+ * <p>
+ * Only the first ULID and the size are stored, so a batch takes constant
+ * memory regardless of its size. Each element is computed by adding its
+ * index to the randomness of the first ULID, and {@link #contains(Object)}
+ * and {@link #indexOf(Object)} run in constant time.
+ * </p>
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public final class UlidBatch extends AbstractList<Ulid> implements RandomAccess
+{
+  /**
+   * Gets the timestamp of the ULIDs.
+   *
+   * @return The timestamp of the ULIDs, or {@code -1} if the batch is empty.
+   */
+  public long getTimestamp()
+  {
+    return 0 == size ? -1L : firstMostSigBits >>> 16;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Ulid get(int index)
+  {
+    if(index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException(
+        "'index' must be in range [0, " + size + ")");
+    }
+
+    final long leastSigBits = firstLeastSigBits + index;
+    final long mostSigBits = (
+      isUnsignedLessThan(leastSigBits, firstLeastSigBits)
+        ? firstMostSigBits + 1L
+        : firstMostSigBits);
+
+    return new Ulid(mostSigBits, leastSigBits);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean contains(Object o)
+  {
+    return indexOf(o) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int indexOf(Object o)
+  {
+    int result = -1;
+
+    if(o instanceof Ulid)
+    {
+      final Ulid ulid = (Ulid)o;
+      final long leastSigBits = ulid.getLeastSignificantBits();
+      final long lsDiff = leastSigBits - firstLeastSigBits;
+      final long msDiff = ulid.getMostSignificantBits() - firstMostSigBits
+        - (isUnsignedLessThan(leastSigBits, firstLeastSigBits) ? 1L : 0L);
+
+      if(0L == msDiff && lsDiff >= 0L && lsDiff < size)
+      {
+        result = (int)lsDiff;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int lastIndexOf(Object o)
+  {
+    return indexOf(o);
+  }
+
+  /**
+   * Constructs a batch of ULIDs.
+   *
+   * @param firstMostSigBits The most significant 64 bits of the first ULID.
+   * @param firstLeastSigBits The least significant 64 bits of the first ULID.
+   * @param size The number of ULIDs, which must not make the randomness
+   * overflow.
+   */
+  UlidBatch(long firstMostSigBits, long firstLeastSigBits, int size)
+  {
+    this.firstMostSigBits = firstMostSigBits;
+    this.firstLeastSigBits = firstLeastSigBits;
+    this.size = size;
+  }
+
+  private static boolean isUnsignedLessThan(long lhs, long rhs)
+  {
+    return (lhs ^ Long.MIN_VALUE) < (rhs ^ Long.MIN_VALUE);
+  }
+
+  private final long firstMostSigBits;
+
+  private final long firstLeastSigBits;
+
+  private final int size;
+}
@@ -0,0 +1,115 @@
+package kaphein.ulid;
+
+/**
+ * <p>
+ * A Bloom filter of ULIDs.
+ * </p>
+ * <p>
+ * The probes are derived by double hashing from two scrambled copies of the
+ * randomness, so every probe position can be anywhere in the filter.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidBloomFilter extends AbstractUlidBloomFilter
+{
+  /**
+   * Constructs an instance of {@link UlidBloomFilter}.
+   * <p>
+   * The number of bits is rounded up to a power of two, so the actual false
+   * positive probability can be lower than requested.
+   * </p>
+   *
+   * @param expectedInsertions The expected number of ULIDs to be added.
+   * @param falsePositiveProbability The desired false positive probability.
+   * @throws IllegalArgumentException If {@code expectedInsertions} is not
+   * positive or {@code falsePositiveProbability} is not in (0, 1).
+   */
+  public UlidBloomFilter(
+    long expectedInsertions,
+    double falsePositiveProbability
+  )
+  {
+    this(
+      computeLog2BitCount(expectedInsertions, falsePositiveProbability),
+      expectedInsertions);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean put(long mostSigBits, long leastSigBits)
+  {
+    final int shift = 64 - log2BitCount;
+    final long mask = getBitCount() - 1L;
+    final long step = (secondProbeValue(mostSigBits, leastSigBits) >>> shift)
+      | 1L;
+    boolean changed = false;
+
+    long position = firstProbeValue(leastSigBits) >>> shift;
+    for(int i = 0; i < hashCount; ++i)
+    {
+      final int index = (int)((position & mask) >>> 6);
+      final long bit = 1L << position;
+      if(0L == (words[index] & bit))
+      {
+        words[index] |= bit;
+        changed = true;
+      }
+
+      position += step;
+    }
+
+    return changed;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean mightContain(long mostSigBits, long leastSigBits)
+  {
+    final int shift = 64 - log2BitCount;
+    final long mask = getBitCount() - 1L;
+    final long step = (secondProbeValue(mostSigBits, leastSigBits) >>> shift)
+      | 1L;
+    boolean result = true;
+
+    long position = firstProbeValue(leastSigBits) >>> shift;
+    for(int i = 0; result && i < hashCount; ++i)
+    {
+      result = 0L != (words[(int)((position & mask) >>> 6)] & (1L << position));
+
+      position += step;
+    }
+
+    return result;
+  }
+
+  /**
+   * The type code of the serialized form.
+   */
+  static final int TYPE = 0;
+
+  UlidBloomFilter(long[] words, int hashCount)
+  {
+    super(words, hashCount);
+  }
+
+  @Override
+  int getType()
+  {
+    return TYPE;
+  }
+
+  private UlidBloomFilter(int log2BitCount, long expectedInsertions)
+  {
+    this(
+      new long[1 << (log2BitCount - 6)],
+      computeHashCount(expectedInsertions, log2BitCount));
+  }
+}
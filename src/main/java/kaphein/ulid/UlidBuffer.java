@@ -0,0 +1,295 @@
+package kaphein.ulid;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>
+ * A growable buffer of ULIDs stored as two primitive {@code long} arrays, one
+ * for the most significant 64 bits and one for the least significant 64 bits.
+ * </p>
+ * <p>
+ * The buffer is intended to be reused: {@link #clear()} keeps the allocated
+ * arrays so that refilling the buffer does not allocate.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidBuffer
+{
+  /**
+   * Constructs an empty instance of {@link UlidBuffer}.
+   */
+  public UlidBuffer()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty instance of {@link UlidBuffer} with an initial
+   * capacity.
+   *
+   * @param initialCapacity The initial capacity.
+   * @throws IllegalArgumentException If {@code initialCapacity} is negative.
+   */
+  public UlidBuffer(int initialCapacity)
+  {
+    if(initialCapacity < 0)
+    {
+      throw new IllegalArgumentException(
+        "'initialCapacity' cannot be negative");
+    }
+
+    his = new long[initialCapacity];
+    los = new long[initialCapacity];
+    size = 0;
+  }
+
+  /**
+   * Gets the number of ULIDs in the buffer.
+   *
+   * @return The number of ULIDs.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Checks if the buffer is empty.
+   *
+   * @return {@code true} if the buffer is empty, {@code false} otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return 0 == size;
+  }
+
+  /**
+   * Gets the number of ULIDs the buffer can hold without growing.
+   *
+   * @return The capacity.
+   */
+  public int capacity()
+  {
+    return his.length;
+  }
+
+  /**
+   * Removes all ULIDs from the buffer without releasing the allocated memory.
+   */
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Grows the buffer if needed so that it can hold at least
+   * {@code minCapacity} ULIDs.
+   *
+   * @param minCapacity The desired minimum capacity.
+   */
+  public void ensureCapacity(int minCapacity)
+  {
+    if(minCapacity > his.length)
+    {
+      final int newCapacity = Math.max(
+        minCapacity,
+        (int)Math.min(
+          (long)his.length + (his.length >>> 1) + 1L,
+          Integer.MAX_VALUE - 8));
+
+      his = Arrays.copyOf(his, newCapacity);
+      los = Arrays.copyOf(los, newCapacity);
+    }
+  }
+
+  /**
+   * Appends an ULID.
+   *
+   * @param ulid An ULID to append.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public void add(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Appends an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   */
+  public void add(long mostSigBits, long leastSigBits)
+  {
+    ensureCapacity(size + 1);
+
+    his[size] = mostSigBits;
+    los[size] = leastSigBits;
+    ++size;
+  }
+
+  /**
+   * Appends ULIDs stored in a pair of arrays.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULIDs.
+   * @param leastSigBits The least significant 64 bits of the ULIDs.
+   * @param offset The index of the first ULID to append.
+   * @param length The number of ULIDs to append.
+   * @throws NullPointerException If {@code mostSigBits} or
+   * {@code leastSigBits} is {@code null}.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is
+   * out of bounds.
+   */
+  public void add(
+    long[] mostSigBits,
+    long[] leastSigBits,
+    int offset,
+    int length
+  )
+  {
+    Objects.requireNonNull(mostSigBits, "'mostSigBits' cannot be null");
+    Objects.requireNonNull(leastSigBits, "'leastSigBits' cannot be null");
+    if(
+      offset < 0
+        || length < 0
+        || offset + length > mostSigBits.length
+        || offset + length > leastSigBits.length
+    )
+    {
+      throw new IndexOutOfBoundsException(
+        "'offset' or 'length' is out of bounds");
+    }
+
+    ensureCapacity(size + length);
+
+    System.arraycopy(mostSigBits, offset, his, size, length);
+    System.arraycopy(leastSigBits, offset, los, size, length);
+    size += length;
+  }
+
+  /**
+   * Gets the most significant 64 bits of the ULID at specified index.
+   *
+   * @param index An index.
+   * @return The most significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of bounds.
+   */
+  public long getMostSignificantBits(int index)
+  {
+    checkIndex(index);
+
+    return his[index];
+  }
+
+  /**
+   * Gets the least significant 64 bits of the ULID at specified index.
+   *
+   * @param index An index.
+   * @return The least significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of bounds.
+   */
+  public long getLeastSignificantBits(int index)
+  {
+    checkIndex(index);
+
+    return los[index];
+  }
+
+  /**
+   * Gets the ULID at specified index.
+   *
+   * @param index An index.
+   * @return The ULID.
+   * @throws IndexOutOfBoundsException If {@code index} is out of bounds.
+   */
+  public Ulid get(int index)
+  {
+    checkIndex(index);
+
+    return new Ulid(his[index], los[index]);
+  }
+
+  /**
+   * <p>
+   * Gets the internal array of the most significant 64 bits.
+   * </p>
+   * <p>
+   * Only the first {@link #size()} elements are valid. The array is replaced
+   * when the buffer grows.
+   * </p>
+   *
+   * @return The internal array.
+   */
+  public long[] getMostSignificantBitsArray()
+  {
+    return his;
+  }
+
+  /**
+   * <p>
+   * Gets the internal array of the least significant 64 bits.
+   * </p>
+   * <p>
+   * Only the first {@link #size()} elements are valid. The array is replaced
+   * when the buffer grows.
+   * </p>
+   *
+   * @return The internal array.
+   */
+  public long[] getLeastSignificantBitsArray()
+  {
+    return los;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder builder = new StringBuilder("[");
+    for(int i = 0; i < size; ++i)
+    {
+      if(i > 0)
+      {
+        builder.append(", ");
+      }
+
+      builder.append(new Ulid(his[i], los[i]));
+    }
+
+    return builder.append(']').toString();
+  }
+
+  /**
+   * Sets the number of valid ULIDs after the internal arrays are filled
+   * directly.
+   */
+  void setSize(int size)
+  {
+    this.size = size;
+  }
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private void checkIndex(int index)
+  {
+    if(index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException("'index' is out of bounds");
+    }
+  }
+
+  private long[] his;
+
+  private long[] los;
+
+  private int size;
+}
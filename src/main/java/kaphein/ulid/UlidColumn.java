@@ -0,0 +1,327 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>
+ * A read-only column of sorted ULIDs in the compressed format built by
+ * {@link UlidColumnWriter}.
+ * </p>
+ * <p>
+ * The column is read directly from a {@link ByteBuffer}, which can be a heap
+ * buffer, a direct buffer or a mapped file. {@link #get(int)} decodes a single
+ * ULID in constant time and {@link #lowerBound(long, long)} binary-searches
+ * the skip index and then one block, so large columns can stay compressed in
+ * memory. A column holds at most 2 GiB of encoded data; larger sets of ULIDs
+ * should be split into several columns.
+ * </p>
+ * <p>
+ * This class is thread-safe as long as the content of the buffer is not
+ * modified.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidColumn
+{
+  /**
+   * The number of ULIDs in each block except the last one.
+   */
+  public static final int BLOCK_SIZE = 128;
+
+  /**
+   * Constructs an instance of {@link UlidColumn}.
+   *
+   * @param buffer A buffer whose content from its position to its limit is a
+   * column. The position and the limit of the buffer are not modified.
+   * @throws NullPointerException If {@code buffer} is {@code null}.
+   * @throws IllegalArgumentException If the content is not a column.
+   */
+  public UlidColumn(ByteBuffer buffer)
+  {
+    Objects.requireNonNull(buffer, "'buffer' cannot be null");
+
+    this.buffer = buffer.slice();
+    if(
+      this.buffer.limit() < HEADER_SIZE + PADDING_SIZE
+        || MAGIC != this.buffer.getInt(0)
+    )
+    {
+      throw new IllegalArgumentException("'buffer' does not contain a column");
+    }
+
+    count = this.buffer.getInt(4);
+    blockCount = this.buffer.getInt(8);
+    dataStart = HEADER_SIZE + blockCount * SKIP_ENTRY_SIZE;
+    if(
+      count < 0
+        || blockCount != ((long)count + BLOCK_SIZE - 1L) / BLOCK_SIZE
+        || this.buffer.limit() < dataStart + PADDING_SIZE
+    )
+    {
+      throw new IllegalArgumentException("'buffer' does not contain a column");
+    }
+  }
+
+  /**
+   * Gets the number of ULIDs in the column.
+   *
+   * @return The number of ULIDs.
+   */
+  public int size()
+  {
+    return count;
+  }
+
+  /**
+   * Gets an ULID.
+   *
+   * @param index An index of the ULID.
+   * @return The ULID.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public Ulid get(int index)
+  {
+    checkIndex(index);
+
+    final int blockPos = blockPosition(index / BLOCK_SIZE);
+    final int entry = index % BLOCK_SIZE;
+
+    return new Ulid(
+      decodeMostSigBits(blockPos, entry),
+      decodeLeastSigBits(blockPos, entry));
+  }
+
+  /**
+   * Gets the most significant 64 bits of an ULID.
+   *
+   * @param index An index of the ULID.
+   * @return The most significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getMostSignificantBits(int index)
+  {
+    checkIndex(index);
+
+    return decodeMostSigBits(
+      blockPosition(index / BLOCK_SIZE),
+      index % BLOCK_SIZE);
+  }
+
+  /**
+   * Gets the least significant 64 bits of an ULID.
+   *
+   * @param index An index of the ULID.
+   * @return The least significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getLeastSignificantBits(int index)
+  {
+    checkIndex(index);
+
+    return decodeLeastSigBits(
+      blockPosition(index / BLOCK_SIZE),
+      index % BLOCK_SIZE);
+  }
+
+  /**
+   * Finds the index of the first ULID that is not less than specified ULID.
+   *
+   * @param ulid An ULID.
+   * @return The index, or {@link #size()} if every ULID is less than
+   * {@code ulid}.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public int lowerBound(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return lowerBound(
+      ulid.getMostSignificantBits(),
+      ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Finds the index of the first ULID that is not less than specified ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return The index, or {@link #size()} if every ULID is less than the
+   * ULID.
+   */
+  public int lowerBound(long mostSigBits, long leastSigBits)
+  {
+    // Find the number of blocks whose first ULIDs are less than the key.
+    int low = 0;
+    int high = blockCount;
+    while(low < high)
+    {
+      final int mid = (low + high) >>> 1;
+      final int skipPos = HEADER_SIZE + mid * SKIP_ENTRY_SIZE;
+      if(
+        Uint128Utils.compare(
+          buffer.getLong(skipPos), buffer.getLong(skipPos + 8),
+          mostSigBits, leastSigBits) < 0
+      )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+
+    int result = 0;
+
+    if(low > 0)
+    {
+      // Every ULID before the block is less than the key, and the first ULID
+      // of the next block is not.
+      final int block = low - 1;
+      final int blockPos = blockPosition(block);
+      int entryLow = 1;
+      int entryHigh = buffer.get(blockPos) & 0xFF;
+      while(entryLow < entryHigh)
+      {
+        final int mid = (entryLow + entryHigh) >>> 1;
+        if(
+          Uint128Utils.compare(
+            decodeMostSigBits(blockPos, mid), decodeLeastSigBits(blockPos, mid),
+            mostSigBits, leastSigBits) < 0
+        )
+        {
+          entryLow = mid + 1;
+        }
+        else
+        {
+          entryHigh = mid;
+        }
+      }
+
+      result = block * BLOCK_SIZE + entryLow;
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks if the column contains an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} if the column contains the ULID, {@code false}
+   * otherwise.
+   */
+  public boolean contains(long mostSigBits, long leastSigBits)
+  {
+    final int index = lowerBound(mostSigBits, leastSigBits);
+
+    return index < count
+      && getMostSignificantBits(index) == mostSigBits
+      && getLeastSignificantBits(index) == leastSigBits;
+  }
+
+  static final int MAGIC = 0x55434F4C;
+
+  static final int HEADER_SIZE = 16;
+
+  static final int SKIP_ENTRY_SIZE = 20;
+
+  static final int BLOCK_HEADER_SIZE = 16;
+
+  static final int GROUP_RANDOMNESS_SIZE = 10;
+
+  /**
+   * The number of zero bytes after the last block so that bit-packed values
+   * can always be read with a single 64-bit read.
+   */
+  static final int PADDING_SIZE = 8;
+
+  private void checkIndex(int index)
+  {
+    if(index < 0 || index >= count)
+    {
+      throw new IndexOutOfBoundsException(
+        "Index " + index + " is out of range [0, " + count + ")");
+    }
+  }
+
+  private int blockPosition(int block)
+  {
+    return dataStart
+      + buffer.getInt(HEADER_SIZE + block * SKIP_ENTRY_SIZE + 16);
+  }
+
+  private long decodeMostSigBits(int blockPos, int entry)
+  {
+    final int offsetBits = buffer.get(blockPos + 4);
+    final long field = readEntry(blockPos, entry);
+    final int group = (int)(field >>> offsetBits);
+    final int groupPos = blockPos + BLOCK_HEADER_SIZE
+      + group * GROUP_RANDOMNESS_SIZE;
+    final long groupLo = buffer.getLong(groupPos + 2);
+    final long lo = groupLo + (field & ((1L << offsetBits) - 1L));
+
+    final int groupCount = buffer.get(blockPos + 1) & 0xFF;
+    final int timestampBits = buffer.get(blockPos + 2);
+    final long timestamp = buffer.getLong(blockPos + 8)
+      + readBits(
+        blockPos + BLOCK_HEADER_SIZE + groupCount * GROUP_RANDOMNESS_SIZE,
+        (long)group * timestampBits,
+        timestampBits);
+
+    // The offset may carry into the randomness of the most significant bits
+    // and even into the timestamp.
+    return ((timestamp << 16) | (buffer.getShort(groupPos) & 0xFFFFL))
+      + (Uint128Utils.compareUnsigned(lo, groupLo) < 0 ? 1L : 0L);
+  }
+
+  private long decodeLeastSigBits(int blockPos, int entry)
+  {
+    final int offsetBits = buffer.get(blockPos + 4);
+    final long field = readEntry(blockPos, entry);
+    final int group = (int)(field >>> offsetBits);
+
+    return buffer.getLong(
+      blockPos + BLOCK_HEADER_SIZE + group * GROUP_RANDOMNESS_SIZE + 2)
+      + (field & ((1L << offsetBits) - 1L));
+  }
+
+  private long readEntry(int blockPos, int entry)
+  {
+    final int groupCount = buffer.get(blockPos + 1) & 0xFF;
+    final int timestampBits = buffer.get(blockPos + 2);
+    final int entryBits = buffer.get(blockPos + 3) + buffer.get(blockPos + 4);
+    final int entriesPos = blockPos + BLOCK_HEADER_SIZE
+      + groupCount * GROUP_RANDOMNESS_SIZE
+      + (groupCount * timestampBits + 7) / 8;
+
+    return readBits(entriesPos, (long)entry * entryBits, entryBits);
+  }
+
+  /**
+   * Reads a bit-packed value of up to 57 bits, most significant bit first.
+   */
+  private long readBits(int sectionPos, long bitIndex, int width)
+  {
+    long result = 0L;
+
+    if(width > 0)
+    {
+      final long word = buffer.getLong(sectionPos + (int)(bitIndex >>> 3));
+      result = (word << (bitIndex & 7)) >>> (64 - width);
+    }
+
+    return result;
+  }
+
+  private final ByteBuffer buffer;
+
+  private final int count;
+
+  private final int blockCount;
+
+  private final int dataStart;
+}
@@ -0,0 +1,382 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Builds the compressed column format read by {@link UlidColumn} from ULIDs
+ * added in ascending order.
+ * </p>
+ * <p>
+ * The column is a header, a skip index and a series of blocks of
+ * {@link UlidColumn#BLOCK_SIZE} ULIDs. The skip index holds the first ULID
+ * and the offset of each block. In each block, consecutive ULIDs that are
+ * within 2^32 of the first ULID of a group belong to the group. A group
+ * stores the timestamp of its first ULID as a bit-packed delta from the first
+ * timestamp of the block and the randomness of its first ULID in full. Every
+ * ULID stores the index of its group and its bit-packed offset from the first
+ * ULID of the group.
+ * </p>
+ * <p>
+ * A monotonic batch takes about one byte per ULID and random ULIDs still save
+ * the bits of their timestamps that do not change within a block.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidColumnWriter
+{
+  /**
+   * Constructs an empty instance of {@link UlidColumnWriter}.
+   */
+  public UlidColumnWriter()
+  {
+    blockHis = new long[UlidColumn.BLOCK_SIZE];
+    blockLos = new long[UlidColumn.BLOCK_SIZE];
+    blockSize = 0;
+    groupIndices = new int[UlidColumn.BLOCK_SIZE];
+    offsets = new long[UlidColumn.BLOCK_SIZE];
+    firstKeys = new UlidBuffer();
+    blockOffsets = new int[16];
+    data = new byte[1024];
+    dataSize = 0;
+    count = 0;
+    blockBuffer = ByteBuffer.allocate(MAX_ENCODED_BLOCK_SIZE);
+  }
+
+  /**
+   * Gets the number of added ULIDs.
+   *
+   * @return The number of added ULIDs.
+   */
+  public int size()
+  {
+    return count;
+  }
+
+  /**
+   * Adds an ULID.
+   *
+   * @param ulid An ULID that is not less than the last added ULID.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   * @throws IllegalArgumentException If {@code ulid} is less than the last
+   * added ULID.
+   */
+  public void add(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Adds an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of an ULID that is not
+   * less than the last added ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @throws IllegalArgumentException If the ULID is less than the last added
+   * ULID.
+   */
+  public void add(long mostSigBits, long leastSigBits)
+  {
+    if(
+      count > 0
+        && Uint128Utils.compare(mostSigBits, leastSigBits, lastHi, lastLo) < 0
+    )
+    {
+      throw new IllegalArgumentException(
+        "ULIDs must be added in ascending order");
+    }
+    if(Integer.MAX_VALUE == count)
+    {
+      throw new IllegalStateException("The column is full");
+    }
+
+    blockHis[blockSize] = mostSigBits;
+    blockLos[blockSize] = leastSigBits;
+    ++blockSize;
+    ++count;
+    lastHi = mostSigBits;
+    lastLo = leastSigBits;
+
+    if(UlidColumn.BLOCK_SIZE == blockSize)
+    {
+      flushBlock();
+    }
+  }
+
+  /**
+   * Creates the column from the added ULIDs. The writer can still be used
+   * after calling this method.
+   *
+   * @return A byte array that contains the column.
+   * @throws IllegalStateException If the column does not fit in a byte array.
+   */
+  public byte[] toByteArray()
+  {
+    final int pendingSize = encodeBlock();
+    final int blockCount = firstKeys.size() + (blockSize > 0 ? 1 : 0);
+    final long totalSize = UlidColumn.HEADER_SIZE
+      + (long)blockCount * UlidColumn.SKIP_ENTRY_SIZE
+      + dataSize
+      + pendingSize
+      + UlidColumn.PADDING_SIZE;
+    if(totalSize > Integer.MAX_VALUE)
+    {
+      throw new IllegalStateException("The column is too large");
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate((int)totalSize);
+    buffer.putInt(UlidColumn.MAGIC);
+    buffer.putInt(count);
+    buffer.putInt(blockCount);
+    buffer.putInt(0);
+    for(int i = 0; i < firstKeys.size(); ++i)
+    {
+      buffer.putLong(firstKeys.getMostSignificantBits(i));
+      buffer.putLong(firstKeys.getLeastSignificantBits(i));
+      buffer.putInt(blockOffsets[i]);
+    }
+    if(blockSize > 0)
+    {
+      buffer.putLong(blockHis[0]);
+      buffer.putLong(blockLos[0]);
+      buffer.putInt(dataSize);
+    }
+    buffer.put(data, 0, dataSize);
+    buffer.put(blockBuffer.array(), 0, pendingSize);
+
+    return buffer.array();
+  }
+
+  /**
+   * The maximum number of bits of the offsets from the first ULIDs of groups.
+   */
+  static final int MAX_OFFSET_BITS = 32;
+
+  private static final int MAX_ENCODED_BLOCK_SIZE
+    = UlidColumn.BLOCK_HEADER_SIZE
+    + UlidColumn.BLOCK_SIZE * UlidColumn.GROUP_RANDOMNESS_SIZE
+    + UlidColumn.BLOCK_SIZE * 8
+    + UlidColumn.BLOCK_SIZE * 8;
+
+  private static int bitWidth(long value)
+  {
+    return 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  private void flushBlock()
+  {
+    final int length = encodeBlock();
+    if(length > 0)
+    {
+      appendBlock(length);
+      blockSize = 0;
+    }
+  }
+
+  /**
+   * Encodes the current block to {@link #blockBuffer}.
+   *
+   * @return The number of bytes of the encoded block.
+   */
+  private int encodeBlock()
+  {
+    final ByteBuffer buffer = blockBuffer;
+    buffer.clear();
+
+    if(blockSize > 0)
+    {
+      final int groupCount = assignGroups();
+      final long baseTimestamp = blockHis[0] >>> 16;
+
+      long maxOffset = 0L;
+      for(int i = 0; i < blockSize; ++i)
+      {
+        maxOffset = Math.max(maxOffset, offsets[i]);
+      }
+      final int timestampBits = bitWidth(
+        (blockHis[blockSize - 1] >>> 16) - baseTimestamp);
+      final int groupIndexBits = bitWidth(groupCount - 1);
+      final int offsetBits = bitWidth(maxOffset);
+
+      buffer.put((byte)blockSize);
+      buffer.put((byte)groupCount);
+      buffer.put((byte)timestampBits);
+      buffer.put((byte)groupIndexBits);
+      buffer.put((byte)offsetBits);
+      buffer.put((byte)0);
+      buffer.putShort((short)0);
+      buffer.putLong(baseTimestamp);
+
+      for(int i = 0; i < blockSize; ++i)
+      {
+        if(isGroupStart(i))
+        {
+          buffer.putShort((short)blockHis[i]);
+          buffer.putLong(blockLos[i]);
+        }
+      }
+
+      final BitPacker packer = new BitPacker(buffer);
+      for(int i = 0; i < blockSize; ++i)
+      {
+        if(isGroupStart(i))
+        {
+          packer.write((blockHis[i] >>> 16) - baseTimestamp, timestampBits);
+        }
+      }
+      packer.flush();
+      for(int i = 0; i < blockSize; ++i)
+      {
+        packer.write(
+          ((long)groupIndices[i] << offsetBits) | offsets[i],
+          groupIndexBits + offsetBits);
+      }
+      packer.flush();
+    }
+
+    return buffer.position();
+  }
+
+  private boolean isGroupStart(int index)
+  {
+    return 0 == index || groupIndices[index - 1] != groupIndices[index];
+  }
+
+  /**
+   * Splits the current block into groups of ULIDs that are within
+   * {@link #MAX_OFFSET_BITS} bits from the first ULID of the group.
+   *
+   * @return The number of groups.
+   */
+  private int assignGroups()
+  {
+    int groupCount = 0;
+    long groupHi = 0L;
+    long groupLo = 0L;
+
+    for(int i = 0; i < blockSize; ++i)
+    {
+      final long hi = blockHis[i];
+      final long lo = blockLos[i];
+      final long offset = lo - groupLo;
+      final boolean borrow = Uint128Utils.compareUnsigned(lo, groupLo) < 0;
+      final boolean inGroup = groupCount > 0
+        && hi - (borrow ? 1L : 0L) == groupHi
+        && 0L == (offset >>> MAX_OFFSET_BITS);
+
+      if(!inGroup)
+      {
+        ++groupCount;
+        groupHi = hi;
+        groupLo = lo;
+      }
+      groupIndices[i] = groupCount - 1;
+      offsets[i] = (inGroup ? offset : 0L);
+    }
+
+    return groupCount;
+  }
+
+  private void appendBlock(int length)
+  {
+    final int blockIndex = firstKeys.size();
+    if(blockOffsets.length == blockIndex)
+    {
+      blockOffsets = Arrays.copyOf(blockOffsets, blockIndex * 2);
+    }
+    blockOffsets[blockIndex] = dataSize;
+    firstKeys.add(blockHis[0], blockLos[0]);
+
+    if(data.length - dataSize < length)
+    {
+      final long newLength = Math.max(
+        (long)data.length * 2,
+        (long)dataSize + length);
+      if(newLength > Integer.MAX_VALUE - UlidColumn.PADDING_SIZE)
+      {
+        throw new IllegalStateException("The column is too large");
+      }
+      data = Arrays.copyOf(data, (int)newLength);
+    }
+    System.arraycopy(blockBuffer.array(), 0, data, dataSize, length);
+    dataSize += length;
+  }
+
+  /**
+   * Writes values of up to 57 bits, most significant bit first.
+   */
+  private static final class BitPacker
+  {
+    BitPacker(ByteBuffer buffer)
+    {
+      this.buffer = buffer;
+      pending = 0L;
+      pendingBits = 0;
+    }
+
+    void write(long value, int width)
+    {
+      if(width > 0)
+      {
+        pending |= value << (64 - width - pendingBits);
+        pendingBits += width;
+        while(pendingBits >= 8)
+        {
+          buffer.put((byte)(pending >>> 56));
+          pending <<= 8;
+          pendingBits -= 8;
+        }
+      }
+    }
+
+    void flush()
+    {
+      if(pendingBits > 0)
+      {
+        buffer.put((byte)(pending >>> 56));
+      }
+      pending = 0L;
+      pendingBits = 0;
+    }
+
+    private final ByteBuffer buffer;
+
+    private long pending;
+
+    private int pendingBits;
+  }
+
+  private final long[] blockHis;
+
+  private final long[] blockLos;
+
+  private int blockSize;
+
+  private final int[] groupIndices;
+
+  private final long[] offsets;
+
+  private final UlidBuffer firstKeys;
+
+  private int[] blockOffsets;
+
+  private byte[] data;
+
+  private int dataSize;
+
+  private int count;
+
+  private long lastHi;
+
+  private long lastLo;
+
+  private final ByteBuffer blockBuffer;
+}
@@ -0,0 +1,21 @@
+package kaphein.ulid;
+
+/**
+ * <p>
+ * An interface for a callback that receives generated ULIDs one by one as
+ * the most significant and the least significant 64 bits.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public interface UlidConsumer
+{
+  /**
+   * Accepts an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} to receive more ULIDs, {@code false} to stop.
+   */
+  boolean accept(long mostSigBits, long leastSigBits);
+}
@@ -0,0 +1,605 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Sorts binary ULID files that do not fit in memory and detects duplicates.
+ * </p>
+ * <p>
+ * Files consist of 16-byte ULIDs in the format of {@link Ulid#toByteArray()}.
+ * The input is read in runs that are radix-sorted in parallel and spilled to
+ * temporary files, which are then merged with a k-way merge. If there are
+ * more runs than the merge width, they are merged in several passes. The
+ * memory used is about {@code 32 * runSize * parallelism} bytes for sorting
+ * plus {@code mergeBufferSize * mergeWidth} bytes of direct buffers for
+ * merging.
+ * </p>
+ * <p>
+ * This class is thread-safe; each call of
+ * {@link #sort(Path, Path, boolean)} uses its own threads and temporary
+ * files.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidExternalSorter
+{
+  /**
+   * Constructs an instance of {@link UlidExternalSorter} with default
+   * settings: runs of 2^20 ULIDs, one sorting thread per processor, a merge
+   * width of 128 and the default temporary directory.
+   */
+  public UlidExternalSorter()
+  {
+    this(
+      DEFAULT_RUN_SIZE,
+      Runtime.getRuntime().availableProcessors(),
+      DEFAULT_MERGE_WIDTH,
+      null);
+  }
+
+  /**
+   * Constructs an instance of {@link UlidExternalSorter}.
+   *
+   * @param runSize The number of ULIDs sorted in memory at once per thread.
+   * @param parallelism The number of threads that sort runs.
+   * @param mergeWidth The maximum number of files merged at once.
+   * @param temporaryDirectory A directory for temporary files, or
+   * {@code null} to use the default temporary directory.
+   * @throws IllegalArgumentException If {@code runSize} or
+   * {@code parallelism} is not positive or {@code mergeWidth} is less than 2.
+   */
+  public UlidExternalSorter(
+    int runSize,
+    int parallelism,
+    int mergeWidth,
+    Path temporaryDirectory
+  )
+  {
+    if(runSize <= 0)
+    {
+      throw new IllegalArgumentException("'runSize' must be positive");
+    }
+    if(parallelism <= 0)
+    {
+      throw new IllegalArgumentException("'parallelism' must be positive");
+    }
+    if(mergeWidth < 2)
+    {
+      throw new IllegalArgumentException(
+        "'mergeWidth' must be greater than 1");
+    }
+
+    this.runSize = runSize;
+    this.parallelism = parallelism;
+    this.mergeWidth = mergeWidth;
+    this.temporaryDirectory = temporaryDirectory;
+    maxReportedCollisions = DEFAULT_MAX_REPORTED_COLLISIONS;
+  }
+
+  /**
+   * Sorts a ULID file.
+   *
+   * @param input A path of the input file.
+   * @param output A path of the output file. It is created or truncated.
+   * @param deduplicate {@code true} to write each ULID once,
+   * {@code false} to keep every duplicate.
+   * @return A report that includes the duplicates found.
+   * @throws NullPointerException If {@code input} or {@code output} is
+   * {@code null}.
+   * @throws IllegalArgumentException If the size of the input file is not a
+   * multiple of 16.
+   * @throws IOException If an I/O error occurs.
+   * @throws InterruptedException If the current thread is interrupted.
+   */
+  public UlidSortReport sort(Path input, Path output, boolean deduplicate)
+    throws IOException, InterruptedException
+  {
+    Objects.requireNonNull(input, "'input' cannot be null");
+    Objects.requireNonNull(output, "'output' cannot be null");
+
+    final List<Path> temporaryFiles = new ArrayList<>();
+    try
+    {
+      final List<Path> runs = new ArrayList<>();
+      final long inputCount = createRuns(input, runs, temporaryFiles);
+
+      List<Path> current = runs;
+      while(current.size() > mergeWidth)
+      {
+        final List<Path> next = new ArrayList<>();
+        for(int i = 0; i < current.size(); i += mergeWidth)
+        {
+          final Path merged = createTemporaryFile();
+          temporaryFiles.add(merged);
+          next.add(merged);
+          merge(
+            current.subList(i, Math.min(i + mergeWidth, current.size())),
+            merged,
+            false,
+            null,
+            null);
+        }
+        current = next;
+      }
+
+      final long[] counts = new long[2];
+      final List<Ulid> collisions = new ArrayList<>();
+      final long outputCount = merge(
+        current,
+        output,
+        deduplicate,
+        counts,
+        collisions);
+
+      return new UlidSortReport(
+        inputCount,
+        outputCount,
+        counts[0],
+        counts[1],
+        collisions);
+    }
+    finally
+    {
+      for(final Path temporaryFile : temporaryFiles)
+      {
+        Files.deleteIfExists(temporaryFile);
+      }
+    }
+  }
+
+  /**
+   * Sets the maximum number of collided ULIDs listed in reports.
+   *
+   * @param maxReportedCollisions The maximum number of collided ULIDs.
+   * @throws IllegalArgumentException If {@code maxReportedCollisions} is
+   * negative.
+   */
+  public void setMaxReportedCollisions(int maxReportedCollisions)
+  {
+    if(maxReportedCollisions < 0)
+    {
+      throw new IllegalArgumentException(
+        "'maxReportedCollisions' cannot be negative");
+    }
+
+    this.maxReportedCollisions = maxReportedCollisions;
+  }
+
+  private static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+  private static final int DEFAULT_MERGE_WIDTH = 128;
+
+  private static final int DEFAULT_MAX_REPORTED_COLLISIONS = 1000;
+
+  private static final int ULID_SIZE = 16;
+
+  private static final int IO_BUFFER_SIZE = 1 << 20;
+
+  private static final int MERGE_BUFFER_SIZE = 1 << 16;
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer)
+    throws IOException
+  {
+    while(buffer.hasRemaining() && channel.read(buffer) >= 0)
+    {
+      // Keep reading.
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer)
+    throws IOException
+  {
+    while(buffer.hasRemaining())
+    {
+      channel.write(buffer);
+    }
+  }
+
+  private static void writeRun(Path path, long[] his, long[] los, int count)
+    throws IOException
+  {
+    try(
+      FileChannel channel = FileChannel.open(
+        path,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)
+    )
+    {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+      for(int i = 0; i < count; ++i)
+      {
+        if(buffer.remaining() < ULID_SIZE)
+        {
+          buffer.flip();
+          writeFully(channel, buffer);
+          buffer.clear();
+        }
+        buffer.putLong(his[i]);
+        buffer.putLong(los[i]);
+      }
+      buffer.flip();
+      writeFully(channel, buffer);
+    }
+  }
+
+  /**
+   * Reads the input in runs, sorts them in parallel and writes them to
+   * temporary files.
+   *
+   * @return The number of input ULIDs.
+   */
+  private long createRuns(
+    Path input,
+    List<Path> runs,
+    List<Path> temporaryFiles
+  )
+    throws IOException, InterruptedException
+  {
+    long result = 0L;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    final Semaphore permits = new Semaphore(parallelism);
+    final List<Future<Void>> futures = new ArrayList<>();
+    try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ))
+    {
+      if(0L != channel.size() % ULID_SIZE)
+      {
+        throw new IllegalArgumentException(
+          "The size of the input file must be a multiple of " + ULID_SIZE);
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+      buffer.flip();
+      for(boolean eof = false; !eof;)
+      {
+        permits.acquire();
+
+        final long[] his = new long[runSize];
+        final long[] los = new long[runSize];
+        int count = 0;
+        while(count < runSize && !eof)
+        {
+          if(buffer.remaining() < ULID_SIZE)
+          {
+            buffer.compact();
+            eof = channel.read(buffer) < 0;
+            buffer.flip();
+          }
+          while(count < runSize && buffer.remaining() >= ULID_SIZE)
+          {
+            his[count] = buffer.getLong();
+            los[count] = buffer.getLong();
+            ++count;
+          }
+        }
+
+        if(0 == count)
+        {
+          permits.release();
+        }
+        else
+        {
+          result += count;
+
+          final Path run = createTemporaryFile();
+          temporaryFiles.add(run);
+          runs.add(run);
+          futures.add(executor.submit(
+            new RunTask(his, los, count, run, permits)));
+        }
+      }
+
+      for(final Future<Void> future : futures)
+      {
+        future.get();
+      }
+    }
+    catch(final ExecutionException ee)
+    {
+      final Throwable cause = ee.getCause();
+      if(cause instanceof IOException)
+      {
+        throw (IOException)cause;
+      }
+      else if(cause instanceof RuntimeException)
+      {
+        throw (RuntimeException)cause;
+      }
+      else if(cause instanceof Error)
+      {
+        throw (Error)cause;
+      }
+
+      throw new IOException(cause);
+    }
+    finally
+    {
+      // Wait for the tasks so that no run is written after it is deleted.
+      executor.shutdownNow();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    return result;
+  }
+
+  /**
+   * Merges sorted files into a file.
+   *
+   * @param counts An array to store the number of duplicates and the number
+   * of collided ULIDs, or {@code null} if duplicates are not tracked.
+   * @param collisions A list to store collided ULIDs, or {@code null} if
+   * duplicates are not tracked.
+   * @return The number of written ULIDs.
+   */
+  private long merge(
+    List<Path> inputs,
+    Path output,
+    boolean deduplicate,
+    long[] counts,
+    List<Ulid> collisions
+  )
+    throws IOException
+  {
+    long result = 0L;
+    final int maxCollisions = maxReportedCollisions;
+
+    final List<RunReader> readers = new ArrayList<>();
+    try(
+      FileChannel channel = FileChannel.open(
+        output,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)
+    )
+    {
+      for(final Path input : inputs)
+      {
+        final RunReader reader = new RunReader(input);
+        readers.add(reader);
+      }
+
+      // A binary min-heap of readers that have a current ULID.
+      final RunReader[] heap = new RunReader[readers.size()];
+      int heapSize = 0;
+      for(final RunReader reader : readers)
+      {
+        if(reader.next())
+        {
+          heap[heapSize++] = reader;
+        }
+      }
+      for(int i = (heapSize >>> 1) - 1; i >= 0; --i)
+      {
+        siftDown(heap, heapSize, i);
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+      boolean hasLast = false;
+      long lastHi = 0L;
+      long lastLo = 0L;
+      boolean lastCollided = false;
+      long duplicateCount = 0L;
+      long collisionCount = 0L;
+      while(heapSize > 0)
+      {
+        final RunReader top = heap[0];
+        final long hi = top.hi;
+        final long lo = top.lo;
+
+        final boolean duplicated = hasLast && hi == lastHi && lo == lastLo;
+        if(duplicated)
+        {
+          ++duplicateCount;
+          if(!lastCollided)
+          {
+            lastCollided = true;
+            ++collisionCount;
+            if(null != collisions && collisions.size() < maxCollisions)
+            {
+              collisions.add(new Ulid(hi, lo));
+            }
+          }
+        }
+        else
+        {
+          lastCollided = false;
+        }
+
+        if(!duplicated || !deduplicate)
+        {
+          if(buffer.remaining() < ULID_SIZE)
+          {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+          }
+          buffer.putLong(hi);
+          buffer.putLong(lo);
+          ++result;
+        }
+        hasLast = true;
+        lastHi = hi;
+        lastLo = lo;
+
+        if(!top.next())
+        {
+          heap[0] = heap[--heapSize];
+          heap[heapSize] = null;
+        }
+        siftDown(heap, heapSize, 0);
+      }
+      buffer.flip();
+      writeFully(channel, buffer);
+
+      if(null != counts)
+      {
+        counts[0] = duplicateCount;
+        counts[1] = collisionCount;
+      }
+    }
+    finally
+    {
+      for(final RunReader reader : readers)
+      {
+        reader.close();
+      }
+    }
+
+    return result;
+  }
+
+  private static void siftDown(RunReader[] heap, int size, int index)
+  {
+    int i = index;
+    for(int child = (i << 1) + 1; child < size; child = (i << 1) + 1)
+    {
+      if(child + 1 < size && heap[child + 1].compareTo(heap[child]) < 0)
+      {
+        ++child;
+      }
+      if(heap[child].compareTo(heap[i]) >= 0)
+      {
+        break;
+      }
+
+      final RunReader tmp = heap[i];
+      heap[i] = heap[child];
+      heap[child] = tmp;
+      i = child;
+    }
+  }
+
+  private Path createTemporaryFile()
+    throws IOException
+  {
+    return (null != temporaryDirectory
+      ? Files.createTempFile(temporaryDirectory, "ulid-run-", ".bin")
+      : Files.createTempFile("ulid-run-", ".bin"));
+  }
+
+  /**
+   * Sorts a run and writes it to a file.
+   */
+  private static final class RunTask implements Callable<Void>
+  {
+    RunTask(long[] his, long[] los, int count, Path path, Semaphore permits)
+    {
+      this.his = his;
+      this.los = los;
+      this.count = count;
+      this.path = path;
+      this.permits = permits;
+    }
+
+    @Override
+    public Void call()
+      throws IOException
+    {
+      try
+      {
+        UlidRadixSort.sort(his, los, count, new long[count], new long[count]);
+        writeRun(path, his, los, count);
+      }
+      finally
+      {
+        permits.release();
+      }
+
+      return null;
+    }
+
+    private final long[] his;
+
+    private final long[] los;
+
+    private final int count;
+
+    private final Path path;
+
+    private final Semaphore permits;
+  }
+
+  /**
+   * Reads a sorted file one ULID at a time.
+   */
+  private static final class RunReader
+    implements Closeable, Comparable<RunReader>
+  {
+    RunReader(Path path)
+      throws IOException
+    {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      buffer = ByteBuffer.allocateDirect(MERGE_BUFFER_SIZE);
+      buffer.flip();
+    }
+
+    boolean next()
+      throws IOException
+    {
+      if(buffer.remaining() < ULID_SIZE)
+      {
+        buffer.compact();
+        readFully(channel, buffer);
+        buffer.flip();
+      }
+
+      final boolean result = buffer.remaining() >= ULID_SIZE;
+      if(result)
+      {
+        hi = buffer.getLong();
+        lo = buffer.getLong();
+      }
+
+      return result;
+    }
+
+    @Override
+    public int compareTo(RunReader other)
+    {
+      return Uint128Utils.compare(hi, lo, other.hi, other.lo);
+    }
+
+    @Override
+    public void close()
+      throws IOException
+    {
+      channel.close();
+    }
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private long hi;
+
+    private long lo;
+  }
+
+  private final int runSize;
+
+  private final int parallelism;
+
+  private final int mergeWidth;
+
+  private final Path temporaryDirectory;
+
+  private volatile int maxReportedCollisions;
+}
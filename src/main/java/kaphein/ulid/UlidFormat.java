@@ -0,0 +1,29 @@
+package kaphein.ulid;
+
+/**
+ * Formats of ULID streams read by {@link UlidReader} and written by
+ * {@link UlidWriter}.
+ *
+ * @author Hydrawisk793
+ */
+public enum UlidFormat
+{
+  /**
+   * Crockford Base32-encoded ULIDs, one per line. Lines end with
+   * {@code '\n'}; a preceding {@code '\r'} is ignored when reading.
+   */
+  TEXT,
+
+  /**
+   * Hexadecimal ULIDs of 32 digits, one per line. Lowercase digits are
+   * written and both cases are accepted when reading. Lines end as in
+   * {@link #TEXT}.
+   */
+  HEX,
+
+  /**
+   * 16-byte ULIDs in the format of {@link Ulid#toByteArray()} with no
+   * delimiters.
+   */
+  BINARY;
+}
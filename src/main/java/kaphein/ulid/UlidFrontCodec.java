@@ -0,0 +1,404 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Encodes sequences of ULIDs as front-coded Crockford Base32 text.
+ * </p>
+ * <p>
+ * Each ULID is written as one character for the number of leading
+ * characters that its canonical form shares with the canonical form of the
+ * previous ULID, followed by the remaining characters. The number is in
+ * range [0, {@value Ulid#ENCODED_LENGTH}] and is written as a Crockford
+ * Base32 digit, so the encoded form is plain ASCII that needs no escaping
+ * in JSON strings or URLs. The first ULID shares no character.
+ * </p>
+ * <p>
+ * Any sequence can be encoded, but sorted sequences are the most compact:
+ * ULIDs of the same millisecond share at least 10 characters, and
+ * consecutive ULIDs created by {@link MonotonicUlidGenerator} usually take 3
+ * characters instead of {@value Ulid#ENCODED_LENGTH}.
+ * </p>
+ * <p>
+ * This class is thread-safe. Its encoders and decoders are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidFrontCodec
+{
+  /**
+   * The number of bytes an {@link Encoder} needs in its destination to accept
+   * any ULID.
+   */
+  public static final int MAX_WRITE_SIZE = Ulid.ENCODED_LENGTH + 1;
+
+  /**
+   * Creates an encoder.
+   *
+   * @return A new encoder.
+   */
+  public Encoder newEncoder()
+  {
+    return new Encoder();
+  }
+
+  /**
+   * Creates a decoder.
+   *
+   * @return A new decoder.
+   */
+  public Decoder newDecoder()
+  {
+    return new Decoder();
+  }
+
+  /**
+   * Encodes ULIDs.
+   *
+   * @param ulids ULIDs to encode.
+   * @return The encoded form.
+   * @throws NullPointerException If {@code ulids} or any of its elements is
+   * {@code null}.
+   */
+  public String encode(Iterable<Ulid> ulids)
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+
+    final Encoder encoder = new Encoder();
+    ByteBuffer dst = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    for(final Ulid ulid : ulids)
+    {
+      Objects.requireNonNull(ulid, "'ulids' cannot have null elements");
+
+      while(!encoder.write(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits(),
+        dst))
+      {
+        dst = grow(dst);
+      }
+    }
+
+    return toString(dst);
+  }
+
+  /**
+   * Encodes ULIDs.
+   *
+   * @param ulids ULIDs to encode.
+   * @return The encoded form.
+   * @throws NullPointerException If {@code ulids} is {@code null}.
+   */
+  public String encode(UlidBuffer ulids)
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+
+    final long[] his = ulids.getMostSignificantBitsArray();
+    final long[] los = ulids.getLeastSignificantBitsArray();
+    final Encoder encoder = new Encoder();
+    ByteBuffer dst = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    for(int i = 0, size = ulids.size(); i < size; ++i)
+    {
+      while(!encoder.write(his[i], los[i], dst))
+      {
+        dst = grow(dst);
+      }
+    }
+
+    return toString(dst);
+  }
+
+  /**
+   * Decodes a whole encoded sequence.
+   *
+   * @param text The encoded form.
+   * @return A buffer of the decoded ULIDs.
+   * @throws NullPointerException If {@code text} is {@code null}.
+   * @throws IllegalArgumentException If the content is malformed or
+   * truncated.
+   */
+  public UlidBuffer decode(CharSequence text)
+  {
+    Objects.requireNonNull(text, "'text' cannot be null");
+
+    final int length = text.length();
+    final ByteBuffer src = ByteBuffer.allocate(length);
+    for(int i = 0; i < length; ++i)
+    {
+      final char ch = text.charAt(i);
+      src.put(ch < 0x80 ? (byte)ch : (byte)'?');
+    }
+    src.flip();
+
+    return decode(src);
+  }
+
+  /**
+   * Decodes the remaining bytes of a buffer as a whole encoded sequence. The
+   * position is moved to the limit.
+   *
+   * @param src A buffer that contains an encoded sequence.
+   * @return A buffer of the decoded ULIDs.
+   * @throws NullPointerException If {@code src} is {@code null}.
+   * @throws IllegalArgumentException If the content is malformed or
+   * truncated.
+   */
+  public UlidBuffer decode(ByteBuffer src)
+  {
+    Objects.requireNonNull(src, "'src' cannot be null");
+
+    final UlidBuffer result = new UlidBuffer();
+
+    final Decoder decoder = new Decoder();
+    while(src.hasRemaining())
+    {
+      if(0 == decoder.read(src, result, Integer.MAX_VALUE - result.size()))
+      {
+        throw new IllegalArgumentException("The sequence is truncated");
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * <p>
+   * Encodes ULIDs one by one to buffers.
+   * </p>
+   * <p>
+   * Instances of this class are NOT thread-safe.
+   * </p>
+   */
+  public static final class Encoder
+  {
+    /**
+     * Encodes an ULID.
+     *
+     * @param ulid An ULID.
+     * @param dst A buffer to write to.
+     * @return {@code true} if the ULID has been written, {@code false} if
+     * {@code dst} does not have enough bytes remaining. Nothing is written in
+     * the latter case.
+     * @throws NullPointerException If {@code ulid} or {@code dst} is
+     * {@code null}.
+     */
+    public boolean write(Ulid ulid, ByteBuffer dst)
+    {
+      Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+      return write(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits(),
+        dst);
+    }
+
+    /**
+     * Encodes an ULID.
+     *
+     * @param mostSigBits The most significant 64 bits of the ULID.
+     * @param leastSigBits The least significant 64 bits of the ULID.
+     * @param dst A buffer to write to.
+     * @return {@code true} if the ULID has been written, {@code false} if
+     * {@code dst} does not have enough bytes remaining. At most
+     * {@link UlidFrontCodec#MAX_WRITE_SIZE} bytes are needed. Nothing is
+     * written in the latter case.
+     * @throws NullPointerException If {@code dst} is {@code null}.
+     */
+    public boolean write(long mostSigBits, long leastSigBits, ByteBuffer dst)
+    {
+      Objects.requireNonNull(dst, "'dst' cannot be null");
+
+      final int prefixLength = (first
+        ? 0
+        : sharedPrefixLength(
+          mostSigBits ^ prevHi,
+          leastSigBits ^ prevLo));
+      final boolean result = dst.remaining()
+        > Ulid.ENCODED_LENGTH - prefixLength;
+
+      if(result)
+      {
+        CrockfordBase32Codec.encodeUlid(mostSigBits, leastSigBits, chars, 0);
+        dst.put(CrockfordBase32Codec.encodeChar(prefixLength));
+        dst.put(chars, prefixLength, Ulid.ENCODED_LENGTH - prefixLength);
+
+        prevHi = mostSigBits;
+        prevLo = leastSigBits;
+        first = false;
+      }
+
+      return result;
+    }
+
+    /**
+     * Resets the encoder so that it can encode another sequence.
+     */
+    public void reset()
+    {
+      prevHi = 0L;
+      prevLo = 0L;
+      first = true;
+    }
+
+    private Encoder()
+    {
+      chars = new byte[Ulid.ENCODED_LENGTH];
+      reset();
+    }
+
+    private final byte[] chars;
+
+    private long prevHi;
+
+    private long prevLo;
+
+    private boolean first;
+  }
+
+  /**
+   * <p>
+   * Decodes ULIDs from buffers that may end in the middle of an encoded
+   * ULID. Only complete ULIDs are consumed, so the caller can compact the
+   * buffer, fill it and continue. A buffer must be able to hold
+   * {@link UlidFrontCodec#MAX_WRITE_SIZE} bytes to fit any ULID.
+   * </p>
+   * <p>
+   * Instances of this class are NOT thread-safe.
+   * </p>
+   */
+  public static final class Decoder
+  {
+    /**
+     * Decodes ULIDs from the position of a buffer.
+     *
+     * @param src A buffer to read from.
+     * @param dst A buffer to append the decoded ULIDs to.
+     * @param maxCount The maximum number of ULIDs to decode.
+     * @return The number of decoded ULIDs. It is less than {@code maxCount}
+     * if {@code src} does not have a complete encoded ULID.
+     * @throws NullPointerException If {@code src} or {@code dst} is
+     * {@code null}.
+     * @throws IllegalArgumentException If {@code maxCount} is negative or the
+     * content is malformed.
+     */
+    public int read(ByteBuffer src, UlidBuffer dst, int maxCount)
+    {
+      Objects.requireNonNull(src, "'src' cannot be null");
+      Objects.requireNonNull(dst, "'dst' cannot be null");
+      if(maxCount < 0)
+      {
+        throw new IllegalArgumentException("'maxCount' cannot be negative");
+      }
+
+      int count = 0;
+
+      while(count < maxCount && src.hasRemaining())
+      {
+        final int start = src.position();
+        final int prefixLength = CrockfordBase32Codec.decodeChar(src.get());
+        if(
+          prefixLength < 0
+            || prefixLength > Ulid.ENCODED_LENGTH
+            || (first && prefixLength > 0)
+        )
+        {
+          throw new IllegalArgumentException(
+            "The prefix length at " + start + " is invalid");
+        }
+
+        final int suffixLength = Ulid.ENCODED_LENGTH - prefixLength;
+        if(src.remaining() < suffixLength)
+        {
+          src.position(start);
+          break;
+        }
+        src.get(chars, prefixLength, suffixLength);
+
+        long hi = 0L;
+        long lo = 0L;
+        for(int i = 0; i < Ulid.ENCODED_LENGTH; ++i)
+        {
+          final int value = CrockfordBase32Codec.decodeChar(chars[i]);
+          if(value < 0 || (0 == i && value > MAX_FIRST_VALUE))
+          {
+            src.position(start);
+            throw new IllegalArgumentException(
+              "The ULID at " + start + " is invalid");
+          }
+
+          hi = (hi << 5) | (lo >>> 59);
+          lo = (lo << 5) | value;
+        }
+        dst.add(hi, lo);
+        first = false;
+        ++count;
+      }
+
+      return count;
+    }
+
+    /**
+     * Resets the decoder so that it can decode another sequence.
+     */
+    public void reset()
+    {
+      first = true;
+    }
+
+    private Decoder()
+    {
+      chars = new byte[Ulid.ENCODED_LENGTH];
+      reset();
+    }
+
+    private final byte[] chars;
+
+    private boolean first;
+  }
+
+  private static final int MAX_FIRST_VALUE = 7;
+
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
+  /**
+   * The number of leading zero bits of the 130-bit form of an ULID.
+   */
+  private static final int ENCODING_PADDING_BITS = 2;
+
+  /**
+   * Computes the number of leading Crockford Base32 characters that two
+   * ULIDs share from the bitwise XOR of them.
+   */
+  private static int sharedPrefixLength(long xorHi, long xorLo)
+  {
+    final int leadingZeros = (0L != xorHi
+      ? Long.numberOfLeadingZeros(xorHi)
+      : Long.SIZE + Long.numberOfLeadingZeros(xorLo));
+
+    return Math.min(
+      Ulid.ENCODED_LENGTH,
+      (leadingZeros + ENCODING_PADDING_BITS) / 5);
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer)
+  {
+    final ByteBuffer result = ByteBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    result.put(buffer);
+
+    return result;
+  }
+
+  private static String toString(ByteBuffer buffer)
+  {
+    return new String(
+      buffer.array(),
+      0,
+      buffer.position(),
+      StandardCharsets.US_ASCII);
+  }
+}
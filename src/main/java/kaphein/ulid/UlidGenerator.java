@@ -42,4 +42,18 @@ public interface UlidGenerator
    * @return A list of generated ULIDs.
    */
   List<Ulid> generate(int count, long timestamp);
+
+  /**
+   * <p>
+   * Generates an ULID.
+   * </p>
+   * <p>
+   * Implementation classes should provide a faster path than
+   * {@code generate(1)} that creates no object other than the ULID.
+   * </p>
+   *
+   * @return An ULID, or {@code null} if the generator cannot generate an ULID
+   * at the moment.
+   */
+  Ulid next();
 }
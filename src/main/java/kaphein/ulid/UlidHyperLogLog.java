@@ -0,0 +1,311 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>
+ * A HyperLogLog sketch that estimates the number of distinct ULIDs with a
+ * fixed amount of memory.
+ * </p>
+ * <p>
+ * The least significant 64 bits of ULIDs created by
+ * {@link SimpleUlidGenerator} are uniformly random, so by default the register
+ * index and the rank are taken from those bits without hashing. ULIDs of a
+ * monotonic run share most of their randomness and would all fall in the same
+ * register, so a sketch for monotonic or otherwise non-random ULIDs must be
+ * created with {@code hashed} set to {@code true}.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidHyperLogLog
+{
+  /**
+   * The minimum precision.
+   */
+  public static final int MIN_PRECISION = 4;
+
+  /**
+   * The maximum precision.
+   */
+  public static final int MAX_PRECISION = 18;
+
+  /**
+   * Reads a sketch serialized by {@link #toByteArray()}.
+   *
+   * @param bytes A byte array that contains a serialized sketch.
+   * @param offset An offset of {@code bytes} where the content starts from.
+   * @return The sketch.
+   * @throws NullPointerException If {@code bytes} is {@code null}.
+   * @throws IllegalArgumentException If {@code offset} is out of range or the
+   * content is not a valid serialized sketch.
+   */
+  public static UlidHyperLogLog from(byte[] bytes, int offset)
+  {
+    Objects.requireNonNull(bytes, "'bytes' cannot be null");
+    if(offset < 0 || bytes.length - offset < HEADER_SIZE)
+    {
+      throw new IllegalArgumentException(
+        "'bytes' does not have enough bytes");
+    }
+
+    final ByteBuffer buffer = ByteBuffer
+      .wrap(bytes, offset, bytes.length - offset);
+    if(MAGIC != buffer.getInt())
+    {
+      throw new IllegalArgumentException("'bytes' is not a serialized sketch");
+    }
+
+    final int precision = buffer.get();
+    final boolean hashed = 0 != buffer.get();
+    buffer.getShort();
+
+    final UlidHyperLogLog result = new UlidHyperLogLog(precision, hashed);
+    if(buffer.remaining() < result.registers.length)
+    {
+      throw new IllegalArgumentException(
+        "'bytes' does not have enough bytes");
+    }
+    buffer.get(result.registers);
+
+    return result;
+  }
+
+  /**
+   * Constructs an instance of {@link UlidHyperLogLog} for random ULIDs.
+   *
+   * @param precision The number of bits of register indices. The sketch uses
+   * {@code 2^precision} bytes and its standard error is about
+   * {@code 1.04 / sqrt(2^precision)}.
+   * @throws IllegalArgumentException If {@code precision} is out of range.
+   */
+  public UlidHyperLogLog(int precision)
+  {
+    this(precision, false);
+  }
+
+  /**
+   * Constructs an instance of {@link UlidHyperLogLog}.
+   *
+   * @param precision The number of bits of register indices. The sketch uses
+   * {@code 2^precision} bytes and its standard error is about
+   * {@code 1.04 / sqrt(2^precision)}.
+   * @param hashed {@code true} if ULIDs are hashed before being added. It must
+   * be {@code true} for monotonic or otherwise non-random ULIDs.
+   * @throws IllegalArgumentException If {@code precision} is out of range.
+   */
+  public UlidHyperLogLog(int precision, boolean hashed)
+  {
+    if(precision < MIN_PRECISION || precision > MAX_PRECISION)
+    {
+      throw new IllegalArgumentException(
+        "'precision' must be in range [" + MIN_PRECISION
+          + ", " + MAX_PRECISION + "]");
+    }
+
+    this.precision = precision;
+    this.hashed = hashed;
+    registers = new byte[1 << precision];
+  }
+
+  /**
+   * Gets the number of bits of register indices.
+   *
+   * @return The precision.
+   */
+  public int getPrecision()
+  {
+    return precision;
+  }
+
+  /**
+   * Checks if ULIDs are hashed before being added.
+   *
+   * @return {@code true} if ULIDs are hashed, {@code false} otherwise.
+   */
+  public boolean isHashed()
+  {
+    return hashed;
+  }
+
+  /**
+   * Adds an ULID to the sketch.
+   *
+   * @param ulid An ULID.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public void add(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Adds an ULID to the sketch.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   */
+  public void add(long mostSigBits, long leastSigBits)
+  {
+    final long bits = (hashed
+      ? mix(leastSigBits ^ mix(mostSigBits))
+      : leastSigBits);
+    final int index = (int)(bits >>> (64 - precision));
+    final int rank = Long.numberOfLeadingZeros(
+      (bits << precision) | (1L << (precision - 1))) + 1;
+
+    if(registers[index] < rank)
+    {
+      registers[index] = (byte)rank;
+    }
+  }
+
+  /**
+   * Estimates the number of distinct ULIDs added to the sketch.
+   *
+   * @return The estimated number of distinct ULIDs.
+   */
+  public long estimate()
+  {
+    final int m = registers.length;
+    double sum = 0.0;
+    int zeroCount = 0;
+    for(final byte register : registers)
+    {
+      sum += 1.0 / (1L << register);
+      if(0 == register)
+      {
+        ++zeroCount;
+      }
+    }
+
+    double estimate = alpha(m) * m * m / sum;
+    if(estimate <= 2.5 * m && zeroCount > 0)
+    {
+      estimate = m * Math.log((double)m / zeroCount);
+    }
+
+    return Math.round(estimate);
+  }
+
+  /**
+   * Adds every ULID of another sketch to this sketch.
+   *
+   * @param other A sketch with the same precision and the same hashing mode.
+   * @throws NullPointerException If {@code other} is {@code null}.
+   * @throws IllegalArgumentException If {@code other} is not compatible with
+   * this sketch.
+   */
+  public void merge(UlidHyperLogLog other)
+  {
+    Objects.requireNonNull(other, "'other' cannot be null");
+    if(precision != other.precision || hashed != other.hashed)
+    {
+      throw new IllegalArgumentException(
+        "'other' is not compatible with the sketch");
+    }
+
+    for(int i = 0; i < registers.length; ++i)
+    {
+      if(registers[i] < other.registers[i])
+      {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * Removes every ULID from the sketch.
+   */
+  public void clear()
+  {
+    Arrays.fill(registers, (byte)0);
+  }
+
+  /**
+   * Creates a copy of the sketch.
+   *
+   * @return A new sketch that has the same state.
+   */
+  public UlidHyperLogLog copy()
+  {
+    final UlidHyperLogLog result = new UlidHyperLogLog(precision, hashed);
+    System.arraycopy(registers, 0, result.registers, 0, registers.length);
+
+    return result;
+  }
+
+  /**
+   * Serializes the sketch. The result can be read by
+   * {@link #from(byte[], int)}.
+   *
+   * @return A byte array that represents the sketch.
+   */
+  public byte[] toByteArray()
+  {
+    final ByteBuffer buffer = ByteBuffer
+      .allocate(HEADER_SIZE + registers.length);
+
+    buffer.putInt(MAGIC);
+    buffer.put((byte)precision);
+    buffer.put((byte)(hashed ? 1 : 0));
+    buffer.putShort((short)0);
+    buffer.put(registers);
+
+    return buffer.array();
+  }
+
+  private static final int MAGIC = 0x55484C4C;
+
+  private static final int HEADER_SIZE = 8;
+
+  private static double alpha(int m)
+  {
+    final double result;
+
+    switch(m)
+    {
+    case 16:
+      result = 0.673;
+      break;
+    case 32:
+      result = 0.697;
+      break;
+    case 64:
+      result = 0.709;
+      break;
+    default:
+      result = 0.7213 / (1.0 + 1.079 / m);
+    }
+
+    return result;
+  }
+
+  /**
+   * The finalization mix of MurmurHash3.
+   */
+  private static long mix(long value)
+  {
+    long result = value;
+    result ^= result >>> 33;
+    result *= 0xFF51AFD7ED558CCDL;
+    result ^= result >>> 33;
+    result *= 0xC4CEB9FE1A85EC53L;
+    result ^= result >>> 33;
+
+    return result;
+  }
+
+  private final int precision;
+
+  private final boolean hashed;
+
+  private final byte[] registers;
+}
@@ -0,0 +1,480 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * <p>
+ * A read-only sorted ULID index file written by {@link UlidIndexFileWriter}.
+ * </p>
+ * <p>
+ * The file is memory-mapped in chunks of at most 1 GiB, so opening it takes
+ * constant time regardless of its size and no record is copied to the heap.
+ * Lookups first binary-search the sparse directory, which narrows the range
+ * to {@link #DIRECTORY_INTERVAL} records, and then run an interpolation
+ * search on the timestamps of the records in the range, falling back to
+ * bisection whenever interpolation does not halve the range.
+ * </p>
+ * <p>
+ * This class is thread-safe. The mapped memory is released when the instance
+ * becomes unreachable after {@link #close()}.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidIndexFile implements Closeable
+{
+  /**
+   * The number of records per directory entry.
+   */
+  public static final int DIRECTORY_INTERVAL = 1024;
+
+  /**
+   * Opens and maps an index file.
+   *
+   * @param path A path of the file.
+   * @throws NullPointerException If {@code path} is {@code null}.
+   * @throws IllegalArgumentException If the file is not a valid index file.
+   * @throws IOException If an I/O error occurs.
+   */
+  public UlidIndexFile(Path path)
+    throws IOException
+  {
+    this(path, MAX_CHUNK_SIZE);
+  }
+
+  /**
+   * Gets the number of records.
+   *
+   * @return The number of records.
+   */
+  public long size()
+  {
+    return count;
+  }
+
+  /**
+   * Checks if the records have payloads.
+   *
+   * @return {@code true} if the records have payloads, {@code false}
+   * otherwise.
+   */
+  public boolean hasPayloads()
+  {
+    return RECORD_WITH_PAYLOAD_SIZE == recordSize;
+  }
+
+  /**
+   * Gets the ULID of a record.
+   *
+   * @param index An index of the record.
+   * @return The ULID.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public Ulid get(long index)
+  {
+    checkIndex(index);
+
+    return new Ulid(mostSigBitsAt(index), leastSigBitsAt(index));
+  }
+
+  /**
+   * Gets the most significant 64 bits of the ULID of a record.
+   *
+   * @param index An index of the record.
+   * @return The most significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getMostSignificantBits(long index)
+  {
+    checkIndex(index);
+
+    return mostSigBitsAt(index);
+  }
+
+  /**
+   * Gets the least significant 64 bits of the ULID of a record.
+   *
+   * @param index An index of the record.
+   * @return The least significant 64 bits.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getLeastSignificantBits(long index)
+  {
+    checkIndex(index);
+
+    return leastSigBitsAt(index);
+  }
+
+  /**
+   * Gets the payload of a record.
+   *
+   * @param index An index of the record.
+   * @return The payload.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   * @throws IllegalStateException If the records do not have payloads.
+   */
+  public long getPayload(long index)
+  {
+    checkIndex(index);
+    if(!hasPayloads())
+    {
+      throw new IllegalStateException("The records do not have payloads");
+    }
+
+    return chunkOf(index).getLong(offsetOf(index) + RECORD_SIZE);
+  }
+
+  /**
+   * Checks if the file contains an ULID.
+   *
+   * @param ulid An ULID.
+   * @return {@code true} if the file contains the ULID, {@code false}
+   * otherwise.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public boolean contains(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return find(
+      ulid.getMostSignificantBits(),
+      ulid.getLeastSignificantBits()) >= 0L;
+  }
+
+  /**
+   * Checks if the file contains an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} if the file contains the ULID, {@code false}
+   * otherwise.
+   */
+  public boolean contains(long mostSigBits, long leastSigBits)
+  {
+    return find(mostSigBits, leastSigBits) >= 0L;
+  }
+
+  /**
+   * Finds the first record of an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return The index of the record, or {@code -1} if there is no such record.
+   */
+  public long find(long mostSigBits, long leastSigBits)
+  {
+    final long index = lowerBound(mostSigBits, leastSigBits);
+
+    return (
+      index < count
+        && mostSigBitsAt(index) == mostSigBits
+        && leastSigBitsAt(index) == leastSigBits
+      ? index
+      : -1L);
+  }
+
+  /**
+   * Finds the index of the first record whose ULID is not less than
+   * specified ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return The index, or {@link #size()} if every ULID is less than the
+   * ULID.
+   */
+  public long lowerBound(long mostSigBits, long leastSigBits)
+  {
+    int low = 0;
+    int high = directoryCount;
+    while(low < high)
+    {
+      final int mid = (low + high) >>> 1;
+      final int position = mid * RECORD_SIZE;
+      if(
+        Uint128Utils.compare(
+          directory.getLong(position), directory.getLong(position + 8),
+          mostSigBits, leastSigBits) < 0
+      )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+
+    long result = 0L;
+
+    if(low > 0)
+    {
+      // The record of the previous directory entry is less than the key and
+      // the record of the next one is not.
+      result = interpolationSearch(
+        (long)(low - 1) * DIRECTORY_INTERVAL + 1L,
+        Math.min((long)low * DIRECTORY_INTERVAL, count),
+        mostSigBits,
+        leastSigBits);
+    }
+
+    return result;
+  }
+
+  /**
+   * Finds the index of the first record whose timestamp is not less than
+   * {@code timestamp}.
+   *
+   * @param timestamp A timestamp in milliseconds.
+   * @return The index, or {@link #size()} if every timestamp is less than
+   * {@code timestamp}.
+   */
+  public long lowerBoundByTime(long timestamp)
+  {
+    final long result;
+
+    if(timestamp <= Ulid.TIMESTAMP_MIN_VALUE)
+    {
+      result = 0L;
+    }
+    else if(timestamp > Ulid.TIMESTAMP_MAX_VALUE)
+    {
+      result = count;
+    }
+    else
+    {
+      result = lowerBound(
+        Uint128Utils.timestampToMostSigBits(timestamp),
+        Ulid.RANDOMNESS_MIN_VALUE_LS_BITS);
+    }
+
+    return result;
+  }
+
+  /**
+   * Counts the records whose timestamps range from {@code fromTimestamp},
+   * inclusive, to {@code toTimestamp}, exclusive. The records are at indices
+   * from {@code lowerBoundByTime(fromTimestamp)}.
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   * @return The number of records.
+   */
+  public long countByTime(long fromTimestamp, long toTimestamp)
+  {
+    return (fromTimestamp < toTimestamp
+      ? lowerBoundByTime(toTimestamp) - lowerBoundByTime(fromTimestamp)
+      : 0L);
+  }
+
+  /**
+   * Closes the file. The mapped memory stays valid until the instance becomes
+   * unreachable.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close()
+    throws IOException
+  {
+    channel.close();
+  }
+
+  static final int MAGIC = 0x55494458;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 48;
+
+  static final int RECORD_SIZE = 16;
+
+  static final int PAYLOAD_SIZE = 8;
+
+  static final int RECORD_WITH_PAYLOAD_SIZE = RECORD_SIZE + PAYLOAD_SIZE;
+
+  /**
+   * Opens and maps an index file with a custom chunk size.
+   */
+  UlidIndexFile(Path path, int maxChunkSize)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "'path' cannot be null");
+
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try
+    {
+      final long fileSize = channel.size();
+      if(fileSize < HEADER_SIZE)
+      {
+        throw new IllegalArgumentException("The file is not an index file");
+      }
+
+      final ByteBuffer header = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        0L,
+        HEADER_SIZE);
+      final int payloadSize = header.getInt(16);
+      final long directoryLength = header.getLong(24);
+      if(
+        MAGIC != header.getInt(0)
+          || VERSION != header.getInt(4)
+          || (0 != payloadSize && PAYLOAD_SIZE != payloadSize)
+          || DIRECTORY_INTERVAL != header.getInt(20)
+      )
+      {
+        throw new IllegalArgumentException("The file is not an index file");
+      }
+
+      count = header.getLong(8);
+      recordSize = RECORD_SIZE + payloadSize;
+      final long directoryOffset = header.getLong(32);
+      if(
+        count < 0L
+          || directoryOffset != HEADER_SIZE + count * recordSize
+          || directoryLength
+            != (count + DIRECTORY_INTERVAL - 1) / DIRECTORY_INTERVAL
+          || directoryLength * RECORD_SIZE > Integer.MAX_VALUE
+          || fileSize < directoryOffset + directoryLength * RECORD_SIZE
+      )
+      {
+        throw new IllegalArgumentException("The file is corrupted");
+      }
+
+      directoryCount = (int)directoryLength;
+      directory = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        directoryOffset,
+        directoryLength * RECORD_SIZE);
+
+      recordsPerChunk = Math.max(1, maxChunkSize / recordSize);
+      chunks = new MappedByteBuffer[
+        (int)((count + recordsPerChunk - 1) / recordsPerChunk)];
+      for(int i = 0; i < chunks.length; ++i)
+      {
+        final long first = (long)i * recordsPerChunk;
+        final long length = Math.min(recordsPerChunk, count - first);
+        chunks[i] = channel.map(
+          FileChannel.MapMode.READ_ONLY,
+          HEADER_SIZE + first * recordSize,
+          length * recordSize);
+      }
+    }
+    catch(IOException | RuntimeException e)
+    {
+      channel.close();
+
+      throw e;
+    }
+  }
+
+  private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+  /**
+   * Converts the most significant 64 bits of an ULID to a number for
+   * interpolation.
+   */
+  private static double toInterpolationKey(long mostSigBits)
+  {
+    return (double)(mostSigBits >>> 1);
+  }
+
+  /**
+   * Finds the lower bound in {@code [low, high)} on the assumption that the
+   * record before {@code low} is less than the key and the record at
+   * {@code high} is not.
+   */
+  private long interpolationSearch(
+    long low,
+    long high,
+    long mostSigBits,
+    long leastSigBits
+  )
+  {
+    long l = low;
+    long h = high;
+    boolean bisect = false;
+    final double key = toInterpolationKey(mostSigBits);
+
+    while(l < h)
+    {
+      final long size = h - l;
+      final long probe;
+      final double lowKey = toInterpolationKey(mostSigBitsAt(l));
+      final double highKey = toInterpolationKey(mostSigBitsAt(h - 1));
+      if(bisect || !(lowKey < key && key < highKey))
+      {
+        probe = l + (size >>> 1);
+      }
+      else
+      {
+        probe = l + (long)((key - lowKey) / (highKey - lowKey) * (size - 1));
+      }
+
+      if(
+        Uint128Utils.compare(
+          mostSigBitsAt(probe), leastSigBitsAt(probe),
+          mostSigBits, leastSigBits) < 0
+      )
+      {
+        l = probe + 1L;
+      }
+      else
+      {
+        h = probe;
+      }
+
+      bisect = (h - l) > (size >>> 1);
+    }
+
+    return l;
+  }
+
+  private void checkIndex(long index)
+  {
+    if(index < 0L || index >= count)
+    {
+      throw new IndexOutOfBoundsException(
+        "Index " + index + " is out of range [0, " + count + ")");
+    }
+  }
+
+  private ByteBuffer chunkOf(long index)
+  {
+    return chunks[(int)(index / recordsPerChunk)];
+  }
+
+  private int offsetOf(long index)
+  {
+    return (int)(index % recordsPerChunk) * recordSize;
+  }
+
+  private long mostSigBitsAt(long index)
+  {
+    return chunkOf(index).getLong(offsetOf(index));
+  }
+
+  private long leastSigBitsAt(long index)
+  {
+    return chunkOf(index).getLong(offsetOf(index) + 8);
+  }
+
+  private final FileChannel channel;
+
+  private final long count;
+
+  private final int recordSize;
+
+  private final ByteBuffer directory;
+
+  private final int directoryCount;
+
+  private final int recordsPerChunk;
+
+  private final MappedByteBuffer[] chunks;
+}
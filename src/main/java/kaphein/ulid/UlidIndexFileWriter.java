@@ -0,0 +1,258 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Writes a sorted ULID index file that can be read by {@link UlidIndexFile}.
+ * </p>
+ * <p>
+ * The file consists of a header, fixed-size records of 16-byte ULIDs in
+ * ascending order, each optionally followed by an 8-byte payload such as an
+ * offset into another file, and a sparse directory that holds every
+ * {@link UlidIndexFile#DIRECTORY_INTERVAL}-th ULID. All numbers are written
+ * in big-endian byte order.
+ * </p>
+ * <p>
+ * The file is complete only after {@link #close()} has been called.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidIndexFileWriter implements Closeable
+{
+  /**
+   * Creates or truncates a file and constructs an instance of
+   * {@link UlidIndexFileWriter} that writes to it.
+   *
+   * @param path A path of the file.
+   * @param withPayloads {@code true} if each record has an 8-byte payload.
+   * @throws NullPointerException If {@code path} is {@code null}.
+   * @throws IOException If an I/O error occurs.
+   */
+  public UlidIndexFileWriter(Path path, boolean withPayloads)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "'path' cannot be null");
+
+    channel = FileChannel.open(
+      path,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING,
+      StandardOpenOption.WRITE);
+    this.withPayloads = withPayloads;
+    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    directory = new UlidBuffer();
+    count = 0L;
+    closed = false;
+
+    buffer.position(UlidIndexFile.HEADER_SIZE);
+  }
+
+  /**
+   * Gets the number of written records.
+   *
+   * @return The number of records.
+   */
+  public long size()
+  {
+    return count;
+  }
+
+  /**
+   * Writes a record without a payload.
+   *
+   * @param ulid An ULID that is not less than the last written ULID.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   * @throws IllegalArgumentException If {@code ulid} is less than the last
+   * written ULID.
+   * @throws IllegalStateException If the records of the file have payloads or
+   * the writer has been closed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void add(Ulid ulid)
+    throws IOException
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Writes a record without a payload.
+   *
+   * @param mostSigBits The most significant 64 bits of an ULID that is not
+   * less than the last written ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @throws IllegalArgumentException If the ULID is less than the last
+   * written ULID.
+   * @throws IllegalStateException If the records of the file have payloads or
+   * the writer has been closed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void add(long mostSigBits, long leastSigBits)
+    throws IOException
+  {
+    if(withPayloads)
+    {
+      throw new IllegalStateException("The records must have payloads");
+    }
+
+    addImpl(mostSigBits, leastSigBits, 0L);
+  }
+
+  /**
+   * Writes a record with a payload.
+   *
+   * @param mostSigBits The most significant 64 bits of an ULID that is not
+   * less than the last written ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @param payload A payload.
+   * @throws IllegalArgumentException If the ULID is less than the last
+   * written ULID.
+   * @throws IllegalStateException If the records of the file do not have
+   * payloads or the writer has been closed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void add(long mostSigBits, long leastSigBits, long payload)
+    throws IOException
+  {
+    if(!withPayloads)
+    {
+      throw new IllegalStateException("The records cannot have payloads");
+    }
+
+    addImpl(mostSigBits, leastSigBits, payload);
+  }
+
+  /**
+   * Writes the directory and the header, and closes the file.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close()
+    throws IOException
+  {
+    if(!closed)
+    {
+      closed = true;
+
+      try
+      {
+        final long directoryOffset = UlidIndexFile.HEADER_SIZE
+          + count * (withPayloads
+            ? UlidIndexFile.RECORD_WITH_PAYLOAD_SIZE
+            : UlidIndexFile.RECORD_SIZE);
+        for(int i = 0; i < directory.size(); ++i)
+        {
+          ensureRemaining(UlidIndexFile.RECORD_SIZE);
+          buffer.putLong(directory.getMostSignificantBits(i));
+          buffer.putLong(directory.getLeastSignificantBits(i));
+        }
+        flush();
+
+        final ByteBuffer header = ByteBuffer
+          .allocate(UlidIndexFile.HEADER_SIZE);
+        header.putInt(UlidIndexFile.MAGIC);
+        header.putInt(UlidIndexFile.VERSION);
+        header.putLong(count);
+        header.putInt(withPayloads ? UlidIndexFile.PAYLOAD_SIZE : 0);
+        header.putInt(UlidIndexFile.DIRECTORY_INTERVAL);
+        header.putLong(directory.size());
+        header.putLong(directoryOffset);
+        header.putLong(0L);
+        header.flip();
+        while(header.hasRemaining())
+        {
+          channel.write(header, header.position());
+        }
+      }
+      finally
+      {
+        channel.close();
+      }
+    }
+  }
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private void addImpl(long mostSigBits, long leastSigBits, long payload)
+    throws IOException
+  {
+    if(closed)
+    {
+      throw new IllegalStateException("The writer has been closed");
+    }
+    if(
+      count > 0L
+        && Uint128Utils.compare(mostSigBits, leastSigBits, lastHi, lastLo) < 0
+    )
+    {
+      throw new IllegalArgumentException(
+        "ULIDs must be added in ascending order");
+    }
+
+    if(0L == count % UlidIndexFile.DIRECTORY_INTERVAL)
+    {
+      directory.add(mostSigBits, leastSigBits);
+    }
+
+    ensureRemaining(UlidIndexFile.RECORD_WITH_PAYLOAD_SIZE);
+    buffer.putLong(mostSigBits);
+    buffer.putLong(leastSigBits);
+    if(withPayloads)
+    {
+      buffer.putLong(payload);
+    }
+
+    ++count;
+    lastHi = mostSigBits;
+    lastLo = leastSigBits;
+  }
+
+  private void ensureRemaining(int size)
+    throws IOException
+  {
+    if(buffer.remaining() < size)
+    {
+      flush();
+    }
+  }
+
+  private void flush()
+    throws IOException
+  {
+    buffer.flip();
+    while(buffer.hasRemaining())
+    {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private final FileChannel channel;
+
+  private final boolean withPayloads;
+
+  private final ByteBuffer buffer;
+
+  private final UlidBuffer directory;
+
+  private long count;
+
+  private long lastHi;
+
+  private long lastLo;
+
+  private boolean closed;
+}
@@ -0,0 +1,1035 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * An append-only log of records keyed by ULIDs.
+ * </p>
+ * <p>
+ * Records are appended in non-decreasing order of their ULIDs to fixed-size
+ * memory-mapped segment files in a directory. Each record consists of the
+ * 16-byte ULID, the length of the payload, the payload and a CRC-32 of them.
+ * When a record does not fit in the current segment, the segment is sealed by
+ * writing its record count, end position and minimum and maximum ULIDs to its
+ * header, and a new segment is created.
+ * </p>
+ * <p>
+ * For each segment, the minimum and maximum ULIDs and a sparse index that
+ * holds every {@link #SPARSE_INDEX_INTERVAL}-th record are kept in memory.
+ * {@link #scan(UlidRange, UlidLogVisitor)} skips segments that do not overlap
+ * the range and starts from the closest index entry in the first overlapping
+ * segment. When the log is opened, the statistics of sealed segments are read
+ * from their headers, and the sparse index of a sealed segment is built when
+ * the segment is scanned for the first time.
+ * </p>
+ * <p>
+ * Appended records are visible to scans immediately but are durable only
+ * after {@link #flush()}. When the log is opened, the records of the unsealed
+ * segment are verified from its start and the log is truncated before the
+ * first torn or corrupted record.
+ * </p>
+ * <p>
+ * This class is thread-safe. Scans run concurrently with each other, while
+ * appends and removals are exclusive. A visitor runs while the scan holds
+ * the shared lock, so a visitor must not modify the log; such calls throw an
+ * {@link IllegalStateException} instead of deadlocking.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidLog implements Closeable
+{
+  /**
+   * The default size of segment files in bytes.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+
+  /**
+   * The minimum size of segment files in bytes.
+   */
+  public static final int MIN_SEGMENT_SIZE = 1 << 10;
+
+  /**
+   * The number of records per sparse index entry.
+   */
+  public static final int SPARSE_INDEX_INTERVAL = 64;
+
+  /**
+   * Opens a log in a directory with the default segment size.
+   *
+   * @param directory A directory of the log. It is created if it does not
+   * exist.
+   * @throws NullPointerException If {@code directory} is {@code null}.
+   * @throws IllegalArgumentException If a segment file is not valid.
+   * @throws IOException If an I/O error occurs.
+   */
+  public UlidLog(Path directory)
+    throws IOException
+  {
+    this(directory, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Opens a log in a directory.
+   *
+   * @param directory A directory of the log. It is created if it does not
+   * exist.
+   * @param segmentSize The size of new segment files in bytes. Existing
+   * segment files keep their sizes.
+   * @throws NullPointerException If {@code directory} is {@code null}.
+   * @throws IllegalArgumentException If {@code segmentSize} is less than
+   * {@link #MIN_SEGMENT_SIZE} or a segment file is not valid.
+   * @throws IOException If an I/O error occurs.
+   */
+  public UlidLog(Path directory, int segmentSize)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "'directory' cannot be null");
+    if(segmentSize < MIN_SEGMENT_SIZE)
+    {
+      throw new IllegalArgumentException(
+        "'segmentSize' cannot be less than " + MIN_SEGMENT_SIZE);
+    }
+
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    lock = new ReentrantReadWriteLock();
+    readLock = lock.readLock();
+    writeLock = lock.writeLock();
+    segments = new ArrayList<>();
+    crc = new CRC32();
+    hasLast = false;
+    closed = false;
+
+    Files.createDirectories(directory);
+    try
+    {
+      openSegments();
+    }
+    catch(IOException | RuntimeException e)
+    {
+      closeSegments();
+
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the number of records.
+   *
+   * @return The number of records.
+   */
+  public long size()
+  {
+    long result = 0L;
+
+    readLock.lock();
+    try
+    {
+      for(final Segment segment : segments)
+      {
+        result += segment.count;
+      }
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+
+    return result;
+  }
+
+  /**
+   * Gets the number of segment files.
+   *
+   * @return The number of segment files.
+   */
+  public int getSegmentCount()
+  {
+    readLock.lock();
+    try
+    {
+      return segments.size();
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param ulid An ULID that is not less than the last appended ULID.
+   * @param payload A payload.
+   * @throws NullPointerException If {@code ulid} or {@code payload} is
+   * {@code null}.
+   * @throws IllegalArgumentException If {@code ulid} is less than the last
+   * appended ULID or the payload does not fit in a segment.
+   * @throws IllegalStateException If the log has been closed or the current
+   * thread is scanning the log.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void append(Ulid ulid, byte[] payload)
+    throws IOException
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+    Objects.requireNonNull(payload, "'payload' cannot be null");
+
+    append(
+      ulid.getMostSignificantBits(),
+      ulid.getLeastSignificantBits(),
+      payload,
+      0,
+      payload.length);
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param mostSigBits The most significant 64 bits of an ULID that is not
+   * less than the last appended ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @param payload An array that contains a payload.
+   * @param offset The offset of the payload in the array.
+   * @param length The length of the payload.
+   * @throws NullPointerException If {@code payload} is {@code null}.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is
+   * out of range.
+   * @throws IllegalArgumentException If the ULID is less than the last
+   * appended ULID or the payload does not fit in a segment.
+   * @throws IllegalStateException If the log has been closed or the current
+   * thread is scanning the log.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void append(
+    long mostSigBits,
+    long leastSigBits,
+    byte[] payload,
+    int offset,
+    int length
+  )
+    throws IOException
+  {
+    Objects.requireNonNull(payload, "'payload' cannot be null");
+    if(offset < 0 || length < 0 || offset > payload.length - length)
+    {
+      throw new IndexOutOfBoundsException(
+        "The range [" + offset + ", " + offset + " + " + length
+          + ") is out of bounds");
+    }
+    if(length > segmentSize - HEADER_SIZE - RECORD_OVERHEAD)
+    {
+      throw new IllegalArgumentException(
+        "The payload does not fit in a segment");
+    }
+
+    lockForWrite();
+    try
+    {
+      ensureOpen();
+
+      if(
+        hasLast
+          && Uint128Utils.compare(mostSigBits, leastSigBits, lastHi, lastLo)
+            < 0
+      )
+      {
+        throw new IllegalArgumentException(
+          "ULIDs must be appended in non-decreasing order");
+      }
+
+      Segment active = (segments.isEmpty()
+        ? null
+        : segments.get(segments.size() - 1));
+      final int recordSize = RECORD_OVERHEAD + length;
+      if(null == active || active.capacity - active.end < recordSize)
+      {
+        final long id;
+        if(null != active)
+        {
+          active.seal();
+          id = active.id + 1L;
+        }
+        else
+        {
+          id = 0L;
+        }
+        active = Segment.create(
+          directory.resolve(toFileName(id)),
+          id,
+          segmentSize);
+        segments.add(active);
+      }
+
+      final ByteBuffer writer = active.writer;
+      writer.position(active.end);
+      writer.putLong(mostSigBits);
+      writer.putLong(leastSigBits);
+      writer.putInt(length);
+      writer.put(payload, offset, length);
+
+      crc.reset();
+      crc.update(toHeaderBytes(mostSigBits, leastSigBits, length));
+      crc.update(payload, offset, length);
+      writer.putInt((int)crc.getValue());
+
+      active.add(mostSigBits, leastSigBits, active.end);
+      active.end += recordSize;
+      hasLast = true;
+      lastHi = mostSigBits;
+      lastLo = leastSigBits;
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * <p>
+   * Scans the records whose ULIDs are in a range in ascending order.
+   * </p>
+   * <p>
+   * The visitor is called while the log is locked for reading. It can scan
+   * the log again, but methods that modify the log, such as
+   * {@link #append(Ulid, byte[])} and
+   * {@link #removeSegmentsBefore(long)}, throw an
+   * {@link IllegalStateException} if called from the visitor. Collect the
+   * records and modify the log after the scan returns instead.
+   * </p>
+   *
+   * @param range A range of ULIDs.
+   * @param visitor A visitor of the records.
+   * @return The number of visited records.
+   * @throws NullPointerException If {@code range} or {@code visitor} is
+   * {@code null}.
+   * @throws IllegalArgumentException If a sealed segment to scan is
+   * corrupted.
+   * @throws IllegalStateException If the log has been closed.
+   */
+  public long scan(UlidRange range, UlidLogVisitor visitor)
+  {
+    Objects.requireNonNull(range, "'range' cannot be null");
+    Objects.requireNonNull(visitor, "'visitor' cannot be null");
+
+    long result = 0L;
+
+    final long startHi = range.getStartMostSignificantBits();
+    final long startLo = range.getStartLeastSignificantBits();
+    final long endHi = range.getEndMostSignificantBits();
+    final long endLo = range.getEndLeastSignificantBits();
+
+    readLock.lock();
+    try
+    {
+      ensureOpen();
+
+      boolean done = false;
+      for(int i = 0; !done && i < segments.size(); ++i)
+      {
+        final Segment segment = segments.get(i);
+        if(
+          segment.count < 1L
+            || !range.overlaps(
+              segment.minHi, segment.minLo,
+              segment.maxHi, segment.maxLo)
+        )
+        {
+          done = segment.count > 0L
+            && Uint128Utils.compare(
+              segment.minHi, segment.minLo, endHi, endLo) > 0;
+          continue;
+        }
+
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        segment.ensureIndexed();
+        int position = segment.findStartPosition(startHi, startLo);
+        while(!done && position < segment.end)
+        {
+          final long hi = buffer.getLong(position);
+          final long lo = buffer.getLong(position + 8);
+          final int length = buffer.getInt(position + 16);
+          final int payloadPosition = position + RECORD_HEADER_SIZE;
+          position = payloadPosition + length + CRC_SIZE;
+
+          if(Uint128Utils.compare(hi, lo, endHi, endLo) > 0)
+          {
+            done = true;
+          }
+          else if(Uint128Utils.compare(hi, lo, startHi, startLo) >= 0)
+          {
+            buffer.limit(payloadPosition + length).position(payloadPosition);
+            final ByteBuffer payload = buffer.slice().asReadOnlyBuffer();
+            buffer.clear();
+
+            ++result;
+            done = !visitor.visit(hi, lo, payload);
+          }
+        }
+      }
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes the sealed segments whose ULIDs are all older than a timestamp.
+   * The segment that records are appended to is never removed.
+   *
+   * @param timestamp A timestamp.
+   * @return The number of removed segments.
+   * @throws IllegalStateException If the log has been closed or the current
+   * thread is scanning the log.
+   * @throws IOException If an I/O error occurs.
+   */
+  public int removeSegmentsBefore(long timestamp)
+    throws IOException
+  {
+    int result = 0;
+
+    lockForWrite();
+    try
+    {
+      ensureOpen();
+
+      while(
+        segments.size() > 1
+          && (segments.get(0).maxHi >>> 16) < timestamp
+      )
+      {
+        final Segment segment = segments.remove(0);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+        ++result;
+      }
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+
+    return result;
+  }
+
+  /**
+   * Forces the appended records to be written to the storage.
+   *
+   * @throws IllegalStateException If the log has been closed or the current
+   * thread is scanning the log.
+   */
+  public void flush()
+  {
+    lockForWrite();
+    try
+    {
+      ensureOpen();
+
+      if(!segments.isEmpty())
+      {
+        segments.get(segments.size() - 1).buffer.force();
+      }
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Flushes the appended records and closes the segment files.
+   *
+   * @throws IllegalStateException If the current thread is scanning the log.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close()
+    throws IOException
+  {
+    lockForWrite();
+    try
+    {
+      if(!closed)
+      {
+        closed = true;
+
+        if(!segments.isEmpty())
+        {
+          segments.get(segments.size() - 1).buffer.force();
+        }
+        closeSegments();
+      }
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  static final int HEADER_SIZE = 64;
+
+  static final int RECORD_HEADER_SIZE = 20;
+
+  static final int CRC_SIZE = 4;
+
+  static final int RECORD_OVERHEAD = RECORD_HEADER_SIZE + CRC_SIZE;
+
+  private static final int MAGIC = 0x554C4F47;
+
+  private static final int VERSION = 1;
+
+  private static final int FLAG_SEALED = 1;
+
+  private static final String FILE_NAME_SUFFIX = ".ulog";
+
+  /**
+   * The maximum number of bytes cleared at once by recovery.
+   */
+  private static final int CLEAR_CHUNK_SIZE = 1 << 13;
+
+  private static String toFileName(long id)
+  {
+    return String.format("%020d", id) + FILE_NAME_SUFFIX;
+  }
+
+  private static byte[] toHeaderBytes(
+    long mostSigBits,
+    long leastSigBits,
+    int length
+  )
+  {
+    return ByteBuffer.allocate(RECORD_HEADER_SIZE)
+      .putLong(mostSigBits)
+      .putLong(leastSigBits)
+      .putInt(length)
+      .array();
+  }
+
+  private static boolean isZeroRecordHeader(ByteBuffer buffer, int position)
+  {
+    return 0L == buffer.getLong(position)
+      && 0L == buffer.getLong(position + 8)
+      && 0 == buffer.getInt(position + 16);
+  }
+
+  private void openSegments()
+    throws IOException
+  {
+    final List<Path> paths = new ArrayList<>();
+    try(
+      DirectoryStream<Path> stream = Files.newDirectoryStream(
+        directory,
+        "*" + FILE_NAME_SUFFIX)
+    )
+    {
+      for(final Path path : stream)
+      {
+        paths.add(path);
+      }
+    }
+    Collections.sort(paths);
+
+    for(int i = 0; i < paths.size(); ++i)
+    {
+      final Path path = paths.get(i);
+      final String fileName = path.getFileName().toString();
+      final long id;
+      try
+      {
+        id = Long.parseLong(
+          fileName.substring(0, fileName.length() - FILE_NAME_SUFFIX.length()));
+      }
+      catch(NumberFormatException nfe)
+      {
+        throw new IllegalArgumentException(
+          "'" + fileName + "' is not a segment file", nfe);
+      }
+
+      final Segment segment = Segment.open(path, id);
+      segments.add(segment);
+      if(!segment.sealed)
+      {
+        recover(segment);
+        if(i < paths.size() - 1)
+        {
+          segment.seal();
+        }
+      }
+      if(segment.count > 0L)
+      {
+        hasLast = true;
+        lastHi = segment.maxHi;
+        lastLo = segment.maxLo;
+      }
+    }
+  }
+
+  /**
+   * Verifies the records of an unsealed segment and truncates the segment
+   * before the first invalid record.
+   */
+  private void recover(Segment segment)
+  {
+    final ByteBuffer buffer = segment.buffer;
+    byte[] scratch = new byte[0];
+
+    int position = HEADER_SIZE;
+    for(boolean valid = true; valid;)
+    {
+      valid = false;
+      if(segment.capacity - position >= RECORD_OVERHEAD)
+      {
+        final long hi = buffer.getLong(position);
+        final long lo = buffer.getLong(position + 8);
+        final int length = buffer.getInt(position + 16);
+        if(
+          length >= 0
+            && length <= segment.capacity - position - RECORD_OVERHEAD
+            && (
+              segment.count < 1L
+                || Uint128Utils.compare(
+                  hi, lo, segment.maxHi, segment.maxLo) >= 0
+            )
+        )
+        {
+          if(scratch.length < length)
+          {
+            scratch = new byte[Math.max(length, scratch.length << 1)];
+          }
+          final ByteBuffer reader = buffer.duplicate();
+          reader.position(position + RECORD_HEADER_SIZE);
+          reader.get(scratch, 0, length);
+
+          crc.reset();
+          crc.update(toHeaderBytes(hi, lo, length));
+          crc.update(scratch, 0, length);
+          valid = (int)crc.getValue() == reader.getInt();
+          if(valid)
+          {
+            segment.add(hi, lo, position);
+            position += RECORD_OVERHEAD + length;
+          }
+        }
+      }
+    }
+    segment.end = position;
+
+    // Clears the torn tail so that records appended later are not followed
+    // by stale records that could be mistaken for valid ones. Records are
+    // written one after another, so anything written after the last valid
+    // record ends at the first all-zero record header.
+    int clearEnd = position;
+    while(
+      segment.capacity - clearEnd >= RECORD_HEADER_SIZE
+        && !isZeroRecordHeader(buffer, clearEnd)
+    )
+    {
+      final int length = buffer.getInt(clearEnd + 16);
+      clearEnd = (
+        length < 0 || length > segment.capacity - clearEnd - RECORD_OVERHEAD
+          ? segment.capacity
+          : clearEnd + RECORD_OVERHEAD + length
+      );
+    }
+    if(clearEnd > position)
+    {
+      final byte[] zeros = new byte[Math.min(
+        clearEnd - position,
+        CLEAR_CHUNK_SIZE)];
+      final ByteBuffer writer = buffer.duplicate();
+      writer.position(position);
+      for(int remaining = clearEnd - position; remaining > 0;)
+      {
+        final int n = Math.min(remaining, zeros.length);
+        writer.put(zeros, 0, n);
+        remaining -= n;
+      }
+      segment.buffer.force();
+    }
+  }
+
+  /**
+   * Acquires the write lock, which would never be granted if the current
+   * thread holds the read lock in a scan.
+   */
+  private void lockForWrite()
+  {
+    if(lock.getReadHoldCount() > 0)
+    {
+      throw new IllegalStateException(
+        "The log cannot be modified while it is scanned by the same thread");
+    }
+
+    writeLock.lock();
+  }
+
+  private void ensureOpen()
+  {
+    if(closed)
+    {
+      throw new IllegalStateException("The log has been closed");
+    }
+  }
+
+  private void closeSegments()
+    throws IOException
+  {
+    IOException exception = null;
+    for(final Segment segment : segments)
+    {
+      try
+      {
+        segment.close();
+      }
+      catch(IOException ioe)
+      {
+        exception = ioe;
+      }
+    }
+    if(null != exception)
+    {
+      throw exception;
+    }
+  }
+
+  /**
+   * A memory-mapped segment file.
+   */
+  private static final class Segment
+  {
+    static Segment create(Path path, long id, int capacity)
+      throws IOException
+    {
+      final FileChannel channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+      try
+      {
+        final MappedByteBuffer buffer = channel.map(
+          FileChannel.MapMode.READ_WRITE,
+          0L,
+          capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, capacity);
+        buffer.putInt(12, 0);
+        buffer.force();
+
+        final Segment result = new Segment(path, id, channel, buffer);
+        result.end = HEADER_SIZE;
+
+        return result;
+      }
+      catch(IOException | RuntimeException e)
+      {
+        channel.close();
+
+        throw e;
+      }
+    }
+
+    static Segment open(Path path, long id)
+      throws IOException
+    {
+      final FileChannel channel = FileChannel.open(
+        path,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+      try
+      {
+        final long fileSize = channel.size();
+        if(fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE)
+        {
+          throw new IllegalArgumentException(
+            "'" + path + "' is not a segment file");
+        }
+
+        final MappedByteBuffer buffer = channel.map(
+          FileChannel.MapMode.READ_WRITE,
+          0L,
+          fileSize);
+        if(
+          MAGIC != buffer.getInt(0)
+            || VERSION != buffer.getInt(4)
+            || fileSize != buffer.getInt(8)
+        )
+        {
+          throw new IllegalArgumentException(
+            "'" + path + "' is not a segment file");
+        }
+
+        final Segment result = new Segment(path, id, channel, buffer);
+        if(0 != (buffer.getInt(12) & FLAG_SEALED))
+        {
+          result.loadSealed();
+        }
+
+        return result;
+      }
+      catch(IOException | RuntimeException e)
+      {
+        channel.close();
+
+        throw e;
+      }
+    }
+
+    /**
+     * Adds a record to the statistics and the sparse index.
+     */
+    void add(long hi, long lo, int position)
+    {
+      if(0L == count)
+      {
+        minHi = hi;
+        minLo = lo;
+      }
+      maxHi = hi;
+      maxLo = lo;
+
+      if(0L == count % SPARSE_INDEX_INTERVAL)
+      {
+        addIndexEntry(hi, lo, position);
+      }
+
+      ++count;
+    }
+
+    /**
+     * Builds the sparse index of a sealed segment loaded from its header by
+     * walking the records. Scans call this method under the shared lock, so
+     * it is synchronized.
+     *
+     * @throws IllegalArgumentException If the segment is corrupted.
+     */
+    synchronized void ensureIndexed()
+    {
+      if(!indexed)
+      {
+        int position = HEADER_SIZE;
+        for(long i = 0L; i < count; ++i)
+        {
+          final int length = (end - position < RECORD_OVERHEAD
+            ? -1
+            : buffer.getInt(position + 16));
+          if(length < 0 || length > end - position - RECORD_OVERHEAD)
+          {
+            throw new IllegalArgumentException(
+              "'" + path + "' is corrupted");
+          }
+
+          if(0L == i % SPARSE_INDEX_INTERVAL)
+          {
+            addIndexEntry(
+              buffer.getLong(position),
+              buffer.getLong(position + 8),
+              position);
+          }
+          position += RECORD_OVERHEAD + length;
+        }
+        if(position != end)
+        {
+          throw new IllegalArgumentException("'" + path + "' is corrupted");
+        }
+
+        indexed = true;
+      }
+    }
+
+    /**
+     * Finds the position of the last indexed record whose ULID is less than
+     * an ULID, or the position of the first record if there is no such
+     * record.
+     */
+    int findStartPosition(long mostSigBits, long leastSigBits)
+    {
+      int low = 0;
+      int high = indexSize;
+      while(low < high)
+      {
+        final int mid = (low + high) >>> 1;
+        if(
+          Uint128Utils.compare(
+            indexHis[mid], indexLos[mid],
+            mostSigBits, leastSigBits) < 0
+        )
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          high = mid;
+        }
+      }
+
+      return (low > 0 ? indexPositions[low - 1] : HEADER_SIZE);
+    }
+
+    /**
+     * Writes the statistics to the header and marks the segment as sealed.
+     */
+    void seal()
+    {
+      buffer.putLong(16, count);
+      buffer.putLong(24, end);
+      buffer.putLong(32, minHi);
+      buffer.putLong(40, minLo);
+      buffer.putLong(48, maxHi);
+      buffer.putLong(56, maxLo);
+      buffer.putInt(12, FLAG_SEALED);
+      buffer.force();
+      sealed = true;
+    }
+
+    void close()
+      throws IOException
+    {
+      channel.close();
+    }
+
+    private Segment(
+      Path path,
+      long id,
+      FileChannel channel,
+      MappedByteBuffer buffer
+    )
+    {
+      this.path = path;
+      this.id = id;
+      this.channel = channel;
+      this.buffer = buffer;
+      writer = buffer.duplicate();
+      capacity = buffer.capacity();
+      indexHis = new long[0];
+      indexLos = new long[0];
+      indexPositions = new int[0];
+      sealed = false;
+      indexed = true;
+    }
+
+    /**
+     * Reads the statistics of a sealed segment from its header. The sparse
+     * index is built by {@link #ensureIndexed()} when it is needed.
+     */
+    private void loadSealed()
+    {
+      final long sealedCount = buffer.getLong(16);
+      final long sealedEnd = buffer.getLong(24);
+      if(
+        sealedEnd < HEADER_SIZE
+          || sealedEnd > capacity
+          || sealedCount < 0L
+          || sealedCount > (sealedEnd - HEADER_SIZE) / RECORD_OVERHEAD
+          || (0L == sealedCount) != (HEADER_SIZE == sealedEnd)
+      )
+      {
+        throw new IllegalArgumentException("'" + path + "' is corrupted");
+      }
+
+      count = sealedCount;
+      end = (int)sealedEnd;
+      minHi = buffer.getLong(32);
+      minLo = buffer.getLong(40);
+      maxHi = buffer.getLong(48);
+      maxLo = buffer.getLong(56);
+      sealed = true;
+      indexed = false;
+    }
+
+    private void addIndexEntry(long hi, long lo, int position)
+    {
+      if(indexSize == indexPositions.length)
+      {
+        final int newLength = Math.max(16, indexSize << 1);
+        indexHis = Arrays.copyOf(indexHis, newLength);
+        indexLos = Arrays.copyOf(indexLos, newLength);
+        indexPositions = Arrays.copyOf(indexPositions, newLength);
+      }
+      indexHis[indexSize] = hi;
+      indexLos[indexSize] = lo;
+      indexPositions[indexSize] = position;
+      ++indexSize;
+    }
+
+    private final Path path;
+
+    private final long id;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final ByteBuffer writer;
+
+    private final int capacity;
+
+    private int end;
+
+    private long count;
+
+    private long minHi;
+
+    private long minLo;
+
+    private long maxHi;
+
+    private long maxLo;
+
+    private long[] indexHis;
+
+    private long[] indexLos;
+
+    private int[] indexPositions;
+
+    private int indexSize;
+
+    private boolean sealed;
+
+    private boolean indexed;
+  }
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private final ReentrantReadWriteLock lock;
+
+  private final Lock readLock;
+
+  private final Lock writeLock;
+
+  private final List<Segment> segments;
+
+  private final CRC32 crc;
+
+  private boolean hasLast;
+
+  private long lastHi;
+
+  private long lastLo;
+
+  private boolean closed;
+}
@@ -0,0 +1,33 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An interface for a visitor of records scanned by
+ * {@link UlidLog#scan(UlidRange, UlidLogVisitor)}.
+ *
+ * @author Hydrawisk793
+ */
+public interface UlidLogVisitor
+{
+  /**
+   * Visits a record.
+   * <p>
+   * The payload is a read-only view of the mapped segment. It must not be
+   * used after this method returns; copy it if it must be kept.
+   * </p>
+   * <p>
+   * The log is locked for reading during the call, so the visitor must not
+   * modify the log. Methods that modify it throw an
+   * {@link IllegalStateException} when called from the visitor.
+   * </p>
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID of the
+   * record.
+   * @param leastSigBits The least significant 64 bits of the ULID of the
+   * record.
+   * @param payload The payload of the record.
+   * @return {@code true} to continue the scan, {@code false} to stop it.
+   */
+  boolean visit(long mostSigBits, long leastSigBits, ByteBuffer payload);
+}
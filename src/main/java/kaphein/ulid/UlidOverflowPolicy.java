@@ -0,0 +1,24 @@
+package kaphein.ulid;
+
+/**
+ * Behaviors of {@link MonotonicUlidGenerator} when the randomness of the
+ * current timestamp has been used up.
+ *
+ * @author Hydrawisk793
+ */
+public enum UlidOverflowPolicy
+{
+  /**
+   * Generating methods that may return fewer ULIDs stop, and the others
+   * wait until the epoch milli supplier reaches the next millisecond.
+   */
+  WAIT_FOR_NEXT_MILLISECOND,
+
+  /**
+   * The timestamp is advanced to the next millisecond ahead of the epoch
+   * milli supplier with a new randomness, as long as the timestamp stays
+   * within the maximum drift from the supplied time. Beyond the drift, the
+   * generator behaves as in {@link #WAIT_FOR_NEXT_MILLISECOND}.
+   */
+  BORROW_NEXT_MILLISECOND;
+}
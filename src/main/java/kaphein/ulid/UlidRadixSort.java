@@ -0,0 +1,114 @@
+package kaphein.ulid;
+
+/**
+ * A least significant digit radix sort of ULIDs stored as two primitive
+ * arrays. Digits are bytes and are treated as unsigned, so the order is the
+ * same as {@link Ulid#compareTo(Ulid)}.
+ *
+ * @author Hydrawisk793
+ */
+final class UlidRadixSort
+{
+  /**
+   * Sorts ULIDs in ascending order.
+   * <p>
+   * Passes whose digit is the same for every ULID are skipped, which removes
+   * most of the passes over the timestamp bytes of ULIDs created close in
+   * time.
+   * </p>
+   *
+   * @param his The most significant 64 bits of the ULIDs.
+   * @param los The least significant 64 bits of the ULIDs.
+   * @param count The number of ULIDs to sort from index 0.
+   * @param scratchHis A scratch array whose length is at least
+   * {@code count}.
+   * @param scratchLos A scratch array whose length is at least
+   * {@code count}.
+   */
+  public static void sort(
+    long[] his,
+    long[] los,
+    int count,
+    long[] scratchHis,
+    long[] scratchLos
+  )
+  {
+    final int[][] histograms = new int[DIGIT_COUNT][RADIX];
+    for(int i = 0; i < count; ++i)
+    {
+      final long hi = his[i];
+      final long lo = los[i];
+      for(int d = 0; d < 8; ++d)
+      {
+        ++histograms[d][(int)(lo >>> (d << 3)) & 0xFF];
+        ++histograms[d + 8][(int)(hi >>> (d << 3)) & 0xFF];
+      }
+    }
+
+    long[] srcHis = his;
+    long[] srcLos = los;
+    long[] dstHis = scratchHis;
+    long[] dstLos = scratchLos;
+    final int[] offsets = new int[RADIX];
+
+    for(int d = 0; d < DIGIT_COUNT; ++d)
+    {
+      final int[] histogram = histograms[d];
+      if(isTrivial(histogram, count))
+      {
+        continue;
+      }
+
+      for(int b = 0, sum = 0; b < RADIX; ++b)
+      {
+        offsets[b] = sum;
+        sum += histogram[b];
+      }
+
+      final int shift = (d & 7) << 3;
+      final boolean isHighWord = d >= 8;
+      for(int i = 0; i < count; ++i)
+      {
+        final long word = (isHighWord ? srcHis[i] : srcLos[i]);
+        final int position = offsets[(int)(word >>> shift) & 0xFF]++;
+        dstHis[position] = srcHis[i];
+        dstLos[position] = srcLos[i];
+      }
+
+      final long[] tmpHis = srcHis;
+      final long[] tmpLos = srcLos;
+      srcHis = dstHis;
+      srcLos = dstLos;
+      dstHis = tmpHis;
+      dstLos = tmpLos;
+    }
+
+    if(srcHis != his)
+    {
+      System.arraycopy(srcHis, 0, his, 0, count);
+      System.arraycopy(srcLos, 0, los, 0, count);
+    }
+  }
+
+  private static final int RADIX = 256;
+
+  private static final int DIGIT_COUNT = 16;
+
+  private static boolean isTrivial(int[] histogram, int count)
+  {
+    boolean result = false;
+
+    for(int b = 0; !result && b < RADIX; ++b)
+    {
+      result = histogram[b] == count;
+    }
+
+    return result;
+  }
+
+  private UlidRadixSort()
+  {
+    throw new AssertionError(
+      "Class " + getClass().getName() + " cannot be instantiated");
+  }
+}
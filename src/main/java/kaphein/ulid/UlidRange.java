@@ -0,0 +1,299 @@
+package kaphein.ulid;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * An immutable range of ULIDs whose both ends are inclusive.
+ *
+ * @author Hydrawisk793
+ */
+public class UlidRange implements Serializable
+{
+  /**
+   * Creates a range that covers every ULID whose timestamp ranges from
+   * {@code fromTimestamp}, inclusive, to {@code toTimestamp}, inclusive.
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @param toTimestamp The upper bound of timestamps, inclusive.
+   * @return A range of ULIDs.
+   * @throws IllegalArgumentException If a timestamp is out of range or
+   * {@code fromTimestamp} is greater than {@code toTimestamp}.
+   */
+  public static UlidRange byTime(long fromTimestamp, long toTimestamp)
+  {
+    if(
+      fromTimestamp < Ulid.TIMESTAMP_MIN_VALUE
+        || toTimestamp > Ulid.TIMESTAMP_MAX_VALUE
+    )
+    {
+      throw new IllegalArgumentException("The timestamps are out of range");
+    }
+    if(fromTimestamp > toTimestamp)
+    {
+      throw new IllegalArgumentException(
+        "'fromTimestamp' cannot be greater than 'toTimestamp'");
+    }
+
+    return new UlidRange(
+      Uint128Utils.timestampToMostSigBits(fromTimestamp),
+      Ulid.RANDOMNESS_MIN_VALUE_LS_BITS,
+      Uint128Utils.timestampToMostSigBits(toTimestamp)
+        | Ulid.RANDOMNESS_MAX_VALUE_MS_BITS,
+      Ulid.RANDOMNESS_MAX_VALUE_LS_BITS);
+  }
+
+  /**
+   * Constructs a range of ULIDs.
+   *
+   * @param start The first ULID of the range, inclusive.
+   * @param end The last ULID of the range, inclusive.
+   * @throws NullPointerException If {@code start} or {@code end} is
+   * {@code null}.
+   * @throws IllegalArgumentException If {@code start} is greater than
+   * {@code end}.
+   */
+  public UlidRange(Ulid start, Ulid end)
+  {
+    this(
+      Objects.requireNonNull(start, "'start' cannot be null")
+        .getMostSignificantBits(),
+      start.getLeastSignificantBits(),
+      Objects.requireNonNull(end, "'end' cannot be null")
+        .getMostSignificantBits(),
+      end.getLeastSignificantBits());
+  }
+
+  /**
+   * Constructs a range of ULIDs.
+   *
+   * @param startMostSigBits The most significant 64 bits of the first ULID.
+   * @param startLeastSigBits The least significant 64 bits of the first ULID.
+   * @param endMostSigBits The most significant 64 bits of the last ULID.
+   * @param endLeastSigBits The least significant 64 bits of the last ULID.
+   * @throws IllegalArgumentException If the first ULID is greater than the
+   * last ULID.
+   */
+  public UlidRange(
+    long startMostSigBits,
+    long startLeastSigBits,
+    long endMostSigBits,
+    long endLeastSigBits
+  )
+  {
+    if(
+      Uint128Utils.compare(
+        startMostSigBits, startLeastSigBits,
+        endMostSigBits, endLeastSigBits) > 0
+    )
+    {
+      throw new IllegalArgumentException(
+        "'start' cannot be greater than 'end'");
+    }
+
+    this.startMostSigBits = startMostSigBits;
+    this.startLeastSigBits = startLeastSigBits;
+    this.endMostSigBits = endMostSigBits;
+    this.endLeastSigBits = endLeastSigBits;
+  }
+
+  /**
+   * Gets the first ULID of the range.
+   *
+   * @return The first ULID of the range.
+   */
+  public Ulid getStart()
+  {
+    return new Ulid(startMostSigBits, startLeastSigBits);
+  }
+
+  /**
+   * Gets the last ULID of the range.
+   *
+   * @return The last ULID of the range.
+   */
+  public Ulid getEnd()
+  {
+    return new Ulid(endMostSigBits, endLeastSigBits);
+  }
+
+  /**
+   * Gets the most significant 64 bits of the first ULID of the range.
+   *
+   * @return The most significant 64 bits.
+   */
+  public long getStartMostSignificantBits()
+  {
+    return startMostSigBits;
+  }
+
+  /**
+   * Gets the least significant 64 bits of the first ULID of the range.
+   *
+   * @return The least significant 64 bits.
+   */
+  public long getStartLeastSignificantBits()
+  {
+    return startLeastSigBits;
+  }
+
+  /**
+   * Gets the most significant 64 bits of the last ULID of the range.
+   *
+   * @return The most significant 64 bits.
+   */
+  public long getEndMostSignificantBits()
+  {
+    return endMostSigBits;
+  }
+
+  /**
+   * Gets the least significant 64 bits of the last ULID of the range.
+   *
+   * @return The least significant 64 bits.
+   */
+  public long getEndLeastSignificantBits()
+  {
+    return endLeastSigBits;
+  }
+
+  /**
+   * Gets the number of ULIDs in the range.
+   *
+   * @return The number of ULIDs in the range.
+   */
+  public BigInteger getCardinality()
+  {
+    return Uint128Utils.toBigInteger(endMostSigBits, endLeastSigBits)
+      .subtract(
+        Uint128Utils.toBigInteger(startMostSigBits, startLeastSigBits))
+      .add(BigInteger.ONE);
+  }
+
+  /**
+   * Checks if the range contains specified ULID.
+   *
+   * @param ulid An ULID.
+   * @return {@code true} if the range contains the ULID, {@code false}
+   * otherwise.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public boolean contains(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return contains(
+      ulid.getMostSignificantBits(),
+      ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Checks if the range contains specified ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} if the range contains the ULID, {@code false}
+   * otherwise.
+   */
+  public boolean contains(long mostSigBits, long leastSigBits)
+  {
+    return Uint128Utils.compare(
+      mostSigBits, leastSigBits,
+      startMostSigBits, startLeastSigBits) >= 0
+      && Uint128Utils.compare(
+        mostSigBits, leastSigBits,
+        endMostSigBits, endLeastSigBits) <= 0;
+  }
+
+  /**
+   * Checks if the range overlaps with a range whose both ends are inclusive.
+   *
+   * @param startMostSigBits The most significant 64 bits of the first ULID of
+   * the other range.
+   * @param startLeastSigBits The least significant 64 bits of the first ULID
+   * of the other range.
+   * @param endMostSigBits The most significant 64 bits of the last ULID of the
+   * other range.
+   * @param endLeastSigBits The least significant 64 bits of the last ULID of
+   * the other range.
+   * @return {@code true} if the ranges overlap, {@code false} otherwise.
+   */
+  public boolean overlaps(
+    long startMostSigBits,
+    long startLeastSigBits,
+    long endMostSigBits,
+    long endLeastSigBits
+  )
+  {
+    return Uint128Utils.compare(
+      startMostSigBits, startLeastSigBits,
+      this.endMostSigBits, this.endLeastSigBits) <= 0
+      && Uint128Utils.compare(
+        endMostSigBits, endLeastSigBits,
+        this.startMostSigBits, this.startLeastSigBits) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    boolean result = this == obj;
+
+    if(!result)
+    {
+      result = obj instanceof UlidRange;
+      if(result)
+      {
+        final UlidRange other = (UlidRange)obj;
+
+        result = startMostSigBits == other.startMostSigBits
+          && startLeastSigBits == other.startLeastSigBits
+          && endMostSigBits == other.endMostSigBits
+          && endLeastSigBits == other.endLeastSigBits;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result
+      + (int)(startMostSigBits ^ (startMostSigBits >>> 32));
+    result = prime * result
+      + (int)(startLeastSigBits ^ (startLeastSigBits >>> 32));
+    result = prime * result + (int)(endMostSigBits ^ (endMostSigBits >>> 32));
+    result = prime * result
+      + (int)(endLeastSigBits ^ (endLeastSigBits >>> 32));
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "[" + getStart() + ", " + getEnd() + "]";
+  }
+
+  private static final long serialVersionUID = -2311467320375624914L;
+
+  private final long startMostSigBits;
+
+  private final long startLeastSigBits;
+
+  private final long endMostSigBits;
+
+  private final long endLeastSigBits;
+}
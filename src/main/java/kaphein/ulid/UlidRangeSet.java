@@ -0,0 +1,510 @@
+package kaphein.ulid;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * <p>
+ * A set of ULIDs that stores its members as sorted, disjoint ranges.
+ * </p>
+ * <p>
+ * ULIDs are treated as 128-bit unsigned integers. Adding a ULID or a range
+ * that overlaps or touches existing ranges merges them into one range. A run
+ * of ULIDs where each one is the previous one plus one, such as the output of
+ * one {@link MonotonicUlidGenerator#generate(int)} call, therefore takes a
+ * single range no matter how long it is.
+ * </p>
+ * <p>
+ * Adding ULIDs in ascending order appends to or extends the last range without
+ * searching.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidRangeSet implements Iterable<UlidRange>
+{
+  /**
+   * Constructs an empty instance of {@link UlidRangeSet}.
+   */
+  public UlidRangeSet()
+  {
+    clear();
+  }
+
+  /**
+   * Gets the number of disjoint ranges in the set.
+   *
+   * @return The number of ranges.
+   */
+  public int getRangeCount()
+  {
+    return rangeCount;
+  }
+
+  /**
+   * Gets the range at specified index. Ranges are sorted in ascending order.
+   *
+   * @param index An index.
+   * @return The range.
+   * @throws IndexOutOfBoundsException If {@code index} is out of bounds.
+   */
+  public UlidRange getRange(int index)
+  {
+    if(index < 0 || index >= rangeCount)
+    {
+      throw new IndexOutOfBoundsException("'index' is out of bounds");
+    }
+
+    return new UlidRange(
+      startHis[index], startLos[index],
+      endHis[index], endLos[index]);
+  }
+
+  /**
+   * Checks if the set is empty.
+   *
+   * @return {@code true} if the set is empty, {@code false} otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return 0 == rangeCount;
+  }
+
+  /**
+   * Gets the number of ULIDs in the set.
+   *
+   * @return The number of ULIDs in the set.
+   */
+  public BigInteger getCardinality()
+  {
+    BigInteger result = BigInteger.ZERO;
+
+    for(int i = 0; i < rangeCount; ++i)
+    {
+      result = result
+        .add(Uint128Utils.toBigInteger(endHis[i], endLos[i]))
+        .subtract(Uint128Utils.toBigInteger(startHis[i], startLos[i]))
+        .add(BigInteger.ONE);
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks if the set contains specified ULID.
+   *
+   * @param ulid An ULID.
+   * @return {@code true} if the set contains the ULID, {@code false}
+   * otherwise.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public boolean contains(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return contains(
+      ulid.getMostSignificantBits(),
+      ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Checks if the set contains specified ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} if the set contains the ULID, {@code false}
+   * otherwise.
+   */
+  public boolean contains(long mostSigBits, long leastSigBits)
+  {
+    final int index = findFirstEndNotBefore(mostSigBits, leastSigBits);
+
+    return index < rangeCount
+      && Uint128Utils.compare(
+        startHis[index], startLos[index],
+        mostSigBits, leastSigBits) <= 0;
+  }
+
+  /**
+   * Adds an ULID.
+   *
+   * @param ulid An ULID to add.
+   * @return {@code true} if the set did not contain the ULID, {@code false}
+   * otherwise.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   */
+  public boolean add(Ulid ulid)
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    return add(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Adds an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} if the set did not contain the ULID, {@code false}
+   * otherwise.
+   */
+  public boolean add(long mostSigBits, long leastSigBits)
+  {
+    return addRange(mostSigBits, leastSigBits, mostSigBits, leastSigBits);
+  }
+
+  /**
+   * Adds every ULID in specified collection.
+   *
+   * @param ulids ULIDs to add.
+   * @return {@code true} if the set has been changed, {@code false} otherwise.
+   * @throws NullPointerException If {@code ulids} is {@code null} or contains
+   * {@code null}.
+   */
+  public boolean addAll(Iterable<? extends Ulid> ulids)
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+
+    boolean result = false;
+
+    for(final Ulid ulid : ulids)
+    {
+      result |= add(ulid);
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds every ULID in specified range.
+   *
+   * @param range A range of ULIDs to add.
+   * @return {@code true} if the set has been changed, {@code false} otherwise.
+   * @throws NullPointerException If {@code range} is {@code null}.
+   */
+  public boolean addRange(UlidRange range)
+  {
+    Objects.requireNonNull(range, "'range' cannot be null");
+
+    return addRange(
+      range.getStartMostSignificantBits(),
+      range.getStartLeastSignificantBits(),
+      range.getEndMostSignificantBits(),
+      range.getEndLeastSignificantBits());
+  }
+
+  /**
+   * Adds every ULID in a range whose both ends are inclusive.
+   *
+   * @param startMostSigBits The most significant 64 bits of the first ULID.
+   * @param startLeastSigBits The least significant 64 bits of the first ULID.
+   * @param endMostSigBits The most significant 64 bits of the last ULID.
+   * @param endLeastSigBits The least significant 64 bits of the last ULID.
+   * @return {@code true} if the set has been changed, {@code false} otherwise.
+   * @throws IllegalArgumentException If the first ULID is greater than the
+   * last ULID.
+   */
+  public boolean addRange(
+    long startMostSigBits,
+    long startLeastSigBits,
+    long endMostSigBits,
+    long endLeastSigBits
+  )
+  {
+    if(
+      Uint128Utils.compare(
+        startMostSigBits, startLeastSigBits,
+        endMostSigBits, endLeastSigBits) > 0
+    )
+    {
+      throw new IllegalArgumentException(
+        "'start' cannot be greater than 'end'");
+    }
+
+    final boolean result;
+    final int last = rangeCount - 1;
+
+    if(
+      last >= 0
+        && Uint128Utils.compare(
+          startMostSigBits, startLeastSigBits,
+          endHis[last], endLos[last]) > 0
+    )
+    {
+      // The range is after every existing range.
+      if(
+        isSuccessor(
+          startMostSigBits, startLeastSigBits,
+          endHis[last], endLos[last])
+      )
+      {
+        endHis[last] = endMostSigBits;
+        endLos[last] = endLeastSigBits;
+      }
+      else
+      {
+        insertRangeAt(
+          rangeCount,
+          startMostSigBits, startLeastSigBits,
+          endMostSigBits, endLeastSigBits);
+      }
+
+      result = true;
+    }
+    else
+    {
+      result = mergeRange(
+        startMostSigBits, startLeastSigBits,
+        endMostSigBits, endLeastSigBits);
+    }
+
+    if(result)
+    {
+      ++modCount;
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes every ULID from the set.
+   */
+  public void clear()
+  {
+    startHis = new long[INITIAL_CAPACITY];
+    startLos = new long[INITIAL_CAPACITY];
+    endHis = new long[INITIAL_CAPACITY];
+    endLos = new long[INITIAL_CAPACITY];
+    rangeCount = 0;
+    ++modCount;
+  }
+
+  /**
+   * Gets an iterator over the ranges of the set in ascending order.
+   *
+   * @return An iterator over the ranges.
+   */
+  @Override
+  public Iterator<UlidRange> iterator()
+  {
+    return new Iterator<UlidRange>()
+    {
+      @Override
+      public boolean hasNext()
+      {
+        return index < rangeCount;
+      }
+
+      @Override
+      public UlidRange next()
+      {
+        if(modCount != expectedModCount)
+        {
+          throw new ConcurrentModificationException();
+        }
+        if(!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+
+        return getRange(index++);
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+
+      private final int expectedModCount = modCount;
+
+      private int index = 0;
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    final StringBuilder builder = new StringBuilder("[");
+    for(int i = 0; i < rangeCount; ++i)
+    {
+      if(i > 0)
+      {
+        builder.append(", ");
+      }
+
+      builder.append(getRange(i));
+    }
+
+    return builder.append(']').toString();
+  }
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  /**
+   * Checks if {@code (hi, lo)} is {@code (prevHi, prevLo) + 1}.
+   */
+  private static boolean isSuccessor(
+    long hi,
+    long lo,
+    long prevHi,
+    long prevLo
+  )
+  {
+    return lo == prevLo + 1L && hi == (0L == lo ? prevHi + 1L : prevHi);
+  }
+
+  /**
+   * Finds the index of the first range whose end is greater than or equal to
+   * specified ULID.
+   */
+  private int findFirstEndNotBefore(long hi, long lo)
+  {
+    int low = 0;
+    int high = rangeCount;
+
+    while(low < high)
+    {
+      final int mid = (low + high) >>> 1;
+
+      if(Uint128Utils.compare(endHis[mid], endLos[mid], hi, lo) < 0)
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  private boolean mergeRange(
+    long startHi,
+    long startLo,
+    long endHi,
+    long endLo
+  )
+  {
+    // The first range that overlaps or touches the new range.
+    int first = findFirstEndNotBefore(startHi, startLo);
+    if(
+      first > 0
+        && isSuccessor(startHi, startLo, endHis[first - 1], endLos[first - 1])
+    )
+    {
+      --first;
+    }
+
+    // The range after the last range that overlaps or touches the new range.
+    int last = first;
+    while(
+      last < rangeCount
+        && (Uint128Utils
+          .compare(startHis[last], startLos[last], endHi, endLo) <= 0
+          || isSuccessor(startHis[last], startLos[last], endHi, endLo))
+    )
+    {
+      ++last;
+    }
+
+    boolean result = true;
+
+    if(first == last)
+    {
+      insertRangeAt(first, startHi, startLo, endHi, endLo);
+    }
+    else
+    {
+      long newStartHi = startHis[first];
+      long newStartLo = startLos[first];
+      if(Uint128Utils.compare(startHi, startLo, newStartHi, newStartLo) < 0)
+      {
+        newStartHi = startHi;
+        newStartLo = startLo;
+      }
+
+      long newEndHi = endHis[last - 1];
+      long newEndLo = endLos[last - 1];
+      if(Uint128Utils.compare(endHi, endLo, newEndHi, newEndLo) > 0)
+      {
+        newEndHi = endHi;
+        newEndLo = endLo;
+      }
+
+      result = last - first > 1
+        || newStartHi != startHis[first]
+        || newStartLo != startLos[first]
+        || newEndHi != endHis[first]
+        || newEndLo != endLos[first];
+
+      startHis[first] = newStartHi;
+      startLos[first] = newStartLo;
+      endHis[first] = newEndHi;
+      endLos[first] = newEndLo;
+
+      final int moved = rangeCount - last;
+      System.arraycopy(startHis, last, startHis, first + 1, moved);
+      System.arraycopy(startLos, last, startLos, first + 1, moved);
+      System.arraycopy(endHis, last, endHis, first + 1, moved);
+      System.arraycopy(endLos, last, endLos, first + 1, moved);
+      rangeCount -= last - first - 1;
+    }
+
+    return result;
+  }
+
+  private void insertRangeAt(
+    int index,
+    long startHi,
+    long startLo,
+    long endHi,
+    long endLo
+  )
+  {
+    if(rangeCount == startHis.length)
+    {
+      final int newCapacity = startHis.length << 1;
+
+      startHis = Arrays.copyOf(startHis, newCapacity);
+      startLos = Arrays.copyOf(startLos, newCapacity);
+      endHis = Arrays.copyOf(endHis, newCapacity);
+      endLos = Arrays.copyOf(endLos, newCapacity);
+    }
+
+    final int moved = rangeCount - index;
+    System.arraycopy(startHis, index, startHis, index + 1, moved);
+    System.arraycopy(startLos, index, startLos, index + 1, moved);
+    System.arraycopy(endHis, index, endHis, index + 1, moved);
+    System.arraycopy(endLos, index, endLos, index + 1, moved);
+
+    startHis[index] = startHi;
+    startLos[index] = startLo;
+    endHis[index] = endHi;
+    endLos[index] = endLo;
+    ++rangeCount;
+  }
+
+  private long[] startHis;
+
+  private long[] startLos;
+
+  private long[] endHis;
+
+  private long[] endLos;
+
+  private int rangeCount;
+
+  private int modCount;
+}
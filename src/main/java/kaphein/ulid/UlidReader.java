@@ -0,0 +1,404 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Reads ULIDs from an {@link InputStream} or a {@link ReadableByteChannel}
+ * in a {@link UlidFormat}.
+ * </p>
+ * <p>
+ * The input is read into a large internal buffer and decoded in place. No
+ * string or byte array is created per ULID. In the text formats, the last
+ * line may lack a line terminator.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidReader implements Closeable
+{
+  /**
+   * Constructs an instance of {@link UlidReader} that reads from a stream.
+   *
+   * @param in An input stream.
+   * @param format The format of the input.
+   * @throws NullPointerException If {@code in} or {@code format} is
+   * {@code null}.
+   */
+  public UlidReader(InputStream in, UlidFormat format)
+  {
+    this(Objects.requireNonNull(in, "'in' cannot be null"), null, format, 0L);
+  }
+
+  /**
+   * Constructs an instance of {@link UlidReader} that reads from a blocking
+   * channel.
+   *
+   * @param channel A readable channel.
+   * @param format The format of the input.
+   * @throws NullPointerException If {@code channel} or {@code format} is
+   * {@code null}.
+   */
+  public UlidReader(ReadableByteChannel channel, UlidFormat format)
+  {
+    this(
+      null,
+      Objects.requireNonNull(channel, "'channel' cannot be null"),
+      format,
+      0L);
+  }
+
+  /**
+   * Gets the format of the input.
+   *
+   * @return The format of the input.
+   */
+  public UlidFormat getFormat()
+  {
+    return format;
+  }
+
+  /**
+   * Reads an ULID.
+   *
+   * @return An ULID, or {@code null} if the end of the input has been
+   * reached.
+   * @throws IllegalArgumentException If the input is malformed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Ulid read()
+    throws IOException
+  {
+    return (next() ? new Ulid(mostSigBits, leastSigBits) : null);
+  }
+
+  /**
+   * Reads ULIDs into an array.
+   *
+   * @param ulids An array to store ULIDs.
+   * @param offset The index of the first ULID to store.
+   * @param length The maximum number of ULIDs to read.
+   * @return The number of read ULIDs, or {@code -1} if {@code length} is
+   * positive and the end of the input has been reached.
+   * @throws NullPointerException If {@code ulids} is {@code null}.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is
+   * out of range.
+   * @throws IllegalArgumentException If the input is malformed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public int read(Ulid[] ulids, int offset, int length)
+    throws IOException
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+    ArrayUtils.checkRange(ulids.length, offset, length);
+
+    int result = 0;
+    while(result < length && next())
+    {
+      ulids[offset + result] = new Ulid(mostSigBits, leastSigBits);
+      ++result;
+    }
+
+    return (length > 0 && 0 == result ? -1 : result);
+  }
+
+  /**
+   * Reads ULIDs into an array of pairs of the most significant 64 bits and
+   * the least significant 64 bits.
+   *
+   * @param hiLo An array to store {@code [mostSigBits0, leastSigBits0,
+   * mostSigBits1, leastSigBits1, ...]}.
+   * @param offset The index to store the most significant 64 bits of the
+   * first ULID.
+   * @param count The maximum number of ULIDs to read.
+   * @return The number of read ULIDs, or {@code -1} if {@code count} is
+   * positive and the end of the input has been reached.
+   * @throws NullPointerException If {@code hiLo} is {@code null}.
+   * @throws IllegalArgumentException If {@code count} is negative or the
+   * input is malformed.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code count} is
+   * out of range.
+   * @throws IOException If an I/O error occurs.
+   */
+  public int read(long[] hiLo, int offset, int count)
+    throws IOException
+  {
+    Objects.requireNonNull(hiLo, "'hiLo' cannot be null");
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+    ArrayUtils.checkRange(hiLo.length, offset, count << 1);
+
+    int result = 0;
+    for(int i = offset; result < count && next(); i += 2)
+    {
+      hiLo[i] = mostSigBits;
+      hiLo[i + 1] = leastSigBits;
+      ++result;
+    }
+
+    return (count > 0 && 0 == result ? -1 : result);
+  }
+
+  /**
+   * Closes the underlying stream.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close()
+    throws IOException
+  {
+    if(null != in)
+    {
+      in.close();
+    }
+    else
+    {
+      channel.close();
+    }
+  }
+
+  /**
+   * Constructs an instance of {@link UlidReader} that reads a part of a file
+   * starting at {@code startOffset}.
+   *
+   * <p>Errors report positions relative to the whole file. Line numbers are
+   * only reported if {@code startOffset} is zero because the number of lines
+   * before the part is unknown.</p>
+   */
+  UlidReader(ReadableByteChannel channel, UlidFormat format, long startOffset)
+  {
+    this(
+      null,
+      Objects.requireNonNull(channel, "'channel' cannot be null"),
+      format,
+      startOffset);
+  }
+
+  private UlidReader(
+    InputStream in,
+    ReadableByteChannel channel,
+    UlidFormat format,
+    long startOffset
+  )
+  {
+    if(startOffset < 0L)
+    {
+      throw new IllegalArgumentException("'startOffset' cannot be negative");
+    }
+
+    this.format = Objects.requireNonNull(format, "'format' cannot be null");
+    this.in = in;
+    this.channel = channel;
+    this.startOffset = startOffset;
+    buffer = new byte[UlidWriter.BUFFER_SIZE];
+    byteBuffer = ByteBuffer.wrap(buffer);
+    position = 0;
+    limit = 0;
+    endOfInput = false;
+    readCount = 0L;
+    discardedByteCount = 0L;
+  }
+
+  /**
+   * Decodes the next ULID into {@link #mostSigBits} and
+   * {@link #leastSigBits}.
+   *
+   * @return {@code false} if the end of the input has been reached.
+   */
+  private boolean next()
+    throws IOException
+  {
+    final boolean result;
+
+    if(UlidFormat.BINARY != format)
+    {
+      result = nextLine();
+    }
+    else
+    {
+      fill(Ulid.BYTES);
+      result = position < limit;
+      if(result)
+      {
+        if(limit - position < Ulid.BYTES)
+        {
+          throw new IllegalArgumentException("The input is truncated");
+        }
+
+        mostSigBits = byteBuffer.getLong(position);
+        leastSigBits = byteBuffer.getLong(position + 8);
+        position += Ulid.BYTES;
+      }
+    }
+
+    if(result)
+    {
+      ++readCount;
+    }
+
+    return result;
+  }
+
+  private boolean nextLine()
+    throws IOException
+  {
+    final int length = (UlidFormat.TEXT == format
+      ? Ulid.ENCODED_LENGTH
+      : UlidWriter.HEX_LENGTH);
+    fill(length + 2);
+
+    final boolean result = position < limit;
+    if(result)
+    {
+      if(limit - position < length)
+      {
+        throw newMalformedLineException();
+      }
+
+      long hi = 0L;
+      long lo = 0L;
+      if(UlidFormat.TEXT == format)
+      {
+        for(int i = position, end = i + length; i < end; ++i)
+        {
+          final int value = CrockfordBase32Codec.decodeChar(buffer[i]);
+          if(value < 0 || (i == position && value > 7))
+          {
+            throw newMalformedLineException();
+          }
+
+          hi = (hi << 5) | (lo >>> 59);
+          lo = (lo << 5) | value;
+        }
+      }
+      else
+      {
+        for(int i = position, end = i + length; i < end; ++i)
+        {
+          final int value = Character.digit(buffer[i], 16);
+          if(value < 0)
+          {
+            throw newMalformedLineException();
+          }
+
+          hi = (hi << 4) | (lo >>> 60);
+          lo = (lo << 4) | value;
+        }
+      }
+
+      int p = position + length;
+      if(p < limit && '\r' == buffer[p])
+      {
+        ++p;
+      }
+      if(p < limit)
+      {
+        if('\n' != buffer[p])
+        {
+          throw newMalformedLineException();
+        }
+        ++p;
+      }
+      else if(p > position + length)
+      {
+        // A line cannot end with '\r' only.
+        throw newMalformedLineException();
+      }
+
+      mostSigBits = hi;
+      leastSigBits = lo;
+      position = p;
+    }
+
+    return result;
+  }
+
+  private IllegalArgumentException newMalformedLineException()
+  {
+    final long offset = startOffset + discardedByteCount + position;
+
+    return new IllegalArgumentException(
+      (0L == startOffset
+        ? "Line " + (readCount + 1L) + " at offset " + offset
+        : "The line at offset " + offset)
+        + " is not a valid ULID");
+  }
+
+  /**
+   * Reads the input until at least {@code size} bytes are buffered or the
+   * end of the input is reached.
+   */
+  private void fill(int size)
+    throws IOException
+  {
+    if(limit - position < size && !endOfInput)
+    {
+      final int remaining = limit - position;
+      discardedByteCount += position;
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+      position = 0;
+      limit = remaining;
+
+      while(limit < size && !endOfInput)
+      {
+        final int count;
+        if(null != in)
+        {
+          count = in.read(buffer, limit, buffer.length - limit);
+        }
+        else
+        {
+          byteBuffer.limit(buffer.length).position(limit);
+          count = channel.read(byteBuffer);
+          byteBuffer.clear();
+        }
+
+        if(count < 0)
+        {
+          endOfInput = true;
+        }
+        else
+        {
+          limit += count;
+        }
+      }
+    }
+  }
+
+  private final UlidFormat format;
+
+  private final InputStream in;
+
+  private final ReadableByteChannel channel;
+
+  private final long startOffset;
+
+  private final byte[] buffer;
+
+  private final ByteBuffer byteBuffer;
+
+  private int position;
+
+  private int limit;
+
+  private boolean endOfInput;
+
+  private long readCount;
+
+  private long discardedByteCount;
+
+  private long mostSigBits;
+
+  private long leastSigBits;
+}
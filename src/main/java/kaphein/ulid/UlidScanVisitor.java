@@ -0,0 +1,20 @@
+package kaphein.ulid;
+
+/**
+ * An interface for a visitor of ULIDs found by {@link UlidScanner}.
+ *
+ * @author Hydrawisk793
+ */
+public interface UlidScanVisitor
+{
+  /**
+   * Visits an ULID found in the input.
+   *
+   * @param offset The offset of the first character of the ULID from the
+   * start of the input.
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @return {@code true} to continue the scan, {@code false} to stop it.
+   */
+  boolean visit(long offset, long mostSigBits, long leastSigBits);
+}
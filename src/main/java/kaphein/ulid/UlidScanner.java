@@ -0,0 +1,364 @@
+package kaphein.ulid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Finds Crockford Base32-encoded ULIDs in arbitrary ASCII-compatible text
+ * such as log files.
+ * </p>
+ * <p>
+ * A token is reported if it consists of exactly {@value Ulid#ENCODED_LENGTH}
+ * Crockford Base32 characters, in either case, its first character is not
+ * greater than {@code 7}, and it is delimited by characters other than
+ * {@code [0-9A-Za-z_]} or by the ends of the input. For example, ULIDs in
+ * {@code "id=01ARZ3NDEKTSV4RRFFQ69G5FAV,"} and
+ * {@code "/01ARZ3NDEKTSV4RRFFQ69G5FAV/"} are found, but not in
+ * {@code "x01ARZ3NDEKTSV4RRFFQ69G5FAV"}.
+ * </p>
+ * <p>
+ * The input is consumed byte by byte by a table-driven state machine that
+ * decodes a token while matching it, so tokens split across buffer or chunk
+ * boundaries are found and no string is created.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidScanner
+{
+  /**
+   * Constructs an instance of {@link UlidScanner} that reports every ULID.
+   */
+  public UlidScanner()
+  {
+    this(Ulid.TIMESTAMP_MIN_VALUE, Ulid.TIMESTAMP_MAX_VALUE);
+  }
+
+  /**
+   * Constructs an instance of {@link UlidScanner} that reports ULIDs whose
+   * timestamps are in a range.
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @param toTimestamp The upper bound of timestamps, inclusive.
+   * @throws IllegalArgumentException If {@code fromTimestamp} is greater than
+   * {@code toTimestamp}.
+   */
+  public UlidScanner(long fromTimestamp, long toTimestamp)
+  {
+    if(fromTimestamp > toTimestamp)
+    {
+      throw new IllegalArgumentException(
+        "'fromTimestamp' cannot be greater than 'toTimestamp'");
+    }
+
+    this.fromTimestamp = fromTimestamp;
+    this.toTimestamp = toTimestamp;
+  }
+
+  /**
+   * Scans the remaining bytes of a buffer. The position of the buffer is not
+   * changed.
+   *
+   * @param buffer A buffer.
+   * @param visitor A visitor of the ULIDs. Offsets are relative to the
+   * position of the buffer.
+   * @return The number of visited ULIDs.
+   * @throws NullPointerException If {@code buffer} or {@code visitor} is
+   * {@code null}.
+   */
+  public long scan(ByteBuffer buffer, UlidScanVisitor visitor)
+  {
+    Objects.requireNonNull(buffer, "'buffer' cannot be null");
+    Objects.requireNonNull(visitor, "'visitor' cannot be null");
+
+    final Matcher matcher = new Matcher(visitor);
+    if(matcher.feed(buffer))
+    {
+      matcher.finish();
+    }
+
+    return matcher.visitedCount;
+  }
+
+  /**
+   * Scans a channel until its end.
+   *
+   * @param channel A channel.
+   * @param visitor A visitor of the ULIDs. Offsets are relative to the
+   * current position of the channel.
+   * @return The number of visited ULIDs.
+   * @throws NullPointerException If {@code channel} or {@code visitor} is
+   * {@code null}.
+   * @throws IOException If an I/O error occurs.
+   */
+  public long scan(ReadableByteChannel channel, UlidScanVisitor visitor)
+    throws IOException
+  {
+    Objects.requireNonNull(channel, "'channel' cannot be null");
+    Objects.requireNonNull(visitor, "'visitor' cannot be null");
+
+    final Matcher matcher = new Matcher(visitor);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    boolean running = true;
+    while(running)
+    {
+      buffer.clear();
+      if(channel.read(buffer) < 0)
+      {
+        matcher.finish();
+        running = false;
+      }
+      else
+      {
+        buffer.flip();
+        running = matcher.feed(buffer);
+      }
+    }
+
+    return matcher.visitedCount;
+  }
+
+  /**
+   * Scans a file by mapping it into memory.
+   *
+   * @param path A path of the file.
+   * @param visitor A visitor of the ULIDs. Offsets are relative to the start
+   * of the file.
+   * @return The number of visited ULIDs.
+   * @throws NullPointerException If {@code path} or {@code visitor} is
+   * {@code null}.
+   * @throws IOException If an I/O error occurs.
+   */
+  public long scan(Path path, UlidScanVisitor visitor)
+    throws IOException
+  {
+    Objects.requireNonNull(path, "'path' cannot be null");
+    Objects.requireNonNull(visitor, "'visitor' cannot be null");
+
+    final Matcher matcher = new Matcher(visitor);
+    try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      final long size = channel.size();
+      boolean running = true;
+      for(long position = 0L; running && position < size;)
+      {
+        final long length = Math.min(MAX_CHUNK_SIZE, size - position);
+        running = matcher.feed(
+          channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        position += length;
+      }
+      if(running)
+      {
+        matcher.finish();
+      }
+    }
+
+    return matcher.visitedCount;
+  }
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+  /**
+   * The maximum value of the first character of a token. The first character
+   * holds only 3 bits because a token has 130 bits.
+   */
+  private static final int MAX_FIRST_VALUE = 7;
+
+  /**
+   * The character class of word characters that cannot appear in a token.
+   */
+  private static final int CLASS_WORD = 32;
+
+  /**
+   * The character class of characters that delimit tokens.
+   */
+  private static final int CLASS_DELIMITER = 33;
+
+  /**
+   * The state after a delimiter or at the start of the input. The states
+   * from 1 to {@link Ulid#ENCODED_LENGTH} are the number of characters of
+   * the current token.
+   */
+  private static final int STATE_DELIMITED = 0;
+
+  /**
+   * The state in a word that is not a token.
+   */
+  private static final int STATE_SKIPPING = Ulid.ENCODED_LENGTH + 1;
+
+  private static final int STATE_COUNT = STATE_SKIPPING + 1;
+
+  /**
+   * The class of each byte: the value of a Crockford Base32 character,
+   * {@link #CLASS_WORD} or {@link #CLASS_DELIMITER}.
+   */
+  private static final byte[] CLASSES = new byte[256];
+
+  /**
+   * The next state of each state for a character, a word character and a
+   * delimiter.
+   */
+  private static final byte[] TRANSITIONS = new byte[STATE_COUNT * 3];
+
+  static
+  {
+    for(int b = 0; b < CLASSES.length; ++b)
+    {
+      final int value = CrockfordBase32Codec.decodeChar(b);
+      if(value >= 0)
+      {
+        CLASSES[b] = (byte)value;
+      }
+      else if(
+        ('0' <= b && b <= '9')
+          || ('A' <= b && b <= 'Z')
+          || ('a' <= b && b <= 'z')
+          || '_' == b
+      )
+      {
+        CLASSES[b] = CLASS_WORD;
+      }
+      else
+      {
+        CLASSES[b] = CLASS_DELIMITER;
+      }
+    }
+
+    for(int state = 0; state < STATE_COUNT; ++state)
+    {
+      TRANSITIONS[state * 3] = (byte)(state < Ulid.ENCODED_LENGTH
+        ? state + 1
+        : STATE_SKIPPING);
+      TRANSITIONS[state * 3 + 1] = STATE_SKIPPING;
+      TRANSITIONS[state * 3 + 2] = STATE_DELIMITED;
+    }
+  }
+
+  /**
+   * The state of a scan.
+   */
+  private final class Matcher
+  {
+    Matcher(UlidScanVisitor visitor)
+    {
+      this.visitor = visitor;
+      state = STATE_DELIMITED;
+      offset = 0L;
+      visitedCount = 0L;
+    }
+
+    /**
+     * Consumes the remaining bytes of a buffer.
+     *
+     * @return {@code false} if the visitor stopped the scan.
+     */
+    boolean feed(ByteBuffer buffer)
+    {
+      boolean result = true;
+
+      int s = state;
+      long h = hi;
+      long l = lo;
+      final int start = buffer.position();
+      final int limit = buffer.limit();
+      for(int i = start; result && i < limit; ++i)
+      {
+        final int cls = CLASSES[buffer.get(i) & 0xFF];
+        final int kind = (cls < CLASS_WORD ? 0 : cls - (CLASS_WORD - 1));
+        final int next = TRANSITIONS[s * 3 + kind];
+        if(0 == kind)
+        {
+          if(1 == next)
+          {
+            tokenOffset = offset + (i - start);
+            firstValue = cls;
+            h = 0L;
+            l = 0L;
+          }
+          h = (h << 5) | (l >>> 59);
+          l = (l << 5) | cls;
+        }
+        else if(Ulid.ENCODED_LENGTH == s && STATE_DELIMITED == next)
+        {
+          result = emit(h, l);
+        }
+        s = next;
+      }
+
+      offset += limit - start;
+      state = s;
+      hi = h;
+      lo = l;
+
+      return result;
+    }
+
+    /**
+     * Handles the end of the input.
+     */
+    void finish()
+    {
+      if(Ulid.ENCODED_LENGTH == state)
+      {
+        emit(hi, lo);
+      }
+      state = STATE_DELIMITED;
+    }
+
+    /**
+     * Reports a complete token.
+     *
+     * @param h The most significant 64 bits of the value of the token.
+     * @param l The least significant 64 bits of the value of the token.
+     * @return {@code false} if the visitor stopped the scan.
+     */
+    private boolean emit(long h, long l)
+    {
+      boolean result = true;
+
+      final long timestamp = h >>> 16;
+      if(
+        firstValue <= MAX_FIRST_VALUE
+          && fromTimestamp <= timestamp
+          && timestamp <= toTimestamp
+      )
+      {
+        ++visitedCount;
+        result = visitor.visit(tokenOffset, h, l);
+      }
+
+      return result;
+    }
+
+    private final UlidScanVisitor visitor;
+
+    private int state;
+
+    private long offset;
+
+    private long tokenOffset;
+
+    private int firstValue;
+
+    private long hi;
+
+    private long lo;
+
+    private long visitedCount;
+  }
+
+  private final long fromTimestamp;
+
+  private final long toTimestamp;
+}
@@ -0,0 +1,527 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Encodes sequences of ULIDs compactly by storing each ULID as a delta from
+ * the previous one.
+ * </p>
+ * <p>
+ * The encoded form is a series of tokens. Each token starts with a
+ * variable-length integer whose low 2 bits are a tag:
+ * </p>
+ * <ul>
+ * <li>A run: the next {@code n} ULIDs have the same timestamp as the previous
+ * ULID and randomness greater by one, as created by
+ * {@link MonotonicUlidGenerator}. A whole run takes a single token.</li>
+ * <li>A new timestamp: the zig-zag encoded timestamp delta, followed by the
+ * 10 bytes of the randomness.</li>
+ * <li>The same timestamp: the zig-zag encoded randomness delta.</li>
+ * <li>The end of the sequence.</li>
+ * </ul>
+ * <p>
+ * The first ULID is encoded as a delta from {@link Ulid#MIN_VALUE}. Any
+ * sequence can be encoded, but sorted sequences are the most compact: a
+ * monotonic batch takes a few bytes per millisecond.
+ * </p>
+ * <p>
+ * This class is thread-safe. Its encoders and decoders are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidSequenceCodec
+{
+  /**
+   * The number of bytes an {@link Encoder} needs in its destination to accept
+   * any ULID or to finish.
+   */
+  public static final int MAX_WRITE_SIZE = 2 * VarIntUtils.MAX_VAR_LONG_SIZE
+    + UlidSequenceCodec.RANDOMNESS_SIZE;
+
+  /**
+   * Creates an encoder.
+   *
+   * @return A new encoder.
+   */
+  public Encoder newEncoder()
+  {
+    return new Encoder();
+  }
+
+  /**
+   * Creates a decoder.
+   *
+   * @return A new decoder.
+   */
+  public Decoder newDecoder()
+  {
+    return new Decoder();
+  }
+
+  /**
+   * Encodes ULIDs.
+   *
+   * @param ulids ULIDs to encode.
+   * @return A byte array that contains the encoded form.
+   * @throws NullPointerException If {@code ulids} or any of its elements is
+   * {@code null}.
+   */
+  public byte[] encode(Iterable<Ulid> ulids)
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+
+    final Encoder encoder = new Encoder();
+    ByteBuffer dst = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    for(final Ulid ulid : ulids)
+    {
+      Objects.requireNonNull(ulid, "'ulids' cannot have null elements");
+
+      while(!encoder.write(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits(),
+        dst))
+      {
+        dst = grow(dst);
+      }
+    }
+
+    return finish(encoder, dst);
+  }
+
+  /**
+   * Encodes ULIDs.
+   *
+   * @param ulids ULIDs to encode.
+   * @return A byte array that contains the encoded form.
+   * @throws NullPointerException If {@code ulids} is {@code null}.
+   */
+  public byte[] encode(UlidBuffer ulids)
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+
+    final long[] his = ulids.getMostSignificantBitsArray();
+    final long[] los = ulids.getLeastSignificantBitsArray();
+    final Encoder encoder = new Encoder();
+    ByteBuffer dst = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    for(int i = 0, size = ulids.size(); i < size; ++i)
+    {
+      while(!encoder.write(his[i], los[i], dst))
+      {
+        dst = grow(dst);
+      }
+    }
+
+    return finish(encoder, dst);
+  }
+
+  /**
+   * Decodes a whole encoded sequence from the position of a buffer. The
+   * position is moved past the end of the sequence.
+   *
+   * @param src A buffer that contains an encoded sequence.
+   * @return A buffer of the decoded ULIDs.
+   * @throws NullPointerException If {@code src} is {@code null}.
+   * @throws IllegalArgumentException If the content is malformed or
+   * truncated.
+   */
+  public UlidBuffer decode(ByteBuffer src)
+  {
+    Objects.requireNonNull(src, "'src' cannot be null");
+
+    final UlidBuffer result = new UlidBuffer();
+
+    final Decoder decoder = new Decoder();
+    while(!decoder.isFinished())
+    {
+      if(0 == decoder.read(src, result, Integer.MAX_VALUE - result.size()))
+      {
+        if(!decoder.isFinished())
+        {
+          throw new IllegalArgumentException("The sequence is truncated");
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * <p>
+   * Encodes ULIDs one by one to buffers.
+   * </p>
+   * <p>
+   * Instances of this class are NOT thread-safe.
+   * </p>
+   */
+  public static final class Encoder
+  {
+    /**
+     * Encodes an ULID.
+     *
+     * @param ulid An ULID.
+     * @param dst A buffer to write to.
+     * @return {@code true} if the ULID has been accepted, {@code false} if
+     * {@code dst} does not have {@link UlidSequenceCodec#MAX_WRITE_SIZE} bytes
+     * remaining. Nothing is written in the latter case.
+     * @throws NullPointerException If {@code ulid} or {@code dst} is
+     * {@code null}.
+     * @throws IllegalStateException If the encoder has been finished.
+     */
+    public boolean write(Ulid ulid, ByteBuffer dst)
+    {
+      Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+      return write(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits(),
+        dst);
+    }
+
+    /**
+     * Encodes an ULID. ULIDs that extend a run are only counted and written
+     * later, so {@link #finish(ByteBuffer)} must be called after the last
+     * ULID.
+     *
+     * @param mostSigBits The most significant 64 bits of the ULID.
+     * @param leastSigBits The least significant 64 bits of the ULID.
+     * @param dst A buffer to write to.
+     * @return {@code true} if the ULID has been accepted, {@code false} if
+     * {@code dst} does not have {@link UlidSequenceCodec#MAX_WRITE_SIZE} bytes
+     * remaining. Nothing is written in the latter case.
+     * @throws NullPointerException If {@code dst} is {@code null}.
+     * @throws IllegalStateException If the encoder has been finished.
+     */
+    public boolean write(long mostSigBits, long leastSigBits, ByteBuffer dst)
+    {
+      Objects.requireNonNull(dst, "'dst' cannot be null");
+      if(finished)
+      {
+        throw new IllegalStateException("The encoder has been finished");
+      }
+
+      boolean result = true;
+
+      final boolean sameTimestamp = (mostSigBits >>> 16) == (prevHi >>> 16);
+      final long deltaLo = leastSigBits - prevLo;
+      final long deltaHi = (mostSigBits & Ulid.RANDOMNESS_MAX_VALUE_MS_BITS)
+        - (prevHi & Ulid.RANDOMNESS_MAX_VALUE_MS_BITS)
+        - (Uint128Utils.compareUnsigned(leastSigBits, prevLo) < 0 ? 1L : 0L);
+
+      if(sameTimestamp && 0L == deltaHi && 1L == deltaLo)
+      {
+        ++runLength;
+      }
+      else if(dst.remaining() < MAX_WRITE_SIZE)
+      {
+        result = false;
+      }
+      else
+      {
+        flushRun(dst);
+
+        if(
+          sameTimestamp
+            && deltaHi == (deltaLo >> 63)
+            && deltaLo >= -MAX_RANDOMNESS_DELTA
+            && deltaLo < MAX_RANDOMNESS_DELTA
+        )
+        {
+          VarIntUtils.putVarLong(
+            dst,
+            (VarIntUtils.zigZagEncode(deltaLo) << 2) | TAG_SAME_TIMESTAMP);
+        }
+        else
+        {
+          VarIntUtils.putVarLong(
+            dst,
+            (VarIntUtils.zigZagEncode((mostSigBits >>> 16) - (prevHi >>> 16))
+              << 2) | TAG_NEW_TIMESTAMP);
+          dst.putShort((short)mostSigBits);
+          dst.putLong(leastSigBits);
+        }
+      }
+
+      if(result)
+      {
+        prevHi = mostSigBits;
+        prevLo = leastSigBits;
+      }
+
+      return result;
+    }
+
+    /**
+     * Writes the pending run and the end of the sequence.
+     *
+     * @param dst A buffer to write to.
+     * @return {@code true} if the encoder has been finished, {@code false} if
+     * {@code dst} does not have {@link UlidSequenceCodec#MAX_WRITE_SIZE} bytes
+     * remaining. Nothing is written in the latter case.
+     * @throws NullPointerException If {@code dst} is {@code null}.
+     * @throws IllegalStateException If the encoder has been finished.
+     */
+    public boolean finish(ByteBuffer dst)
+    {
+      Objects.requireNonNull(dst, "'dst' cannot be null");
+      if(finished)
+      {
+        throw new IllegalStateException("The encoder has been finished");
+      }
+
+      boolean result = dst.remaining() >= MAX_WRITE_SIZE;
+
+      if(result)
+      {
+        flushRun(dst);
+        dst.put((byte)TAG_END);
+        finished = true;
+      }
+
+      return result;
+    }
+
+    /**
+     * Resets the encoder so that it can encode another sequence.
+     */
+    public void reset()
+    {
+      prevHi = 0L;
+      prevLo = 0L;
+      runLength = 0L;
+      finished = false;
+    }
+
+    private Encoder()
+    {
+      reset();
+    }
+
+    private void flushRun(ByteBuffer dst)
+    {
+      if(runLength > 0L)
+      {
+        VarIntUtils.putVarLong(dst, (runLength << 2) | TAG_RUN);
+        runLength = 0L;
+      }
+    }
+
+    private long prevHi;
+
+    private long prevLo;
+
+    private long runLength;
+
+    private boolean finished;
+  }
+
+  /**
+   * <p>
+   * Decodes ULIDs from buffers that may end in the middle of a token. Only
+   * complete tokens are consumed, so the caller can compact the buffer, fill
+   * it and continue. A buffer must be able to hold
+   * {@link UlidSequenceCodec#MAX_WRITE_SIZE} bytes to fit any token.
+   * </p>
+   * <p>
+   * Instances of this class are NOT thread-safe.
+   * </p>
+   */
+  public static final class Decoder
+  {
+    /**
+     * Decodes ULIDs from the position of a buffer.
+     *
+     * @param src A buffer to read from.
+     * @param dst A buffer to append the decoded ULIDs to.
+     * @param maxCount The maximum number of ULIDs to decode.
+     * @return The number of decoded ULIDs. It is less than {@code maxCount}
+     * if {@code src} does not have a complete token or the end of the
+     * sequence has been reached.
+     * @throws NullPointerException If {@code src} or {@code dst} is
+     * {@code null}.
+     * @throws IllegalArgumentException If {@code maxCount} is negative or the
+     * content is malformed.
+     */
+    public int read(ByteBuffer src, UlidBuffer dst, int maxCount)
+    {
+      Objects.requireNonNull(src, "'src' cannot be null");
+      Objects.requireNonNull(dst, "'dst' cannot be null");
+      if(maxCount < 0)
+      {
+        throw new IllegalArgumentException("'maxCount' cannot be negative");
+      }
+
+      int count = 0;
+
+      for(boolean hasToken = true; hasToken && count < maxCount;)
+      {
+        if(pendingRunLength > 0L)
+        {
+          final int n = (int)Math.min(pendingRunLength, maxCount - count);
+          for(int i = 0; i < n; ++i)
+          {
+            ++prevLo;
+            if(0L == prevLo)
+            {
+              ++prevHi;
+            }
+            dst.add(prevHi, prevLo);
+          }
+          pendingRunLength -= n;
+          count += n;
+        }
+        else
+        {
+          hasToken = !finished && readToken(src);
+          if(hasToken && !finished && 0L == pendingRunLength)
+          {
+            dst.add(prevHi, prevLo);
+            ++count;
+          }
+        }
+      }
+
+      return count;
+    }
+
+    /**
+     * Checks if the end of the sequence has been reached.
+     *
+     * @return {@code true} if the end of the sequence has been reached,
+     * {@code false} otherwise.
+     */
+    public boolean isFinished()
+    {
+      return finished && 0L == pendingRunLength;
+    }
+
+    /**
+     * Resets the decoder so that it can decode another sequence.
+     */
+    public void reset()
+    {
+      prevHi = 0L;
+      prevLo = 0L;
+      pendingRunLength = 0L;
+      finished = false;
+    }
+
+    private Decoder()
+    {
+      reset();
+    }
+
+    /**
+     * Reads a complete token and applies it to the state. Nothing is consumed
+     * if the token is incomplete.
+     */
+    private boolean readToken(ByteBuffer src)
+    {
+      boolean result = VarIntUtils.hasVarLong(src);
+
+      if(result)
+      {
+        final int start = src.position();
+        final long token = VarIntUtils.getVarLong(src);
+        final long value = token >>> 2;
+
+        switch((int)(token & 0x03L))
+        {
+        case TAG_RUN:
+          if(0L == value)
+          {
+            throw new IllegalArgumentException("A run cannot be empty");
+          }
+          pendingRunLength = value;
+          break;
+        case TAG_NEW_TIMESTAMP:
+          if(src.remaining() < RANDOMNESS_SIZE)
+          {
+            src.position(start);
+            result = false;
+          }
+          else
+          {
+            final long timestamp = (prevHi >>> 16)
+              + VarIntUtils.zigZagDecode(value);
+            if(timestamp < 0L || timestamp > Ulid.TIMESTAMP_MAX_VALUE)
+            {
+              throw new IllegalArgumentException(
+                "The timestamp is out of range");
+            }
+            prevHi = (timestamp << 16) | (src.getShort() & 0xFFFFL);
+            prevLo = src.getLong();
+          }
+          break;
+        case TAG_SAME_TIMESTAMP:
+          addRandomnessDelta(VarIntUtils.zigZagDecode(value));
+          break;
+        default:
+          finished = true;
+        }
+      }
+
+      return result;
+    }
+
+    private void addRandomnessDelta(long delta)
+    {
+      final long lo = prevLo + delta;
+      final long randomnessHi = (prevHi & Ulid.RANDOMNESS_MAX_VALUE_MS_BITS)
+        + (delta >> 63)
+        + (Uint128Utils.compareUnsigned(lo, prevLo) < 0 ? 1L : 0L);
+      if(randomnessHi < 0L || randomnessHi > Ulid.RANDOMNESS_MAX_VALUE_MS_BITS)
+      {
+        throw new IllegalArgumentException("The randomness is out of range");
+      }
+
+      prevHi = (prevHi & ~Ulid.RANDOMNESS_MAX_VALUE_MS_BITS) | randomnessHi;
+      prevLo = lo;
+    }
+
+    private long prevHi;
+
+    private long prevLo;
+
+    private long pendingRunLength;
+
+    private boolean finished;
+  }
+
+  private static final int RANDOMNESS_SIZE = 10;
+
+  private static final int TAG_RUN = 0;
+
+  private static final int TAG_NEW_TIMESTAMP = 1;
+
+  private static final int TAG_SAME_TIMESTAMP = 2;
+
+  private static final int TAG_END = 3;
+
+  private static final long MAX_RANDOMNESS_DELTA = 1L << 60;
+
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
+  private static ByteBuffer grow(ByteBuffer buffer)
+  {
+    final ByteBuffer result = ByteBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    result.put(buffer);
+
+    return result;
+  }
+
+  private static byte[] finish(Encoder encoder, ByteBuffer buffer)
+  {
+    ByteBuffer dst = buffer;
+    while(!encoder.finish(dst))
+    {
+      dst = grow(dst);
+    }
+
+    return Arrays.copyOf(dst.array(), dst.position());
+  }
+}
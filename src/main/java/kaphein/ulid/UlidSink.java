@@ -0,0 +1,96 @@
+package kaphein.ulid;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * <p>
+ * A destination of ULIDs generated by an {@link AbstractUlidGenerator}.
+ * </p>
+ * <p>
+ * Generators pass the most significant and the least significant 64 bits
+ * of each ULID, so destinations that store primitives need no {@link Ulid}
+ * object. A sink never receives more ULIDs than the generator has been
+ * asked for, so it does not check bounds.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+abstract class UlidSink
+{
+  static UlidSink of(final List<Ulid> ulids)
+  {
+    return new UlidSink()
+    {
+      @Override
+      void add(long mostSigBits, long leastSigBits)
+      {
+        ulids.add(new Ulid(mostSigBits, leastSigBits));
+      }
+    };
+  }
+
+  static UlidSink of(final Ulid[] ulids, final int offset)
+  {
+    return new UlidSink()
+    {
+      @Override
+      void add(long mostSigBits, long leastSigBits)
+      {
+        ulids[index] = new Ulid(mostSigBits, leastSigBits);
+        ++index;
+      }
+
+      private int index = offset;
+    };
+  }
+
+  static UlidSink of(final long[] hiLo, final int offset)
+  {
+    return new UlidSink()
+    {
+      @Override
+      void add(long mostSigBits, long leastSigBits)
+      {
+        hiLo[index] = mostSigBits;
+        hiLo[index + 1] = leastSigBits;
+        index += 2;
+      }
+
+      private int index = offset;
+    };
+  }
+
+  static UlidSink of(final LongBuffer buffer)
+  {
+    return new UlidSink()
+    {
+      @Override
+      void add(long mostSigBits, long leastSigBits)
+      {
+        buffer.put(mostSigBits).put(leastSigBits);
+      }
+    };
+  }
+
+  static UlidSink of(final ByteBuffer buffer)
+  {
+    return new UlidSink()
+    {
+      @Override
+      void add(long mostSigBits, long leastSigBits)
+      {
+        buffer.putLong(mostSigBits).putLong(leastSigBits);
+      }
+    };
+  }
+
+  /**
+   * Accepts an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   */
+  abstract void add(long mostSigBits, long leastSigBits);
+}
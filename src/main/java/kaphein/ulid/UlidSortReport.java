@@ -0,0 +1,124 @@
+package kaphein.ulid;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of sorting a ULID file by {@link UlidExternalSorter}.
+ *
+ * @author Hydrawisk793
+ */
+public class UlidSortReport
+{
+  /**
+   * Gets the number of ULIDs read from the input.
+   *
+   * @return The number of input ULIDs.
+   */
+  public long getInputCount()
+  {
+    return inputCount;
+  }
+
+  /**
+   * Gets the number of ULIDs written to the output.
+   *
+   * @return The number of output ULIDs.
+   */
+  public long getOutputCount()
+  {
+    return outputCount;
+  }
+
+  /**
+   * Gets the number of extra occurrences of ULIDs, that is, the number of
+   * input ULIDs minus the number of distinct ULIDs.
+   *
+   * @return The number of duplicates.
+   */
+  public long getDuplicateCount()
+  {
+    return duplicateCount;
+  }
+
+  /**
+   * Gets the number of distinct ULIDs that occur more than once.
+   *
+   * @return The number of collided ULIDs.
+   */
+  public long getCollisionCount()
+  {
+    return collisionCount;
+  }
+
+  /**
+   * Gets the collided ULIDs in ascending order. At most the limit given to
+   * the sorter are kept.
+   *
+   * @return An unmodifiable list of collided ULIDs.
+   * @see #isCollisionListTruncated()
+   */
+  public List<Ulid> getCollisions()
+  {
+    return collisions;
+  }
+
+  /**
+   * Checks if some collided ULIDs are missing from {@link #getCollisions()}.
+   *
+   * @return {@code true} if the list of collided ULIDs is truncated,
+   * {@code false} otherwise.
+   */
+  public boolean isCollisionListTruncated()
+  {
+    return collisionCount > collisions.size();
+  }
+
+  /**
+   * Checks if every ULID of the input is unique.
+   *
+   * @return {@code true} if there is no duplicate, {@code false} otherwise.
+   */
+  public boolean isUnique()
+  {
+    return 0L == duplicateCount;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "UlidSortReport [inputCount=" + inputCount
+      + ", outputCount=" + outputCount
+      + ", duplicateCount=" + duplicateCount
+      + ", collisionCount=" + collisionCount
+      + ", collisions=" + collisions + "]";
+  }
+
+  UlidSortReport(
+    long inputCount,
+    long outputCount,
+    long duplicateCount,
+    long collisionCount,
+    List<Ulid> collisions
+  )
+  {
+    this.inputCount = inputCount;
+    this.outputCount = outputCount;
+    this.duplicateCount = duplicateCount;
+    this.collisionCount = collisionCount;
+    this.collisions = Collections.unmodifiableList(collisions);
+  }
+
+  private final long inputCount;
+
+  private final long outputCount;
+
+  private final long duplicateCount;
+
+  private final long collisionCount;
+
+  private final List<Ulid> collisions;
+}
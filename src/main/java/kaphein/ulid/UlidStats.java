@@ -0,0 +1,711 @@
+package kaphein.ulid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * Timestamp statistics of a ULID file: the number of ULIDs per time bucket,
+ * the minimum and maximum timestamps and the number of ULIDs whose
+ * timestamps are less than those of their predecessors.
+ * </p>
+ * <p>
+ * The file is memory-mapped and split into chunks that are analyzed by a
+ * {@link ForkJoinPool}. Only the 48-bit timestamp of each ULID is decoded
+ * into primitive accumulators, so no {@link Ulid} is created. In the text
+ * formats, only the timestamp part and the line terminator of each line are
+ * validated, every line must have the same terminator and the last line may
+ * lack one.
+ * </p>
+ * <p>
+ * A bucket of width {@code w} contains the timestamps in
+ * {@code [k * w, (k + 1) * w)} for some {@code k}. Only non-empty buckets
+ * are kept, in ascending order.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public final class UlidStats
+{
+  /**
+   * Computes the statistics of a file by a new {@link ForkJoinPool}.
+   *
+   * @param file A file of ULIDs.
+   * @param format The format of the file.
+   * @param bucketWidth The width of time buckets in milliseconds.
+   * @return The statistics of the file.
+   * @throws NullPointerException If {@code file} or {@code format} is
+   * {@code null}.
+   * @throws IllegalArgumentException If {@code bucketWidth} is not positive
+   * or the file is malformed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static UlidStats of(Path file, UlidFormat format, long bucketWidth)
+    throws IOException
+  {
+    final ForkJoinPool pool = new ForkJoinPool();
+    try
+    {
+      return of(file, format, bucketWidth, pool);
+    }
+    finally
+    {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Computes the statistics of a file.
+   *
+   * @param file A file of ULIDs.
+   * @param format The format of the file.
+   * @param bucketWidth The width of time buckets in milliseconds.
+   * @param pool A pool to run the analysis.
+   * @return The statistics of the file.
+   * @throws NullPointerException If {@code file}, {@code format} or
+   * {@code pool} is {@code null}.
+   * @throws IllegalArgumentException If {@code bucketWidth} is not positive
+   * or the file is malformed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static UlidStats of(
+    Path file,
+    UlidFormat format,
+    long bucketWidth,
+    ForkJoinPool pool
+  )
+    throws IOException
+  {
+    Objects.requireNonNull(file, "'file' cannot be null");
+    Objects.requireNonNull(format, "'format' cannot be null");
+    Objects.requireNonNull(pool, "'pool' cannot be null");
+    if(bucketWidth <= 0L)
+    {
+      throw new IllegalArgumentException("'bucketWidth' must be positive");
+    }
+
+    final Partial partial;
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+    {
+      final long size = channel.size();
+      final int stride = strideOf(format, channel, size);
+      final long recordCount = recordCountOf(format, stride, size);
+      final int regionRecordCount = MAX_REGION_SIZE / stride;
+      final ByteBuffer[] regions = new ByteBuffer[
+        (int)((recordCount + regionRecordCount - 1) / regionRecordCount)];
+      for(int i = 0; i < regions.length; ++i)
+      {
+        final long position = (long)i * regionRecordCount * stride;
+        regions[i] = channel.map(
+          FileChannel.MapMode.READ_ONLY,
+          position,
+          Math.min((long)regionRecordCount * stride, size - position));
+      }
+
+      partial = pool.invoke(
+        new AnalysisTask(
+          new Source(format, stride, regions, regionRecordCount, bucketWidth),
+          0L,
+          recordCount));
+    }
+
+    return new UlidStats(bucketWidth, partial);
+  }
+
+  /**
+   * Gets the width of the time buckets.
+   *
+   * @return The width of the time buckets in milliseconds.
+   */
+  public long getBucketWidth()
+  {
+    return bucketWidth;
+  }
+
+  /**
+   * Gets the number of ULIDs in the file.
+   *
+   * @return The number of ULIDs.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Gets the minimum timestamp.
+   *
+   * @return The minimum timestamp, or {@code -1} if the file is empty.
+   */
+  public long getMinTimestamp()
+  {
+    return minTimestamp;
+  }
+
+  /**
+   * Gets the maximum timestamp.
+   *
+   * @return The maximum timestamp, or {@code -1} if the file is empty.
+   */
+  public long getMaxTimestamp()
+  {
+    return maxTimestamp;
+  }
+
+  /**
+   * Gets the number of ULIDs whose timestamps are less than the timestamps
+   * of the preceding ULIDs in the file.
+   *
+   * @return The number of out-of-order ULIDs.
+   */
+  public long getOutOfOrderCount()
+  {
+    return outOfOrderCount;
+  }
+
+  /**
+   * Gets the number of non-empty buckets.
+   *
+   * @return The number of non-empty buckets.
+   */
+  public int getBucketCount()
+  {
+    return bucketStarts.length;
+  }
+
+  /**
+   * Gets the start timestamp of a non-empty bucket.
+   *
+   * @param index The index of the bucket in ascending order.
+   * @return The smallest timestamp that belongs to the bucket.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getBucketStart(int index)
+  {
+    return bucketStarts[index];
+  }
+
+  /**
+   * Gets the number of ULIDs in a non-empty bucket.
+   *
+   * @param index The index of the bucket in ascending order.
+   * @return The number of ULIDs in the bucket.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public long getBucketSize(int index)
+  {
+    return bucketSizes[index];
+  }
+
+  /**
+   * Gets the number of ULIDs in the bucket that contains a timestamp.
+   *
+   * @param timestamp A timestamp.
+   * @return The number of ULIDs in the bucket, or {@code 0} if there is
+   * none.
+   */
+  public long getBucketSizeAt(long timestamp)
+  {
+    final int index = Arrays.binarySearch(
+      bucketStarts,
+      timestamp - floorMod(timestamp, bucketWidth));
+
+    return (index >= 0 ? bucketSizes[index] : 0L);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString()
+  {
+    return "UlidStats [bucketWidth=" + bucketWidth
+      + ", count=" + count
+      + ", minTimestamp=" + minTimestamp
+      + ", maxTimestamp=" + maxTimestamp
+      + ", outOfOrderCount=" + outOfOrderCount
+      + ", bucketCount=" + bucketStarts.length + "]";
+  }
+
+  /**
+   * The maximum size of a mapped region of the file.
+   */
+  private static final int MAX_REGION_SIZE = 1 << 30;
+
+  /**
+   * The maximum number of ULIDs that a task analyzes without splitting.
+   */
+  private static final long LEAF_SIZE = 1L << 16;
+
+  private static final int TIMESTAMP_TEXT_LENGTH = 10;
+
+  private static final int TIMESTAMP_HEX_LENGTH = 12;
+
+  private static final int MAX_FIRST_VALUE = 7;
+
+  /**
+   * Determines the number of bytes per ULID, which depends on the line
+   * terminator of the first line in the text formats.
+   */
+  private static int strideOf(
+    UlidFormat format,
+    FileChannel channel,
+    long size
+  )
+    throws IOException
+  {
+    final int result;
+
+    if(UlidFormat.BINARY == format)
+    {
+      result = Ulid.BYTES;
+    }
+    else
+    {
+      final int length = lineLengthOf(format);
+      final ByteBuffer terminator = ByteBuffer.allocate(1);
+      if(size > length)
+      {
+        channel.read(terminator, length);
+      }
+      result = length + ('\r' == terminator.get(0) ? 2 : 1);
+    }
+
+    return result;
+  }
+
+  private static long recordCountOf(UlidFormat format, int stride, long size)
+  {
+    final long result;
+
+    final long remainder = size % stride;
+    if(0L == remainder)
+    {
+      result = size / stride;
+    }
+    else if(UlidFormat.BINARY == format)
+    {
+      throw new IllegalArgumentException("The input is truncated");
+    }
+    else if(remainder == lineLengthOf(format))
+    {
+      result = size / stride + 1L;
+    }
+    else
+    {
+      throw newMalformedLineException(size / stride);
+    }
+
+    return result;
+  }
+
+  private static int lineLengthOf(UlidFormat format)
+  {
+    return (UlidFormat.TEXT == format
+      ? Ulid.ENCODED_LENGTH
+      : UlidWriter.HEX_LENGTH);
+  }
+
+  private static long floorMod(long x, long y)
+  {
+    final long result = x % y;
+
+    return (result < 0L ? result + y : result);
+  }
+
+  private static IllegalArgumentException newMalformedLineException(
+    long index
+  )
+  {
+    return new IllegalArgumentException(
+      "Line " + (index + 1L) + " is not a valid ULID");
+  }
+
+  private UlidStats(long bucketWidth, Partial partial)
+  {
+    this.bucketWidth = bucketWidth;
+    count = partial.count;
+    minTimestamp = (count > 0L ? partial.minTimestamp : -1L);
+    maxTimestamp = (count > 0L ? partial.maxTimestamp : -1L);
+    outOfOrderCount = partial.outOfOrderCount;
+
+    final Histogram histogram = partial.histogram;
+    final long[] buckets = new long[histogram.size];
+    final long[] sizes = new long[histogram.size];
+    int j = 0;
+    for(int i = 0; i < histogram.keys.length; ++i)
+    {
+      if(Histogram.EMPTY != histogram.keys[i])
+      {
+        buckets[j] = histogram.keys[i];
+        ++j;
+      }
+    }
+    Arrays.sort(buckets);
+    for(int i = 0; i < buckets.length; ++i)
+    {
+      sizes[i] = histogram.get(buckets[i]);
+      buckets[i] *= bucketWidth;
+    }
+    bucketStarts = buckets;
+    bucketSizes = sizes;
+  }
+
+  /**
+   * The mapped file shared by analysis tasks.
+   */
+  private static final class Source
+  {
+    Source(
+      UlidFormat format,
+      int stride,
+      ByteBuffer[] regions,
+      int regionRecordCount,
+      long bucketWidth
+    )
+    {
+      this.format = format;
+      this.stride = stride;
+      this.regions = regions;
+      this.regionRecordCount = regionRecordCount;
+      this.bucketWidth = bucketWidth;
+    }
+
+    /**
+     * Decodes the timestamp of the ULID at an offset of a region.
+     */
+    long timestampAt(ByteBuffer region, int offset, long index)
+    {
+      long result = 0L;
+
+      switch(format)
+      {
+      case TEXT:
+        for(int i = 0; i < TIMESTAMP_TEXT_LENGTH; ++i)
+        {
+          final int value = CrockfordBase32Codec.decodeChar(
+            region.get(offset + i));
+          if(value < 0 || (0 == i && value > MAX_FIRST_VALUE))
+          {
+            throw newMalformedLineException(index);
+          }
+          result = (result << 5) | value;
+        }
+        checkTerminator(region, offset, index);
+        break;
+      case HEX:
+        for(int i = 0; i < TIMESTAMP_HEX_LENGTH; ++i)
+        {
+          final int value = Character.digit(region.get(offset + i), 16);
+          if(value < 0)
+          {
+            throw newMalformedLineException(index);
+          }
+          result = (result << 4) | value;
+        }
+        checkTerminator(region, offset, index);
+        break;
+      default:
+        result = region.getLong(offset) >>> 16;
+      }
+
+      return result;
+    }
+
+    private void checkTerminator(ByteBuffer region, int offset, long index)
+    {
+      final int end = offset + stride;
+      if(end <= region.limit())
+      {
+        if('\n' != region.get(end - 1)
+          || (stride - 2 == lineLengthOf(format)
+            && '\r' != region.get(end - 2)))
+        {
+          throw newMalformedLineException(index);
+        }
+      }
+    }
+
+    final UlidFormat format;
+
+    final int stride;
+
+    final ByteBuffer[] regions;
+
+    final int regionRecordCount;
+
+    final long bucketWidth;
+  }
+
+  /**
+   * Analyzes the ULIDs in {@code [from, to)} by splitting the range in half
+   * until it is small enough.
+   */
+  private static final class AnalysisTask extends RecursiveTask<Partial>
+  {
+    AnalysisTask(Source source, long from, long to)
+    {
+      this.source = source;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Partial compute()
+    {
+      final Partial result;
+
+      if(to - from <= LEAF_SIZE)
+      {
+        result = analyze();
+      }
+      else
+      {
+        final long middle = (from + to) >>> 1;
+        final AnalysisTask left = new AnalysisTask(source, from, middle);
+        left.fork();
+        final Partial right = new AnalysisTask(source, middle, to).compute();
+        result = left.join();
+        result.append(right);
+      }
+
+      return result;
+    }
+
+    private Partial analyze()
+    {
+      final Partial result = new Partial();
+
+      final long bucketWidth = source.bucketWidth;
+      long bucket = -1L;
+      long bucketSize = 0L;
+      for(long index = from; index < to;)
+      {
+        final int regionIndex = (int)(index / source.regionRecordCount);
+        final ByteBuffer region = source.regions[regionIndex];
+        final long regionEnd = Math.min(
+          to,
+          (regionIndex + 1L) * source.regionRecordCount);
+        int offset = (int)(index - (long)regionIndex * source.regionRecordCount)
+          * source.stride;
+        for(; index < regionEnd; ++index, offset += source.stride)
+        {
+          final long timestamp = source.timestampAt(region, offset, index);
+          result.add(timestamp);
+
+          final long key = timestamp / bucketWidth;
+          if(key != bucket)
+          {
+            if(bucketSize > 0L)
+            {
+              result.histogram.add(bucket, bucketSize);
+            }
+            bucket = key;
+            bucketSize = 0L;
+          }
+          ++bucketSize;
+        }
+      }
+      if(bucketSize > 0L)
+      {
+        result.histogram.add(bucket, bucketSize);
+      }
+
+      return result;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Source source;
+
+    private final long from;
+
+    private final long to;
+  }
+
+  /**
+   * The statistics of a contiguous range of ULIDs.
+   */
+  private static final class Partial
+  {
+    void add(long timestamp)
+    {
+      if(0L == count)
+      {
+        firstTimestamp = timestamp;
+        minTimestamp = timestamp;
+        maxTimestamp = timestamp;
+      }
+      else
+      {
+        if(timestamp < lastTimestamp)
+        {
+          ++outOfOrderCount;
+        }
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+      }
+      lastTimestamp = timestamp;
+      ++count;
+    }
+
+    /**
+     * Appends the statistics of the following range.
+     */
+    void append(Partial other)
+    {
+      if(other.count > 0L)
+      {
+        if(0L == count)
+        {
+          firstTimestamp = other.firstTimestamp;
+          minTimestamp = other.minTimestamp;
+          maxTimestamp = other.maxTimestamp;
+        }
+        else
+        {
+          if(other.firstTimestamp < lastTimestamp)
+          {
+            ++outOfOrderCount;
+          }
+          minTimestamp = Math.min(minTimestamp, other.minTimestamp);
+          maxTimestamp = Math.max(maxTimestamp, other.maxTimestamp);
+        }
+        lastTimestamp = other.lastTimestamp;
+        count += other.count;
+        outOfOrderCount += other.outOfOrderCount;
+        histogram.addAll(other.histogram);
+      }
+    }
+
+    private final Histogram histogram = new Histogram();
+
+    private long count;
+
+    private long firstTimestamp;
+
+    private long lastTimestamp;
+
+    private long minTimestamp;
+
+    private long maxTimestamp;
+
+    private long outOfOrderCount;
+  }
+
+  /**
+   * An open addressing hash map from bucket numbers to counts.
+   */
+  private static final class Histogram
+  {
+    static final long EMPTY = -1L;
+
+    Histogram()
+    {
+      keys = new long[INITIAL_CAPACITY];
+      Arrays.fill(keys, EMPTY);
+      values = new long[INITIAL_CAPACITY];
+      size = 0;
+    }
+
+    long get(long key)
+    {
+      final int index = indexOf(key);
+
+      return (EMPTY != keys[index] ? values[index] : 0L);
+    }
+
+    void add(long key, long value)
+    {
+      final int index = indexOf(key);
+      if(EMPTY == keys[index])
+      {
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+        if(size > (keys.length >>> 1))
+        {
+          resize();
+        }
+      }
+      else
+      {
+        values[index] += value;
+      }
+    }
+
+    void addAll(Histogram other)
+    {
+      for(int i = 0; i < other.keys.length; ++i)
+      {
+        if(EMPTY != other.keys[i])
+        {
+          add(other.keys[i], other.values[i]);
+        }
+      }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Finds the slot of a key or the empty slot where the key belongs.
+     */
+    private int indexOf(long key)
+    {
+      final int mask = keys.length - 1;
+      final long hash = key * 0x9E3779B97F4A7C15L;
+      int index = (int)(hash ^ (hash >>> 32)) & mask;
+      while(EMPTY != keys[index] && key != keys[index])
+      {
+        index = (index + 1) & mask;
+      }
+
+      return index;
+    }
+
+    private void resize()
+    {
+      final long[] oldKeys = keys;
+      final long[] oldValues = values;
+      keys = new long[oldKeys.length << 1];
+      Arrays.fill(keys, EMPTY);
+      values = new long[oldKeys.length << 1];
+      for(int i = 0; i < oldKeys.length; ++i)
+      {
+        if(EMPTY != oldKeys[i])
+        {
+          final int index = indexOf(oldKeys[i]);
+          keys[index] = oldKeys[i];
+          values[index] = oldValues[i];
+        }
+      }
+    }
+
+    private long[] keys;
+
+    private long[] values;
+
+    private int size;
+  }
+
+  private final long bucketWidth;
+
+  private final long count;
+
+  private final long minTimestamp;
+
+  private final long maxTimestamp;
+
+  private final long outOfOrderCount;
+
+  private final long[] bucketStarts;
+
+  private final long[] bucketSizes;
+}
@@ -0,0 +1,846 @@
+package kaphein.ulid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * A command-line tool for bulk ULID generation, conversion, sorting and
+ * verification. It is the entry point of the jar.
+ * </p>
+ *
+ * <pre>
+ * generate COUNT [--monotonic] [--at TIMESTAMP] [--format FORMAT]
+ *   [--output FILE]
+ * encode [--from text|hex] [--output FILE] [INPUT]
+ * decode [--to text|hex] [--output FILE] [INPUT]
+ * sort [--unique] INPUT OUTPUT
+ * verify INPUT
+ * </pre>
+ * <p>
+ * {@code encode} converts text to binary and {@code decode} converts binary
+ * to text. {@code sort} and {@code verify} take binary files. Standard input
+ * and output are used if no file is given. Input files are memory-mapped and
+ * converted in parallel chunks.
+ * </p>
+ * <p>
+ * The exit status is {@code 0} on success, {@code 1} if verification fails
+ * or the input is malformed and {@code 2} if the arguments are invalid.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public final class UlidTool
+{
+  /**
+   * Runs the tool and exits.
+   *
+   * @param args Command-line arguments.
+   */
+  public static void main(String[] args)
+  {
+    System.exit(run(args, System.in, System.out, System.err));
+  }
+
+  static final int EXIT_SUCCESS = 0;
+
+  static final int EXIT_FAILURE = 1;
+
+  static final int EXIT_USAGE = 2;
+
+  /**
+   * Runs the tool.
+   *
+   * @param args Command-line arguments.
+   * @param in The standard input.
+   * @param out The standard output.
+   * @param err The standard error.
+   * @return The exit status.
+   */
+  static int run(
+    String[] args,
+    InputStream in,
+    OutputStream out,
+    PrintStream err
+  )
+  {
+    int result = EXIT_SUCCESS;
+
+    try
+    {
+      if(args.length < 1)
+      {
+        throw new UsageException("No command is given");
+      }
+
+      final String command = args[0];
+      final String[] rest = Arrays.copyOfRange(args, 1, args.length);
+      switch(command)
+      {
+      case "generate":
+        generate(
+          new Arguments(
+            rest,
+            new String[]{"--monotonic"},
+            "--at", "--format", "--output"),
+          out);
+        break;
+      case "encode":
+        convert(
+          new Arguments(rest, NO_FLAGS, "--from", "--output"),
+          true,
+          in,
+          out);
+        break;
+      case "decode":
+        convert(
+          new Arguments(rest, NO_FLAGS, "--to", "--output"),
+          false,
+          in,
+          out);
+        break;
+      case "sort":
+        sort(new Arguments(rest, new String[]{"--unique"}), err);
+        break;
+      case "verify":
+        result = verify(new Arguments(rest, NO_FLAGS), err);
+        break;
+      default:
+        throw new UsageException("Unknown command '" + command + "'");
+      }
+      out.flush();
+    }
+    catch(UsageException ue)
+    {
+      err.println(ue.getMessage());
+      err.println(USAGE);
+      result = EXIT_USAGE;
+    }
+    catch(IllegalArgumentException iae)
+    {
+      err.println("Error: " + iae.getMessage());
+      result = EXIT_FAILURE;
+    }
+    catch(IOException ioe)
+    {
+      err.println("I/O error: " + ioe.getMessage());
+      result = EXIT_FAILURE;
+    }
+    catch(InterruptedException ie)
+    {
+      Thread.currentThread().interrupt();
+      err.println("Interrupted");
+      result = EXIT_FAILURE;
+    }
+
+    return result;
+  }
+
+  private static final String USAGE = "Usage:\n"
+    + "  generate COUNT [--monotonic] [--at TIMESTAMP] "
+    + "[--format text|hex|binary] [--output FILE]\n"
+    + "  encode [--from text|hex] [--output FILE] [INPUT]\n"
+    + "  decode [--to text|hex] [--output FILE] [INPUT]\n"
+    + "  sort [--unique] INPUT OUTPUT\n"
+    + "  verify INPUT";
+
+  private static final String[] NO_FLAGS = new String[0];
+
+  private static final int GENERATION_BATCH_SIZE = 1 << 16;
+
+  private static final int CHUNK_SIZE = 1 << 23;
+
+  /**
+   * The number of ULIDs converted at once in a chunk.
+   */
+  private static final int CONVERSION_BATCH_SIZE = 1 << 12;
+
+  /**
+   * The maximum length of a line of the text formats, which bounds the
+   * search for a line terminator at the end of a chunk.
+   */
+  private static final int MAX_LINE_LENGTH = 64;
+
+  private static void generate(Arguments arguments, OutputStream out)
+    throws IOException, InterruptedException
+  {
+    arguments.expectPositionalCount(1, 1);
+    final long count = parseLong(arguments.positional(0), "COUNT");
+    if(count < 0L)
+    {
+      throw new UsageException("COUNT cannot be negative");
+    }
+    final String at = arguments.option("--at");
+    final Long timestamp = (null == at ? null : parseLong(at, "--at"));
+    final UlidFormat format = parseFormat(
+      arguments.option("--format"),
+      UlidFormat.TEXT);
+
+    final AbstractUlidGenerator generator = (arguments.flag("--monotonic")
+      ? new MonotonicUlidGenerator()
+      : new SimpleUlidGenerator());
+    try(
+      UlidWriter writer = new UlidWriter(
+        openOutput(arguments.option("--output"), out),
+        format)
+    )
+    {
+      final Ulid[] batch = new Ulid[GENERATION_BATCH_SIZE];
+      for(long remaining = count; remaining > 0L;)
+      {
+        final int n = (int)Math.min(remaining, GENERATION_BATCH_SIZE);
+        final List<Ulid> ulids = (null == timestamp
+          ? generator.generateExact(n)
+          : generator.generateExact(n, timestamp));
+        writer.write(ulids.toArray(batch), 0, n);
+        remaining -= n;
+      }
+    }
+  }
+
+  private static void convert(
+    Arguments arguments,
+    boolean encoding,
+    InputStream in,
+    OutputStream out
+  )
+    throws IOException, InterruptedException
+  {
+    arguments.expectPositionalCount(0, 1);
+    final UlidFormat textFormat = parseFormat(
+      arguments.option(encoding ? "--from" : "--to"),
+      UlidFormat.TEXT);
+    if(UlidFormat.BINARY == textFormat)
+    {
+      throw new UsageException("The text format must be text or hex");
+    }
+    final UlidFormat from = (encoding ? textFormat : UlidFormat.BINARY);
+    final UlidFormat to = (encoding ? UlidFormat.BINARY : textFormat);
+
+    try(
+      WritableByteChannel channel = openOutput(
+        arguments.option("--output"),
+        out)
+    )
+    {
+      final String input = (arguments.positionalCount() > 0
+        ? arguments.positional(0)
+        : "-");
+      if("-".equals(input))
+      {
+        try(
+          UlidReader reader = new UlidReader(
+            new NonClosingInputStream(in),
+            from);
+          UlidWriter writer = new UlidWriter(channel, to)
+        )
+        {
+          copy(reader, writer);
+        }
+      }
+      else
+      {
+        convertFile(Paths.get(input), from, to, channel);
+      }
+    }
+  }
+
+  /**
+   * Converts a file in parallel chunks and writes the results in order.
+   */
+  private static void convertFile(
+    Path input,
+    final UlidFormat from,
+    final UlidFormat to,
+    WritableByteChannel output
+  )
+    throws IOException, InterruptedException
+  {
+    final int parallelism = Runtime.getRuntime().availableProcessors();
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ))
+    {
+      final long size = channel.size();
+      for(long start = 0L; start < size;)
+      {
+        final ByteBuffer chunk = mapChunk(channel, start, from);
+        final long chunkStart = start;
+        start += chunk.remaining();
+
+        pending.addLast(executor.submit(new Callable<byte[]>()
+        {
+          @Override
+          public byte[] call()
+            throws IOException
+          {
+            return convertChunk(chunk, chunkStart, from, to);
+          }
+        }));
+        if(pending.size() >= parallelism * 2)
+        {
+          writeFully(output, pending.removeFirst().get());
+        }
+      }
+      while(!pending.isEmpty())
+      {
+        writeFully(output, pending.removeFirst().get());
+      }
+    }
+    catch(ExecutionException ee)
+    {
+      throw unwrap(ee);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Maps a chunk that starts at {@code start} and ends at a record boundary.
+   */
+  private static ByteBuffer mapChunk(
+    FileChannel channel,
+    long start,
+    UlidFormat format
+  )
+    throws IOException
+  {
+    final long remaining = channel.size() - start;
+    final ByteBuffer result;
+
+    if(UlidFormat.BINARY == format)
+    {
+      result = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        start,
+        Math.min(remaining, CHUNK_SIZE - CHUNK_SIZE % Ulid.BYTES));
+    }
+    else
+    {
+      final long windowSize = Math.min(
+        remaining,
+        CHUNK_SIZE + MAX_LINE_LENGTH);
+      final ByteBuffer window = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        start,
+        windowSize);
+
+      int end = (int)windowSize;
+      if(windowSize < remaining)
+      {
+        end = CHUNK_SIZE;
+        while(end < windowSize && '\n' != window.get(end - 1))
+        {
+          ++end;
+        }
+        if('\n' != window.get(end - 1))
+        {
+          throw new IllegalArgumentException(
+            "A line is too long near offset " + (start + end));
+        }
+      }
+      window.limit(end);
+      result = window;
+    }
+
+    return result;
+  }
+
+  private static byte[] convertChunk(
+    ByteBuffer chunk,
+    long chunkStart,
+    UlidFormat from,
+    UlidFormat to
+  )
+    throws IOException
+  {
+    final int inputRecordSize = UlidWriter.recordSizeOf(from);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(
+      (int)Math.min(
+        Integer.MAX_VALUE - 8L,
+        (long)chunk.remaining() / inputRecordSize
+          * UlidWriter.recordSizeOf(to)
+          + 16L));
+    try(
+      UlidReader reader = new UlidReader(
+        new ByteBufferChannel(chunk),
+        from,
+        chunkStart);
+      UlidWriter writer = new UlidWriter(out, to)
+    )
+    {
+      copy(reader, writer);
+    }
+
+    return out.toByteArray();
+  }
+
+  private static void copy(UlidReader reader, UlidWriter writer)
+    throws IOException
+  {
+    final long[] batch = new long[CONVERSION_BATCH_SIZE << 1];
+    for(int n; (n = reader.read(batch, 0, CONVERSION_BATCH_SIZE)) > 0;)
+    {
+      writer.write(batch, 0, n);
+    }
+  }
+
+  private static void sort(Arguments arguments, PrintStream err)
+    throws IOException, InterruptedException
+  {
+    arguments.expectPositionalCount(2, 2);
+
+    final UlidSortReport report = new UlidExternalSorter().sort(
+      Paths.get(arguments.positional(0)),
+      Paths.get(arguments.positional(1)),
+      arguments.flag("--unique"));
+    err.println(report);
+  }
+
+  /**
+   * Checks if a binary file is strictly increasing, and counts duplicates by
+   * sorting it if it is not sorted.
+   */
+  private static int verify(Arguments arguments, PrintStream err)
+    throws IOException, InterruptedException
+  {
+    arguments.expectPositionalCount(1, 1);
+    final Path input = Paths.get(arguments.positional(0));
+
+    final OrderStats stats = new OrderStats();
+    final int parallelism = Runtime.getRuntime().availableProcessors();
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    final Deque<Future<OrderStats>> pending = new ArrayDeque<>();
+    try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ))
+    {
+      if(0L != channel.size() % Ulid.BYTES)
+      {
+        throw new IllegalArgumentException("The input is truncated");
+      }
+
+      for(long start = 0L; start < channel.size();)
+      {
+        final ByteBuffer chunk = mapChunk(channel, start, UlidFormat.BINARY);
+        start += chunk.remaining();
+
+        pending.addLast(executor.submit(new Callable<OrderStats>()
+        {
+          @Override
+          public OrderStats call()
+          {
+            return OrderStats.of(chunk);
+          }
+        }));
+        if(pending.size() >= parallelism * 2)
+        {
+          stats.append(pending.removeFirst().get());
+        }
+      }
+      while(!pending.isEmpty())
+      {
+        stats.append(pending.removeFirst().get());
+      }
+    }
+    catch(ExecutionException ee)
+    {
+      throw unwrap(ee);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    long duplicateCount = stats.duplicateCount;
+    if(stats.outOfOrderCount > 0L)
+    {
+      final Path sorted = Files.createTempFile("ulid-verify-", ".bin");
+      try
+      {
+        duplicateCount = new UlidExternalSorter()
+          .sort(input, sorted, true)
+          .getDuplicateCount();
+      }
+      finally
+      {
+        Files.deleteIfExists(sorted);
+      }
+    }
+
+    err.println(
+      "count=" + stats.count
+        + ", outOfOrder=" + stats.outOfOrderCount
+        + ", duplicates=" + duplicateCount);
+
+    return (0L == stats.outOfOrderCount && 0L == duplicateCount
+      ? EXIT_SUCCESS
+      : EXIT_FAILURE);
+  }
+
+  private static WritableByteChannel openOutput(String path, OutputStream out)
+    throws IOException
+  {
+    return (null == path || "-".equals(path)
+      ? Channels.newChannel(new NonClosingOutputStream(out))
+      : FileChannel.open(
+        Paths.get(path),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE));
+  }
+
+  private static void writeFully(WritableByteChannel channel, byte[] bytes)
+    throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while(buffer.hasRemaining())
+    {
+      channel.write(buffer);
+    }
+  }
+
+  private static IOException unwrap(ExecutionException ee)
+  {
+    final Throwable cause = ee.getCause();
+    if(cause instanceof IOException)
+    {
+      return (IOException)cause;
+    }
+    else if(cause instanceof RuntimeException)
+    {
+      throw (RuntimeException)cause;
+    }
+    else if(cause instanceof Error)
+    {
+      throw (Error)cause;
+    }
+
+    return new IOException(cause);
+  }
+
+  private static long parseLong(String text, String name)
+  {
+    try
+    {
+      return Long.parseLong(text);
+    }
+    catch(NumberFormatException nfe)
+    {
+      throw new UsageException(name + " must be an integer");
+    }
+  }
+
+  private static UlidFormat parseFormat(String text, UlidFormat defaultValue)
+  {
+    UlidFormat result = defaultValue;
+
+    if(null != text)
+    {
+      try
+      {
+        result = UlidFormat.valueOf(text.toUpperCase(Locale.ROOT));
+      }
+      catch(IllegalArgumentException iae)
+      {
+        throw new UsageException("Unknown format '" + text + "'");
+      }
+    }
+
+    return result;
+  }
+
+  private UlidTool()
+  {
+    throw new AssertionError(
+      "Class " + getClass().getName() + " cannot be instantiated");
+  }
+
+  /**
+   * Thrown if the command-line arguments are invalid.
+   */
+  private static final class UsageException extends IllegalArgumentException
+  {
+    UsageException(String message)
+    {
+      super(message);
+    }
+
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Parsed command-line arguments of a command.
+   */
+  private static final class Arguments
+  {
+    Arguments(String[] args, String[] flagNames, String... valueOptionNames)
+    {
+      positionals = new ArrayList<>();
+      options = new HashMap<>();
+      final List<String> flags = Arrays.asList(flagNames);
+      final List<String> valueOptions = Arrays.asList(valueOptionNames);
+
+      for(int i = 0; i < args.length; ++i)
+      {
+        final String arg = args[i];
+        if(arg.startsWith("--"))
+        {
+          if(flags.contains(arg))
+          {
+            options.put(arg, "");
+          }
+          else if(!valueOptions.contains(arg))
+          {
+            throw new UsageException("Unknown option " + arg);
+          }
+          else if(i + 1 < args.length)
+          {
+            options.put(arg, args[++i]);
+          }
+          else
+          {
+            throw new UsageException("Option " + arg + " requires a value");
+          }
+        }
+        else
+        {
+          positionals.add(arg);
+        }
+      }
+    }
+
+    int positionalCount()
+    {
+      return positionals.size();
+    }
+
+    String positional(int index)
+    {
+      return positionals.get(index);
+    }
+
+    void expectPositionalCount(int min, int max)
+    {
+      if(positionals.size() < min || positionals.size() > max)
+      {
+        throw new UsageException("Wrong number of arguments");
+      }
+    }
+
+    boolean flag(String name)
+    {
+      return options.containsKey(name);
+    }
+
+    String option(String name)
+    {
+      return options.get(name);
+    }
+
+    private final List<String> positionals;
+
+    private final Map<String, String> options;
+  }
+
+  /**
+   * Order statistics of a sequence of ULIDs.
+   */
+  private static final class OrderStats
+  {
+    static OrderStats of(ByteBuffer chunk)
+    {
+      final OrderStats result = new OrderStats();
+
+      for(int i = chunk.position(); i < chunk.limit(); i += Ulid.BYTES)
+      {
+        result.add(chunk.getLong(i), chunk.getLong(i + 8));
+      }
+
+      return result;
+    }
+
+    void add(long hi, long lo)
+    {
+      if(0L == count)
+      {
+        firstHi = hi;
+        firstLo = lo;
+      }
+      else
+      {
+        countPair(lastHi, lastLo, hi, lo);
+      }
+      lastHi = hi;
+      lastLo = lo;
+      ++count;
+    }
+
+    /**
+     * Appends the statistics of the following sequence.
+     */
+    void append(OrderStats other)
+    {
+      if(other.count > 0L)
+      {
+        if(0L == count)
+        {
+          firstHi = other.firstHi;
+          firstLo = other.firstLo;
+        }
+        else
+        {
+          countPair(lastHi, lastLo, other.firstHi, other.firstLo);
+        }
+        lastHi = other.lastHi;
+        lastLo = other.lastLo;
+        count += other.count;
+        outOfOrderCount += other.outOfOrderCount;
+        duplicateCount += other.duplicateCount;
+      }
+    }
+
+    private void countPair(long prevHi, long prevLo, long hi, long lo)
+    {
+      final int comparison = Uint128Utils.compare(prevHi, prevLo, hi, lo);
+      if(comparison > 0)
+      {
+        ++outOfOrderCount;
+      }
+      else if(0 == comparison)
+      {
+        ++duplicateCount;
+      }
+    }
+
+    private long count;
+
+    private long firstHi;
+
+    private long firstLo;
+
+    private long lastHi;
+
+    private long lastLo;
+
+    private long outOfOrderCount;
+
+    private long duplicateCount;
+  }
+
+  /**
+   * A readable channel over the remaining bytes of a buffer.
+   */
+  private static final class ByteBufferChannel implements ReadableByteChannel
+  {
+    ByteBufferChannel(ByteBuffer buffer)
+    {
+      this.buffer = buffer.duplicate();
+      open = true;
+    }
+
+    @Override
+    public int read(ByteBuffer dst)
+    {
+      int result = -1;
+
+      if(buffer.hasRemaining())
+      {
+        result = Math.min(dst.remaining(), buffer.remaining());
+        final ByteBuffer slice = buffer.duplicate();
+        slice.limit(slice.position() + result);
+        dst.put(slice);
+        buffer.position(buffer.position() + result);
+      }
+
+      return result;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return open;
+    }
+
+    @Override
+    public void close()
+    {
+      open = false;
+    }
+
+    private final ByteBuffer buffer;
+
+    private boolean open;
+  }
+
+  /**
+   * An input stream that does not close the standard input.
+   */
+  private static final class NonClosingInputStream
+    extends FilterInputStream
+  {
+    NonClosingInputStream(InputStream in)
+    {
+      super(in);
+    }
+
+    @Override
+    public void close()
+    {
+      // Keeps the underlying stream open.
+    }
+  }
+
+  /**
+   * An output stream that does not close the standard output.
+   */
+  private static final class NonClosingOutputStream
+    extends FilterOutputStream
+  {
+    NonClosingOutputStream(OutputStream out)
+    {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+      throws IOException
+    {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close()
+      throws IOException
+    {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,1183 @@
+package kaphein.ulid;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>
+ * An ordered map whose keys are ULIDs.
+ * </p>
+ * <p>
+ * The map is a B+-tree that stores keys as primitive {@code long} pairs in
+ * its leaves, so no node object is allocated per entry and no
+ * {@link Ulid#compareTo} call is made while searching. Entries are iterated in
+ * ascending order of keys.
+ * </p>
+ * <p>
+ * Putting a key greater than every key in the map takes a fast path that
+ * appends the entry to the last leaf directly. Full leaves are split so that
+ * maps filled with monotonic keys end up with completely filled leaves.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe. Use
+ * {@link ConcurrentUlidTreeMap} if the map is shared by multiple threads.
+ * </p>
+ *
+ * @param <V> The type of values.
+ * @author Hydrawisk793
+ */
+public class UlidTreeMap<V> extends AbstractMap<Ulid, V>
+{
+  /**
+   * Constructs an empty instance of {@link UlidTreeMap}.
+   */
+  public UlidTreeMap()
+  {
+    pathNodes = new Inner[INITIAL_PATH_CAPACITY];
+    pathIndices = new int[INITIAL_PATH_CAPACITY];
+
+    reset();
+  }
+
+  /**
+   * Constructs an instance of {@link UlidTreeMap} with the entries of specified
+   * map.
+   *
+   * @param src A map whose entries are copied.
+   * @throws NullPointerException If {@code src} is {@code null} or contains a
+   * {@code null} key.
+   */
+  public UlidTreeMap(Map<? extends Ulid, ? extends V> src)
+  {
+    this();
+
+    putAll(src);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public boolean containsKey(Object key)
+  {
+    Objects.requireNonNull(key, "'key' cannot be null");
+
+    boolean result = false;
+
+    if(key instanceof Ulid)
+    {
+      final Ulid ulid = (Ulid)key;
+
+      result = containsKey(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits());
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks if the map contains specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @return {@code true} if the map contains the key, {@code false} otherwise.
+   */
+  public boolean containsKey(long mostSigBits, long leastSigBits)
+  {
+    final Leaf leaf = findLeaf(mostSigBits, leastSigBits);
+
+    return indexOf(leaf, mostSigBits, leastSigBits) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public V get(Object key)
+  {
+    Objects.requireNonNull(key, "'key' cannot be null");
+
+    V result = null;
+
+    if(key instanceof Ulid)
+    {
+      final Ulid ulid = (Ulid)key;
+
+      result = get(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits());
+    }
+
+    return result;
+  }
+
+  /**
+   * Gets the value mapped to specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @return The value mapped to the key or {@code null} if the map does not
+   * contain the key.
+   */
+  public V get(long mostSigBits, long leastSigBits)
+  {
+    final Leaf leaf = findLeaf(mostSigBits, leastSigBits);
+    final int index = indexOf(leaf, mostSigBits, leastSigBits);
+
+    return (index >= 0 ? this.<V>valueAt(leaf, index) : null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public V put(Ulid key, V value)
+  {
+    Objects.requireNonNull(key, "'key' cannot be null");
+
+    return put(
+      key.getMostSignificantBits(),
+      key.getLeastSignificantBits(),
+      value);
+  }
+
+  /**
+   * Maps specified value to specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @param value A value to be mapped.
+   * @return The value previously mapped to the key or {@code null} if there
+   * was no mapping for the key.
+   */
+  public V put(long mostSigBits, long leastSigBits, V value)
+  {
+    V result = null;
+
+    final Leaf tail = tailLeaf;
+    final int tailCount = tail.count;
+    if(
+      tailCount > 0
+        && tailCount < LEAF_CAPACITY
+        && Uint128Utils.compare(
+          mostSigBits, leastSigBits,
+          tail.keyHis[tailCount - 1], tail.keyLos[tailCount - 1]) > 0
+    )
+    {
+      // The key is the greatest one and the last leaf has a room for it.
+      tail.keyHis[tailCount] = mostSigBits;
+      tail.keyLos[tailCount] = leastSigBits;
+      tail.values[tailCount] = value;
+      ++tail.count;
+
+      ++size;
+      ++modCount;
+    }
+    else
+    {
+      final Leaf leaf = findLeafForUpdate(mostSigBits, leastSigBits);
+      final int index = indexOf(leaf, mostSigBits, leastSigBits);
+
+      if(index >= 0)
+      {
+        result = valueAt(leaf, index);
+        leaf.values[index] = value;
+      }
+      else
+      {
+        insertIntoLeaf(leaf, -(index + 1), mostSigBits, leastSigBits, value);
+
+        ++size;
+        ++modCount;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NullPointerException If {@code key} is {@code null}.
+   */
+  @Override
+  public V remove(Object key)
+  {
+    Objects.requireNonNull(key, "'key' cannot be null");
+
+    V result = null;
+
+    if(key instanceof Ulid)
+    {
+      final Ulid ulid = (Ulid)key;
+
+      result = remove(
+        ulid.getMostSignificantBits(),
+        ulid.getLeastSignificantBits());
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes the mapping of specified key.
+   *
+   * @param mostSigBits The most significant 64 bits of the key.
+   * @param leastSigBits The least significant 64 bits of the key.
+   * @return The value previously mapped to the key or {@code null} if there
+   * was no mapping for the key.
+   */
+  public V remove(long mostSigBits, long leastSigBits)
+  {
+    V result = null;
+
+    final Leaf leaf = findLeafForUpdate(mostSigBits, leastSigBits);
+    final int index = indexOf(leaf, mostSigBits, leastSigBits);
+    if(index >= 0)
+    {
+      result = valueAt(leaf, index);
+      removeFromLeaf(leaf, index);
+
+      --size;
+      ++modCount;
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void clear()
+  {
+    reset();
+
+    ++modCount;
+  }
+
+  /**
+   * Gets the smallest key in the map.
+   *
+   * @return The smallest key.
+   * @throws NoSuchElementException If the map is empty.
+   */
+  public Ulid firstKey()
+  {
+    if(0 == size)
+    {
+      throw new NoSuchElementException("The map is empty");
+    }
+
+    return new Ulid(headLeaf.keyHis[0], headLeaf.keyLos[0]);
+  }
+
+  /**
+   * Gets the greatest key in the map.
+   *
+   * @return The greatest key.
+   * @throws NoSuchElementException If the map is empty.
+   */
+  public Ulid lastKey()
+  {
+    if(0 == size)
+    {
+      throw new NoSuchElementException("The map is empty");
+    }
+
+    final int last = tailLeaf.count - 1;
+
+    return new Ulid(tailLeaf.keyHis[last], tailLeaf.keyLos[last]);
+  }
+
+  /**
+   * <p>
+   * Gets a view of the portion of the map whose keys range from
+   * {@code fromKey}, inclusive, to {@code toKey}, exclusive.
+   * </p>
+   * <p>
+   * The view is backed by the map and iterates its entries in ascending order
+   * of keys. Putting a key out of the range into the view throws an
+   * {@link IllegalArgumentException}. The {@code size()} method of the view
+   * counts the entries in the range.
+   * </p>
+   *
+   * @param fromKey The lower bound of keys, inclusive.
+   * @param toKey The upper bound of keys, exclusive.
+   * @return A view of the portion of the map.
+   * @throws NullPointerException If {@code fromKey} or {@code toKey} is
+   * {@code null}.
+   * @throws IllegalArgumentException If {@code fromKey} is greater than
+   * {@code toKey}.
+   */
+  public Map<Ulid, V> subMap(Ulid fromKey, Ulid toKey)
+  {
+    Objects.requireNonNull(fromKey, "'fromKey' cannot be null");
+    Objects.requireNonNull(toKey, "'toKey' cannot be null");
+    if(fromKey.compareTo(toKey) > 0)
+    {
+      throw new IllegalArgumentException(
+        "'fromKey' cannot be greater than 'toKey'");
+    }
+
+    final long toHi = toKey.getMostSignificantBits();
+    final long toLo = toKey.getLeastSignificantBits();
+    final boolean empty = fromKey.equals(toKey);
+
+    return new RangeView(
+      fromKey.getMostSignificantBits(), fromKey.getLeastSignificantBits(),
+      (0L == toLo ? toHi - 1L : toHi), toLo - 1L,
+      empty);
+  }
+
+  /**
+   * <p>
+   * Gets a view of the portion of the map whose keys have timestamps that range
+   * from {@code fromTimestamp}, inclusive, to {@code toTimestamp}, exclusive.
+   * </p>
+   * <p>
+   * See {@link #subMap(Ulid, Ulid)} for the properties of the view.
+   * </p>
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   * @return A view of the portion of the map.
+   * @throws IllegalArgumentException If {@code fromTimestamp} is greater than
+   * {@code toTimestamp}.
+   */
+  public Map<Ulid, V> subMapByTime(long fromTimestamp, long toTimestamp)
+  {
+    if(fromTimestamp > toTimestamp)
+    {
+      throw new IllegalArgumentException(
+        "'fromTimestamp' cannot be greater than 'toTimestamp'");
+    }
+
+    return createTimeRangeView(fromTimestamp, toTimestamp);
+  }
+
+  /**
+   * <p>
+   * Gets a view of the portion of the map whose keys have timestamps less than
+   * {@code toTimestamp}.
+   * </p>
+   * <p>
+   * See {@link #subMap(Ulid, Ulid)} for the properties of the view.
+   * </p>
+   *
+   * @param toTimestamp The upper bound of timestamps, exclusive.
+   * @return A view of the portion of the map.
+   */
+  public Map<Ulid, V> headByTime(long toTimestamp)
+  {
+    return createTimeRangeView(Ulid.TIMESTAMP_MIN_VALUE, toTimestamp);
+  }
+
+  /**
+   * <p>
+   * Gets a view of the portion of the map whose keys have timestamps greater
+   * than or equal to {@code fromTimestamp}.
+   * </p>
+   * <p>
+   * See {@link #subMap(Ulid, Ulid)} for the properties of the view.
+   * </p>
+   *
+   * @param fromTimestamp The lower bound of timestamps, inclusive.
+   * @return A view of the portion of the map.
+   */
+  public Map<Ulid, V> tailByTime(long fromTimestamp)
+  {
+    return createTimeRangeView(fromTimestamp, Ulid.TIMESTAMP_MAX_VALUE + 1L);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The entries are iterated in ascending order of keys.
+   * </p>
+   */
+  @Override
+  public Set<Map.Entry<Ulid, V>> entrySet()
+  {
+    return new EntrySet(null);
+  }
+
+  private static final int LEAF_CAPACITY = 64;
+
+  private static final int INNER_CAPACITY = 64;
+
+  private static final int INITIAL_PATH_CAPACITY = 8;
+
+  /**
+   * Finds the index of the first element whose key is greater than or equal
+   * to specified key.
+   *
+   * @return The index of the key if found, {@code -(insertionPoint + 1)}
+   * otherwise.
+   */
+  private static int binarySearch(
+    long[] his,
+    long[] los,
+    int count,
+    long hi,
+    long lo
+  )
+  {
+    int low = 0;
+    int high = count - 1;
+    int result = -1;
+
+    while(low <= high)
+    {
+      final int mid = (low + high) >>> 1;
+      final int cmp = Uint128Utils.compare(his[mid], los[mid], hi, lo);
+
+      if(cmp < 0)
+      {
+        low = mid + 1;
+      }
+      else if(cmp > 0)
+      {
+        high = mid - 1;
+      }
+      else
+      {
+        result = mid;
+        low = high + 1;
+      }
+    }
+
+    return (result >= 0 ? result : -(low + 1));
+  }
+
+  private static int childIndexOf(Inner inner, long hi, long lo)
+  {
+    // The number of separators less than or equal to the key is the index of
+    // the child.
+    final int found = binarySearch(
+      inner.keyHis, inner.keyLos, inner.count - 1, hi, lo);
+
+    return (found >= 0 ? found + 1 : -(found + 1));
+  }
+
+  private static int indexOf(Leaf leaf, long hi, long lo)
+  {
+    return binarySearch(leaf.keyHis, leaf.keyLos, leaf.count, hi, lo);
+  }
+
+  private Map<Ulid, V> createTimeRangeView(long fromTimestamp, long toTimestamp)
+  {
+    final long from = Math.max(fromTimestamp, Ulid.TIMESTAMP_MIN_VALUE);
+    final long to = Math.min(toTimestamp, Ulid.TIMESTAMP_MAX_VALUE + 1L);
+    final boolean empty = from >= to;
+
+    return new RangeView(
+      Uint128Utils.timestampToMostSigBits(from), 0L,
+      (empty
+        ? 0L
+        : Uint128Utils.timestampToMostSigBits(to - 1L)
+          | Ulid.RANDOMNESS_MAX_VALUE_MS_BITS),
+      Ulid.RANDOMNESS_MAX_VALUE_LS_BITS,
+      empty);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T valueAt(Leaf leaf, int index)
+  {
+    return (T)leaf.values[index];
+  }
+
+  private void reset()
+  {
+    final Leaf leaf = new Leaf();
+
+    root = leaf;
+    height = 0;
+    headLeaf = leaf;
+    tailLeaf = leaf;
+    size = 0;
+  }
+
+  /**
+   * Finds the leaf that may contain specified key without touching any
+   * shared state, so that concurrent readers can call it.
+   */
+  private Leaf findLeaf(long hi, long lo)
+  {
+    Node node = root;
+
+    for(int depth = 0; depth < height; ++depth)
+    {
+      final Inner inner = (Inner)node;
+      node = inner.children[childIndexOf(inner, hi, lo)];
+    }
+
+    return (Leaf)node;
+  }
+
+  /**
+   * Finds the leaf that may contain specified key and records the path from
+   * the root to the leaf for a following insertion or removal.
+   */
+  private Leaf findLeafForUpdate(long hi, long lo)
+  {
+    Node node = root;
+
+    for(int depth = 0; depth < height; ++depth)
+    {
+      final Inner inner = (Inner)node;
+      final int childIndex = childIndexOf(inner, hi, lo);
+
+      pathNodes[depth] = inner;
+      pathIndices[depth] = childIndex;
+
+      node = inner.children[childIndex];
+    }
+
+    return (Leaf)node;
+  }
+
+  private void insertIntoLeaf(
+    Leaf leaf,
+    int position,
+    long hi,
+    long lo,
+    Object value
+  )
+  {
+    final int count = leaf.count;
+
+    if(count < LEAF_CAPACITY)
+    {
+      insertAt(leaf, position, hi, lo, value);
+    }
+    else
+    {
+      // Keep the leaf full if the key is appended to the end of the map.
+      final boolean appending = (position == count && null == leaf.next);
+      final int splitAt = (appending ? count : (count >>> 1));
+      final Leaf right = new Leaf();
+      final int moved = count - splitAt;
+
+      System.arraycopy(leaf.keyHis, splitAt, right.keyHis, 0, moved);
+      System.arraycopy(leaf.keyLos, splitAt, right.keyLos, 0, moved);
+      System.arraycopy(leaf.values, splitAt, right.values, 0, moved);
+      Arrays.fill(leaf.values, splitAt, count, null);
+      leaf.count = splitAt;
+      right.count = moved;
+
+      if(position < splitAt)
+      {
+        insertAt(leaf, position, hi, lo, value);
+      }
+      else
+      {
+        insertAt(right, position - splitAt, hi, lo, value);
+      }
+
+      right.prev = leaf;
+      right.next = leaf.next;
+      if(null != leaf.next)
+      {
+        leaf.next.prev = right;
+      }
+      else
+      {
+        tailLeaf = right;
+      }
+      leaf.next = right;
+
+      insertIntoParent(
+        height - 1,
+        right.keyHis[0], right.keyLos[0],
+        right,
+        appending);
+    }
+  }
+
+  private static void insertAt(
+    Leaf leaf,
+    int position,
+    long hi,
+    long lo,
+    Object value
+  )
+  {
+    final int moved = leaf.count - position;
+
+    System.arraycopy(leaf.keyHis, position, leaf.keyHis, position + 1, moved);
+    System.arraycopy(leaf.keyLos, position, leaf.keyLos, position + 1, moved);
+    System.arraycopy(leaf.values, position, leaf.values, position + 1, moved);
+    leaf.keyHis[position] = hi;
+    leaf.keyLos[position] = lo;
+    leaf.values[position] = value;
+    ++leaf.count;
+  }
+
+  /**
+   * Inserts a new right sibling of the node at the {@code level + 1} of the
+   * recorded path into the parent.
+   */
+  private void insertIntoParent(
+    int level,
+    long separatorHi,
+    long separatorLo,
+    Node right,
+    boolean appending
+  )
+  {
+    if(level < 0)
+    {
+      final Inner newRoot = new Inner();
+      newRoot.children[0] = root;
+      newRoot.children[1] = right;
+      newRoot.keyHis[0] = separatorHi;
+      newRoot.keyLos[0] = separatorLo;
+      newRoot.count = 2;
+
+      root = newRoot;
+      ++height;
+
+      if(height > pathNodes.length)
+      {
+        pathNodes = Arrays.copyOf(pathNodes, pathNodes.length << 1);
+        pathIndices = Arrays.copyOf(pathIndices, pathIndices.length << 1);
+      }
+    }
+    else
+    {
+      final Inner parent = pathNodes[level];
+      final int childPosition = pathIndices[level] + 1;
+      final int count = parent.count;
+
+      if(count < INNER_CAPACITY)
+      {
+        insertChildAt(parent, childPosition, separatorHi, separatorLo, right);
+      }
+      else
+      {
+        final long[] his = new long[count];
+        final long[] los = new long[count];
+        final Node[] children = new Node[count + 1];
+
+        System.arraycopy(parent.keyHis, 0, his, 0, childPosition - 1);
+        System.arraycopy(parent.keyLos, 0, los, 0, childPosition - 1);
+        his[childPosition - 1] = separatorHi;
+        los[childPosition - 1] = separatorLo;
+        System.arraycopy(
+          parent.keyHis, childPosition - 1,
+          his, childPosition,
+          count - childPosition);
+        System.arraycopy(
+          parent.keyLos, childPosition - 1,
+          los, childPosition,
+          count - childPosition);
+        System.arraycopy(parent.children, 0, children, 0, childPosition);
+        children[childPosition] = right;
+        System.arraycopy(
+          parent.children, childPosition,
+          children, childPosition + 1,
+          count - childPosition);
+
+        // The number of children that stay in the parent.
+        final int leftCount = (appending ? count : ((count + 1) >>> 1));
+        final int rightCount = count + 1 - leftCount;
+        final Inner sibling = new Inner();
+
+        Arrays.fill(parent.children, null);
+        System.arraycopy(children, 0, parent.children, 0, leftCount);
+        System.arraycopy(his, 0, parent.keyHis, 0, leftCount - 1);
+        System.arraycopy(los, 0, parent.keyLos, 0, leftCount - 1);
+        parent.count = leftCount;
+
+        System.arraycopy(children, leftCount, sibling.children, 0, rightCount);
+        System.arraycopy(his, leftCount, sibling.keyHis, 0, rightCount - 1);
+        System.arraycopy(los, leftCount, sibling.keyLos, 0, rightCount - 1);
+        sibling.count = rightCount;
+
+        insertIntoParent(
+          level - 1,
+          his[leftCount - 1], los[leftCount - 1],
+          sibling,
+          appending);
+      }
+    }
+  }
+
+  private static void insertChildAt(
+    Inner inner,
+    int childPosition,
+    long separatorHi,
+    long separatorLo,
+    Node child
+  )
+  {
+    final int count = inner.count;
+    final int separatorPosition = childPosition - 1;
+    final int movedSeparators = count - 1 - separatorPosition;
+
+    System.arraycopy(
+      inner.keyHis, separatorPosition,
+      inner.keyHis, separatorPosition + 1,
+      movedSeparators);
+    System.arraycopy(
+      inner.keyLos, separatorPosition,
+      inner.keyLos, separatorPosition + 1,
+      movedSeparators);
+    System.arraycopy(
+      inner.children, childPosition,
+      inner.children, childPosition + 1,
+      count - childPosition);
+    inner.keyHis[separatorPosition] = separatorHi;
+    inner.keyLos[separatorPosition] = separatorLo;
+    inner.children[childPosition] = child;
+    ++inner.count;
+  }
+
+  private void removeFromLeaf(Leaf leaf, int index)
+  {
+    final int moved = leaf.count - index - 1;
+
+    System.arraycopy(leaf.keyHis, index + 1, leaf.keyHis, index, moved);
+    System.arraycopy(leaf.keyLos, index + 1, leaf.keyLos, index, moved);
+    System.arraycopy(leaf.values, index + 1, leaf.values, index, moved);
+    leaf.values[--leaf.count] = null;
+
+    // Underfull leaves are tolerated but empty ones are unlinked so that
+    // removing old entries does not leave garbage behind.
+    if(0 == leaf.count && leaf != root)
+    {
+      if(null != leaf.prev)
+      {
+        leaf.prev.next = leaf.next;
+      }
+      else
+      {
+        headLeaf = leaf.next;
+      }
+
+      if(null != leaf.next)
+      {
+        leaf.next.prev = leaf.prev;
+      }
+      else
+      {
+        tailLeaf = leaf.prev;
+      }
+
+      removeChild(height - 1);
+    }
+  }
+
+  /**
+   * Removes the child at the recorded path from the inner node at specified
+   * level.
+   */
+  private void removeChild(int level)
+  {
+    final Inner inner = pathNodes[level];
+    final int childIndex = pathIndices[level];
+    final int count = inner.count;
+
+    if(count > 1)
+    {
+      final int separatorIndex = (childIndex > 0 ? childIndex - 1 : 0);
+      final int movedSeparators = count - 2 - separatorIndex;
+
+      System.arraycopy(
+        inner.keyHis, separatorIndex + 1,
+        inner.keyHis, separatorIndex,
+        movedSeparators);
+      System.arraycopy(
+        inner.keyLos, separatorIndex + 1,
+        inner.keyLos, separatorIndex,
+        movedSeparators);
+      System.arraycopy(
+        inner.children, childIndex + 1,
+        inner.children, childIndex,
+        count - childIndex - 1);
+      inner.children[count - 1] = null;
+      inner.count = count - 1;
+    }
+    else
+    {
+      inner.children[0] = null;
+      inner.count = 0;
+
+      removeChild(level - 1);
+    }
+
+    while(height > 0 && 1 == ((Inner)root).count)
+    {
+      root = ((Inner)root).children[0];
+      --height;
+    }
+  }
+
+  private static abstract class Node
+  {
+    protected Node(int keyCapacity)
+    {
+      keyHis = new long[keyCapacity];
+      keyLos = new long[keyCapacity];
+    }
+
+    protected final long[] keyHis;
+
+    protected final long[] keyLos;
+
+    /**
+     * The number of keys for leaves and the number of children for inner
+     * nodes.
+     */
+    protected int count;
+  }
+
+  private static final class Leaf extends Node
+  {
+    public Leaf()
+    {
+      super(LEAF_CAPACITY);
+
+      values = new Object[LEAF_CAPACITY];
+    }
+
+    private final Object[] values;
+
+    private Leaf prev;
+
+    private Leaf next;
+  }
+
+  private static final class Inner extends Node
+  {
+    public Inner()
+    {
+      super(INNER_CAPACITY - 1);
+
+      children = new Node[INNER_CAPACITY];
+    }
+
+    private final Node[] children;
+  }
+
+  private final class RangeView extends AbstractMap<Ulid, V>
+  {
+    public RangeView(
+      long lowHi,
+      long lowLo,
+      long highHi,
+      long highLo,
+      boolean empty
+    )
+    {
+      bounds = new long[] {lowHi, lowLo, highHi, highLo};
+      this.empty = empty;
+    }
+
+    @Override
+    public int size()
+    {
+      return entrySet().size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+      return !entrySet().iterator().hasNext();
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+      Objects.requireNonNull(key, "'key' cannot be null");
+
+      return key instanceof Ulid
+        && inRange((Ulid)key)
+        && UlidTreeMap.this.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key)
+    {
+      Objects.requireNonNull(key, "'key' cannot be null");
+
+      return (key instanceof Ulid && inRange((Ulid)key)
+        ? UlidTreeMap.this.get(key)
+        : null);
+    }
+
+    @Override
+    public V put(Ulid key, V value)
+    {
+      Objects.requireNonNull(key, "'key' cannot be null");
+      if(!inRange(key))
+      {
+        throw new IllegalArgumentException("'key' is out of range");
+      }
+
+      return UlidTreeMap.this.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+      Objects.requireNonNull(key, "'key' cannot be null");
+
+      return (key instanceof Ulid && inRange((Ulid)key)
+        ? UlidTreeMap.this.remove(key)
+        : null);
+    }
+
+    @Override
+    public Set<Map.Entry<Ulid, V>> entrySet()
+    {
+      return (empty
+        ? Collections.<Map.Entry<Ulid, V>>emptySet()
+        : new EntrySet(bounds));
+    }
+
+    @Override
+    public void clear()
+    {
+      for(final Iterator<Map.Entry<Ulid, V>> iter = entrySet().iterator(); iter
+        .hasNext();)
+      {
+        iter.next();
+        iter.remove();
+      }
+    }
+
+    private boolean inRange(Ulid key)
+    {
+      final long hi = key.getMostSignificantBits();
+      final long lo = key.getLeastSignificantBits();
+
+      return !empty
+        && Uint128Utils.compare(hi, lo, bounds[0], bounds[1]) >= 0
+        && Uint128Utils.compare(hi, lo, bounds[2], bounds[3]) <= 0;
+    }
+
+    /**
+     * The lower bound and the upper bound of keys, both inclusive.
+     */
+    private final long[] bounds;
+
+    private final boolean empty;
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<Ulid, V>>
+  {
+    /**
+     * @param bounds The inclusive bounds of keys or {@code null} if the set
+     * covers the whole map.
+     */
+    public EntrySet(long[] bounds)
+    {
+      this.bounds = bounds;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Ulid, V>> iterator()
+    {
+      return new EntryIterator(bounds);
+    }
+
+    @Override
+    public int size()
+    {
+      int result = size;
+
+      if(null != bounds)
+      {
+        result = 0;
+        for(final Iterator<Map.Entry<Ulid, V>> iter = iterator(); iter
+          .hasNext(); iter.next())
+        {
+          ++result;
+        }
+      }
+
+      return result;
+    }
+
+    private final long[] bounds;
+  }
+
+  private final class EntryIterator implements Iterator<Map.Entry<Ulid, V>>
+  {
+    public EntryIterator(long[] bounds)
+    {
+      this.bounds = bounds;
+      expectedModCount = modCount;
+
+      if(null == bounds)
+      {
+        leaf = headLeaf;
+        index = 0;
+      }
+      else
+      {
+        seek(bounds[0], bounds[1]);
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      boolean result = null != leaf && index < leaf.count;
+
+      if(result && null != bounds)
+      {
+        result = Uint128Utils.compare(
+          leaf.keyHis[index], leaf.keyLos[index],
+          bounds[2], bounds[3]) <= 0;
+      }
+
+      return result;
+    }
+
+    @Override
+    public Map.Entry<Ulid, V> next()
+    {
+      if(modCount != expectedModCount)
+      {
+        throw new ConcurrentModificationException();
+      }
+      if(!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+
+      final Map.Entry<Ulid, V> entry = new TreeEntry(
+        new Ulid(leaf.keyHis[index], leaf.keyLos[index]),
+        UlidTreeMap.this.<V>valueAt(leaf, index));
+      lastReturned = entry.getKey();
+
+      if(++index >= leaf.count)
+      {
+        leaf = leaf.next;
+        index = 0;
+      }
+
+      return entry;
+    }
+
+    @Override
+    public void remove()
+    {
+      if(null == lastReturned)
+      {
+        throw new IllegalStateException();
+      }
+      if(modCount != expectedModCount)
+      {
+        throw new ConcurrentModificationException();
+      }
+
+      final long hi = lastReturned.getMostSignificantBits();
+      final long lo = lastReturned.getLeastSignificantBits();
+
+      UlidTreeMap.this.remove(hi, lo);
+      expectedModCount = modCount;
+      lastReturned = null;
+
+      // Leaves may have been unlinked, so find the successor again.
+      seek(hi, lo);
+    }
+
+    private void seek(long hi, long lo)
+    {
+      leaf = findLeaf(hi, lo);
+      final int found = indexOf(leaf, hi, lo);
+      index = (found >= 0 ? found : -(found + 1));
+
+      if(index >= leaf.count)
+      {
+        leaf = leaf.next;
+        index = 0;
+      }
+    }
+
+    private final long[] bounds;
+
+    private int expectedModCount;
+
+    private Leaf leaf;
+
+    private int index;
+
+    private Ulid lastReturned;
+  }
+
+  private final class TreeEntry extends AbstractMap.SimpleEntry<Ulid, V>
+  {
+    public TreeEntry(Ulid key, V value)
+    {
+      super(key, value);
+    }
+
+    @Override
+    public V setValue(V value)
+    {
+      final Ulid key = getKey();
+      final long hi = key.getMostSignificantBits();
+      final long lo = key.getLeastSignificantBits();
+      final Leaf leaf = findLeaf(hi, lo);
+      final int index = indexOf(leaf, hi, lo);
+      if(index < 0)
+      {
+        throw new IllegalStateException("The entry has been removed");
+      }
+
+      leaf.values[index] = value;
+
+      return super.setValue(value);
+    }
+
+    private static final long serialVersionUID = 1L;
+  }
+
+  private Node root;
+
+  /**
+   * The number of inner node levels.
+   */
+  private int height;
+
+  private Leaf headLeaf;
+
+  private Leaf tailLeaf;
+
+  private int size;
+
+  private int modCount;
+
+  private Inner[] pathNodes;
+
+  private int[] pathIndices;
+}
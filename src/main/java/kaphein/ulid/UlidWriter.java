@@ -0,0 +1,336 @@
+package kaphein.ulid;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Writes ULIDs to an {@link OutputStream} or a {@link WritableByteChannel}
+ * in a {@link UlidFormat}.
+ * </p>
+ * <p>
+ * ULIDs are encoded directly into a large internal buffer, which is written
+ * to the underlying stream only when it is full, flushed or closed. No
+ * string or byte array is created per ULID.
+ * </p>
+ * <p>
+ * Instances of this class are NOT thread-safe.
+ * </p>
+ *
+ * @author Hydrawisk793
+ */
+public class UlidWriter implements Closeable, Flushable
+{
+  /**
+   * Constructs an instance of {@link UlidWriter} that writes to a stream.
+   *
+   * @param out An output stream.
+   * @param format The format of the output.
+   * @throws NullPointerException If {@code out} or {@code format} is
+   * {@code null}.
+   */
+  public UlidWriter(OutputStream out, UlidFormat format)
+  {
+    this(Objects.requireNonNull(out, "'out' cannot be null"), null, format);
+  }
+
+  /**
+   * Constructs an instance of {@link UlidWriter} that writes to a channel.
+   *
+   * @param channel A writable channel.
+   * @param format The format of the output.
+   * @throws NullPointerException If {@code channel} or {@code format} is
+   * {@code null}.
+   */
+  public UlidWriter(WritableByteChannel channel, UlidFormat format)
+  {
+    this(
+      null,
+      Objects.requireNonNull(channel, "'channel' cannot be null"),
+      format);
+  }
+
+  /**
+   * Gets the format of the output.
+   *
+   * @return The format of the output.
+   */
+  public UlidFormat getFormat()
+  {
+    return format;
+  }
+
+  /**
+   * Writes an ULID.
+   *
+   * @param ulid An ULID.
+   * @throws NullPointerException If {@code ulid} is {@code null}.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(Ulid ulid)
+    throws IOException
+  {
+    Objects.requireNonNull(ulid, "'ulid' cannot be null");
+
+    write(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+  }
+
+  /**
+   * Writes an ULID.
+   *
+   * @param mostSigBits The most significant 64 bits of the ULID.
+   * @param leastSigBits The least significant 64 bits of the ULID.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(long mostSigBits, long leastSigBits)
+    throws IOException
+  {
+    if(BUFFER_SIZE - position < recordSize)
+    {
+      flushBuffer();
+    }
+    encode(mostSigBits, leastSigBits);
+  }
+
+  /**
+   * Writes ULIDs in an array.
+   *
+   * @param ulids An array of ULIDs.
+   * @param offset The index of the first ULID to write.
+   * @param length The number of ULIDs to write.
+   * @throws NullPointerException If {@code ulids} or one of the ULIDs to
+   * write is {@code null}.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is
+   * out of range.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(Ulid[] ulids, int offset, int length)
+    throws IOException
+  {
+    Objects.requireNonNull(ulids, "'ulids' cannot be null");
+    ArrayUtils.checkRange(ulids.length, offset, length);
+
+    for(int i = offset, end = offset + length; i < end;)
+    {
+      if(BUFFER_SIZE - position < recordSize)
+      {
+        flushBuffer();
+      }
+
+      final int batchEnd = Math.min(
+        end,
+        i + (BUFFER_SIZE - position) / recordSize);
+      for(; i < batchEnd; ++i)
+      {
+        final Ulid ulid = ulids[i];
+        encode(ulid.getMostSignificantBits(), ulid.getLeastSignificantBits());
+      }
+    }
+  }
+
+  /**
+   * Writes ULIDs in an array of pairs of the most significant 64 bits and the
+   * least significant 64 bits.
+   *
+   * @param hiLo An array of {@code [mostSigBits0, leastSigBits0,
+   * mostSigBits1, leastSigBits1, ...]}.
+   * @param offset The index of the most significant 64 bits of the first
+   * ULID to write.
+   * @param count The number of ULIDs to write.
+   * @throws NullPointerException If {@code hiLo} is {@code null}.
+   * @throws IllegalArgumentException If {@code count} is negative.
+   * @throws IndexOutOfBoundsException If {@code offset} or {@code count} is
+   * out of range.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(long[] hiLo, int offset, int count)
+    throws IOException
+  {
+    Objects.requireNonNull(hiLo, "'hiLo' cannot be null");
+    if(count < 0)
+    {
+      throw new IllegalArgumentException("'count' cannot be negative");
+    }
+    ArrayUtils.checkRange(hiLo.length, offset, count << 1);
+
+    for(int i = offset, end = offset + (count << 1); i < end;)
+    {
+      if(BUFFER_SIZE - position < recordSize)
+      {
+        flushBuffer();
+      }
+
+      final int batchEnd = Math.min(
+        end,
+        i + ((BUFFER_SIZE - position) / recordSize << 1));
+      for(; i < batchEnd; i += 2)
+      {
+        encode(hiLo[i], hiLo[i + 1]);
+      }
+    }
+  }
+
+  /**
+   * Writes the buffered ULIDs and flushes the underlying stream if it is an
+   * {@link OutputStream}.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void flush()
+    throws IOException
+  {
+    flushBuffer();
+    if(null != out)
+    {
+      out.flush();
+    }
+  }
+
+  /**
+   * Writes the buffered ULIDs and closes the underlying stream.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close()
+    throws IOException
+  {
+    try
+    {
+      flushBuffer();
+    }
+    finally
+    {
+      if(null != out)
+      {
+        out.close();
+      }
+      else
+      {
+        channel.close();
+      }
+    }
+  }
+
+  static final int BUFFER_SIZE = 1 << 20;
+
+  static final int HEX_LENGTH = Ulid.BYTES * 2;
+
+  static int recordSizeOf(UlidFormat format)
+  {
+    final int result;
+
+    switch(format)
+    {
+    case TEXT:
+      result = Ulid.ENCODED_LENGTH + 1;
+      break;
+    case HEX:
+      result = HEX_LENGTH + 1;
+      break;
+    default:
+      result = Ulid.BYTES;
+    }
+
+    return result;
+  }
+
+  private static final byte[] HEX_DIGITS = {
+    '0', '1', '2', '3', '4', '5', '6', '7',
+    '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+  };
+
+  private UlidWriter(
+    OutputStream out,
+    WritableByteChannel channel,
+    UlidFormat format
+  )
+  {
+    this.format = Objects.requireNonNull(format, "'format' cannot be null");
+    this.out = out;
+    this.channel = channel;
+    buffer = new byte[BUFFER_SIZE];
+    byteBuffer = ByteBuffer.wrap(buffer);
+    recordSize = recordSizeOf(format);
+    position = 0;
+  }
+
+  /**
+   * Encodes an ULID to the buffer that has enough room.
+   */
+  private void encode(long mostSigBits, long leastSigBits)
+  {
+    switch(format)
+    {
+    case TEXT:
+      CrockfordBase32Codec.encodeUlid(
+        mostSigBits,
+        leastSigBits,
+        buffer,
+        position);
+      buffer[position + Ulid.ENCODED_LENGTH] = '\n';
+      break;
+    case HEX:
+      encodeHex(mostSigBits, position);
+      encodeHex(leastSigBits, position + 16);
+      buffer[position + HEX_LENGTH] = '\n';
+      break;
+    default:
+      byteBuffer.putLong(position, mostSigBits);
+      byteBuffer.putLong(position + 8, leastSigBits);
+    }
+    position += recordSize;
+  }
+
+  private void encodeHex(long value, int offset)
+  {
+    long v = value;
+    for(int i = offset + 16; --i >= offset;)
+    {
+      buffer[i] = HEX_DIGITS[(int)v & 0x0F];
+      v >>>= 4;
+    }
+  }
+
+  private void flushBuffer()
+    throws IOException
+  {
+    if(position > 0)
+    {
+      if(null != out)
+      {
+        out.write(buffer, 0, position);
+      }
+      else
+      {
+        byteBuffer.limit(position).position(0);
+        while(byteBuffer.hasRemaining())
+        {
+          channel.write(byteBuffer);
+        }
+        byteBuffer.clear();
+      }
+      position = 0;
+    }
+  }
+
+  private final UlidFormat format;
+
+  private final OutputStream out;
+
+  private final WritableByteChannel channel;
+
+  private final byte[] buffer;
+
+  private final ByteBuffer byteBuffer;
+
+  private final int recordSize;
+
+  private int position;
+}
@@ -0,0 +1,122 @@
+package kaphein.ulid;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for variable-length integers. Each byte holds 7 bits of a value,
+ * least significant group first, and its most significant bit tells whether
+ * more bytes follow.
+ *
+ * @author Hydrawisk793
+ */
+final class VarIntUtils
+{
+  /**
+   * The maximum number of bytes of a variable-length 64-bit integer.
+   */
+  public static final int MAX_VAR_LONG_SIZE = 10;
+
+  /**
+   * Writes a variable-length 64-bit integer.
+   *
+   * @param dst A buffer to write to.
+   * @param value A value that is treated as an unsigned integer.
+   */
+  public static void putVarLong(ByteBuffer dst, long value)
+  {
+    long remaining = value;
+    while(0L != (remaining & ~0x7FL))
+    {
+      dst.put((byte)((remaining & 0x7FL) | 0x80L));
+      remaining >>>= 7;
+    }
+    dst.put((byte)remaining);
+  }
+
+  /**
+   * Reads a variable-length 64-bit integer.
+   *
+   * @param src A buffer to read from.
+   * @return The value.
+   * @throws BufferUnderflowException If the buffer ends in the middle of the
+   * value.
+   * @throws IllegalArgumentException If the value is longer than
+   * {@link #MAX_VAR_LONG_SIZE} bytes.
+   */
+  public static long getVarLong(ByteBuffer src)
+  {
+    long result = 0L;
+
+    for(int shift = 0; ; shift += 7)
+    {
+      if(shift >= MAX_VAR_LONG_SIZE * 7)
+      {
+        throw new IllegalArgumentException(
+          "The variable-length integer is too long");
+      }
+
+      final byte b = src.get();
+      result |= (long)(b & 0x7F) << shift;
+      if(b >= 0)
+      {
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks if a buffer has a complete variable-length integer from its
+   * position.
+   *
+   * @param src A buffer.
+   * @return {@code true} if a complete value can be read, {@code false}
+   * otherwise. A value that is too long is reported as complete so that
+   * {@link #getVarLong(ByteBuffer)} can report the error.
+   */
+  public static boolean hasVarLong(ByteBuffer src)
+  {
+    final int limit = Math.min(
+      src.limit(),
+      src.position() + MAX_VAR_LONG_SIZE);
+    boolean result = limit - src.position() >= MAX_VAR_LONG_SIZE;
+
+    for(int i = src.position(); !result && i < limit; ++i)
+    {
+      result = src.get(i) >= 0;
+    }
+
+    return result;
+  }
+
+  /**
+   * Maps a signed value to an unsigned value so that values of small
+   * magnitude become small.
+   *
+   * @param value A signed value.
+   * @return The zig-zag encoded value.
+   */
+  public static long zigZagEncode(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Reverts {@link #zigZagEncode(long)}.
+   *
+   * @param value A zig-zag encoded value.
+   * @return The signed value.
+   */
+  public static long zigZagDecode(long value)
+  {
+    return (value >>> 1) ^ -(value & 1L);
+  }
+
+  private VarIntUtils()
+  {
+    throw new AssertionError(
+      "Class " + getClass().getName() + " cannot be instantiated");
+  }
+}
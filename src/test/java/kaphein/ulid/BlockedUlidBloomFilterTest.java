@@ -0,0 +1,104 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BlockedUlidBloomFilterTest
+{
+  @Test
+  public void noFalseNegativesAndFewFalsePositives()
+  {
+    final BlockedUlidBloomFilter filter = new BlockedUlidBloomFilter(
+      100000L,
+      0.01);
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 100000; ++i)
+    {
+      filter.put(random.nextLong(), random.nextLong());
+    }
+
+    int falsePositiveCount = 0;
+    for(int i = 0; i < 100000; ++i)
+    {
+      if(filter.mightContain(random.nextLong(), random.nextLong()))
+      {
+        ++falsePositiveCount;
+      }
+    }
+
+    random.setSeed(793L);
+    for(int i = 0; i < 100000; ++i)
+    {
+      assertThat(
+        filter.mightContain(random.nextLong(), random.nextLong()),
+        is(true));
+    }
+    assertThat(falsePositiveCount, is(lessThan(2000)));
+  }
+
+  @Test
+  public void monotonicUlids()
+  {
+    final BlockedUlidBloomFilter filter = new BlockedUlidBloomFilter(
+      50000L,
+      0.01);
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(100000);
+
+    for(int i = 0; i < 50000; ++i)
+    {
+      filter.put(ulids.get(i));
+    }
+
+    int falsePositiveCount = 0;
+    for(int i = 0; i < 100000; ++i)
+    {
+      final boolean contained = filter.mightContain(ulids.get(i));
+      if(i < 50000)
+      {
+        assertThat(contained, is(true));
+      }
+      else if(contained)
+      {
+        ++falsePositiveCount;
+      }
+    }
+
+    assertThat(falsePositiveCount, is(lessThan(1000)));
+  }
+
+  @Test
+  public void mergeAndSerialize()
+  {
+    final BlockedUlidBloomFilter first = new BlockedUlidBloomFilter(
+      1000L,
+      0.001);
+    final BlockedUlidBloomFilter second = new BlockedUlidBloomFilter(
+      1000L,
+      0.001);
+    final Ulid a = Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK");
+    final Ulid b = Ulid.parse("01HAKQK7G0XQ5BHRT7XH1ZT8Y4");
+
+    assertThat(first.put(a), is(true));
+    assertThat(first.put(a), is(false));
+    second.put(b);
+    first.merge(second);
+
+    final AbstractUlidBloomFilter copy = AbstractUlidBloomFilter
+      .from(first.toByteArray(), 0);
+
+    assertThat(copy, is(instanceOf(BlockedUlidBloomFilter.class)));
+    assertThat(copy.mightContain(a), is(true));
+    assertThat(copy.mightContain(b), is(true));
+  }
+}
@@ -0,0 +1,97 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ConcurrentUlidTreeMapTest
+{
+  @Test
+  public void putFromManyThreads()
+    throws InterruptedException
+  {
+    final ConcurrentUlidTreeMap<Integer> map = new ConcurrentUlidTreeMap<>();
+    final int threadCount = 4;
+    final int countPerThread = 10000;
+    final List<Thread> threads = new ArrayList<>();
+
+    for(int i = 0; i < threadCount; ++i)
+    {
+      final int threadIndex = i;
+      final Thread thread = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for(int j = 0; j < countPerThread; ++j)
+          {
+            map.put((long)j << 16, threadIndex, j);
+            map.get((long)j << 16, threadIndex);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for(final Thread thread : threads)
+    {
+      thread.join();
+    }
+
+    assertThat(map.size(), is(threadCount * countPerThread));
+    assertThat(map.firstKey(), is(Ulid.MIN_VALUE));
+    assertThat(map.lastKey().getTimestamp(), is(countPerThread - 1L));
+  }
+
+  @Test
+  public void snapshots()
+  {
+    final ConcurrentUlidTreeMap<Integer> map = new ConcurrentUlidTreeMap<>();
+    for(int timestamp = 0; timestamp < 10; ++timestamp)
+    {
+      map.put(Ulid.from(timestamp, new long[] {0L, 0L}), timestamp);
+    }
+
+    final UlidTreeMap<Integer> snapshot = map.subMapByTime(2L, 5L);
+    map.put(Ulid.from(3L, new long[] {0L, 1L}), 3);
+
+    assertThat(snapshot.values(), contains(2, 3, 4));
+    assertThat(map.headByTime(2L).values(), contains(0, 1));
+    assertThat(map.tailByTime(8L).values(), contains(8, 9));
+
+    map.removeHeadByTime(5L);
+
+    assertThat(map.values(), contains(5, 6, 7, 8, 9));
+  }
+
+  @Test
+  public void compareWithOtherMaps()
+  {
+    final ConcurrentUlidTreeMap<Integer> map = new ConcurrentUlidTreeMap<>();
+    final ConcurrentUlidTreeMap<Integer> other = new ConcurrentUlidTreeMap<>();
+    final UlidTreeMap<Integer> expected = new UlidTreeMap<>();
+    for(int timestamp = 0; timestamp < 100; ++timestamp)
+    {
+      final Ulid key = Ulid.from(timestamp, new long[] {0L, timestamp});
+      map.put(key, timestamp);
+      other.put(key, timestamp);
+      expected.put(key, timestamp);
+    }
+
+    assertThat(map.containsValue(42), is(true));
+    assertThat(map.containsValue(100), is(false));
+    assertThat(map.equals(expected), is(true));
+    assertThat(expected.equals(map), is(true));
+    assertThat(map.equals(other), is(true));
+    assertThat(map.hashCode(), is(expected.hashCode()));
+    assertThat(map.toString(), is(expected.toString()));
+
+    other.put(Ulid.MIN_VALUE, -1);
+    assertThat(map.equals(other), is(false));
+  }
+}
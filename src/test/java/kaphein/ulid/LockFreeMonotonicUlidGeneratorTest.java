@@ -0,0 +1,172 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class LockFreeMonotonicUlidGeneratorTest
+{
+  @Test
+  public void generateWithOddParameters()
+  {
+    final LockFreeMonotonicUlidGenerator generator
+      = new LockFreeMonotonicUlidGenerator();
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generate(-1);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generate(0, -1L);
+      }
+    });
+    assertThat(generator.generate(0), is(empty()));
+    assertThat(generator.generate(0, 0L), is(empty()));
+  }
+
+  @Test
+  public void generateWithLoweredTimestamp()
+  {
+    final LockFreeMonotonicUlidGenerator generator
+      = new LockFreeMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(1000L, 3),
+        new PredictableRandom(4));
+
+    final Ulid firstUlid = generator.generate(1).get(0);
+    final Ulid secondUlid = generator.generate(1, 900L).get(0);
+
+    assertThat(secondUlid.getTimestamp(), is(firstUlid.getTimestamp()));
+    testUlidOrder(Arrays.asList(firstUlid, secondUlid));
+  }
+
+  @Test
+  public void generateManyWhenOverflow()
+  {
+    final LockFreeMonotonicUlidGenerator generator
+      = new LockFreeMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(0L, 2),
+        new PredictableRandom(3));
+    final int count = 5;
+
+    final List<Ulid> ulids = generator.generate(count);
+
+    assertThat(ulids.size(), lessThan(count));
+    testUlidOrder(ulids);
+    assertThat(generator.generate(count), is(empty()));
+    assertThat(generator.generate(count), is(not(empty())));
+  }
+
+  @Test
+  public void generateExactManyWithTimestamp()
+    throws InterruptedException
+  {
+    final LockFreeMonotonicUlidGenerator generator
+      = new LockFreeMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(1000L, 3),
+        new PredictableRandom(4));
+    final int count = 2000;
+    final long initialTimestamp = 900L;
+
+    final List<Ulid> ulids = generator.generateExact(count, initialTimestamp);
+
+    assertThat(ulids, hasSize(count));
+    testUlidOrder(ulids);
+    for(final Ulid ulid : ulids)
+    {
+      assertThat(ulid.getTimestamp(), greaterThanOrEqualTo(initialTimestamp));
+    }
+  }
+
+  @Test
+  public void generateFromManyThreads()
+    throws InterruptedException
+  {
+    final LockFreeMonotonicUlidGenerator generator
+      = new LockFreeMonotonicUlidGenerator();
+    final int threadCount = 16;
+    final int countPerThread = 20000;
+    final List<List<Ulid>> results = new ArrayList<>();
+    final List<Thread> threads = new ArrayList<>();
+
+    for(int i = 0; i < threadCount; ++i)
+    {
+      final List<Ulid> result = new ArrayList<>();
+      results.add(result);
+      final Thread thread = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for(int j = 0; j < countPerThread; ++j)
+          {
+            result.addAll(generator.generate(1 + j % 3));
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for(final Thread thread : threads)
+    {
+      thread.join();
+    }
+
+    final Set<Ulid> ulids = new HashSet<>();
+    int count = 0;
+    for(final List<Ulid> result : results)
+    {
+      for(int i = 1; i < result.size(); ++i)
+      {
+        assertThat(result.get(i), greaterThan(result.get(i - 1)));
+      }
+      ulids.addAll(result);
+      count += result.size();
+    }
+    assertThat(ulids.size(), is(count));
+  }
+
+  private static void testUlidOrder(List<Ulid> ulids)
+  {
+    for(int i = 1; i < ulids.size(); ++i)
+    {
+      final Ulid prevUlid = ulids.get(i - 1);
+      final Ulid ulid = ulids.get(i);
+
+      assertThat(ulid, greaterThan(prevUlid));
+      if(prevUlid.getTimestamp() == ulid.getTimestamp())
+      {
+        final BigInteger randomness = new BigInteger(
+          ulid.getRandomnessAsByteArray());
+        final BigInteger prevRandomness = new BigInteger(
+          prevUlid.getRandomnessAsByteArray());
+        assertThat(randomness.subtract(prevRandomness).intValue(), is(1));
+      }
+    }
+  }
+}
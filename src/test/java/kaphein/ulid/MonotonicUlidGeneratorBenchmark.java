@@ -0,0 +1,91 @@
+package kaphein.ulid;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of monotonic generators when many threads request
+ * a single ULID at a time. Run {@link #main(String[])} with the maximum
+ * number of threads as an optional argument.
+ */
+class MonotonicUlidGeneratorBenchmark
+{
+  public static void main(String[] args)
+    throws InterruptedException
+  {
+    final int maxThreadCount = (args.length > 0
+      ? Integer.parseInt(args[0])
+      : 64);
+
+    for(int threadCount = 1; threadCount <= maxThreadCount; threadCount <<= 1)
+    {
+      final double locking = measure(
+        new MonotonicUlidGenerator(),
+        threadCount);
+      final double lockFree = measure(
+        new LockFreeMonotonicUlidGenerator(),
+        threadCount);
+      final double threadLocal = measure(
+        new ThreadLocalMonotonicUlidGenerator(),
+        threadCount);
+      final double striped = measure(
+        new StripedMonotonicUlidGenerator(),
+        threadCount);
+      System.out.printf(
+        "threads=%d, locking=%.0f ops/s, lockFree=%.0f ops/s"
+          + ", threadLocal=%.0f ops/s, striped=%.0f ops/s%n",
+        threadCount,
+        locking,
+        lockFree,
+        threadLocal,
+        striped);
+    }
+  }
+
+  private static final long WARM_UP_MILLIS = 500L;
+
+  private static final long MEASUREMENT_MILLIS = 2000L;
+
+  private static double measure(
+    final UlidGenerator generator,
+    int threadCount
+  )
+    throws InterruptedException
+  {
+    final AtomicBoolean measuring = new AtomicBoolean(false);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicLong count = new AtomicLong();
+    final CountDownLatch done = new CountDownLatch(threadCount);
+    for(int i = 0; i < threadCount; ++i)
+    {
+      final Thread thread = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          long localCount = 0L;
+          while(running.get())
+          {
+            generator.generate(1);
+            if(measuring.get())
+            {
+              ++localCount;
+            }
+          }
+          count.addAndGet(localCount);
+          done.countDown();
+        }
+      });
+      thread.start();
+    }
+
+    Thread.sleep(WARM_UP_MILLIS);
+    measuring.set(true);
+    Thread.sleep(MEASUREMENT_MILLIS);
+    running.set(false);
+    done.await();
+
+    return count.get() * 1000.0 / MEASUREMENT_MILLIS;
+  }
+}
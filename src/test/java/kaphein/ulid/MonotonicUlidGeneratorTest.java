@@ -12,8 +12,13 @@ import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThrows;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.junit.Test;
 import org.junit.function.ThrowingRunnable;
@@ -239,6 +244,387 @@ public class MonotonicUlidGeneratorTest
     }
   }
 
+  @Test
+  public void nextFollowsGenerate()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, 4),
+      null);
+
+    final List<Ulid> ulids = new ArrayList<>(generator.generate(2));
+    ulids.add(generator.next());
+    ulids.add(generator.next());
+    ulids.addAll(generator.generate(1));
+
+    assertThat(ulids, hasSize(5));
+    assertThat(ulids.get(4).getTimestamp(), is(1000L));
+    testUlidOrder(ulids);
+    assertThat(generator.next().getTimestamp(), is(1001L));
+  }
+
+  @Test
+  public void useOverriddenRandomness()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, 1),
+      null)
+    {
+      @Override
+      protected long[] generateRandomness()
+      {
+        return new long[] {0x1234L, 0x5678L};
+      }
+    };
+
+    final Ulid first = generator.next();
+    final Ulid second = generator.generate(1).get(0);
+    final Ulid third = generator.next();
+
+    assertThat(first.getMostSignificantBits() & 0xFFFFL, is(0x1234L));
+    assertThat(first.getLeastSignificantBits(), is(0x5678L));
+    assertThat(second.getTimestamp(), is(1001L));
+    assertThat(second.getMostSignificantBits() & 0xFFFFL, is(0x1234L));
+    assertThat(second.getLeastSignificantBits(), is(0x5678L));
+    assertThat(third.getTimestamp(), is(1002L));
+    assertThat(third.getLeastSignificantBits(), is(0x5678L));
+  }
+
+  @Test
+  public void nextWhenOverflow()
+    throws InterruptedException
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 6),
+      new PredictableRandom(2));
+
+    final List<Ulid> ulids = new ArrayList<>();
+    for(Ulid ulid = generator.next(); null != ulid; ulid = generator.next())
+    {
+      ulids.add(ulid);
+    }
+
+    assertThat(ulids, hasSize(2));
+    testUlidOrder(ulids);
+    assertThat(generator.nextExact().getTimestamp(), is(1L));
+  }
+
+  @Test
+  public void generateIntoArrays()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, Integer.MAX_VALUE),
+      null);
+    final Ulid[] array = new Ulid[6];
+    final long[] hiLo = new long[7];
+
+    assertThat(generator.generateInto(array, 1, 4), is(4));
+    assertThat(array[0], is(nullValue()));
+    assertThat(array[5], is(nullValue()));
+    assertThat(generator.generateInto(hiLo, 1, 3), is(3));
+    assertThat(hiLo[0], is(0L));
+
+    final List<Ulid> ulids
+      = new ArrayList<>(Arrays.asList(array).subList(1, 5));
+    for(int i = 1; i < hiLo.length; i += 2)
+    {
+      ulids.add(new Ulid(hiLo[i], hiLo[i + 1]));
+    }
+    ulids.addAll(generator.generate(1));
+    testUlidOrder(ulids);
+
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generateInto(array, 3, 4);
+      }
+    });
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generateInto(hiLo, 2, 3);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generateInto(hiLo, 0, -1);
+      }
+    });
+  }
+
+  @Test
+  public void generateIntoBuffers()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, Integer.MAX_VALUE),
+      null);
+    final ByteBuffer bytes = ByteBuffer.allocate(Ulid.BYTES * 3 + 5);
+    final LongBuffer longs = LongBuffer.allocate(5);
+
+    assertThat(generator.generateInto(bytes), is(3));
+    assertThat(bytes.remaining(), is(5));
+    assertThat(generator.generateInto(longs), is(2));
+    assertThat(longs.remaining(), is(1));
+
+    final List<Ulid> ulids = new ArrayList<>();
+    final byte[] record = new byte[Ulid.BYTES];
+    bytes.flip();
+    while(bytes.hasRemaining())
+    {
+      bytes.get(record);
+      ulids.add(Ulid.from(record, 0));
+    }
+    longs.flip();
+    while(longs.hasRemaining())
+    {
+      ulids.add(new Ulid(longs.get(), longs.get()));
+    }
+    assertThat(ulids, hasSize(5));
+    testUlidOrder(ulids);
+  }
+
+  @Test
+  public void generateIntoWhenOverflow()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 2),
+      new PredictableRandom(3));
+    final long[] hiLo = new long[10];
+
+    assertThat(generator.generateInto(hiLo, 0, 5), is(lessThan(5)));
+    assertThat(generator.generateInto(hiLo, 0, 5), is(0));
+    assertThat(generator.generateInto(hiLo, 0, 5), is(greaterThan(0)));
+  }
+
+  @Test
+  public void generateToConsumer()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, 3),
+      null);
+    final List<Ulid> ulids = new ArrayList<>();
+    final int count = AbstractUlidGenerator.CONSUMER_CHUNK_SIZE * 2 + 1;
+
+    assertThat(generator.generate(count, new UlidConsumer()
+    {
+      @Override
+      public boolean accept(long mostSigBits, long leastSigBits)
+      {
+        ulids.add(new Ulid(mostSigBits, leastSigBits));
+
+        return true;
+      }
+    }), is(count));
+    assertThat(generator.generate(count, new UlidConsumer()
+    {
+      @Override
+      public boolean accept(long mostSigBits, long leastSigBits)
+      {
+        ulids.add(new Ulid(mostSigBits, leastSigBits));
+
+        return ulids.size() < count + 3;
+      }
+    }), is(3));
+
+    assertThat(ulids, hasSize(count + 3));
+    testUlidOrder(ulids);
+  }
+
+  @Test
+  public void iterator()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, Integer.MAX_VALUE),
+      null);
+    final List<Ulid> ulids = new ArrayList<>();
+
+    for(final Iterator<Ulid> iter = generator.iterator(3); iter.hasNext();)
+    {
+      assertThat(iter.hasNext(), is(true));
+      ulids.add(iter.next());
+    }
+    ulids.addAll(generator.generate(1));
+
+    assertThat(ulids, hasSize(4));
+    testUlidOrder(ulids);
+    assertThat(generator.iterator(0).hasNext(), is(false));
+  }
+
+  @Test
+  public void iteratorWhenOverflow()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, Integer.MAX_VALUE),
+      new PredictableRandom(2));
+    final Iterator<Ulid> iter = generator.iterator(10);
+    int count = 0;
+
+    while(iter.hasNext())
+    {
+      iter.next();
+      ++count;
+    }
+
+    assertThat(count, is(2));
+    assertThrows(NoSuchElementException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        iter.next();
+      }
+    });
+  }
+
+  @Test
+  public void generateRange()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, Integer.MAX_VALUE),
+      null);
+
+    final UlidBatch batch = generator.generateRange(1000000);
+    final List<Ulid> ulids = new ArrayList<>(generator.generate(2));
+    ulids.addAll(0, generator.generateRange(0));
+    ulids.addAll(0, batch);
+
+    assertThat(batch, hasSize(1000000));
+    assertThat(batch.getTimestamp(), is(1000L));
+    assertThat(ulids, hasSize(1000002));
+    testUlidOrder(ulids);
+    assertThat(batch.contains(ulids.get(999999)), is(true));
+    assertThat(batch.contains(ulids.get(1000000)), is(false));
+  }
+
+  @Test
+  public void generateEmptyRange()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, 1),
+      null);
+
+    assertThat(generator.generateRange(0), is(empty()));
+    assertThat(generator.generateRange(0), is(empty()));
+    assertThat(generator.next().getTimestamp(), is(1000L));
+    assertThat(generator.generateRange(0), is(empty()));
+    assertThat(generator.next().getTimestamp(), is(1001L));
+  }
+
+  @Test
+  public void generateRangeWhenOverflow()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 2),
+      new PredictableRandom(5));
+
+    assertThat(generator.generateRange(10), hasSize(6));
+    assertThat(generator.generateRange(10), is(empty()));
+    assertThat(generator.generateRange(10), hasSize(6));
+  }
+
+  @Test
+  public void constructWithOverflowPolicy()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator();
+
+    assertThat(
+      generator.getOverflowPolicy(),
+      is(UlidOverflowPolicy.WAIT_FOR_NEXT_MILLISECOND));
+    assertThat(generator.getMaxDriftMillis(), is(0L));
+    assertThat(generator.getBorrowedMillisCount(), is(0L));
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new MonotonicUlidGenerator(null, null, null, 5L);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new MonotonicUlidGenerator(
+          null,
+          null,
+          UlidOverflowPolicy.BORROW_NEXT_MILLISECOND,
+          -1L);
+      }
+    });
+  }
+
+  @Test
+  public void generateBorrowingMilliseconds()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, Integer.MAX_VALUE),
+      new PredictableRandom(2),
+      UlidOverflowPolicy.BORROW_NEXT_MILLISECOND,
+      2L);
+
+    final List<Ulid> ulids = generator.generate(100);
+
+    assertThat(ulids, hasSize(9));
+    assertThat(ulids.get(0).getTimestamp(), is(0L));
+    assertThat(ulids.get(8).getTimestamp(), is(2L));
+    testUlidOrder(ulids);
+    assertThat(generator.getBorrowedMillisCount(), is(2L));
+    assertThat(generator.getDriftMillis(), is(2L));
+    assertThat(generator.generate(1), is(empty()));
+    assertThat(generator.next(), is(nullValue()));
+    assertThat(generator.generateRange(1), is(empty()));
+  }
+
+  @Test
+  public void catchUpAfterBorrowing()
+  {
+    final long[] clock = {10L};
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new EpochMilliSupplier()
+      {
+        @Override
+        public long get()
+        {
+          return clock[0];
+        }
+      },
+      new PredictableRandom(2),
+      UlidOverflowPolicy.BORROW_NEXT_MILLISECOND,
+      1L);
+
+    final List<Ulid> ulids = new ArrayList<>(generator.generate(100));
+    assertThat(ulids, hasSize(6));
+    assertThat(generator.getDriftMillis(), is(1L));
+
+    clock[0] = 11L;
+    assertThat(generator.getDriftMillis(), is(0L));
+    final Ulid borrowed = generator.next();
+    assertThat(borrowed.getTimestamp(), is(12L));
+    ulids.add(borrowed);
+    ulids.addAll(generator.generateRange(2));
+
+    clock[0] = 13L;
+    ulids.addAll(generator.generate(1));
+
+    assertThat(ulids, hasSize(10));
+    assertThat(ulids.get(9).getTimestamp(), is(13L));
+    testUlidOrder(ulids);
+    assertThat(generator.getBorrowedMillisCount(), is(2L));
+  }
+
   private static void testUlidOrder(List<Ulid> ulids)
   {
     Ulid prevUlid = null;
@@ -0,0 +1,64 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class PackedUlidListTest
+{
+  @Test
+  public void get()
+  {
+    final PackedUlidList list = new PackedUlidList(
+      new long[] {1L, 2L, 3L, 4L, 5L, 6L},
+      2);
+
+    assertThat(list.size(), is(2));
+    assertThat(list.getMostSignificantBits(1), is(3L));
+    assertThat(list.getLeastSignificantBits(1), is(4L));
+    assertThat(
+      list,
+      is(Arrays.asList(new Ulid(1L, 2L), new Ulid(3L, 4L))));
+    assertThat(list.indexOf(new Ulid(3L, 4L)), is(1));
+    assertThat(list.contains(new Ulid(5L, 6L)), is(false));
+  }
+
+  @Test
+  public void getOutOfBounds()
+  {
+    final PackedUlidList list = new PackedUlidList(new long[4], 1);
+
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        list.get(1);
+      }
+    });
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        list.getLeastSignificantBits(-1);
+      }
+    });
+    assertThrows(UnsupportedOperationException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        list.add(new Ulid());
+      }
+    });
+  }
+}
@@ -0,0 +1,288 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class PrefetchingUlidGeneratorTest
+{
+  @Test
+  public void constructWithOddParameters()
+  {
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new PrefetchingUlidGenerator(null);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new PrefetchingUlidGenerator(new MonotonicUlidGenerator(), 0, 0);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new PrefetchingUlidGenerator(new MonotonicUlidGenerator(), 8, 8);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new PrefetchingUlidGenerator(new MonotonicUlidGenerator(), 8, 0, 0L);
+      }
+    });
+
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      new MonotonicUlidGenerator(),
+      100,
+      10);
+    generator.close();
+    assertThat(generator.getCapacity(), is(128));
+    assertThat(generator.getLowWaterMark(), is(10));
+    assertThat(
+      generator.getMaxAgeMillis(),
+      is(PrefetchingUlidGenerator.DEFAULT_MAX_AGE_MILLIS));
+  }
+
+  @Test
+  public void issueFromBuffer()
+    throws InterruptedException
+  {
+    final MonotonicUlidGenerator monotonic = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, Integer.MAX_VALUE),
+      null);
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      monotonic,
+      64,
+      16);
+    try
+    {
+      waitUntilFull(generator);
+
+      final List<Ulid> ulids = new ArrayList<>();
+      ulids.add(generator.take());
+      ulids.addAll(generator.generate(10));
+      ulids.add(generator.next());
+
+      assertThat(generator.getHitCount(), is(12L));
+      assertThat(generator.getMissCount(), is(0L));
+      assertThat(generator.getHitRate(), is(1.0));
+      testUlidOrder(ulids);
+    }
+    finally
+    {
+      generator.close();
+    }
+  }
+
+  @Test
+  public void fallBackWhenDrained()
+    throws InterruptedException
+  {
+    final MonotonicUlidGenerator monotonic = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, 7),
+      null);
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      monotonic,
+      16,
+      4);
+    waitUntilFull(generator);
+    generator.close();
+
+    final List<Ulid> ulids = new ArrayList<>(generator.generate(20));
+    for(int i = 0; i < 20; ++i)
+    {
+      ulids.add(generator.take());
+    }
+    ulids.addAll(generator.generate(3, 2000L));
+    ulids.addAll(monotonic.generate(1));
+
+    assertThat(ulids, hasSize(44));
+    assertThat(generator.getHitCount(), is(16L));
+    assertThat(generator.getMissCount(), is(27L));
+    testUlidOrder(ulids);
+  }
+
+  @Test
+  public void refillAtLowWaterMark()
+    throws InterruptedException
+  {
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      new MonotonicUlidGenerator(),
+      16,
+      4,
+      Long.MAX_VALUE);
+    try
+    {
+      waitUntilFull(generator);
+      for(int i = 0; i < 11; ++i)
+      {
+        generator.take();
+      }
+      Thread.sleep(50);
+      assertThat(generator.getBufferedCount(), is(5));
+
+      generator.take();
+      waitUntilFull(generator);
+      assertThat(generator.getMissCount(), is(0L));
+    }
+    finally
+    {
+      generator.close();
+    }
+  }
+
+  @Test
+  public void discardExpiredUlids()
+    throws InterruptedException
+  {
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      new MonotonicUlidGenerator(),
+      16,
+      4,
+      20L);
+    waitUntilFull(generator);
+    generator.close();
+    Thread.sleep(50);
+
+    final List<Ulid> ulids = new ArrayList<>(generator.generate(3));
+    ulids.add(generator.next());
+
+    assertThat(ulids, hasSize(4));
+    assertThat(generator.getExpiredCount(), is(16L));
+    assertThat(generator.getHitCount(), is(0L));
+    assertThat(generator.getMissCount(), is(4L));
+    testUlidOrder(ulids);
+  }
+
+  @Test
+  public void replaceAgingUlidsInBackground()
+    throws InterruptedException
+  {
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      new MonotonicUlidGenerator(),
+      16,
+      4,
+      200L);
+    try
+    {
+      waitUntilFull(generator);
+      Thread.sleep(500);
+
+      final List<Ulid> ulids = new ArrayList<>(generator.generate(3));
+      ulids.add(generator.next());
+
+      assertThat(generator.getExpiredCount(), greaterThan(16L));
+      assertThat(generator.getHitCount(), is(4L));
+      assertThat(generator.getMissCount(), is(0L));
+      testUlidOrder(ulids);
+    }
+    finally
+    {
+      generator.close();
+    }
+  }
+
+  @Test
+  public void issueFromManyThreads()
+    throws InterruptedException
+  {
+    final PrefetchingUlidGenerator generator = new PrefetchingUlidGenerator(
+      new MonotonicUlidGenerator(),
+      256,
+      64);
+    final int threadCount = 8;
+    final int countPerThread = 5000;
+    final List<List<Ulid>> results = new ArrayList<>();
+    final List<Thread> threads = new ArrayList<>();
+    try
+    {
+      for(int i = 0; i < threadCount; ++i)
+      {
+        final List<Ulid> result = new ArrayList<>();
+        results.add(result);
+        final Thread thread = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            for(int j = 0; j < countPerThread; ++j)
+            {
+              if(0 == j % 2)
+              {
+                result.add(generator.next());
+              }
+              else
+              {
+                result.addAll(generator.generate(1));
+              }
+            }
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+      for(final Thread thread : threads)
+      {
+        thread.join();
+      }
+    }
+    finally
+    {
+      generator.close();
+    }
+
+    final Set<Ulid> ulids = new HashSet<>();
+    for(final List<Ulid> result : results)
+    {
+      assertThat(result, hasSize(countPerThread));
+      testUlidOrder(result);
+      ulids.addAll(result);
+    }
+    assertThat(ulids.size(), is(threadCount * countPerThread));
+    assertThat(
+      generator.getHitCount() + generator.getMissCount(),
+      is((long)threadCount * countPerThread));
+  }
+
+  private static void waitUntilFull(PrefetchingUlidGenerator generator)
+    throws InterruptedException
+  {
+    while(generator.getBufferedCount() < generator.getCapacity())
+    {
+      Thread.sleep(1);
+    }
+  }
+
+  private static void testUlidOrder(List<Ulid> ulids)
+  {
+    for(int i = 1; i < ulids.size(); ++i)
+    {
+      assertThat(ulids.get(i), greaterThan(ulids.get(i - 1)));
+    }
+  }
+}
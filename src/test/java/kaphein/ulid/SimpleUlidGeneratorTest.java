@@ -1,5 +1,6 @@
 package kaphein.ulid;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -8,6 +9,8 @@ import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.junit.Assert.assertThrows;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Test;
@@ -69,6 +72,55 @@ public class SimpleUlidGeneratorTest
     assertThat(generator.generate(0, 0L), is(empty()));
   }
 
+  @Test
+  public void next()
+    throws InterruptedException
+  {
+    final SimpleUlidGenerator generator = new SimpleUlidGenerator(
+      new ControlledEpochMilliSupplier(1234L, 1),
+      null);
+
+    final Ulid first = generator.next();
+    final Ulid second = generator.nextExact();
+
+    assertThat(first.getTimestamp(), is(1234L));
+    assertThat(second.getTimestamp(), is(1235L));
+    assertThat(second, is(not(first)));
+  }
+
+  @Test
+  public void useOverriddenRandomness()
+  {
+    final SimpleUlidGenerator generator = new SimpleUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, Integer.MAX_VALUE),
+      null)
+    {
+      @Override
+      protected long[] generateRandomness()
+      {
+        return new long[] {0x1234L, ++lastLeastSigBits};
+      }
+
+      private long lastLeastSigBits;
+    };
+
+    final Ulid first = generator.next();
+    final List<Ulid> ulids = generator.generate(3);
+    final long[] hiLo = new long[2];
+    generator.generateInto(hiLo, 0, 1);
+
+    assertThat(first.getMostSignificantBits() & 0xFFFFL, is(0x1234L));
+    assertThat(first.getLeastSignificantBits(), is(1L));
+    assertThat(ulids.size(), is(3));
+    for(int i = 0; i < ulids.size(); ++i)
+    {
+      assertThat(ulids.get(i).getMostSignificantBits() & 0xFFFFL, is(0x1234L));
+      assertThat(ulids.get(i).getLeastSignificantBits(), is(i + 2L));
+    }
+    assertThat(hiLo[0] & 0xFFFFL, is(0x1234L));
+    assertThat(hiLo[1], is(5L));
+  }
+
   @Test
   public void generateMany()
   {
@@ -98,4 +150,53 @@ public class SimpleUlidGeneratorTest
       assertThat(ulid.getTimestamp(), is(initialTimestamp));
     }
   }
+
+  @Test
+  public void generateInto()
+  {
+    final SimpleUlidGenerator generator = new SimpleUlidGenerator(
+      new ControlledEpochMilliSupplier(1234L, Integer.MAX_VALUE),
+      null);
+    final Ulid[] ulids = new Ulid[4];
+    final long[] hiLo = new long[4];
+
+    assertThat(generator.generateInto(ulids, 1, 3), is(3));
+    assertThat(generator.generateInto(hiLo, 0, 2), is(2));
+
+    assertThat(ulids[0], is(nullValue()));
+    for(int i = 1; i < ulids.length; ++i)
+    {
+      assertThat(ulids[i].getTimestamp(), is(1234L));
+    }
+    for(int i = 0; i < hiLo.length; i += 2)
+    {
+      assertThat(new Ulid(hiLo[i], hiLo[i + 1]).getTimestamp(), is(1234L));
+    }
+  }
+
+  @Test
+  public void generateReturnsPackedList()
+    throws InterruptedException
+  {
+    final SimpleUlidGenerator generator = new SimpleUlidGenerator();
+
+    final List<Ulid> ulids = generator.generateExact(1000, 2000L);
+
+    assertThat(ulids, is(instanceOf(PackedUlidList.class)));
+    assertThat(ulids.size(), is(1000));
+    assertThat(new HashSet<>(ulids).size(), is(1000));
+  }
+
+  @Test
+  public void removeDuplicates()
+  {
+    final long[] hiLo = {1L, 2L, 3L, 4L, 1L, 2L, 5L, 4L, 3L, 4L, 6L, 7L};
+
+    final int count = SimpleUlidGenerator.removeDuplicates(hiLo, 6);
+
+    assertThat(count, is(4));
+    assertThat(
+      Arrays.copyOf(hiLo, count << 1),
+      is(new long[] {1L, 2L, 3L, 4L, 5L, 4L, 6L, 7L}));
+  }
 }
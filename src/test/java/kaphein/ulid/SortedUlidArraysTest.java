@@ -0,0 +1,160 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class SortedUlidArraysTest
+{
+  @Test
+  public void withOddParameters()
+  {
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        SortedUlidArrays.intersect(
+          null, new long[0], 0,
+          new long[0], new long[0], 0,
+          new UlidBuffer());
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        SortedUlidArrays.union(
+          new long[1], new long[1], 2,
+          new long[0], new long[0], 0,
+          new UlidBuffer());
+      }
+    });
+  }
+
+  @Test
+  public void operationsWithSimilarSizes()
+  {
+    testOperations(1000, 1200);
+  }
+
+  @Test
+  public void operationsWithDifferentSizes()
+  {
+    testOperations(10, 100000);
+    testOperations(100000, 10);
+  }
+
+  @Test
+  public void operationsWithEmptyInputs()
+  {
+    testOperations(0, 100);
+    testOperations(100, 0);
+    testOperations(0, 0);
+  }
+
+  @Test
+  public void lowerBound()
+  {
+    final UlidBuffer buffer = new UlidBuffer();
+    for(int i = 0; i < 100; ++i)
+    {
+      buffer.add(0L, i * 2L);
+    }
+
+    final long[] his = buffer.getMostSignificantBitsArray();
+    final long[] los = buffer.getLeastSignificantBitsArray();
+
+    assertThat(SortedUlidArrays.lowerBound(his, los, 0, 100, 0L, 0L), is(0));
+    assertThat(SortedUlidArrays.lowerBound(his, los, 0, 100, 0L, 77L), is(39));
+    assertThat(SortedUlidArrays.lowerBound(his, los, 40, 100, 0L, 2L), is(40));
+    assertThat(SortedUlidArrays.lowerBound(his, los, 0, 100, 1L, 0L), is(100));
+  }
+
+  private static void testOperations(int aSize, int bSize)
+  {
+    final Random random = new Random(aSize * 31L + bSize);
+    final TreeSet<Ulid> aSet = createRandomSet(random, aSize);
+    final TreeSet<Ulid> bSet = createRandomSet(random, bSize);
+    final UlidBuffer a = toBuffer(aSet);
+    final UlidBuffer b = toBuffer(bSet);
+    final UlidBuffer out = new UlidBuffer(0);
+
+    final TreeSet<Ulid> intersection = new TreeSet<>(aSet);
+    intersection.retainAll(bSet);
+    final TreeSet<Ulid> union = new TreeSet<>(aSet);
+    union.addAll(bSet);
+    final TreeSet<Ulid> difference = new TreeSet<>(aSet);
+    difference.removeAll(bSet);
+
+    assertThat(SortedUlidArrays.intersect(a, b, out), is(intersection.size()));
+    assertThat(toList(out), is(toList(intersection)));
+    assertThat(SortedUlidArrays.intersectCount(a, b), is(intersection.size()));
+
+    assertThat(SortedUlidArrays.union(a, b, out), is(union.size()));
+    assertThat(toList(out), is(toList(union)));
+    assertThat(SortedUlidArrays.unionCount(a, b), is((long)union.size()));
+
+    assertThat(SortedUlidArrays.difference(a, b, out), is(difference.size()));
+    assertThat(toList(out), is(toList(difference)));
+    assertThat(SortedUlidArrays.differenceCount(a, b), is(difference.size()));
+  }
+
+  private static TreeSet<Ulid> createRandomSet(Random random, int size)
+  {
+    final TreeSet<Ulid> set = new TreeSet<>();
+    while(set.size() < size)
+    {
+      // Use a small key space so that the inputs overlap.
+      set.add(new Ulid(
+        random.nextInt(4) << 16,
+        (random.nextInt(200000) - 100000L) << 40));
+    }
+
+    return set;
+  }
+
+  private static UlidBuffer toBuffer(Iterable<Ulid> ulids)
+  {
+    final UlidBuffer buffer = new UlidBuffer();
+    for(final Ulid ulid : ulids)
+    {
+      buffer.add(ulid);
+    }
+
+    return buffer;
+  }
+
+  private static List<Ulid> toList(Iterable<Ulid> ulids)
+  {
+    final List<Ulid> list = new ArrayList<>();
+    for(final Ulid ulid : ulids)
+    {
+      list.add(ulid);
+    }
+
+    return list;
+  }
+
+  private static List<Ulid> toList(UlidBuffer buffer)
+  {
+    final List<Ulid> list = new ArrayList<>();
+    for(int i = 0; i < buffer.size(); ++i)
+    {
+      list.add(buffer.get(i));
+    }
+
+    return list;
+  }
+}
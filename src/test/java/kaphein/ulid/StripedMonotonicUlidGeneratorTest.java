@@ -0,0 +1,138 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class StripedMonotonicUlidGeneratorTest
+{
+  @Test
+  public void constructWithOddParameters()
+  {
+    assertThat(
+      new StripedMonotonicUlidGenerator(null, null, 5).getStripeCount(),
+      is(8));
+    assertThat(
+      new StripedMonotonicUlidGenerator(null, null, 1).getStripeCount(),
+      is(1));
+    assertThat(
+      new StripedMonotonicUlidGenerator().getStripeCount(),
+      is(not(0)));
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new StripedMonotonicUlidGenerator(null, null, 0);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new StripedMonotonicUlidGenerator(
+          null,
+          null,
+          StripedMonotonicUlidGenerator.MAX_STRIPE_COUNT + 1);
+      }
+    });
+  }
+
+  @Test
+  public void generateExactWhenStripeOverflows()
+    throws InterruptedException
+  {
+    final StripedMonotonicUlidGenerator generator
+      = new StripedMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(0L, 2),
+        new PredictableRandom(3),
+        4);
+
+    final List<Ulid> ulids = generator.generate(5);
+
+    assertThat(ulids.size(), lessThan(5));
+    assertThat(generator.generate(5), is(empty()));
+    assertThat(generator.generate(5), is(not(empty())));
+
+    final List<Ulid> exact = generator.generateExact(20);
+
+    assertThat(exact, hasSize(20));
+    for(int i = 1; i < exact.size(); ++i)
+    {
+      assertThat(exact.get(i), greaterThan(exact.get(i - 1)));
+    }
+  }
+
+  @Test
+  public void generateFromPooledThreads()
+    throws Exception
+  {
+    // Every stripe starts from the same randomness in the same millisecond.
+    final StripedMonotonicUlidGenerator generator
+      = new StripedMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(0L, Integer.MAX_VALUE),
+        new PredictableRandom(1 << 20),
+        4);
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    final List<Future<List<Ulid>>> futures = new ArrayList<>();
+    try
+    {
+      for(int i = 0; i < 200; ++i)
+      {
+        futures.add(executor.submit(new Callable<List<Ulid>>()
+        {
+          @Override
+          public List<Ulid> call()
+          {
+            final List<Ulid> result = new ArrayList<>();
+            for(int j = 0; j < 500; ++j)
+            {
+              result.addAll(generator.generate(1 + j % 2));
+            }
+
+            return result;
+          }
+        }));
+      }
+
+      final Set<Ulid> ulids = new HashSet<>();
+      int count = 0;
+      for(final Future<List<Ulid>> future : futures)
+      {
+        final List<Ulid> result = future.get();
+        for(int i = 1; i < result.size(); ++i)
+        {
+          assertThat(result.get(i), greaterThan(result.get(i - 1)));
+        }
+        ulids.addAll(result);
+        count += result.size();
+      }
+      assertThat(count, is(200 * 750));
+      assertThat(ulids.size(), is(count));
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class ThreadLocalMonotonicUlidGeneratorTest
+{
+  @Test
+  public void generateWithOddParameters()
+  {
+    final ThreadLocalMonotonicUlidGenerator generator
+      = new ThreadLocalMonotonicUlidGenerator();
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generate(-1);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        generator.generate(0, -1L);
+      }
+    });
+    assertThat(generator.generate(0), is(empty()));
+  }
+
+  @Test
+  public void generateIncrementsWithinThread()
+    throws InterruptedException
+  {
+    final ThreadLocalMonotonicUlidGenerator generator
+      = new ThreadLocalMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(1000L, 3),
+        null);
+
+    final List<Ulid> ulids = new ArrayList<>(generator.generateExact(2000));
+    ulids.addAll(generator.generate(3, 900L));
+
+    assertThat(ulids, hasSize(2003));
+    for(int i = 1; i < ulids.size(); ++i)
+    {
+      final Ulid prev = ulids.get(i - 1);
+      final Ulid ulid = ulids.get(i);
+      assertThat(ulid, greaterThan(prev));
+      assertThat(slotOf(ulid), is(slotOf(prev)));
+      if(prev.getTimestamp() == ulid.getTimestamp())
+      {
+        assertThat(
+          ulid.getLeastSignificantBits() - prev.getLeastSignificantBits(),
+          is(1L));
+      }
+    }
+  }
+
+  @Test
+  public void generateManyWhenOverflow()
+  {
+    final ThreadLocalMonotonicUlidGenerator generator
+      = new ThreadLocalMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(0L, 2),
+        new PredictableRandom(3));
+    final int count = 5;
+
+    final List<Ulid> ulids = generator.generate(count);
+
+    assertThat(ulids.size(), lessThan(count));
+    assertThat(generator.generate(count), is(empty()));
+    assertThat(generator.generate(count), is(not(empty())));
+  }
+
+  @Test
+  public void generateFromManyThreads()
+    throws InterruptedException
+  {
+    // Every thread starts from the same randomness in the same millisecond.
+    final ThreadLocalMonotonicUlidGenerator generator
+      = new ThreadLocalMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(0L, Integer.MAX_VALUE),
+        new PredictableRandom(1 << 20));
+    final int threadCount = 16;
+    final int countPerThread = 10000;
+    final List<List<Ulid>> results = new ArrayList<>();
+    final List<Thread> threads = new ArrayList<>();
+    // Keeps every thread alive so that no slot is reused.
+    final CountDownLatch done = new CountDownLatch(threadCount);
+
+    for(int i = 0; i < threadCount; ++i)
+    {
+      final List<Ulid> result = new ArrayList<>();
+      results.add(result);
+      final Thread thread = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for(int j = 0; j < countPerThread; ++j)
+          {
+            result.addAll(generator.generate(1));
+          }
+
+          done.countDown();
+          try
+          {
+            done.await();
+          }
+          catch(final InterruptedException ie)
+          {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for(final Thread thread : threads)
+    {
+      thread.join();
+    }
+
+    final Set<Ulid> ulids = new HashSet<>();
+    final Set<Integer> slots = new HashSet<>();
+    for(final List<Ulid> result : results)
+    {
+      assertThat(result, hasSize(countPerThread));
+      for(int i = 1; i < result.size(); ++i)
+      {
+        assertThat(result.get(i), greaterThan(result.get(i - 1)));
+      }
+      ulids.addAll(result);
+      slots.add(slotOf(result.get(0)));
+    }
+    assertThat(ulids.size(), is(threadCount * countPerThread));
+    assertThat(slots.size(), is(threadCount));
+  }
+
+  @Test
+  public void reuseSlotsOfTerminatedThreads()
+    throws InterruptedException
+  {
+    final ThreadLocalMonotonicUlidGenerator generator
+      = new ThreadLocalMonotonicUlidGenerator(
+        new ControlledEpochMilliSupplier(0L, Integer.MAX_VALUE),
+        null);
+    final List<Ulid> ulids = new ArrayList<>();
+
+    for(int i = 0; i < ThreadLocalMonotonicUlidGenerator.MAX_THREAD_COUNT * 2;
+      ++i)
+    {
+      final Thread thread = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          ulids.addAll(generator.generate(1));
+        }
+      });
+      thread.start();
+      thread.join();
+    }
+
+    assertThat(slotOf(ulids.get(ulids.size() - 1)), is(0));
+    assertThat(new HashSet<>(ulids).size(), is(ulids.size()));
+  }
+
+  private static int slotOf(Ulid ulid)
+  {
+    return (int)(ulid.getMostSignificantBits() & 0xFFFF)
+      >>> (16 - ThreadLocalMonotonicUlidGenerator.SLOT_BITS);
+  }
+}
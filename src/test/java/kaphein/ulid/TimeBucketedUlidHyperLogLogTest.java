@@ -0,0 +1,77 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimeBucketedUlidHyperLogLogTest
+{
+  @Test
+  public void countPerBucket()
+  {
+    final TimeBucketedUlidHyperLogLog sketches
+      = new TimeBucketedUlidHyperLogLog(1000L, 12, false);
+    final Random random = new Random(793L);
+
+    for(int timestamp = 0; timestamp < 3000; ++timestamp)
+    {
+      for(int i = 0; i < 10; ++i)
+      {
+        sketches.add(
+          Ulid.from(timestamp, new long[] {0L, random.nextLong()}));
+      }
+    }
+
+    assertThat(
+      sketches.getBucketStartTimestamps(),
+      contains(0L, 1000L, 2000L));
+    assertThat((double)sketches.estimate(1500L), is(closeTo(10000.0, 500.0)));
+    assertThat(
+      (double)sketches.estimate(1000L, 3000L),
+      is(closeTo(20000.0, 1000.0)));
+    assertThat(sketches.estimate(5000L), is(0L));
+    assertThat(sketches.getBucket(5000L), is(nullValue()));
+
+    assertThat(sketches.removeBucketsBefore(1999L), is(1));
+    assertThat(sketches.getBucketStartTimestamps(), contains(1000L, 2000L));
+  }
+
+  @Test
+  public void mergeShards()
+  {
+    final TimeBucketedUlidHyperLogLog first
+      = new TimeBucketedUlidHyperLogLog(60000L, 12, true);
+    final TimeBucketedUlidHyperLogLog second
+      = new TimeBucketedUlidHyperLogLog(60000L, 12, true);
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 10000; ++i)
+    {
+      final Ulid ulid = Ulid.from(
+        random.nextInt(120000),
+        new long[] {0L, i});
+      first.add(ulid);
+      if(0 == (i & 1))
+      {
+        second.add(ulid);
+      }
+    }
+    second.add(Ulid.from(200000L, new long[] {0L, 0L}));
+
+    first.merge(second);
+
+    assertThat(
+      first.getBucketStartTimestamps(),
+      contains(0L, 60000L, 180000L));
+    assertThat(
+      (double)first.estimate(0L, 120000L),
+      is(closeTo(10000.0, 500.0)));
+    assertThat(first.estimate(200000L), is(1L));
+  }
+}
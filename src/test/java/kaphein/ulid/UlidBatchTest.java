@@ -0,0 +1,73 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidBatchTest
+{
+  @Test
+  public void getAcrossCarry()
+  {
+    final UlidBatch batch = new UlidBatch(
+      (1234L << 16) | 0x12L,
+      0xFFFFFFFFFFFFFFFEL,
+      4);
+
+    assertThat(batch.size(), is(4));
+    assertThat(batch.getTimestamp(), is(1234L));
+    assertThat(
+      batch.get(1),
+      is(new Ulid((1234L << 16) | 0x12L, 0xFFFFFFFFFFFFFFFFL)));
+    assertThat(batch.get(2), is(new Ulid((1234L << 16) | 0x13L, 0L)));
+    assertThat(batch.get(3), is(new Ulid((1234L << 16) | 0x13L, 1L)));
+
+    final List<Ulid> copy = new ArrayList<>(batch);
+    assertThat(batch.equals(copy), is(true));
+    for(int i = 0; i < copy.size(); ++i)
+    {
+      assertThat(batch.indexOf(copy.get(i)), is(i));
+      assertThat(batch.lastIndexOf(copy.get(i)), is(i));
+    }
+  }
+
+  @Test
+  public void indexOfOutside()
+  {
+    final long hi = (1234L << 16) | 0x12L;
+    final UlidBatch batch = new UlidBatch(hi, 0xFFFFFFFFFFFFFFFEL, 4);
+
+    assertThat(batch.indexOf(new Ulid(hi, 0xFFFFFFFFFFFFFFFDL)), is(-1));
+    assertThat(batch.indexOf(new Ulid(hi + 1L, 2L)), is(-1));
+    assertThat(batch.indexOf(new Ulid(hi + 2L, 0L)), is(-1));
+    assertThat(batch.indexOf(new Ulid(hi - 1L, 0xFFFFFFFFFFFFFFFFL)), is(-1));
+    assertThat(batch.contains(new Ulid(hi + 1L, 1L)), is(true));
+    assertThat(batch.contains("01ARZ3NDEKTSV4RRFFQ69G5FAV"), is(false));
+    assertThat(batch.contains(null), is(false));
+  }
+
+  @Test
+  public void empty()
+  {
+    final UlidBatch batch = new UlidBatch(0L, 0L, 0);
+
+    assertThat(batch.isEmpty(), is(true));
+    assertThat(batch.getTimestamp(), is(-1L));
+    assertThat(batch.contains(new Ulid(0L, 0L)), is(false));
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        batch.get(0);
+      }
+    });
+  }
+}
@@ -0,0 +1,210 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidBloomFilterTest
+{
+  @Test
+  public void noFalseNegatives()
+  {
+    final UlidBloomFilter filter = new UlidBloomFilter(100000L, 0.01);
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 100000; ++i)
+    {
+      filter.put(random.nextLong(), random.nextLong());
+    }
+
+    random.setSeed(793L);
+    for(int i = 0; i < 100000; ++i)
+    {
+      assertThat(
+        filter.mightContain(random.nextLong(), random.nextLong()),
+        is(true));
+    }
+  }
+
+  @Test
+  public void falsePositiveProbability()
+  {
+    final UlidBloomFilter filter = new UlidBloomFilter(100000L, 0.01);
+    final Random random = new Random(793L);
+    for(int i = 0; i < 100000; ++i)
+    {
+      filter.put(random.nextLong(), random.nextLong());
+    }
+
+    int falsePositiveCount = 0;
+    for(int i = 0; i < 100000; ++i)
+    {
+      if(filter.mightContain(random.nextLong(), random.nextLong()))
+      {
+        ++falsePositiveCount;
+      }
+    }
+
+    assertThat(falsePositiveCount, is(lessThan(1000)));
+    assertThat(filter.estimateFalsePositiveProbability(), is(lessThan(0.01)));
+  }
+
+  @Test
+  public void monotonicUlids()
+  {
+    final UlidBloomFilter filter = new UlidBloomFilter(50000L, 0.01);
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(100000);
+
+    for(int i = 0; i < 50000; ++i)
+    {
+      filter.put(ulids.get(i));
+    }
+    for(int i = 0; i < 50000; ++i)
+    {
+      assertThat(filter.mightContain(ulids.get(i)), is(true));
+    }
+
+    int falsePositiveCount = 0;
+    for(int i = 50000; i < 100000; ++i)
+    {
+      if(filter.mightContain(ulids.get(i)))
+      {
+        ++falsePositiveCount;
+      }
+    }
+
+    assertThat(falsePositiveCount, is(lessThan(1000)));
+  }
+
+  @Test
+  public void mergeAndSerialize()
+  {
+    final UlidBloomFilter first = new UlidBloomFilter(1000L, 0.001);
+    final UlidBloomFilter second = new UlidBloomFilter(1000L, 0.001);
+    final Ulid a = Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK");
+    final Ulid b = Ulid.parse("01HAKQK7G0XQ5BHRT7XH1ZT8Y4");
+
+    first.put(a);
+    second.put(b);
+    first.merge(second);
+
+    final byte[] bytes = new byte[3 + first.toByteArray().length];
+    System.arraycopy(first.toByteArray(), 0, bytes, 3, bytes.length - 3);
+    final AbstractUlidBloomFilter copy = AbstractUlidBloomFilter.from(bytes, 3);
+
+    assertThat(copy, is(instanceOf(UlidBloomFilter.class)));
+    assertThat(copy.getBitCount(), is(first.getBitCount()));
+    assertThat(copy.getHashCount(), is(first.getHashCount()));
+    assertThat(copy.mightContain(a), is(true));
+    assertThat(copy.mightContain(b), is(true));
+
+    copy.clear();
+
+    assertThat(copy.mightContain(a), is(false));
+    assertThat(first.mightContain(a), is(true));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    final UlidBloomFilter filter = new UlidBloomFilter(1000L, 0.01);
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidBloomFilter(0L, 0.01);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidBloomFilter(1000L, 1.0);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        filter.merge(new UlidBloomFilter(100000L, 0.01));
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        filter.merge(new BlockedUlidBloomFilter(1000L, 0.01));
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        AbstractUlidBloomFilter.from(new byte[16], 0);
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        filter.put(null);
+      }
+    });
+  }
+
+  @Test
+  public void largeFilters()
+  {
+    assertThat(
+      AbstractUlidBloomFilter.computeLog2BitCount(Long.MAX_VALUE, 0.01),
+      is(AbstractUlidBloomFilter.MAX_LOG2_BIT_COUNT));
+
+    final byte[] bytes = new UlidBloomFilter(1000L, 0.01).toByteArray();
+    // Claims the largest filter without its words, which must be rejected
+    // before the words are allocated.
+    bytes[6] = (byte)AbstractUlidBloomFilter.MAX_LOG2_BIT_COUNT;
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        AbstractUlidBloomFilter.from(bytes, 0);
+      }
+    });
+    bytes[6] = (byte)(AbstractUlidBloomFilter.MAX_LOG2_BIT_COUNT + 1);
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        AbstractUlidBloomFilter.from(bytes, 0);
+      }
+    });
+  }
+}
@@ -0,0 +1,79 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidBufferTest
+{
+  @Test
+  public void addAndGet()
+  {
+    final UlidBuffer buffer = new UlidBuffer(1);
+    final Ulid ulid = Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK");
+
+    buffer.add(ulid);
+    buffer.add(1L, 2L);
+    buffer.add(new long[] {3L, 4L, 5L}, new long[] {6L, 7L, 8L}, 1, 2);
+
+    assertThat(buffer.size(), is(4));
+    assertThat(buffer.capacity(), greaterThanOrEqualTo(4));
+    assertThat(buffer.get(0), is(ulid));
+    assertThat(buffer.getMostSignificantBits(1), is(1L));
+    assertThat(buffer.getLeastSignificantBits(1), is(2L));
+    assertThat(buffer.getMostSignificantBits(3), is(5L));
+    assertThat(buffer.getLeastSignificantBits(2), is(7L));
+  }
+
+  @Test
+  public void clearKeepsCapacity()
+  {
+    final UlidBuffer buffer = new UlidBuffer(0);
+    for(int i = 0; i < 100; ++i)
+    {
+      buffer.add(0L, i);
+    }
+    final int capacity = buffer.capacity();
+
+    buffer.clear();
+
+    assertThat(buffer.isEmpty(), is(true));
+    assertThat(buffer.capacity(), is(capacity));
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        buffer.get(0);
+      }
+    });
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidBuffer(-1);
+      }
+    });
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidBuffer().add(new long[1], new long[1], 0, 2);
+      }
+    });
+  }
+}
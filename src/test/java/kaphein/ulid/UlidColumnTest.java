@@ -0,0 +1,174 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidColumnTest
+{
+  @Test
+  public void monotonicUlids()
+  {
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(100000);
+
+    final byte[] bytes = write(ulids);
+    final UlidColumn column = new UlidColumn(ByteBuffer.wrap(bytes));
+
+    assertThat(bytes.length, is(lessThan(ulids.size() * 2)));
+    assertColumn(column, ulids);
+  }
+
+  @Test
+  public void sortedRandomUlids()
+  {
+    final Random random = new Random(793L);
+    final List<Ulid> ulids = new ArrayList<>();
+    for(int i = 0; i < 20000; ++i)
+    {
+      ulids.add(Ulid.from(
+        1700000000000L + random.nextInt(100000),
+        new long[] {random.nextInt(0x10000), random.nextLong()}));
+    }
+    for(int i = 0; i < 1000; ++i)
+    {
+      ulids.add(ulids.get(random.nextInt(ulids.size())));
+    }
+    Collections.sort(ulids);
+
+    final byte[] bytes = write(ulids);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 5);
+    buffer.position(5);
+    buffer.put(bytes);
+    buffer.position(5);
+    final UlidColumn column = new UlidColumn(buffer);
+
+    assertThat(bytes.length, is(lessThan(ulids.size() * 14)));
+    assertColumn(column, ulids);
+
+    for(int i = 0; i < 2000; ++i)
+    {
+      final Ulid key = Ulid.from(
+        1700000000000L + random.nextInt(100000),
+        new long[] {random.nextInt(0x10000), random.nextLong()});
+
+      assertThat(column.lowerBound(key), is(lowerBound(ulids, key)));
+    }
+    assertThat(column.lowerBound(Ulid.MIN_VALUE), is(0));
+    assertThat(column.lowerBound(Ulid.MAX_VALUE), is(ulids.size()));
+  }
+
+  @Test
+  public void carryAcrossTimestamps()
+  {
+    final List<Ulid> ulids = new ArrayList<>();
+    ulids.add(new Ulid(0x1FFFFL, -3L));
+    ulids.add(new Ulid(0x1FFFFL, -1L));
+    ulids.add(new Ulid(0x20000L, 0L));
+    ulids.add(new Ulid(0x20000L, 5L));
+    ulids.add(Ulid.MAX_VALUE);
+
+    assertColumn(new UlidColumn(ByteBuffer.wrap(write(ulids))), ulids);
+  }
+
+  @Test
+  public void emptyColumn()
+  {
+    final UlidColumn column = new UlidColumn(
+      ByteBuffer.wrap(new UlidColumnWriter().toByteArray()));
+
+    assertThat(column.size(), is(0));
+    assertThat(column.lowerBound(Ulid.MAX_VALUE), is(0));
+    assertThat(column.contains(0L, 0L), is(false));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    final List<Ulid> ulids = new ArrayList<>();
+    ulids.add(Ulid.MIN_VALUE);
+    final UlidColumn column = new UlidColumn(ByteBuffer.wrap(write(ulids)));
+
+    assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        column.get(1);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidColumn(ByteBuffer.allocate(64));
+      }
+    });
+  }
+
+  private static byte[] write(List<Ulid> ulids)
+  {
+    final UlidColumnWriter writer = new UlidColumnWriter();
+    for(final Ulid ulid : ulids)
+    {
+      writer.add(ulid);
+    }
+
+    return writer.toByteArray();
+  }
+
+  private static void assertColumn(UlidColumn column, List<Ulid> ulids)
+  {
+    assertThat(column.size(), is(ulids.size()));
+    for(int i = 0; i < ulids.size(); ++i)
+    {
+      assertThat(column.get(i), is(ulids.get(i)));
+    }
+    for(int i = 0; i < ulids.size(); ++i)
+    {
+      final Ulid ulid = ulids.get(i);
+
+      assertThat(column.lowerBound(ulid), is(lowerBound(ulids, ulid)));
+      assertThat(
+        column.contains(
+          ulid.getMostSignificantBits(),
+          ulid.getLeastSignificantBits()),
+        is(true));
+    }
+  }
+
+  private static int lowerBound(List<Ulid> ulids, Ulid key)
+  {
+    int low = 0;
+    int high = ulids.size();
+    while(low < high)
+    {
+      final int mid = (low + high) >>> 1;
+      if(ulids.get(mid).compareTo(key) < 0)
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+}
@@ -0,0 +1,69 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidColumnWriterTest
+{
+  @Test
+  public void keepWritingAfterSnapshot()
+  {
+    final UlidColumnWriter writer = new UlidColumnWriter();
+    for(int i = 0; i < 200; ++i)
+    {
+      writer.add(0L, i);
+    }
+
+    final UlidColumn snapshot = new UlidColumn(
+      ByteBuffer.wrap(writer.toByteArray()));
+
+    for(int i = 200; i < 300; ++i)
+    {
+      writer.add(0L, i);
+    }
+
+    final UlidColumn column = new UlidColumn(
+      ByteBuffer.wrap(writer.toByteArray()));
+
+    assertThat(writer.size(), is(300));
+    assertThat(snapshot.size(), is(200));
+    assertThat(snapshot.getLeastSignificantBits(199), is(199L));
+    assertThat(column.size(), is(300));
+    for(int i = 0; i < 300; ++i)
+    {
+      assertThat(column.getLeastSignificantBits(i), is((long)i));
+    }
+  }
+
+  @Test
+  public void rejectUnsortedUlids()
+  {
+    final UlidColumnWriter writer = new UlidColumnWriter();
+    writer.add(0L, -1L);
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        writer.add(0L, 1L);
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        writer.add(null);
+      }
+    });
+  }
+}
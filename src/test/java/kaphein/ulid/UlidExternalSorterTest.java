@@ -0,0 +1,216 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.rules.TemporaryFolder;
+
+public class UlidExternalSorterTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void sortWithSeveralMergePasses()
+    throws IOException, InterruptedException
+  {
+    final List<Ulid> ulids = createShuffledUlids(20000, 0);
+    final Path input = write(ulids);
+    final Path output = temporaryFolder.newFile().toPath();
+    final Path temporaryDirectory = temporaryFolder.newFolder().toPath();
+
+    final UlidSortReport report = new UlidExternalSorter(
+      500,
+      3,
+      4,
+      temporaryDirectory)
+        .sort(input, output, true);
+
+    Collections.sort(ulids);
+    assertThat(read(output), is(ulids));
+    assertThat(report.getInputCount(), is(20000L));
+    assertThat(report.getOutputCount(), is(20000L));
+    assertThat(report.isUnique(), is(true));
+    assertThat(report.getCollisions().isEmpty(), is(true));
+    assertThat(temporaryDirectory.toFile().list().length, is(0));
+  }
+
+  @Test
+  public void removeDuplicates()
+    throws IOException, InterruptedException
+  {
+    final List<Ulid> ulids = createShuffledUlids(5000, 300);
+    final Path input = write(ulids);
+    final Path output = temporaryFolder.newFile().toPath();
+
+    final UlidExternalSorter sorter = new UlidExternalSorter(
+      256,
+      2,
+      8,
+      temporaryFolder.newFolder().toPath());
+    sorter.setMaxReportedCollisions(10);
+    final UlidSortReport report = sorter.sort(input, output, true);
+
+    final List<Ulid> expected = new ArrayList<>(new TreeSet<>(ulids));
+    assertThat(read(output), is(expected));
+    assertThat(report.getInputCount(), is(5300L));
+    assertThat(report.getOutputCount(), is(5000L));
+    assertThat(report.getDuplicateCount(), is(300L));
+    assertThat(report.getCollisionCount(), is(150L));
+    assertThat(report.getCollisions().size(), is(10));
+    assertThat(report.isCollisionListTruncated(), is(true));
+    assertThat(report.isUnique(), is(false));
+
+    final List<Ulid> collisions = report.getCollisions();
+    for(int i = 1; i < collisions.size(); ++i)
+    {
+      assertThat(
+        collisions.get(i - 1).compareTo(collisions.get(i)) < 0,
+        is(true));
+    }
+  }
+
+  @Test
+  public void keepDuplicates()
+    throws IOException, InterruptedException
+  {
+    final List<Ulid> ulids = createShuffledUlids(3000, 100);
+    final Path input = write(ulids);
+    final Path output = temporaryFolder.newFile().toPath();
+
+    final UlidSortReport report = new UlidExternalSorter(
+      500,
+      2,
+      2,
+      temporaryFolder.newFolder().toPath())
+        .sort(input, output, false);
+
+    Collections.sort(ulids);
+    assertThat(read(output), is(ulids));
+    assertThat(report.getOutputCount(), is(3100L));
+    assertThat(report.getDuplicateCount(), is(100L));
+  }
+
+  @Test
+  public void sortEmptyFile()
+    throws IOException, InterruptedException
+  {
+    final Path input = temporaryFolder.newFile().toPath();
+    final Path output = temporaryFolder.newFile().toPath();
+
+    final UlidSortReport report = new UlidExternalSorter()
+      .sort(input, output, true);
+
+    assertThat(Files.size(output), is(0L));
+    assertThat(report.getInputCount(), is(0L));
+  }
+
+  @Test
+  public void rejectTruncatedFile()
+    throws IOException
+  {
+    final Path input = temporaryFolder.newFile().toPath();
+    Files.write(input, new byte[17]);
+    final Path output = temporaryFolder.newFile().toPath();
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidExternalSorter().sort(input, output, true);
+      }
+    });
+  }
+
+  @Test
+  public void radixSortMatchesCompareTo()
+  {
+    final Random random = new Random(3L);
+    final int count = 10000;
+    final long[] his = new long[count];
+    final long[] los = new long[count];
+    final List<Ulid> expected = new ArrayList<>();
+    for(int i = 0; i < count; ++i)
+    {
+      his[i] = random.nextLong();
+      los[i] = (0 == i % 3 ? los[i / 2] : random.nextLong());
+      expected.add(new Ulid(his[i], los[i]));
+    }
+
+    UlidRadixSort.sort(his, los, count, new long[count], new long[count]);
+
+    Collections.sort(expected);
+    for(int i = 0; i < count; ++i)
+    {
+      assertThat(new Ulid(his[i], los[i]), is(expected.get(i)));
+    }
+  }
+
+  private static List<Ulid> createShuffledUlids(int count, int duplicateCount)
+  {
+    final Random random = new Random(11L);
+    final List<Ulid> result = new ArrayList<>();
+
+    long timestamp = 1600000000000L;
+    for(int i = 0; i < count; ++i)
+    {
+      timestamp += random.nextInt(3);
+      result.add(Ulid.from(
+        timestamp,
+        new long[]{random.nextInt(0x10000), random.nextLong()}));
+    }
+    for(int i = 0; i < duplicateCount; ++i)
+    {
+      result.add(result.get(i >>> 1));
+    }
+    Collections.shuffle(result, random);
+
+    return result;
+  }
+
+  private Path write(List<Ulid> ulids)
+    throws IOException
+  {
+    final Path result = temporaryFolder.newFile().toPath();
+
+    final ByteBuffer buffer = ByteBuffer.allocate(ulids.size() * 16);
+    for(final Ulid ulid : ulids)
+    {
+      buffer.put(ulid.toByteArray());
+    }
+    Files.write(result, buffer.array());
+
+    return result;
+  }
+
+  private static List<Ulid> read(Path path)
+    throws IOException
+  {
+    final List<Ulid> result = new ArrayList<>();
+
+    final byte[] bytes = Files.readAllBytes(path);
+    for(int i = 0; i < bytes.length; i += 16)
+    {
+      result.add(Ulid.from(Arrays.copyOfRange(bytes, i, i + 16), 0));
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,169 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidFrontCodecTest
+{
+  @Test
+  public void encodeSharedPrefixes()
+  {
+    final UlidFrontCodec codec = new UlidFrontCodec();
+    final List<Ulid> ulids = Arrays.asList(
+      Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK"),
+      Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHM"),
+      Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHM"),
+      Ulid.parse("01HAKQK7G1ZZZZZZZZZZZZZZZZ"),
+      Ulid.parse("7ZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+
+    final String text = codec.encode(ulids);
+
+    assertThat(
+      text,
+      is("001HAKQK7G0PKCTV8M94TEF1FHK"
+        + "SM"
+        + "T"
+        + "91ZZZZZZZZZZZZZZZZ"
+        + "07ZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+    assertThat(toList(codec.decode(text)), is(ulids));
+    assertThat(toList(codec.decode(text.toLowerCase())), is(ulids));
+  }
+
+  @Test
+  public void monotonicUlidsAreCompact()
+  {
+    final UlidFrontCodec codec = new UlidFrontCodec();
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(100000);
+
+    final String text = codec.encode(ulids);
+
+    assertThat(text.length(), is(lessThan(ulids.size() * 4)));
+    assertThat(toList(codec.decode(text)), is(ulids));
+  }
+
+  @Test
+  public void unsortedUlids()
+  {
+    final UlidFrontCodec codec = new UlidFrontCodec();
+    final Random random = new Random(793L);
+    final UlidBuffer ulids = new UlidBuffer();
+    for(int i = 0; i < 10000; ++i)
+    {
+      ulids.add(Ulid.from(
+        1700000000000L + random.nextInt(1000),
+        new long[] {random.nextInt(0x10000), random.nextLong()}));
+    }
+    ulids.add(Ulid.MIN_VALUE);
+    ulids.add(Ulid.MAX_VALUE);
+
+    final String text = codec.encode(ulids);
+
+    assertThat(toList(codec.decode(text)), is(toList(ulids)));
+    assertThat(
+      codec.decode(codec.encode(Collections.<Ulid>emptyList())).size(),
+      is(0));
+  }
+
+  @Test
+  public void streamThroughSmallBuffers()
+  {
+    final UlidFrontCodec codec = new UlidFrontCodec();
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(1000);
+
+    final ByteBuffer encoded = ByteBuffer.allocate(1 << 16);
+    final ByteBuffer chunk = ByteBuffer
+      .allocate(UlidFrontCodec.MAX_WRITE_SIZE);
+    final UlidFrontCodec.Encoder encoder = codec.newEncoder();
+    for(final Ulid ulid : ulids)
+    {
+      while(!encoder.write(ulid, chunk))
+      {
+        chunk.flip();
+        encoded.put(chunk);
+        chunk.clear();
+      }
+    }
+    chunk.flip();
+    encoded.put(chunk);
+    encoded.flip();
+
+    final UlidBuffer decoded = new UlidBuffer();
+    final UlidFrontCodec.Decoder decoder = codec.newDecoder();
+    final ByteBuffer input = ByteBuffer.allocate(UlidFrontCodec.MAX_WRITE_SIZE);
+    input.flip();
+    while(encoded.hasRemaining() || input.hasRemaining())
+    {
+      decoder.read(input, decoded, 3);
+      input.compact();
+      while(input.hasRemaining() && encoded.hasRemaining())
+      {
+        input.put(encoded.get());
+      }
+      input.flip();
+    }
+
+    assertThat(toList(decoded), is(ulids));
+  }
+
+  @Test
+  public void rejectMalformedText()
+  {
+    final UlidFrontCodec codec = new UlidFrontCodec();
+
+    for(final String text : Arrays.asList(
+      "101HAKQK7G0PKCTV8M94TEF1FHK",
+      "001HAKQK7G0PKCTV8M94TEF1FH",
+      "001HAKQK7G0PKCTV8M94TEF1FHKW",
+      "081HAKQK7G0PKCTV8M94TEF1FHK",
+      "001HAKQK7G0PKCTV8M94TEF1FHKRU"))
+    {
+      assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          codec.decode(text);
+        }
+      });
+    }
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        codec.encode(Arrays.asList(Ulid.MIN_VALUE, null));
+      }
+    });
+  }
+
+  private static List<Ulid> toList(UlidBuffer buffer)
+  {
+    final List<Ulid> list = new ArrayList<>();
+    for(int i = 0; i < buffer.size(); ++i)
+    {
+      list.add(buffer.get(i));
+    }
+
+    return list;
+  }
+}
@@ -0,0 +1,143 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidHyperLogLogTest
+{
+  @Test
+  public void estimateRandomUlids()
+  {
+    final UlidHyperLogLog sketch = new UlidHyperLogLog(14);
+    final Random random = new Random(793L);
+
+    assertThat(sketch.estimate(), is(0L));
+
+    for(int i = 0; i < 1000000; ++i)
+    {
+      final long hi = random.nextLong();
+      final long lo = random.nextLong();
+      sketch.add(hi, lo);
+      sketch.add(hi, lo);
+    }
+
+    assertThat((double)sketch.estimate(), is(closeTo(1000000.0, 30000.0)));
+  }
+
+  @Test
+  public void estimateSmallCardinality()
+  {
+    final UlidHyperLogLog sketch = new UlidHyperLogLog(12);
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 100; ++i)
+    {
+      sketch.add(random.nextLong(), random.nextLong());
+    }
+
+    assertThat((double)sketch.estimate(), is(closeTo(100.0, 5.0)));
+  }
+
+  @Test
+  public void estimateMonotonicUlidsWithHashing()
+  {
+    final UlidHyperLogLog sketch = new UlidHyperLogLog(14, true);
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(200000);
+
+    for(final Ulid ulid : ulids)
+    {
+      sketch.add(ulid);
+    }
+
+    assertThat((double)sketch.estimate(), is(closeTo(200000.0, 6000.0)));
+  }
+
+  @Test
+  public void mergeAndSerialize()
+  {
+    final UlidHyperLogLog first = new UlidHyperLogLog(12);
+    final UlidHyperLogLog second = new UlidHyperLogLog(12);
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 20000; ++i)
+    {
+      final long hi = random.nextLong();
+      final long lo = random.nextLong();
+      if(i < 15000)
+      {
+        first.add(hi, lo);
+      }
+      if(i >= 5000)
+      {
+        second.add(hi, lo);
+      }
+    }
+    first.merge(second);
+
+    final UlidHyperLogLog copy = UlidHyperLogLog
+      .from(first.toByteArray(), 0);
+
+    assertThat((double)first.estimate(), is(closeTo(20000.0, 1000.0)));
+    assertThat(copy.estimate(), is(first.estimate()));
+    assertThat(copy.getPrecision(), is(12));
+    assertThat(copy.isHashed(), is(false));
+
+    copy.clear();
+
+    assertThat(copy.estimate(), is(0L));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    final UlidHyperLogLog sketch = new UlidHyperLogLog(12);
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidHyperLogLog(3);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        sketch.merge(new UlidHyperLogLog(12, true));
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        UlidHyperLogLog.from(new byte[8], 0);
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        sketch.add(null);
+      }
+    });
+  }
+}
@@ -0,0 +1,209 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.rules.TemporaryFolder;
+
+public class UlidIndexFileTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void findRecordsWithPayloads()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(50000);
+    final Path path = temporaryFolder.newFile().toPath();
+    try(UlidIndexFileWriter writer = new UlidIndexFileWriter(path, true))
+    {
+      for(int i = 0; i < ulids.size(); ++i)
+      {
+        writer.add(
+          ulids.get(i).getMostSignificantBits(),
+          ulids.get(i).getLeastSignificantBits(),
+          i * 100L);
+      }
+    }
+
+    try(UlidIndexFile file = new UlidIndexFile(path, 1000))
+    {
+      assertThat(file.size(), is((long)ulids.size()));
+      assertThat(file.hasPayloads(), is(true));
+      for(int i = 0; i < ulids.size(); i += 7)
+      {
+        final Ulid ulid = ulids.get(i);
+        final long index = file.find(
+          ulid.getMostSignificantBits(),
+          ulid.getLeastSignificantBits());
+
+        assertThat(file.get(i), is(ulid));
+        assertThat(index, is((long)ulids.indexOf(ulid)));
+        assertThat(file.getPayload(index), is(index * 100L));
+      }
+
+      final Random random = new Random(7L);
+      for(int i = 0; i < 5000; ++i)
+      {
+        final Ulid key = randomUlid(random);
+
+        assertThat(
+          file.lowerBound(
+            key.getMostSignificantBits(),
+            key.getLeastSignificantBits()),
+          is(lowerBound(ulids, key)));
+      }
+      assertThat(file.contains(Ulid.MAX_VALUE), is(false));
+      assertThat(file.find(0L, 0L), is(-1L));
+    }
+  }
+
+  @Test
+  public void queryByTime()
+    throws IOException
+  {
+    final Path path = temporaryFolder.newFile().toPath();
+    try(UlidIndexFileWriter writer = new UlidIndexFileWriter(path, false))
+    {
+      for(int timestamp = 0; timestamp < 5000; ++timestamp)
+      {
+        for(int i = 0; i < 3; ++i)
+        {
+          writer.add(Ulid.from(timestamp, new long[] {0L, i}));
+        }
+      }
+    }
+
+    try(UlidIndexFile file = new UlidIndexFile(path))
+    {
+      assertThat(file.hasPayloads(), is(false));
+      assertThat(file.lowerBoundByTime(0L), is(0L));
+      assertThat(file.lowerBoundByTime(1000L), is(3000L));
+      assertThat(file.lowerBoundByTime(6000L), is(15000L));
+      assertThat(file.countByTime(10L, 20L), is(30L));
+      assertThat(file.countByTime(20L, 10L), is(0L));
+      assertThat(
+        file.get(file.lowerBoundByTime(4321L)).getTimestamp(),
+        is(4321L));
+    }
+  }
+
+  @Test
+  public void emptyFile()
+    throws IOException
+  {
+    final Path path = temporaryFolder.newFile().toPath();
+    new UlidIndexFileWriter(path, false).close();
+
+    try(UlidIndexFile file = new UlidIndexFile(path))
+    {
+      assertThat(file.size(), is(0L));
+      assertThat(file.lowerBound(-1L, -1L), is(0L));
+      assertThat(file.contains(Ulid.MIN_VALUE), is(false));
+    }
+  }
+
+  @Test
+  public void withOddParameters()
+    throws IOException
+  {
+    final Path path = temporaryFolder.newFile().toPath();
+    Files.write(path, new byte[64]);
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidIndexFile(path).close();
+      }
+    });
+
+    final UlidIndexFileWriter writer = new UlidIndexFileWriter(path, false);
+    writer.add(0L, 2L);
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        writer.add(0L, 1L);
+      }
+    });
+    assertThrows(IllegalStateException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        writer.add(0L, 3L, 0L);
+      }
+    });
+
+    writer.close();
+
+    try(UlidIndexFile file = new UlidIndexFile(path))
+    {
+      assertThrows(IllegalStateException.class, new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          file.getPayload(0L);
+        }
+      });
+      assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          file.get(1L);
+        }
+      });
+    }
+  }
+
+  private static List<Ulid> createSortedUlids(int count)
+  {
+    final Random random = new Random(793L);
+    final List<Ulid> ulids = new ArrayList<>();
+    for(int i = 0; i < count; ++i)
+    {
+      ulids.add(randomUlid(random));
+    }
+    Collections.sort(ulids);
+
+    return ulids;
+  }
+
+  private static Ulid randomUlid(Random random)
+  {
+    return Ulid.from(
+      1600000000000L + (random.nextLong() & 0x3FFFFFFFFFL),
+      new long[] {random.nextInt(0x10000), random.nextLong()});
+  }
+
+  private static long lowerBound(List<Ulid> ulids, Ulid key)
+  {
+    int index = Collections.binarySearch(ulids, key);
+
+    return (index >= 0 ? index : -index - 1);
+  }
+}
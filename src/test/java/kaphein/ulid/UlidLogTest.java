@@ -0,0 +1,369 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.rules.TemporaryFolder;
+
+public class UlidLogTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void scanRangesAcrossSegments()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(3000);
+    final Path directory = temporaryFolder.newFolder().toPath();
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      appendAll(log, ulids);
+
+      assertThat(log.size(), is(3000L));
+      assertThat(log.getSegmentCount() > 10, is(true));
+      assertScans(log, ulids);
+    }
+  }
+
+  @Test
+  public void reopenLog()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(2000);
+    final Path directory = temporaryFolder.newFolder().toPath();
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      appendAll(log, ulids.subList(0, 1000));
+    }
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      assertThat(log.size(), is(1000L));
+      appendAll(log, ulids.subList(1000, 2000));
+    }
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      assertThat(log.size(), is(2000L));
+      assertScans(log, ulids);
+    }
+  }
+
+  @Test
+  public void indexSealedSegmentsOnFirstScan()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(1000);
+    final Path directory = temporaryFolder.newFolder().toPath();
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      appendAll(log, ulids);
+    }
+
+    // Corrupts the length of the first record of the first sealed segment,
+    // which only a scan of the segment can detect.
+    try(
+      FileChannel channel = FileChannel.open(
+        directory.resolve("00000000000000000000.ulog"),
+        StandardOpenOption.WRITE)
+    )
+    {
+      channel.write(
+        ByteBuffer.wrap(new byte[]{(byte)0x7F}),
+        UlidLog.HEADER_SIZE + 16);
+    }
+
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      assertThat(log.size(), is(1000L));
+      assertThat(
+        collect(log, ulids.get(500), ulids.get(999)),
+        is(ulids.subList(500, 1000)));
+      assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          collect(log, ulids.get(0), ulids.get(999));
+        }
+      });
+    }
+  }
+
+  @Test
+  public void recoverTornTail()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(100);
+    final Path directory = temporaryFolder.newFolder().toPath();
+    try(UlidLog log = new UlidLog(directory, 1 << 16))
+    {
+      appendAll(log, ulids);
+    }
+
+    // Corrupts the payload of the 91st record.
+    final Path segment = directory.resolve("00000000000000000000.ulog");
+    final int recordSize = UlidLog.RECORD_OVERHEAD + 8;
+    try(
+      FileChannel channel = FileChannel.open(
+        segment,
+        StandardOpenOption.WRITE)
+    )
+    {
+      channel.write(
+        ByteBuffer.wrap(new byte[]{(byte)0xFF}),
+        UlidLog.HEADER_SIZE + 90 * recordSize + UlidLog.RECORD_HEADER_SIZE);
+    }
+
+    try(UlidLog log = new UlidLog(directory, 1 << 16))
+    {
+      assertThat(log.size(), is(90L));
+      appendAll(log, ulids.subList(95, 100));
+    }
+    try(UlidLog log = new UlidLog(directory, 1 << 16))
+    {
+      final List<Ulid> expected = new ArrayList<>(ulids.subList(0, 90));
+      expected.addAll(ulids.subList(95, 100));
+      assertThat(log.size(), is(95L));
+      assertThat(collect(log, ulids.get(0), ulids.get(99)), is(expected));
+    }
+  }
+
+  @Test
+  public void removeOldSegments()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(3000);
+    final Path directory = temporaryFolder.newFolder().toPath();
+    try(UlidLog log = new UlidLog(directory, 4096))
+    {
+      appendAll(log, ulids);
+
+      final long timestamp = ulids.get(1500).getTimestamp();
+      final int segmentCount = log.getSegmentCount();
+      final int removedCount = log.removeSegmentsBefore(timestamp);
+
+      assertThat(removedCount > 0, is(true));
+      assertThat(log.getSegmentCount(), is(segmentCount - removedCount));
+      assertThat(
+        directory.toFile().list().length,
+        is(segmentCount - removedCount));
+
+      final List<Ulid> remaining = collect(
+        log,
+        Ulid.MIN_VALUE,
+        Ulid.MAX_VALUE);
+      assertThat(remaining.size(), is((int)log.size()));
+      assertThat(remaining.get(0).getTimestamp() <= timestamp, is(true));
+      assertThat(
+        remaining,
+        is(ulids.subList(3000 - remaining.size(), 3000)));
+    }
+  }
+
+  @Test
+  public void stopScan()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(500);
+    try(UlidLog log = new UlidLog(temporaryFolder.newFolder().toPath(), 4096))
+    {
+      appendAll(log, ulids);
+
+      final List<Ulid> visited = new ArrayList<>();
+      final long count = log.scan(
+        new UlidRange(Ulid.MIN_VALUE, Ulid.MAX_VALUE),
+        new UlidLogVisitor()
+        {
+          @Override
+          public boolean visit(
+            long mostSigBits,
+            long leastSigBits,
+            ByteBuffer payload
+          )
+          {
+            visited.add(new Ulid(mostSigBits, leastSigBits));
+
+            return visited.size() < 10;
+          }
+        });
+
+      assertThat(count, is(10L));
+      assertThat(visited, is(ulids.subList(0, 10)));
+    }
+  }
+
+  @Test
+  public void rejectModificationFromVisitor()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(3);
+    try(UlidLog log = new UlidLog(temporaryFolder.newFolder().toPath(), 4096))
+    {
+      appendAll(log, ulids.subList(0, 2));
+
+      final List<RuntimeException> errors = new ArrayList<>();
+      log.scan(
+        new UlidRange(Ulid.MIN_VALUE, Ulid.MAX_VALUE),
+        new UlidLogVisitor()
+        {
+          @Override
+          public boolean visit(
+            long mostSigBits,
+            long leastSigBits,
+            ByteBuffer payload
+          )
+          {
+            try
+            {
+              log.append(ulids.get(2), new byte[0]);
+            }
+            catch(final IllegalStateException | IOException e)
+            {
+              errors.add(new RuntimeException(e));
+            }
+
+            return false;
+          }
+        });
+
+      assertThat(errors.size(), is(1));
+      assertThat(
+        errors.get(0).getCause() instanceof IllegalStateException,
+        is(true));
+      log.append(ulids.get(2), new byte[0]);
+      assertThat(log.size(), is(3L));
+    }
+  }
+
+  @Test
+  public void rejectUnorderedUlids()
+    throws IOException
+  {
+    final List<Ulid> ulids = createSortedUlids(2);
+    final UlidLog log = new UlidLog(temporaryFolder.newFolder().toPath());
+    try
+    {
+      log.append(ulids.get(1), new byte[0]);
+      log.append(ulids.get(1), new byte[0]);
+
+      assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          log.append(ulids.get(0), new byte[0]);
+        }
+      });
+    }
+    finally
+    {
+      log.close();
+    }
+  }
+
+  private static List<Ulid> createSortedUlids(int count)
+  {
+    final Random random = new Random(5L);
+    final List<Ulid> result = new ArrayList<>();
+
+    long timestamp = 1600000000000L;
+    for(int i = 0; i < count; ++i)
+    {
+      timestamp += random.nextInt(4);
+      result.add(Ulid.from(
+        timestamp,
+        new long[]{random.nextInt(0x10000), random.nextLong()}));
+    }
+    Collections.sort(result);
+
+    return result;
+  }
+
+  private static byte[] payloadOf(Ulid ulid)
+  {
+    return ByteBuffer.allocate(8)
+      .putLong(ulid.getLeastSignificantBits() ^ 0x5A5A5A5AL)
+      .array();
+  }
+
+  private static void appendAll(UlidLog log, List<Ulid> ulids)
+    throws IOException
+  {
+    for(final Ulid ulid : ulids)
+    {
+      log.append(ulid, payloadOf(ulid));
+    }
+  }
+
+  private static List<Ulid> collect(UlidLog log, Ulid start, Ulid end)
+  {
+    final List<Ulid> result = new ArrayList<>();
+
+    log.scan(new UlidRange(start, end), new UlidLogVisitor()
+    {
+      @Override
+      public boolean visit(
+        long mostSigBits,
+        long leastSigBits,
+        ByteBuffer payload
+      )
+      {
+        final Ulid ulid = new Ulid(mostSigBits, leastSigBits);
+        assertThat(payload.remaining(), is(8));
+        assertThat(
+          payload.getLong(),
+          is(ByteBuffer.wrap(payloadOf(ulid)).getLong()));
+        result.add(ulid);
+
+        return true;
+      }
+    });
+
+    return result;
+  }
+
+  private static void assertScans(UlidLog log, List<Ulid> ulids)
+  {
+    assertThat(collect(log, Ulid.MIN_VALUE, Ulid.MAX_VALUE), is(ulids));
+
+    final Random random = new Random(9L);
+    for(int i = 0; i < 200; ++i)
+    {
+      final int from = random.nextInt(ulids.size());
+      final int to = from + random.nextInt(ulids.size() - from);
+      assertThat(
+        collect(log, ulids.get(from), ulids.get(to)),
+        is(ulids.subList(from, to + 1)));
+    }
+
+    final long timestamp = ulids.get(ulids.size() / 2).getTimestamp();
+    final List<Ulid> expected = new ArrayList<>();
+    for(final Ulid ulid : ulids)
+    {
+      if(ulid.getTimestamp() == timestamp)
+      {
+        expected.add(ulid);
+      }
+    }
+    final UlidRange range = UlidRange.byTime(timestamp, timestamp);
+    assertThat(
+      collect(log, range.getStart(), range.getEnd()),
+      is(expected));
+  }
+}
@@ -0,0 +1,143 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidRangeSetTest
+{
+  @Test
+  public void addMonotonicRuns()
+  {
+    final MonotonicUlidGenerator generator = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(1000L, 1000000),
+      null);
+    final UlidRangeSet set = new UlidRangeSet();
+
+    final List<Ulid> first = generator.generate(100000);
+    final List<Ulid> second = generator.generate(100000);
+
+    assertThat(set.addAll(first), is(true));
+    assertThat(set.addAll(second), is(true));
+    assertThat(set.addAll(first), is(false));
+    assertThat(set.getRangeCount(), is(1));
+    assertThat(set.getCardinality(), is(BigInteger.valueOf(200000L)));
+    assertThat(set.contains(first.get(0)), is(true));
+    assertThat(set.contains(second.get(99999)), is(true));
+    assertThat(
+      set.getRange(0),
+      is(new UlidRange(first.get(0), second.get(99999))));
+  }
+
+  @Test
+  public void mergeAdjacentAndOverlappingRanges()
+  {
+    final UlidRangeSet set = new UlidRangeSet();
+
+    set.addRange(0L, 10L, 0L, 19L);
+    set.addRange(0L, 30L, 0L, 39L);
+    set.addRange(0L, 50L, 0L, 59L);
+
+    assertThat(set.getRangeCount(), is(3));
+    assertThat(set.contains(0L, 20L), is(false));
+
+    assertThat(set.addRange(0L, 20L, 0L, 29L), is(true));
+
+    assertThat(set.getRangeCount(), is(2));
+    assertThat(set.getRange(0), is(new UlidRange(0L, 10L, 0L, 39L)));
+
+    assertThat(set.addRange(0L, 0L, 0L, 100L), is(true));
+
+    assertThat(set.getRangeCount(), is(1));
+    assertThat(set.getCardinality(), is(BigInteger.valueOf(101L)));
+    assertThat(set.addRange(0L, 5L, 0L, 6L), is(false));
+  }
+
+  @Test
+  public void mergeAcrossLeastSignificantBits()
+  {
+    final UlidRangeSet set = new UlidRangeSet();
+
+    set.add(0L, -1L);
+    set.add(1L, 0L);
+
+    assertThat(set.getRangeCount(), is(1));
+
+    set.add(Ulid.MAX_VALUE);
+    set.add(Ulid.MIN_VALUE);
+
+    assertThat(set.getRangeCount(), is(3));
+    assertThat(set.contains(Ulid.MAX_VALUE), is(true));
+    assertThat(set.contains(0L, 1L), is(false));
+  }
+
+  @Test
+  public void matchesTreeSetWithRandomRanges()
+  {
+    final UlidRangeSet set = new UlidRangeSet();
+    final TreeSet<Long> expected = new TreeSet<>();
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 2000; ++i)
+    {
+      final long start = random.nextInt(10000);
+      final long end = start + random.nextInt(8);
+
+      set.addRange(0L, start, 0L, end);
+      for(long value = start; value <= end; ++value)
+      {
+        expected.add(value);
+      }
+    }
+
+    long previousEnd = -2L;
+    for(final UlidRange range : set)
+    {
+      assertThat(
+        range.getStartLeastSignificantBits() > previousEnd + 1L,
+        is(true));
+      previousEnd = range.getEndLeastSignificantBits();
+    }
+    for(long value = 0L; value < 10010L; ++value)
+    {
+      assertThat(set.contains(0L, value), is(expected.contains(value)));
+    }
+    assertThat(
+      set.getCardinality(),
+      is(BigInteger.valueOf(expected.size())));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    final UlidRangeSet set = new UlidRangeSet();
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        set.addRange(0L, 2L, 0L, 1L);
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        set.add(null);
+      }
+    });
+    assertThat(set.isEmpty(), is(true));
+  }
+}
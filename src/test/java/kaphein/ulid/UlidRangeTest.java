@@ -0,0 +1,87 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidRangeTest
+{
+  @Test
+  public void byTime()
+  {
+    final UlidRange range = UlidRange.byTime(10L, 11L);
+
+    assertThat(range.getStart(), is(Ulid.from(10L, new long[] {0L, 0L})));
+    assertThat(
+      range.getEnd(),
+      is(Ulid.from(11L, new long[] {0xFFFFL, -1L})));
+    assertThat(
+      range.contains(Ulid.from(9L, new long[] {0xFFFFL, -1L})),
+      is(false));
+    assertThat(range.contains(Ulid.from(11L, new long[] {1L, 1L})), is(true));
+    assertThat(range.contains(Ulid.from(12L, new long[] {0L, 0L})), is(false));
+    assertThat(
+      range.getCardinality(),
+      is(BigInteger.ONE.shiftLeft(81)));
+  }
+
+  @Test
+  public void overlaps()
+  {
+    final UlidRange range = new UlidRange(0L, 10L, 0L, 20L);
+
+    assertThat(range.overlaps(0L, 0L, 0L, 9L), is(false));
+    assertThat(range.overlaps(0L, 0L, 0L, 10L), is(true));
+    assertThat(range.overlaps(0L, 20L, 0L, 30L), is(true));
+    assertThat(range.overlaps(0L, 21L, 0L, 30L), is(false));
+  }
+
+  @Test
+  public void equalsAndHashCode()
+  {
+    final UlidRange range = new UlidRange(Ulid.MIN_VALUE, Ulid.MAX_VALUE);
+    final UlidRange same = new UlidRange(0L, 0L, -1L, -1L);
+
+    assertThat(range.equals(same), is(true));
+    assertThat(range.hashCode(), is(same.hashCode()));
+    assertThat(range.equals(new UlidRange(0L, 0L, 0L, 0L)), is(false));
+    assertThat(range.getCardinality(), is(BigInteger.ONE.shiftLeft(128)));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidRange(Ulid.MAX_VALUE, Ulid.MIN_VALUE);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        UlidRange.byTime(2L, 1L);
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        new UlidRange(null, Ulid.MIN_VALUE);
+      }
+    });
+  }
+}
@@ -0,0 +1,188 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidReaderTest
+{
+  @Test
+  public void roundTripLargeBatches()
+    throws IOException
+  {
+    for(final UlidFormat format : UlidFormat.values())
+    {
+      final int count = 100000;
+      final List<Ulid> ulids = createUlids(count);
+      final long[] hiLo = new long[(count + 1) << 1];
+      for(int i = 0; i < count; ++i)
+      {
+        hiLo[(i << 1) + 2] = ulids.get(i).getMostSignificantBits();
+        hiLo[(i << 1) + 3] = ulids.get(i).getLeastSignificantBits();
+      }
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try(UlidWriter writer = new UlidWriter(out, format))
+      {
+        writer.write(hiLo, 2, count);
+      }
+
+      final long[] read = new long[hiLo.length];
+      try(
+        UlidReader reader = new UlidReader(
+          Channels.newChannel(new ByteArrayInputStream(out.toByteArray())),
+          format)
+      )
+      {
+        int total = 0;
+        for(int n = 0; n >= 0 && total < count; total += Math.max(n, 0))
+        {
+          n = reader.read(
+            read,
+            2 + (total << 1),
+            Math.min(777, count - total));
+        }
+
+        assertThat(total, is(count));
+        assertThat(reader.read(read, 0, 1), is(-1));
+        assertThat(reader.read(), is(nullValue()));
+      }
+      for(int i = 2; i < hiLo.length; ++i)
+      {
+        assertThat(read[i], is(hiLo[i]));
+      }
+    }
+  }
+
+  @Test
+  public void readTextWithCrLfAndNoFinalNewline()
+    throws IOException
+  {
+    final List<Ulid> ulids = createUlids(3);
+    final String text = ulids.get(0) + "\r\n"
+      + ulids.get(1).toString().toLowerCase() + "\n"
+      + ulids.get(2);
+
+    try(
+      UlidReader reader = new UlidReader(
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)),
+        UlidFormat.TEXT)
+    )
+    {
+      final Ulid[] read = new Ulid[5];
+      assertThat(reader.read(read, 1, 4), is(3));
+      assertThat(read[1], is(ulids.get(0)));
+      assertThat(read[2], is(ulids.get(1)));
+      assertThat(read[3], is(ulids.get(2)));
+    }
+  }
+
+  @Test
+  public void rejectMalformedInput()
+  {
+    assertRejected(
+      "01ARZ3NDEKTSV4RRFFQ69G5FAV\n01ARZ3NDEKTSV4RRFFQ69G5FAU\n",
+      UlidFormat.TEXT);
+    assertRejected("01ARZ3NDEKTSV4RRFFQ69G5FA\n", UlidFormat.TEXT);
+    assertRejected("81ARZ3NDEKTSV4RRFFQ69G5FAV\n", UlidFormat.TEXT);
+    assertRejected("01ARZ3NDEKTSV4RRFFQ69G5FAVX\n", UlidFormat.TEXT);
+    assertRejected("0123456789ABCDEFG", UlidFormat.BINARY);
+  }
+
+  @Test
+  public void reportPositionOfMalformedLine()
+  {
+    final String input = "01ARZ3NDEKTSV4RRFFQ69G5FAV\n"
+      + "01ARZ3NDEKTSV4RRFFQ69G5FA\n";
+
+    assertThat(
+      readUntilError(input, 0L).getMessage(),
+      containsString("Line 2 at offset 27 "));
+    assertThat(
+      readUntilError(input, 1000L).getMessage(),
+      containsString("line at offset 1027 "));
+  }
+
+  private static IllegalArgumentException readUntilError(
+    String input,
+    final long startOffset
+  )
+  {
+    final byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+
+    return assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        try(
+          UlidReader reader = new UlidReader(
+            Channels.newChannel(new ByteArrayInputStream(bytes)),
+            UlidFormat.TEXT,
+            startOffset)
+        )
+        {
+          while(null != reader.read())
+          {
+            // Reads until an error.
+          }
+        }
+      }
+    });
+  }
+
+  private static void assertRejected(String input, final UlidFormat format)
+  {
+    final byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        try(
+          UlidReader reader = new UlidReader(
+            new ByteArrayInputStream(bytes),
+            format)
+        )
+        {
+          while(null != reader.read())
+          {
+            // Reads until an error.
+          }
+        }
+      }
+    });
+  }
+
+  private static List<Ulid> createUlids(int count)
+  {
+    final Random random = new Random(17L);
+    final List<Ulid> result = new ArrayList<>();
+
+    for(int i = 0; i < count; ++i)
+    {
+      result.add(Ulid.from(
+        random.nextLong() & Ulid.TIMESTAMP_MAX_VALUE,
+        new long[]{random.nextInt(0x10000), random.nextLong()}));
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,155 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UlidScannerTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void findUlidsOnWordBoundaries()
+  {
+    final String a = "01ARZ3NDEKTSV4RRFFQ69G5FAV";
+    final String b = "01BX5ZZKBKACTAV9WEVGEMMVRZ";
+    final String text = a + " id=" + b.toLowerCase() + ",x" + a + " "
+      + a + "Z " + a.substring(1) + " 81ARZ3NDEKTSV4RRFFQ69G5FAV "
+      + "01ARZ3NDEKTSV4RRFFQ69G5FAU_ é" + b;
+
+    final List<Object> found = scan(new UlidScanner(), text);
+
+    assertThat(
+      found,
+      is(Arrays.<Object>asList(
+        0L, Ulid.parse(a),
+        30L, Ulid.parse(b),
+        (long)(text.length() + 1 - 26), Ulid.parse(b))));
+  }
+
+  @Test
+  public void findUlidsSplitAcrossReads()
+    throws IOException
+  {
+    final Random random = new Random(1L);
+    final List<Object> expected = new ArrayList<>();
+    final StringBuilder builder = new StringBuilder();
+    for(int i = 0; i < 20000; ++i)
+    {
+      final Ulid ulid = Ulid.from(
+        1500000000000L + random.nextInt(1000000),
+        new long[]{random.nextInt(0x10000), random.nextLong()});
+      builder.append("line ").append(i).append(" request=");
+      expected.add((long)builder.length());
+      expected.add(ulid);
+      builder.append(ulid).append(" done\n");
+    }
+    final byte[] bytes = builder.toString()
+      .getBytes(StandardCharsets.US_ASCII);
+
+    final List<Object> fromChannel = new ArrayList<>();
+    final ReadableByteChannel channel = Channels.newChannel(
+      new ByteArrayInputStream(bytes));
+    final long count = new UlidScanner().scan(
+      channel,
+      collector(fromChannel));
+    assertThat(count, is(20000L));
+    assertThat(fromChannel, is(expected));
+
+    final Path path = temporaryFolder.newFile().toPath();
+    Files.write(path, bytes);
+    final List<Object> fromFile = new ArrayList<>();
+    new UlidScanner().scan(path, collector(fromFile));
+    assertThat(fromFile, is(expected));
+  }
+
+  @Test
+  public void filterByTimestamp()
+  {
+    final StringBuilder builder = new StringBuilder();
+    for(long timestamp = 1000L; timestamp < 1100L; ++timestamp)
+    {
+      builder
+        .append(Ulid.from(timestamp, new long[]{1L, 2L}))
+        .append('\n');
+    }
+
+    final List<Object> found = scan(
+      new UlidScanner(1010L, 1019L),
+      builder.toString());
+
+    assertThat(found.size(), is(20));
+    assertThat(((Ulid)found.get(1)).getTimestamp(), is(1010L));
+    assertThat(((Ulid)found.get(19)).getTimestamp(), is(1019L));
+  }
+
+  @Test
+  public void stopScan()
+  {
+    final String text = "01ARZ3NDEKTSV4RRFFQ69G5FAV 01BX5ZZKBKACTAV9WEVGEMMVRZ";
+    final List<Ulid> found = new ArrayList<>();
+
+    final long count = new UlidScanner().scan(
+      ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)),
+      new UlidScanVisitor()
+      {
+        @Override
+        public boolean visit(
+          long offset,
+          long mostSigBits,
+          long leastSigBits
+        )
+        {
+          found.add(new Ulid(mostSigBits, leastSigBits));
+
+          return false;
+        }
+      });
+
+    assertThat(count, is(1L));
+    assertThat(found.size(), is(1));
+  }
+
+  private static List<Object> scan(UlidScanner scanner, String text)
+  {
+    final List<Object> result = new ArrayList<>();
+
+    scanner.scan(
+      ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)),
+      collector(result));
+
+    return result;
+  }
+
+  private static UlidScanVisitor collector(final List<Object> found)
+  {
+    return new UlidScanVisitor()
+    {
+      @Override
+      public boolean visit(long offset, long mostSigBits, long leastSigBits)
+      {
+        found.add(offset);
+        found.add(new Ulid(mostSigBits, leastSigBits));
+
+        return true;
+      }
+    };
+  }
+}
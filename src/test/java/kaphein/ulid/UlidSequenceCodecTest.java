@@ -0,0 +1,192 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidSequenceCodecTest
+{
+  @Test
+  public void monotonicUlidsAreCompact()
+  {
+    final UlidSequenceCodec codec = new UlidSequenceCodec();
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(100000);
+
+    final byte[] bytes = codec.encode(ulids);
+
+    assertThat(bytes.length, is(lessThan(ulids.size() * 2)));
+    assertThat(toList(codec.decode(ByteBuffer.wrap(bytes))), is(ulids));
+  }
+
+  @Test
+  public void sortedRandomUlids()
+  {
+    final UlidSequenceCodec codec = new UlidSequenceCodec();
+    final Random random = new Random(793L);
+    final List<Ulid> ulids = new ArrayList<>();
+    for(int i = 0; i < 10000; ++i)
+    {
+      ulids.add(Ulid.from(
+        1700000000000L + random.nextInt(1000),
+        new long[] {random.nextInt(0x10000), random.nextLong()}));
+    }
+    Collections.sort(ulids);
+
+    final UlidBuffer buffer = new UlidBuffer();
+    for(final Ulid ulid : ulids)
+    {
+      buffer.add(ulid);
+    }
+
+    final byte[] bytes = codec.encode(buffer);
+
+    assertThat(toList(codec.decode(ByteBuffer.wrap(bytes))), is(ulids));
+  }
+
+  @Test
+  public void unsortedAndEdgeUlids()
+  {
+    final UlidSequenceCodec codec = new UlidSequenceCodec();
+    final List<Ulid> ulids = Arrays.asList(
+      Ulid.MAX_VALUE,
+      Ulid.MIN_VALUE,
+      Ulid.MIN_VALUE,
+      new Ulid(0L, 1L),
+      new Ulid(0L, -1L),
+      new Ulid(1L, 0L),
+      new Ulid(0L, -1L),
+      new Ulid(0xFFFFL, -1L),
+      new Ulid(0x10000L, 0L),
+      Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK"),
+      Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHM"),
+      Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK"),
+      Ulid.MAX_VALUE);
+
+    final byte[] bytes = codec.encode(ulids);
+
+    assertThat(toList(codec.decode(ByteBuffer.wrap(bytes))), is(ulids));
+    assertThat(
+      codec.decode(ByteBuffer.wrap(
+        codec.encode(Collections.<Ulid>emptyList()))).size(),
+      is(0));
+  }
+
+  @Test
+  public void streamThroughSmallBuffers()
+  {
+    final UlidSequenceCodec codec = new UlidSequenceCodec();
+    final Random random = new Random(793L);
+    final List<Ulid> ulids = new ArrayList<>();
+    for(int i = 0; i < 1000; ++i)
+    {
+      ulids.add(random.nextInt(4) > 0 && i > 0
+        ? new Ulid(
+          ulids.get(i - 1).getMostSignificantBits(),
+          ulids.get(i - 1).getLeastSignificantBits() + 1L)
+        : Ulid.from(i, new long[] {0L, random.nextLong()}));
+    }
+
+    final ByteBuffer encoded = ByteBuffer.allocate(1 << 16);
+    final ByteBuffer chunk = ByteBuffer
+      .allocate(UlidSequenceCodec.MAX_WRITE_SIZE);
+    final UlidSequenceCodec.Encoder encoder = codec.newEncoder();
+    for(final Ulid ulid : ulids)
+    {
+      while(!encoder.write(ulid, chunk))
+      {
+        chunk.flip();
+        encoded.put(chunk);
+        chunk.clear();
+      }
+    }
+    while(!encoder.finish(chunk))
+    {
+      chunk.flip();
+      encoded.put(chunk);
+      chunk.clear();
+    }
+    chunk.flip();
+    encoded.put(chunk);
+    encoded.flip();
+
+    final UlidBuffer decoded = new UlidBuffer();
+    final UlidSequenceCodec.Decoder decoder = codec.newDecoder();
+    final ByteBuffer input = ByteBuffer
+      .allocate(UlidSequenceCodec.MAX_WRITE_SIZE);
+    input.flip();
+    while(!decoder.isFinished())
+    {
+      decoder.read(input, decoded, 3);
+      input.compact();
+      while(input.hasRemaining() && encoded.hasRemaining())
+      {
+        input.put(encoded.get());
+      }
+      input.flip();
+    }
+
+    assertThat(toList(decoded), is(ulids));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    final UlidSequenceCodec codec = new UlidSequenceCodec();
+    final byte[] bytes = codec.encode(Arrays.asList(Ulid.MAX_VALUE));
+    final UlidSequenceCodec.Encoder encoder = codec.newEncoder();
+    encoder.finish(ByteBuffer.allocate(64));
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        codec.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+      }
+    });
+    assertThrows(IllegalStateException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        encoder.write(Ulid.MIN_VALUE, ByteBuffer.allocate(64));
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        codec.encode(Arrays.asList(Ulid.MIN_VALUE, null));
+      }
+    });
+  }
+
+  private static List<Ulid> toList(UlidBuffer buffer)
+  {
+    final List<Ulid> list = new ArrayList<>();
+    for(int i = 0; i < buffer.size(); ++i)
+    {
+      list.add(buffer.get(i));
+    }
+
+    return list;
+  }
+}
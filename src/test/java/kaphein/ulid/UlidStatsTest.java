@@ -0,0 +1,148 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.rules.TemporaryFolder;
+
+public class UlidStatsTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void computeHistogramOfLargeFiles()
+    throws IOException
+  {
+    final int count = 300000;
+    final long[] hiLo = new long[count << 1];
+    for(int i = 0; i < count; ++i)
+    {
+      // Ten ULIDs per millisecond with one step back every 1000 ULIDs.
+      final long timestamp = 1500000000000L + i / 10
+        - (999 == i % 1000 ? 200L : 0L);
+      hiLo[i << 1] = (timestamp << 16) | (i & 0xFFFF);
+      hiLo[(i << 1) + 1] = i * 0x9E3779B97F4A7C15L;
+    }
+
+    for(final UlidFormat format : UlidFormat.values())
+    {
+      final Path file = temporaryFolder.newFile().toPath();
+      try(UlidWriter writer = new UlidWriter(
+        Files.newOutputStream(file),
+        format))
+      {
+        writer.write(hiLo, 0, count);
+      }
+
+      final UlidStats stats = UlidStats.of(file, format, 60000L);
+
+      assertThat(stats.getBucketWidth(), is(60000L));
+      assertThat(stats.getCount(), is((long)count));
+      assertThat(stats.getMinTimestamp(), is(1499999999899L));
+      assertThat(stats.getMaxTimestamp(), is(1500000029999L));
+      assertThat(stats.getOutOfOrderCount(), is(300L));
+      assertThat(stats.getBucketCount(), is(2));
+      assertThat(stats.getBucketStart(0), is(1499999940000L));
+      assertThat(stats.getBucketSize(0), is(2L));
+      assertThat(stats.getBucketStart(1), is(1500000000000L));
+      assertThat(stats.getBucketSize(1), is(299998L));
+      assertThat(stats.getBucketSizeAt(1500000012345L), is(299998L));
+      assertThat(stats.getBucketSizeAt(1500000060000L), is(0L));
+    }
+  }
+
+  @Test
+  public void computeStatsOfTextWithCrLfAndNoFinalNewline()
+    throws IOException
+  {
+    final Path file = temporaryFolder.newFile().toPath();
+    Files.write(
+      file,
+      ("01ARZ3NDEKTSV4RRFFQ69G5FAV\r\n"
+        + "01arz3ndektsv4rrffq69g5fav\r\n"
+        + "01ARYZ6S41TSV4RRFFQ69G5FAV")
+        .getBytes(StandardCharsets.US_ASCII));
+
+    final UlidStats stats = UlidStats.of(file, UlidFormat.TEXT, 1L);
+
+    final long timestamp = Ulid.parse("01ARZ3NDEKTSV4RRFFQ69G5FAV")
+      .getTimestamp();
+    assertThat(stats.getCount(), is(3L));
+    assertThat(stats.getOutOfOrderCount(), is(1L));
+    assertThat(stats.getMaxTimestamp(), is(timestamp));
+    assertThat(stats.getBucketCount(), is(2));
+    assertThat(stats.getBucketSizeAt(timestamp), is(2L));
+  }
+
+  @Test
+  public void computeStatsOfEmptyFile()
+    throws IOException
+  {
+    final UlidStats stats = UlidStats.of(
+      temporaryFolder.newFile().toPath(),
+      UlidFormat.BINARY,
+      1000L);
+
+    assertThat(stats.getCount(), is(0L));
+    assertThat(stats.getMinTimestamp(), is(-1L));
+    assertThat(stats.getMaxTimestamp(), is(-1L));
+    assertThat(stats.getBucketCount(), is(0));
+  }
+
+  @Test
+  public void rejectMalformedFiles()
+    throws IOException
+  {
+    final Path text = temporaryFolder.newFile().toPath();
+    Files.write(
+      text,
+      "01ARZ3NDEKTSV4RRFFQ69G5FAV\n81ARZ3NDEKTSV4RRFFQ69G5FAV\n"
+        .getBytes(StandardCharsets.US_ASCII));
+    final Path binary = temporaryFolder.newFile().toPath();
+    Files.write(binary, new byte[Ulid.BYTES + 1]);
+
+    assertThrows(
+      IllegalArgumentException.class,
+      new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          UlidStats.of(text, UlidFormat.TEXT, 1000L);
+        }
+      });
+    assertThrows(
+      IllegalArgumentException.class,
+      new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          UlidStats.of(binary, UlidFormat.BINARY, 1000L);
+        }
+      });
+    assertThrows(
+      IllegalArgumentException.class,
+      new ThrowingRunnable()
+      {
+        @Override
+        public void run()
+          throws Throwable
+        {
+          UlidStats.of(binary, UlidFormat.BINARY, 0L);
+        }
+      });
+  }
+}
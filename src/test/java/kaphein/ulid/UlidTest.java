@@ -280,6 +280,15 @@ public class UlidTest
     testCompareTo(ulid, Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHJ"), 1);
     testCompareTo(ulid, Ulid.parse("01HAKQK7G0QKCTV8M94TEF1FHK"), -1);
     testCompareTo(ulid, Ulid.parse("01HAKQK7G0NKCTV8M94TEF1FHK"), 1);
+    testCompareTo(Ulid.MIN_VALUE, Ulid.MAX_VALUE, -1);
+    testCompareTo(
+      Ulid.parse("01HAKQK7G00000000000000000"),
+      Ulid.parse("01HAKQK7G0FZZZZZZZZZZZZZZZ"),
+      -1);
+    testCompareTo(
+      Ulid.parse("01HAKQK7G0FZZZZZZZZZZZZZZZ"),
+      Ulid.parse("01HAKQK7G10000000000000000"),
+      -1);
   }
 
   @SuppressWarnings("unlikely-arg-type")
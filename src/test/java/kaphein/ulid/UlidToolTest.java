@@ -0,0 +1,173 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UlidToolTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void generateMonotonicUlidsAtTimestamp()
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    final int status = run(
+      out,
+      "generate", "100000", "--monotonic", "--at", "1500000000000");
+
+    assertThat(status, is(UlidTool.EXIT_SUCCESS));
+    final String[] lines = new String(
+      out.toByteArray(),
+      StandardCharsets.US_ASCII).split("\n");
+    assertThat(lines.length, is(100000));
+    Ulid previous = null;
+    for(final String line : lines)
+    {
+      final Ulid ulid = Ulid.parse(line);
+      assertThat(ulid.getTimestamp(), is(1500000000000L));
+      if(null != previous)
+      {
+        assertThat(previous.compareTo(ulid) < 0, is(true));
+      }
+      previous = ulid;
+    }
+  }
+
+  @Test
+  public void convertLargeFilesInChunks()
+    throws IOException
+  {
+    final Path text = temporaryFolder.newFile().toPath();
+    final Path binary = temporaryFolder.newFile().toPath();
+    final Path hex = temporaryFolder.newFile().toPath();
+    final Path textAgain = temporaryFolder.newFile().toPath();
+
+    assertThat(
+      run(
+        new ByteArrayOutputStream(),
+        "generate", "400000", "--output", text.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+    assertThat(
+      run(
+        new ByteArrayOutputStream(),
+        "encode", text.toString(), "--output", binary.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+    assertThat(
+      run(
+        new ByteArrayOutputStream(),
+        "decode", "--to", "hex", binary.toString(),
+        "--output", hex.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+    assertThat(
+      run(
+        new ByteArrayOutputStream(),
+        "encode", "--from", "hex", hex.toString(),
+        "--output", binary.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+    assertThat(
+      run(
+        new ByteArrayOutputStream(),
+        "decode", binary.toString(), "--output", textAgain.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+
+    assertThat(Files.size(binary), is(400000L * Ulid.BYTES));
+    assertThat(
+      Files.readAllBytes(textAgain),
+      is(Files.readAllBytes(text)));
+  }
+
+  @Test
+  public void convertStandardStreams()
+  {
+    final Ulid ulid = Ulid.parse("01ARZ3NDEKTSV4RRFFQ69G5FAV");
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    final int status = UlidTool.run(
+      new String[]{"encode"},
+      new ByteArrayInputStream(
+        (ulid + "\n").getBytes(StandardCharsets.US_ASCII)),
+      out,
+      new PrintStream(new ByteArrayOutputStream()));
+
+    assertThat(status, is(UlidTool.EXIT_SUCCESS));
+    assertThat(out.toByteArray(), is(ulid.toByteArray()));
+  }
+
+  @Test
+  public void sortAndVerify()
+    throws IOException
+  {
+    final List<Ulid> ulids = new ArrayList<>();
+    for(int i = 0; i < 1000; ++i)
+    {
+      ulids.add(Ulid.from(1000L + i % 7, new long[]{i, i * 31L}));
+    }
+    Collections.shuffle(ulids);
+    ulids.add(ulids.get(0));
+    final Path input = temporaryFolder.newFile().toPath();
+    final Path output = temporaryFolder.newFile().toPath();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for(final Ulid ulid : ulids)
+    {
+      bytes.write(ulid.toByteArray());
+    }
+    Files.write(input, bytes.toByteArray());
+
+    assertThat(
+      run(new ByteArrayOutputStream(), "verify", input.toString()),
+      is(UlidTool.EXIT_FAILURE));
+    assertThat(
+      run(
+        new ByteArrayOutputStream(),
+        "sort", "--unique", input.toString(), output.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+    assertThat(
+      run(new ByteArrayOutputStream(), "verify", output.toString()),
+      is(UlidTool.EXIT_SUCCESS));
+    assertThat(Files.size(output), is(1000L * Ulid.BYTES));
+  }
+
+  @Test
+  public void rejectInvalidArguments()
+  {
+    assertThat(run(new ByteArrayOutputStream()), is(UlidTool.EXIT_USAGE));
+    assertThat(
+      run(new ByteArrayOutputStream(), "shuffle"),
+      is(UlidTool.EXIT_USAGE));
+    assertThat(
+      run(new ByteArrayOutputStream(), "generate", "ten"),
+      is(UlidTool.EXIT_USAGE));
+    assertThat(
+      run(new ByteArrayOutputStream(), "generate", "10", "--bogus", "x"),
+      is(UlidTool.EXIT_USAGE));
+    assertThat(
+      run(new ByteArrayOutputStream(), "decode", "--to", "binary"),
+      is(UlidTool.EXIT_USAGE));
+  }
+
+  private static int run(ByteArrayOutputStream out, String... args)
+  {
+    return UlidTool.run(
+      args,
+      new ByteArrayInputStream(new byte[0]),
+      out,
+      new PrintStream(new ByteArrayOutputStream()));
+  }
+}
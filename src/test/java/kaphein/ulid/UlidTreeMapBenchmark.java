@@ -0,0 +1,179 @@
+package kaphein.ulid;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Compares {@link UlidTreeMap} and {@link ConcurrentUlidTreeMap} with
+ * {@link ConcurrentSkipListMap} on monotonic appends, point gets and
+ * time-range queries. Run {@link #main(String[])} with the number of keys as
+ * an optional argument.
+ */
+class UlidTreeMapBenchmark
+{
+  public static void main(String[] args)
+  {
+    final int keyCount = (args.length > 0
+      ? Integer.parseInt(args[0])
+      : 1 << 20);
+    final Ulid[] keys = createMonotonicKeys(keyCount);
+
+    for(int round = 0; round < ROUND_COUNT; ++round)
+    {
+      System.out.printf("round=%d, keys=%d%n", round, keyCount);
+      run("tree", new TreeMapFactory(), keys);
+      run("concurrentTree", new ConcurrentTreeMapFactory(), keys);
+      run("skipList", new SkipListFactory(), keys);
+    }
+  }
+
+  /**
+   * The number of ULIDs generated in a millisecond.
+   */
+  private static final int KEYS_PER_MILLI = 1000;
+
+  /**
+   * The width of a time-range query in milliseconds.
+   */
+  private static final long RANGE_WIDTH_MILLIS = 10L;
+
+  private static final int GET_COUNT = 1 << 20;
+
+  private static final int RANGE_QUERY_COUNT = 1 << 12;
+
+  /**
+   * The first rounds warm up the JIT.
+   */
+  private static final int ROUND_COUNT = 3;
+
+  private static Ulid[] createMonotonicKeys(int keyCount)
+  {
+    final Ulid[] result = new Ulid[keyCount];
+
+    for(int i = 0; i < keyCount; ++i)
+    {
+      result[i] = Ulid.from(
+        1500000000000L + i / KEYS_PER_MILLI,
+        new long[] {0L, i});
+    }
+
+    return result;
+  }
+
+  private static void run(String name, MapFactory factory, Ulid[] keys)
+  {
+    final Map<Ulid, Integer> map = factory.create();
+
+    long start = System.nanoTime();
+    for(int i = 0; i < keys.length; ++i)
+    {
+      map.put(keys[i], i);
+    }
+    final double appendNanos = (double)(System.nanoTime() - start)
+      / keys.length;
+
+    final Random random = new Random(1L);
+    long checksum = 0L;
+    start = System.nanoTime();
+    for(int i = 0; i < GET_COUNT; ++i)
+    {
+      checksum += map.get(keys[random.nextInt(keys.length)]);
+    }
+    final double getNanos = (double)(System.nanoTime() - start) / GET_COUNT;
+
+    final long firstTimestamp = keys[0].getTimestamp();
+    final int timestampCount = keys.length / KEYS_PER_MILLI;
+    start = System.nanoTime();
+    for(int i = 0; i < RANGE_QUERY_COUNT; ++i)
+    {
+      final long from = firstTimestamp + random.nextInt(timestampCount);
+      for(final Integer value
+        : factory.subMapByTime(map, from, from + RANGE_WIDTH_MILLIS).values())
+      {
+        checksum += value;
+      }
+    }
+    final double rangeNanos = (double)(System.nanoTime() - start)
+      / RANGE_QUERY_COUNT;
+
+    System.out.printf(
+      "  %s: append=%.1f ns/op, get=%.1f ns/op, range=%.0f ns/op"
+        + " (checksum=%d)%n",
+      name,
+      appendNanos,
+      getNanos,
+      rangeNanos,
+      checksum);
+  }
+
+  private interface MapFactory
+  {
+    Map<Ulid, Integer> create();
+
+    Map<Ulid, Integer> subMapByTime(
+      Map<Ulid, Integer> map,
+      long fromTimestamp,
+      long toTimestamp);
+  }
+
+  private static final class TreeMapFactory implements MapFactory
+  {
+    @Override
+    public Map<Ulid, Integer> create()
+    {
+      return new UlidTreeMap<>();
+    }
+
+    @Override
+    public Map<Ulid, Integer> subMapByTime(
+      Map<Ulid, Integer> map,
+      long fromTimestamp,
+      long toTimestamp)
+    {
+      return ((UlidTreeMap<Integer>)map).subMapByTime(
+        fromTimestamp,
+        toTimestamp);
+    }
+  }
+
+  private static final class ConcurrentTreeMapFactory implements MapFactory
+  {
+    @Override
+    public Map<Ulid, Integer> create()
+    {
+      return new ConcurrentUlidTreeMap<>();
+    }
+
+    @Override
+    public Map<Ulid, Integer> subMapByTime(
+      Map<Ulid, Integer> map,
+      long fromTimestamp,
+      long toTimestamp)
+    {
+      return ((ConcurrentUlidTreeMap<Integer>)map).subMapByTime(
+        fromTimestamp,
+        toTimestamp);
+    }
+  }
+
+  private static final class SkipListFactory implements MapFactory
+  {
+    @Override
+    public Map<Ulid, Integer> create()
+    {
+      return new ConcurrentSkipListMap<>();
+    }
+
+    @Override
+    public Map<Ulid, Integer> subMapByTime(
+      Map<Ulid, Integer> map,
+      long fromTimestamp,
+      long toTimestamp)
+    {
+      return ((ConcurrentSkipListMap<Ulid, Integer>)map).subMap(
+        Ulid.from(fromTimestamp, new long[] {0L, 0L}),
+        Ulid.from(toTimestamp, new long[] {0L, 0L}));
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+public class UlidTreeMapTest
+{
+  @Test
+  public void putGetAndRemove()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+    final Ulid key = Ulid.parse("01HAKQK7G0PKCTV8M94TEF1FHK");
+
+    assertThat(map.isEmpty(), is(true));
+    assertThat(map.put(key, 1), is(nullValue()));
+    assertThat(map.put(key, 2), is(1));
+    assertThat(map.get(key), is(2));
+    assertThat(map.containsKey(new Ulid(key)), is(true));
+    assertThat(map.size(), is(1));
+    assertThat(map.remove(key), is(2));
+    assertThat(map.containsKey(key), is(false));
+    assertThat(map.isEmpty(), is(true));
+  }
+
+  @Test
+  public void withOddParameters()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        map.put(null, 0);
+      }
+    });
+    assertThrows(NullPointerException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        map.get(null);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        map.subMapByTime(2L, 1L);
+      }
+    });
+    assertThat(map.get("01HAKQK7G0PKCTV8M94TEF1FHK"), is(nullValue()));
+  }
+
+  @Test
+  public void matchesTreeMapWithRandomOperations()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+    final TreeMap<Ulid, Integer> expected = new TreeMap<>();
+    final Random random = new Random(793L);
+
+    for(int i = 0; i < 50000; ++i)
+    {
+      final Ulid key = new Ulid(
+        random.nextInt(64) << 16,
+        random.nextInt(4096) * 0x9E3779B97F4A7C15L);
+
+      if(random.nextInt(3) > 0)
+      {
+        assertThat(map.put(key, i), is(expected.put(key, i)));
+      }
+      else
+      {
+        assertThat(map.remove(key), is(expected.remove(key)));
+      }
+    }
+
+    assertThat(map.size(), is(expected.size()));
+    assertThat(new ArrayList<>(map.keySet()), is(toList(expected.keySet())));
+    assertThat(map.firstKey(), is(expected.firstKey()));
+    assertThat(map.lastKey(), is(expected.lastKey()));
+    assertThat(map.equals(expected), is(true));
+  }
+
+  @Test
+  public void appendMonotonicKeys()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+    final List<Ulid> ulids = new MonotonicUlidGenerator(
+      new ControlledEpochMilliSupplier(0L, 8),
+      null)
+      .generate(100000);
+
+    for(int i = 0; i < ulids.size(); ++i)
+    {
+      map.put(ulids.get(i), i);
+    }
+
+    assertThat(map.size(), is(ulids.size()));
+    assertThat(new ArrayList<>(map.keySet()), is(ulids));
+    for(int i = 0; i < ulids.size(); i += 997)
+    {
+      assertThat(map.get(ulids.get(i)), is(i));
+    }
+  }
+
+  @Test
+  public void removeEverything()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+
+    for(int i = 0; i < 10000; ++i)
+    {
+      map.put(0L, i, i);
+    }
+    for(int i = 0; i < 10000; ++i)
+    {
+      assertThat(map.remove(0L, i), is(i));
+    }
+
+    assertThat(map.isEmpty(), is(true));
+    assertThat(map.entrySet().iterator().hasNext(), is(false));
+
+    map.put(0L, 1L, 1);
+
+    assertThat(map.firstKey(), is(map.lastKey()));
+  }
+
+  @Test
+  public void subMapByTime()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+
+    for(int timestamp = 0; timestamp < 100; ++timestamp)
+    {
+      map.put(Ulid.from(timestamp, new long[] {0L, 0L}), timestamp);
+      map.put(Ulid.from(timestamp, new long[] {0xFFFFL, -1L}), timestamp);
+    }
+
+    final Map<Ulid, Integer> range = map.subMapByTime(10L, 12L);
+
+    assertThat(range.size(), is(4));
+    assertThat(range.values(), contains(10, 10, 11, 11));
+    assertThat(
+      range.containsKey(Ulid.from(9L, new long[] {0L, 0L})),
+      is(false));
+    assertThat(range.get(Ulid.from(11L, new long[] {0L, 0L})), is(11));
+    assertThat(map.subMapByTime(10L, 10L).isEmpty(), is(true));
+    assertThat(map.headByTime(3L).values(), contains(0, 0, 1, 1, 2, 2));
+    assertThat(map.tailByTime(98L).values(), contains(98, 98, 99, 99));
+    assertThat(map.headByTime(0L).isEmpty(), is(true));
+
+    assertThrows(IllegalArgumentException.class, new ThrowingRunnable()
+    {
+      @Override
+      public void run()
+        throws Throwable
+      {
+        range.put(Ulid.from(12L, new long[] {0L, 0L}), 0);
+      }
+    });
+
+    map.headByTime(50L).clear();
+
+    assertThat(map.size(), is(100));
+    assertThat(map.firstKey().getTimestamp(), is(50L));
+  }
+
+  @Test
+  public void iteratorRemove()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+    for(int i = 0; i < 1000; ++i)
+    {
+      map.put(0L, i, i);
+    }
+
+    for(final Iterator<Integer> iter = map.values().iterator(); iter.hasNext();)
+    {
+      if(0 != (iter.next() & 1))
+      {
+        iter.remove();
+      }
+    }
+
+    assertThat(map.size(), is(500));
+    for(final Map.Entry<Ulid, Integer> entry : map.entrySet())
+    {
+      assertThat(entry.getValue() & 1, is(0));
+
+      entry.setValue(-entry.getValue());
+    }
+    assertThat(map.get(0L, 2L), is(-2));
+  }
+
+  @Test
+  public void unsignedOrder()
+  {
+    final UlidTreeMap<Integer> map = new UlidTreeMap<>();
+
+    map.put(Ulid.MAX_VALUE, 2);
+    map.put(new Ulid(0L, -1L), 1);
+    map.put(Ulid.MIN_VALUE, 0);
+
+    assertThat(map.values(), contains(0, 1, 2));
+  }
+
+  private static List<Ulid> toList(Iterable<Ulid> ulids)
+  {
+    final List<Ulid> list = new ArrayList<>();
+    for(final Ulid ulid : ulids)
+    {
+      list.add(ulid);
+    }
+
+    return list;
+  }
+}
@@ -0,0 +1,79 @@
+package kaphein.ulid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class UlidWriterTest
+{
+  @Test
+  public void writeText()
+    throws IOException
+  {
+    final List<Ulid> ulids = createUlids(1000);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try(UlidWriter writer = new UlidWriter(out, UlidFormat.TEXT))
+    {
+      for(final Ulid ulid : ulids)
+      {
+        writer.write(ulid);
+      }
+    }
+
+    final StringBuilder expected = new StringBuilder();
+    for(final Ulid ulid : ulids)
+    {
+      expected.append(ulid).append('\n');
+    }
+    assertThat(
+      new String(out.toByteArray(), StandardCharsets.US_ASCII),
+      is(expected.toString()));
+  }
+
+  @Test
+  public void writeBinary()
+    throws IOException
+  {
+    final List<Ulid> ulids = createUlids(1000);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try(
+      UlidWriter writer = new UlidWriter(
+        Channels.newChannel(out),
+        UlidFormat.BINARY)
+    )
+    {
+      writer.write(ulids.toArray(new Ulid[0]), 0, ulids.size());
+    }
+
+    final byte[] bytes = out.toByteArray();
+    assertThat(bytes.length, is(ulids.size() * Ulid.BYTES));
+    for(int i = 0; i < ulids.size(); ++i)
+    {
+      assertThat(Ulid.from(bytes, i * Ulid.BYTES), is(ulids.get(i)));
+    }
+  }
+
+  private static List<Ulid> createUlids(int count)
+  {
+    final Random random = new Random(17L);
+    final List<Ulid> result = new ArrayList<>();
+
+    for(int i = 0; i < count; ++i)
+    {
+      result.add(Ulid.from(
+        random.nextLong() & Ulid.TIMESTAMP_MAX_VALUE,
+        new long[]{random.nextInt(0x10000), random.nextLong()}));
+    }
+
+    return result;
+  }
+}